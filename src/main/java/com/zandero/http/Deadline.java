@@ -0,0 +1,222 @@
+package com.zandero.http;
+
+import com.zandero.utils.*;
+
+import java.time.*;
+import java.util.concurrent.*;
+
+/**
+ * Absolute point in time by which a call (DNS, pool wait, connect, TLS, send and full body read) must complete
+ * <p>
+ * Deadline can be attached to the current thread, all {@link Http} and {@link HttpUtils} calls made while attached
+ * are bound by it. Nested deadlines never extend an already attached (earlier) deadline.
+ *
+ * <pre>
+ * try (Deadline.Scope ignored = Deadline.after(2, TimeUnit.SECONDS).attach()) {
+ *     Http.get(url);
+ * }
+ * </pre>
+ */
+public final class Deadline implements Comparable<Deadline> {
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Single daemon thread cancelling calls once their deadline expires
+     */
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "http-deadline-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * expiry in System.nanoTime() units
+     */
+    private final long expiresAt;
+
+    private Deadline(long nanoTime) {
+        expiresAt = nanoTime;
+    }
+
+    /**
+     * Deadline expiring after given duration from now
+     *
+     * @param duration time to expiry
+     * @param unit     duration time unit
+     * @return deadline
+     */
+    public static Deadline after(long duration, TimeUnit unit) {
+
+        Assert.notNull(unit, "Missing time unit!");
+        Assert.isTrue(duration >= 0, "Expected duration >= 0!");
+        return new Deadline(System.nanoTime() + unit.toNanos(duration));
+    }
+
+    /**
+     * Deadline expiring after given duration from now
+     *
+     * @param duration time to expiry
+     * @return deadline
+     */
+    public static Deadline after(Duration duration) {
+
+        Assert.notNull(duration, "Missing duration!");
+        return after(duration.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Deadline attached to current thread
+     *
+     * @return current deadline or null if none attached
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Remaining time till expiry
+     *
+     * @param unit time unit
+     * @return remaining time, 0 if expired
+     */
+    public long remaining(TimeUnit unit) {
+        return unit.convert(Math.max(0, expiresAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return true if deadline has passed
+     */
+    public boolean isExpired() {
+        return expiresAt - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Throws exception if deadline has passed
+     *
+     * @throws DeadlineExceededException in case deadline has passed
+     */
+    public void check() throws DeadlineExceededException {
+        if (isExpired()) {
+            throw new DeadlineExceededException(this);
+        }
+    }
+
+    /**
+     * Limits given time out to remaining time
+     *
+     * @param timeOutInMs time out in ms (0 for infinite)
+     * @return time out not exceeding remaining time (at least 1ms)
+     */
+    public int limit(int timeOutInMs) {
+
+        // round up, so time out does not fire before deadline has passed
+        long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining(TimeUnit.NANOSECONDS) + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+        if (timeOutInMs <= 0 || timeOutInMs > remaining) {
+            return (int) Math.min(Integer.MAX_VALUE, remaining);
+        }
+
+        return timeOutInMs;
+    }
+
+    /**
+     * Returns the earlier of two deadlines
+     *
+     * @param other deadline or null
+     * @return earlier deadline
+     */
+    public Deadline min(Deadline other) {
+        return other == null || compareTo(other) <= 0 ? this : other;
+    }
+
+    /**
+     * Attaches deadline to current thread, if an earlier deadline is already attached it stays in effect
+     *
+     * @return scope to be closed once call is done to restore previous deadline
+     */
+    public Scope attach() {
+
+        Deadline previous = CURRENT.get();
+        CURRENT.set(min(previous));
+        return new Scope(previous);
+    }
+
+    /**
+     * Wraps task so it runs with this deadline attached (to carry deadline to executor threads)
+     *
+     * @param task to wrap
+     * @return wrapped task
+     */
+    public Runnable wrap(Runnable task) {
+
+        Assert.notNull(task, "Missing task!");
+        return () -> {
+            try (Scope ignored = attach()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Wraps task so it runs with this deadline attached (to carry deadline to executor threads)
+     *
+     * @param task to wrap
+     * @param <T>  task result type
+     * @return wrapped task
+     */
+    public <T> Callable<T> wrap(Callable<T> task) {
+
+        Assert.notNull(task, "Missing task!");
+        return () -> {
+            try (Scope ignored = attach()) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * Schedules cancellation to be invoked once deadline expires
+     *
+     * @param cancel action to take on expiry (abort / disconnect)
+     * @return future to be cancelled once call completes in time
+     */
+    ScheduledFuture<?> onExpiry(Runnable cancel) {
+        return TIMER.schedule(cancel, Math.max(0, expiresAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Deadline other) {
+        return Long.signum(expiresAt - other.expiresAt);
+    }
+
+    @Override
+    public String toString() {
+        long remaining = expiresAt - System.nanoTime();
+        return "Deadline (" + TimeUnit.NANOSECONDS.toMillis(Math.abs(remaining)) + "ms " + (remaining > 0 ? "remaining)" : "ago)");
+    }
+
+    /**
+     * Restores previously attached deadline when closed
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final Deadline previous;
+
+        private Scope(Deadline previousDeadline) {
+            previous = previousDeadline;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
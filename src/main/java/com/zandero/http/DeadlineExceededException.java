@@ -0,0 +1,18 @@
+package com.zandero.http;
+
+import java.io.*;
+
+/**
+ * Thrown when call did not complete before its {@link Deadline}
+ */
+public class DeadlineExceededException extends InterruptedIOException {
+
+    /**
+     * Deadline exceeded
+     *
+     * @param deadline expired deadline
+     */
+    public DeadlineExceededException(Deadline deadline) {
+        super("Deadline exceeded: " + deadline);
+    }
+}
@@ -1,13 +1,21 @@
 package com.zandero.http;
 
-import com.zandero.utils.extra.*;
+import com.zandero.http.buffer.*;
+import com.zandero.http.codec.*;
+import com.zandero.http.socket.*;
+import com.zandero.http.unix.UnixSockets;
+import com.zandero.http.tracing.*;
+import com.zandero.utils.*;
+import org.apache.http.*;
 import org.slf4j.*;
 
 import javax.net.ssl.*;
 import java.io.*;
 import java.net.*;
 import java.nio.charset.*;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Making GET, POST, PUT and DELETE requests ...
@@ -16,11 +24,29 @@ public final class Http {
 
     private static final org.slf4j.Logger log = LoggerFactory.getLogger(Http.class);
 
-    private static final int DEFAULT_CONNECT_TIMEOUT = 3000; // 3s
-    private static final int DEFAULT_READ_TIMEOUT = 5000; // 5s
+    /**
+     * Default connect time out in ms
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 3000; // 3s
+
+    /**
+     * Default read time out in ms
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 5000; // 5s
+
+    private static final int READ_CHUNK_SIZE = 8 * 1024;
 
     private static SSLSocketFactory sslFactory;
 
+    private static SocketTuning socketOptions;
+
+    /**
+     * SSL factory set or default one, layered on tuned sockets if socket options are set (same instance is kept for connections to be reused)
+     */
+    private static volatile SSLSocketFactory effectiveSslFactory;
+
+    private static BodyCodec codec = new JacksonCodec();
+
     private Http() {
         // hide constructor
     }
@@ -30,8 +56,54 @@ public final class Http {
      *
      * @param factory SSL factory
      */
-    public static void setSSLSocketFactory(SSLSocketFactory factory) {
+    public static synchronized void setSSLSocketFactory(SSLSocketFactory factory) {
         sslFactory = factory;
+        effectiveSslFactory = getEffectiveSslFactory();
+    }
+
+    /**
+     * Sets socket options of HTTPS connections, plain HTTP connections are opened by the JVM and can not be tuned
+     * <p>
+     * Note: the JVM always turns on {@code TCP_NODELAY}, options are applied once more when SSL is layered on top of connected socket.
+     *
+     * @param options socket options or null for defaults
+     */
+    public static synchronized void setSocketOptions(SocketTuning options) {
+        socketOptions = options;
+        effectiveSslFactory = getEffectiveSslFactory();
+    }
+
+    /**
+     * Sends plain HTTP requests to given host over a unix domain socket (Java 16 or newer), see {@link UnixSockets}
+     * <p>
+     * Urls with {@code http+unix://} scheme (url encoded socket path as host) are accepted only for sockets registered this way.
+     *
+     * @param host   host name as used in urls
+     * @param socket path of socket file or null to remove mapping
+     */
+    public static void setUnixSocket(String host, Path socket) {
+        UnixSockets.register(host, socket);
+    }
+
+    private static SSLSocketFactory getEffectiveSslFactory() {
+
+        if (socketOptions == null) {
+            return sslFactory;
+        }
+
+        SSLSocketFactory factory = sslFactory != null ? sslFactory : (SSLSocketFactory) SSLSocketFactory.getDefault();
+        return new TunedSSLSocketFactory(factory, socketOptions);
+    }
+
+    /**
+     * Sets codec used to serialize and deserialize typed bodies
+     *
+     * @param bodyCodec codec, {@link JacksonCodec} by default
+     */
+    public static void setBodyCodec(BodyCodec bodyCodec) {
+
+        Assert.notNull(bodyCodec, "Missing body codec!");
+        codec = bodyCodec;
     }
 
     /**
@@ -55,6 +127,18 @@ public final class Http {
             code = statusCode;
         }
 
+        /**
+         * Http exception
+         *
+         * @param statusCode http status code
+         * @param message    exception message
+         * @param cause      cause of exception
+         */
+        public HttpException(int statusCode, String message, Throwable cause) {
+            super(message, cause);
+            code = statusCode;
+        }
+
         /**
          * Http status code
          *
@@ -142,21 +226,35 @@ public final class Http {
         /**
          * List of header value
          *
-         * @param name header name
+         * @param name header name (case insensitive)
          * @return list of values
          */
         public List<String> getHeaders(String name) {
-            return headers.get(name);
+
+            if (headers == null || name == null) {
+                return null;
+            }
+
+            List<String> found = headers.get(name);
+            if (found == null) {
+                for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                    if (name.equalsIgnoreCase(header.getKey())) {
+                        return header.getValue();
+                    }
+                }
+            }
+
+            return found;
         }
 
         /**
          * Get header
          *
-         * @param name header name
+         * @param name header name (case insensitive)
          * @return header value
          */
         public String getHeader(String name) {
-            List<String> found = headers.get(name);
+            List<String> found = getHeaders(name);
             if (found != null && found.size() > 0) {
                 return found.get(0);
             }
@@ -407,8 +505,119 @@ public final class Http {
     }
 
 
+    /**
+     * Makes GET request, response body is deserialized with body codec
+     *
+     * @param url  url
+     * @param type of response body
+     * @param <T>  type of response body
+     * @return response body or null if empty
+     * @throws HttpException in case of network failure or when response status is not 2xx (holding response as message)
+     */
+    public static <T> T getAs(String url, Class<T> type) throws HttpException {
+        return getAs(url, null, null, type);
+    }
+
+    /**
+     * Makes GET request, response body is deserialized with body codec
+     *
+     * @param url     url
+     * @param query   query to append to url or null to skip
+     * @param headers to include or null to skip
+     * @param type    of response body
+     * @param <T>     type of response body
+     * @return response body or null if empty
+     * @throws HttpException in case of network failure or when response status is not 2xx (holding response as message)
+     */
+    public static <T> T getAs(String url, Map<String, String> query, Map<String, String> headers, Class<T> type) throws HttpException {
+        return execute("GET", url, null, query, headers, type, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Makes POST request, body is serialized with body codec or streamed as is when given as HttpEntity (for instance {@link com.zandero.http.multipart.Multipart})
+     *
+     * @param url  url
+     * @param body object to post
+     * @return Response object with HTTP response code and response as String
+     * @throws HttpException in case of invalid input parameters or network failure
+     */
+    public static Response post(String url, Object body) throws HttpException {
+
+        URL target = toUrl(url, null);
+        return execute("POST", target, UrlTemplate.isHttps(url), null, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT,
+                       writer(body), Http::readResponse);
+    }
+
+    /**
+     * Makes POST request, request and response body are (de)serialized with body codec
+     *
+     * @param url  url
+     * @param body object to post
+     * @param type of response body
+     * @param <T>  type of response body
+     * @return response body or null if empty
+     * @throws HttpException in case of network failure or when response status is not 2xx (holding response as message)
+     */
+    public static <T> T postAs(String url, Object body, Class<T> type) throws HttpException {
+        return execute("POST", url, body, null, null, type, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Makes PUT request, request and response body are (de)serialized with body codec
+     *
+     * @param url  url
+     * @param body object to put
+     * @param type of response body
+     * @param <T>  type of response body
+     * @return response body or null if empty
+     * @throws HttpException in case of network failure or when response status is not 2xx (holding response as message)
+     */
+    public static <T> T putAs(String url, Object body, Class<T> type) throws HttpException {
+        return execute("PUT", url, body, null, null, type, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Generic typed request execution method
+     * <p>
+     * Request body is serialized straight into the connection stream (chunked),
+     * response body is deserialized straight from the connection stream
+     *
+     * @param method         to execute
+     * @param apiUrl         url to call
+     * @param body           object to post/put or null
+     * @param query          to add to url or null
+     * @param headers        to add to request or null
+     * @param type           of response body or null to ignore response body
+     * @param connectTimeOut connect time out in ms
+     * @param readTimeOut    read time out in ms
+     * @param <T>            type of response body
+     * @return response body or null if empty
+     * @throws HttpException in case of network failure or when response status is not 2xx (holding response as message)
+     */
+    public static <T> T execute(String method,
+                                String apiUrl,
+                                Object body,
+                                Map<String, String> query,
+                                Map<String, String> headers,
+                                Class<T> type,
+                                int connectTimeOut,
+                                int readTimeOut) throws HttpException {
+
+        BodyCodec bodyCodec = codec;
+        if (type != null && !hasHeader(headers, "Accept")) {
+            headers = headers == null ? new HashMap<>() : new HashMap<>(headers);
+            headers.put("Accept", bodyCodec.getContentType());
+        }
+
+        URL url = toUrl(apiUrl, query);
+        return execute(method, url, UrlTemplate.isHttps(apiUrl), headers, connectTimeOut, readTimeOut,
+                       body == null ? null : writer(body), reader(bodyCodec, type));
+    }
+
     /**
      * Generic request execution method
+     * <p>
+     * Bound by {@link Deadline} attached to current thread if any, once deadline expires request is cancelled
      *
      * @param method         to execute
      * @param apiUrl         url to call
@@ -420,101 +629,403 @@ public final class Http {
      * @return Response object with HTTP response code and response as String
      * @throws HttpException in case of invalid input parameters
      */
+    public static Response execute(String method,
+                                   String apiUrl,
+                                   String body,
+                                   Map<String, String> query,
+                                   Map<String, String> headers,
+                                   int connectTimeOut,
+                                   int readTimeOut) throws HttpException {
+
+        URL url = toUrl(apiUrl, query);
+        return execute(method, url, UrlTemplate.isHttps(apiUrl), body, headers, connectTimeOut, readTimeOut);
+    }
+
+    /**
+     * Generic request execution method for pre parsed url
+     * <p>
+     * Bound by {@link Deadline} attached to current thread if any, once deadline expires request is cancelled
+     *
+     * @param method         to execute
+     * @param template       url to call
+     * @param body           to post/put
+     * @param query          to add to url
+     * @param headers        to add to request
+     * @param connectTimeOut connect time out in ms
+     * @param readTimeOut    read time out in ms
+     * @return Response object with HTTP response code and response as String
+     * @throws HttpException in case of invalid input parameters
+     */
+    public static Response execute(String method,
+                                   UrlTemplate template,
+                                   String body,
+                                   Map<String, String> query,
+                                   Map<String, String> headers,
+                                   int connectTimeOut,
+                                   int readTimeOut) throws HttpException {
+
+        URL url;
+        try {
+            url = template.toUrl(query);
+        } catch (Exception e) {
+            log.error("Failed execute request to: {}", template, e);
+            throw new HttpException(500, e.getMessage(), e);
+        }
+
+        return execute(method, url, template.isHttps(), body, headers, connectTimeOut, readTimeOut);
+    }
+
     private static Response execute(String method,
-                                    String apiUrl,
+                                    URL url,
+                                    boolean https,
                                     String body,
-                                    Map<String, String> query,
                                     Map<String, String> headers,
                                     int connectTimeOut,
                                     int readTimeOut) throws HttpException {
 
+        BodyWriter writer = body == null ? null : conn -> {
+
+            try (BufferOutputStream postData = new BufferOutputStream(BufferPool.getDefault(), body.length())) {
+                postData.writeUtf8(body);
+                conn.setRequestProperty("Content-Length", Integer.toString(postData.size()));
+
+                postData.writeTo(conn.getOutputStream());
+            }
+        };
+
+        return execute(method, url, https, headers, connectTimeOut, readTimeOut, writer, Http::readResponse);
+    }
+
+    private static <T> T execute(String method,
+                                 URL url,
+                                 boolean https,
+                                 Map<String, String> headers,
+                                 int connectTimeOut,
+                                 int readTimeOut,
+                                 BodyWriter writer,
+                                 BodyReader<T> reader) throws HttpException {
+
         HttpURLConnection conn = null;
         int responseCode = 500;
+        boolean reusable = false;
+
+        Deadline deadline = Deadline.current();
+        ScheduledFuture<?> cancel = null;
+        Span span = null;
 
         try {
 
-            if (query != null && query.size() > 0) {
-                apiUrl = UrlUtils.composeUrl(apiUrl, query);
+            if (deadline != null) {
+                deadline.check();
+                connectTimeOut = deadline.limit(connectTimeOut);
+                readTimeOut = deadline.limit(readTimeOut);
             }
 
-            URL url = new URL(apiUrl);
+            conn = open(method, url, https, headers, connectTimeOut, readTimeOut);
 
-            if (apiUrl.toLowerCase().startsWith("https://")) {
+            span = Tracing.startSpan(method + " " + url.getHost());
+            Tracing.inject(span, conn::setRequestProperty);
 
-                conn = (HttpsURLConnection) url.openConnection();
-                if (sslFactory != null) {
-                    ((HttpsURLConnection) conn).setSSLSocketFactory(sslFactory);
-                }
-            } else {
-                conn = (HttpURLConnection) url.openConnection();
+            if (deadline != null) {
+                cancel = deadline.onExpiry(conn::disconnect);
+            }
+
+            if (writer != null) {
+                // turn input on
+                conn.setDoInput(true);
+                writer.write(conn);
+            } else if (span != null) {
+                // connect upfront to tell connect time apart (streaming mode of body must be set before connecting)
+                conn.connect();
+                span.mark(Span.Phase.CONNECT);
             }
 
-            // time out settings
-            conn.setConnectTimeout(connectTimeOut); // 3s
-            conn.setReadTimeout(readTimeOut); // 5s
+            // make request ...
+            responseCode = conn.getResponseCode();
+            if (span != null) {
+                span.setStatusCode(responseCode).mark(Span.Phase.TTFB);
+            }
 
-            conn.setUseCaches(false);
-            conn.setDoOutput(true);
-            conn.setInstanceFollowRedirects(false);
-            conn.setRequestMethod(method);
+            T result = reader.read(conn, responseCode, deadline);
+            reusable = true;
+            return result;
+        } catch (HttpException e) {
+            // error response ... connection can still be reused
+            reusable = true;
+            throw e;
+        } catch (Exception e) {
 
-            byte[] postData = null;
-            if (body != null) {
-                postData = body.getBytes(StandardCharsets.UTF_8);
+            if (deadline != null && deadline.isExpired() && !(e instanceof DeadlineExceededException)) {
+                e = new DeadlineExceededException(deadline);
             }
 
-            if (headers != null && headers.size() > 0) {
+            if (span != null) {
+                span.setError(e);
+            }
 
-                // add headers
-                for (String key : headers.keySet()) {
-                    conn.setRequestProperty(key, headers.get(key));
-                }
+            log.error("Failed execute request to: {}", url, e);
+            throw new HttpException(responseCode, e.getMessage(), e);
+        } finally {
+            if (cancel != null) {
+                cancel.cancel(false);
             }
 
-            if (postData != null) {
-                // turn input on
-                conn.setDoInput(true);
+            if (span != null) {
+                if (reusable) {
+                    span.mark(Span.Phase.DOWNLOAD);
+                }
 
-                int postDataLength = postData.length;
-                conn.setRequestProperty("Content-Length", Integer.toString(postDataLength));
+                span.end();
+            }
 
-                OutputStream os = conn.getOutputStream();
-                os.write(postData);
+            if (conn != null && !reusable) {
+                conn.disconnect();
             }
+        }
+    }
 
-            // make request ...
-            responseCode = conn.getResponseCode();
+    /**
+     * Opens connection configured as for request execution (SSL socket factory, time outs, headers), for instance to consume streams
+     * <p>
+     * Connection is not yet connected, caller is responsible to disconnect it
+     *
+     * @param method         to execute
+     * @param apiUrl         url to call
+     * @param headers        to add to request or null
+     * @param connectTimeOut connect time out in ms
+     * @param readTimeOut    read time out in ms (0 for none)
+     * @return connection
+     * @throws IOException in case of invalid url or connection could not be opened
+     */
+    public static HttpURLConnection openConnection(String method,
+                                                   String apiUrl,
+                                                   Map<String, String> headers,
+                                                   int connectTimeOut,
+                                                   int readTimeOut) throws IOException {
+
+        Assert.notNullOrEmptyTrimmed(apiUrl, "Missing url!");
+        return open(method, UnixSockets.toUrl(apiUrl), UrlTemplate.isHttps(apiUrl), headers, connectTimeOut, readTimeOut);
+    }
 
-            BufferedReader reader = null;
-            if (responseCode < HttpURLConnection.HTTP_BAD_REQUEST) {
-                InputStreamReader inputStream = new InputStreamReader(conn.getInputStream());
-                reader = new BufferedReader(inputStream);
-            } else {  /* error from server */
-                if (conn.getErrorStream() != null) {
-                    InputStreamReader inputStream = new InputStreamReader(conn.getErrorStream());
-                    reader = new BufferedReader(inputStream);
-                }
+    private static HttpURLConnection open(String method,
+                                          URL url,
+                                          boolean https,
+                                          Map<String, String> headers,
+                                          int connectTimeOut,
+                                          int readTimeOut) throws IOException {
+
+        HttpURLConnection conn;
+        if (https) {
+
+            conn = (HttpsURLConnection) url.openConnection();
+            SSLSocketFactory factory = effectiveSslFactory;
+            if (factory != null) {
+                ((HttpsURLConnection) conn).setSSLSocketFactory(factory);
             }
+        } else {
+            conn = (HttpURLConnection) UnixSockets.toUrl(url).openConnection();
+        }
 
-            StringBuilder content = new StringBuilder();
-            if (reader != null) {
+        // time out settings
+        conn.setConnectTimeout(connectTimeOut); // 3s
+        conn.setReadTimeout(readTimeOut); // 5s
 
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    content.append(line);
-                }
+        conn.setUseCaches(false);
+        conn.setDoOutput(true);
+        conn.setInstanceFollowRedirects(false);
+        conn.setRequestMethod(method);
+
+        if (headers != null && headers.size() > 0) {
+
+            // add headers
+            for (String key : headers.keySet()) {
+                conn.setRequestProperty(key, headers.get(key));
             }
+        }
 
-            log.debug("Output from request: {} - {}", responseCode, content);
+        return conn;
+    }
+
+    private static URL toUrl(String apiUrl, Map<String, String> query) throws HttpException {
+
+        try {
+            if (query != null && query.size() > 0) {
+                apiUrl = UrlTemplate.compose(apiUrl, query);
+            }
 
-            return new Response(responseCode, content.toString(), conn.getHeaderFields());
+            return UnixSockets.toUrl(apiUrl);
         } catch (Exception e) {
             log.error("Failed execute request to: {}", apiUrl, e);
-            throw new HttpException(responseCode, e.getMessage());
+            throw new HttpException(500, e.getMessage(), e);
+        }
+    }
+
+    private static BodyWriter writer(Object body) {
+
+        if (body instanceof HttpEntity) {
+            return writer((HttpEntity) body);
+        }
+
+        BodyCodec bodyCodec = codec;
+        return conn -> {
+
+            if (conn.getRequestProperty("Content-Type") == null) {
+                conn.setRequestProperty("Content-Type", bodyCodec.getContentType());
+            }
+
+            // length is not known upfront ... stream body in chunks
+            conn.setChunkedStreamingMode(0);
+            try (OutputStream out = conn.getOutputStream()) {
+                bodyCodec.write(body, out);
+            }
+        };
+    }
+
+    /**
+     * Writes entity as is, with fixed length when known
+     */
+    private static BodyWriter writer(HttpEntity entity) {
+
+        return conn -> {
+
+            if (entity.getContentType() != null && conn.getRequestProperty("Content-Type") == null) {
+                conn.setRequestProperty("Content-Type", entity.getContentType().getValue());
+            }
+
+            long length = entity.getContentLength();
+            if (length >= 0) {
+                conn.setFixedLengthStreamingMode(length);
+            } else {
+                conn.setChunkedStreamingMode(0);
+            }
+
+            try (OutputStream out = conn.getOutputStream()) {
+                entity.writeTo(out);
+            }
+        };
+    }
+
+    private static boolean hasHeader(Map<String, String> headers, String name) {
+
+        if (headers == null) {
+            return false;
+        }
+
+        for (String key : headers.keySet()) {
+            if (name.equalsIgnoreCase(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static <T> BodyReader<T> reader(BodyCodec bodyCodec, Class<T> type) {
+
+        return (conn, responseCode, deadline) -> {
+
+            if (responseCode < HttpURLConnection.HTTP_OK || responseCode >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                throw new HttpException(responseCode, readString(conn, responseCode, deadline));
+            }
+
+            try (InputStream in = conn.getInputStream()) {
+                if (type == null || responseCode == HttpURLConnection.HTTP_NO_CONTENT || conn.getContentLengthLong() == 0) {
+                    skip(in);
+                    return null;
+                }
+
+                // length is not known up front for chunked body ... peek for end of stream
+                PushbackInputStream body = new PushbackInputStream(in, 1);
+                int first = body.read();
+                if (first < 0) {
+                    return null;
+                }
+
+                body.unread(first);
+                return bodyCodec.read(body, type);
+            }
+        };
+    }
+
+    private static Response readResponse(HttpURLConnection conn, int responseCode, Deadline deadline) throws IOException {
+
+        String content = readString(conn, responseCode, deadline);
+        log.debug("Output from request: {} - {}", responseCode, content);
+
+        return new Response(responseCode, content, conn.getHeaderFields());
+    }
+
+    private static String readString(HttpURLConnection conn, int responseCode, Deadline deadline) throws IOException {
+
+        InputStream in = responseCode < HttpURLConnection.HTTP_BAD_REQUEST ? conn.getInputStream() : conn.getErrorStream(); /* error from server */
+        if (in == null) {
+            return "";
+        }
+
+        long length = conn.getContentLengthLong();
+        BufferPool pool = BufferPool.getDefault();
+        byte[] chunk = pool.acquire(READ_CHUNK_SIZE);
+
+        try (BufferOutputStream content = new BufferOutputStream(pool, BufferOutputStream.initialSize(length, READ_CHUNK_SIZE))) {
+
+            int read;
+            while ((read = in.read(chunk)) >= 0) {
+
+                // line breaks are dropped, content is joined into a single line
+                int from = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] == '\n' || chunk[i] == '\r') {
+                        content.write(chunk, from, i - from);
+                        from = i + 1;
+                    }
+                }
+
+                content.write(chunk, from, read - from);
+
+                if (deadline != null) {
+                    deadline.check();
+                }
+            }
+
+            // fully read and closed stream returns connection into keep-alive cache
+            in.close();
+            return content.toString(Charset.defaultCharset());
         } finally {
-            if (conn != null) {
-                conn.disconnect();
+            pool.release(chunk);
+        }
+    }
+
+    /**
+     * Reads remaining content so connection can be reused
+     */
+    private static void skip(InputStream in) throws IOException {
+
+        BufferPool pool = BufferPool.getDefault();
+        byte[] chunk = pool.acquire(READ_CHUNK_SIZE);
+        try {
+            while (in.read(chunk) >= 0) {
+                // discard
             }
+        } finally {
+            pool.release(chunk);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes request body
+     */
+    @FunctionalInterface
+    private interface BodyWriter {
+
+        void write(HttpURLConnection conn) throws IOException;
+    }
+
+    /**
+     * Reads response once status is known
+     */
+    @FunctionalInterface
+    private interface BodyReader<T> {
+
+        T read(HttpURLConnection conn, int responseCode, Deadline deadline) throws IOException, HttpException;
+    }
+}
@@ -4,30 +4,71 @@ package com.zandero.http;
  *
  */
 
+import com.zandero.http.buffer.BufferOutputStream;
+import com.zandero.http.buffer.BufferPool;
+import com.zandero.http.dns.CachingDnsResolver;
+import com.zandero.http.dns.HappyEyeballsSocketFactory;
+import com.zandero.http.flow.PublishingResponseConsumer;
+import com.zandero.http.flow.StreamingResponse;
+import com.zandero.http.flow.SubscribingRequestProducer;
+import com.zandero.http.socket.SocketTuning;
+import com.zandero.http.socket.TunedSocketFactory;
+import com.zandero.http.tracing.Span;
+import com.zandero.http.tracing.Tracing;
+import com.zandero.http.tracing.TracingRequestExecutor;
 import com.zandero.utils.Assert;
-import com.zandero.utils.ResourceUtils;
 import org.apache.http.*;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.*;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.ManagedNHttpClientConnectionFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -40,6 +81,12 @@ public final class HttpUtils {
 	 */
 	public static final String UTF_8 = "UTF-8";
 
+	/**
+	 * Default max connections of shared asynchronous client in total and per route (host)
+	 */
+	public static final int DEFAULT_ASYNC_MAX_TOTAL = 200;
+	public static final int DEFAULT_ASYNC_MAX_PER_ROUTE = 50;
+
 	private HttpUtils() {
 		// hiding constructor
 	}
@@ -48,6 +95,119 @@ public final class HttpUtils {
 
 	private static final int TIME_OUT_IN_SECONDS = 30;
 
+	/**
+	 * request config is immutable ... shared by all requests with default time out
+	 */
+	private static final RequestConfig DEFAULT_CONFIG = createConfig(TIME_OUT_IN_SECONDS);
+
+	private static DnsResolver dnsResolver;
+
+	private static SocketTuning socketOptions;
+
+	private static CloseableHttpAsyncClient asyncClient;
+
+	private static PoolingNHttpClientConnectionManager asyncConnectionManager;
+
+	private static int asyncMaxTotal = DEFAULT_ASYNC_MAX_TOTAL;
+
+	private static int asyncMaxPerRoute = DEFAULT_ASYNC_MAX_PER_ROUTE;
+
+	private static HttpClientConnectionManager connectionManager;
+
+	private static HttpClient pooledClient;
+
+	private static final AtomicLong asyncCallIds = new AtomicLong();
+
+	private static final AtomicInteger asyncInFlight = new AtomicInteger();
+
+	private static final int READ_CHUNK_SIZE = 8 * 1024;
+
+	/**
+	 * Enables connection pooling, all requests are executed with a single client sharing given connection manager
+	 * <p>
+	 * Once enabled responses must be consumed or closed to release connections,
+	 * use {@link #getContent(HttpResponse)}, {@link #getContentAsString(HttpResponse)} or {@link #executeManaged(HttpRequestBase)}.
+	 *
+	 * @param manager connection manager (for instance {@link #createConnectionManager(int, int)}) or null to disable pooling
+	 */
+	public static synchronized void setConnectionManager(HttpClientConnectionManager manager) {
+
+		connectionManager = manager;
+		pooledClient = null;
+	}
+
+	/**
+	 * @return connection manager set with {@link #setConnectionManager(HttpClientConnectionManager)} or null if pooling is disabled
+	 */
+	public static HttpClientConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	/**
+	 * Creates pooling connection manager using DNS resolver if set
+	 *
+	 * @param maxTotal    max connections in pool
+	 * @param maxPerRoute max connections per route (host)
+	 * @return connection manager
+	 */
+	public static PoolingHttpClientConnectionManager createConnectionManager(int maxTotal, int maxPerRoute) {
+
+		Assert.isTrue(maxTotal > 0, "Expected max total > 0!");
+		Assert.isTrue(maxPerRoute > 0, "Expected max per route > 0!");
+
+		PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(getSocketFactoryRegistry(), dnsResolver);
+		manager.setMaxTotal(maxTotal);
+		manager.setDefaultMaxPerRoute(maxPerRoute);
+		return manager;
+	}
+
+	/**
+	 * Limits connections of the shared asynchronous client, used by asynchronous and streaming requests
+	 * (and so by {@link com.zandero.http.proxy.ProxyServlet} and {@link com.zandero.http.webhook.WebhookDispatcher}),
+	 * applies to a running client immediately
+	 *
+	 * @param maxTotal    max connections in pool, {@link #DEFAULT_ASYNC_MAX_TOTAL} by default
+	 * @param maxPerRoute max connections per route (host), {@link #DEFAULT_ASYNC_MAX_PER_ROUTE} by default
+	 */
+	public static synchronized void setAsyncConnectionLimits(int maxTotal, int maxPerRoute) {
+
+		Assert.isTrue(maxTotal > 0, "Expected max total > 0!");
+		Assert.isTrue(maxPerRoute > 0, "Expected max per route > 0!");
+
+		asyncMaxTotal = maxTotal;
+		asyncMaxPerRoute = maxPerRoute;
+
+		if (asyncConnectionManager != null) {
+			asyncConnectionManager.setMaxTotal(maxTotal);
+			asyncConnectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		}
+	}
+
+	/**
+	 * Sets socket options to be used when executing requests, applies to connection managers created afterwards
+	 * (see {@link #createConnectionManager(int, int)}) and to the shared asynchronous client
+	 * <p>
+	 * Counters of sockets are reported to {@link SocketTuning#setMonitor(com.zandero.http.socket.SocketMonitor)}.
+	 * Asynchronous requests apply socket options only, without local address binding and counters.
+	 *
+	 * @param options socket options or null for defaults
+	 */
+	public static void setSocketOptions(SocketTuning options) {
+		socketOptions = options;
+		closeSharedAsyncClient();
+	}
+
+	/**
+	 * Sets DNS resolver to be used when executing requests,
+	 * when host resolves to multiple addresses connections are raced to pick the fastest one
+	 *
+	 * @param resolver DNS resolver (for instance {@link CachingDnsResolver}) or null for JVM default
+	 */
+	public static void setDnsResolver(DnsResolver resolver) {
+		dnsResolver = resolver;
+		closeSharedAsyncClient();
+	}
+
 
 	/**
 	 * Step 1. prepare GET request
@@ -90,6 +250,19 @@ public final class HttpUtils {
 		return post(path, null, null, null);
 	}
 
+	/**
+	 * Step 1. prepare POST request
+	 *
+	 * @param path   target url
+	 * @param entity to POST (for instance {@link com.zandero.http.multipart.Multipart})
+	 * @return post request
+	 */
+	public static HttpRequestBase post(String path,
+	                                   HttpEntity entity) {
+
+		return post(path, null, null, entity, null);
+	}
+
 	/**
 	 * Step 1. prepare POST request
 	 *
@@ -292,53 +465,338 @@ public final class HttpUtils {
 	 */
 	public static HttpResponse execute(HttpRequestBase request) throws IOException {
 
+		return execute(request, Deadline.current());
+	}
+
+	/**
+	 * Step 2. execute request bound by deadline
+	 * <p>
+	 * Deadline covers pool wait, connect, send and full read of response body,
+	 * once expired request is aborted and {@link DeadlineExceededException} is thrown.
+	 * Response body is read into memory before returning.
+	 *
+	 * @param request  to be executed
+	 * @param deadline absolute deadline or null for none (an earlier deadline attached to current thread takes precedence)
+	 * @return response
+	 * @throws IOException in case of network failure or when deadline is exceeded
+	 */
+	public static HttpResponse execute(HttpRequestBase request, Deadline deadline) throws IOException {
+
 		Assert.notNull(request, "Missing request!");
-		HttpClient client = HttpClientBuilder.create().setRedirectStrategy(new DefaultRedirectStrategy()).build();
-		return client.execute(request);
+		HttpClient client = getClient();
+
+		Span span = startSpan(request);
+
+		HttpClientContext context = HttpClientContext.create();
+		context.setAttribute(Tracing.SPAN_ATTRIBUTE, span);
+
+		if (deadline == null) {
+			return traced(span, () -> Tracing.trace(client.execute(request, context), span));
+		}
+
+		Deadline limit = deadline.min(Deadline.current());
+		limit.check();
+
+		request.setConfig(getConfig(request.getConfig(), limit));
+		ScheduledFuture<?> cancel = limit.onExpiry(request::abort);
+
+		try {
+			return traced(span, () -> {
+				HttpResponse response = Tracing.trace(client.execute(request, context), span);
+
+				// full body must be read within deadline
+				if (response.getEntity() != null) {
+					response.setEntity(new BufferedHttpEntity(response.getEntity()));
+				}
+
+				limit.check();
+				return response;
+			});
+		}
+		catch (IOException e) {
+
+			if (limit.isExpired() && !(e instanceof DeadlineExceededException)) {
+				DeadlineExceededException exceeded = new DeadlineExceededException(limit);
+				exceeded.initCause(e);
+				throw exceeded;
+			}
+
+			throw e;
+		}
+		finally {
+			cancel.cancel(false);
+		}
+	}
+
+	/**
+	 * Starts span of outbound call and injects its traceparent into request
+	 */
+	private static Span startSpan(HttpRequestBase request) {
+
+		Span span = Tracing.startSpan(request.getMethod() + " " + request.getURI().getHost());
+		Tracing.inject(span, request::setHeader);
+		return span;
+	}
+
+	/**
+	 * Ends span with error in case call fails
+	 */
+	private static HttpResponse traced(Span span, Call call) throws IOException {
+
+		try {
+			return call.execute();
+		}
+		catch (IOException | RuntimeException e) {
+			if (span != null) {
+				span.setError(e).end();
+			}
+
+			throw e;
+		}
+	}
+
+	@FunctionalInterface
+	private interface Call {
+
+		HttpResponse execute() throws IOException;
+	}
+
+	/**
+	 * Step 2. execute request, response is released once closed
+	 * <pre>
+	 * try (ManagedResponse response = HttpUtils.executeManaged(request)) { ... }
+	 * </pre>
+	 *
+	 * @param request to be executed
+	 * @return response to be closed
+	 * @throws IOException in case of network failure
+	 */
+	public static ManagedResponse executeManaged(HttpRequestBase request) throws IOException {
+		return new ManagedResponse(execute(request));
+	}
+
+	/**
+	 * Step 2. execute request bound by deadline, response is released once closed
+	 *
+	 * @param request  to be executed
+	 * @param deadline absolute deadline or null for none
+	 * @return response to be closed
+	 * @throws IOException in case of network failure or when deadline is exceeded
+	 */
+	public static ManagedResponse executeManaged(HttpRequestBase request, Deadline deadline) throws IOException {
+		return new ManagedResponse(execute(request, deadline));
 	}
 
 	/**
 	 * Step 2. execute request asynchronously
+	 * <p>
+	 * Returned future completes exactly once: with response, failure (also when request can not be submitted) or cancellation.
+	 * Callback is notified accordingly, cancelling the future aborts request in flight.
+	 * Trace context of calling thread is propagated, span ends once response body is consumed.
 	 *
-	 * @param executor thread executor to be used
+	 * @param executor thread executor to submit request with
 	 * @param request  to be executed
-	 * @param callback to be invoked when request is completed or failes
+	 * @param callback to be invoked when request is completed, fails or is cancelled, or null
+	 * @return response future
+	 */
+	public static CompletableFuture<HttpResponse> executeAsync(Executor executor, HttpRequestBase request, FutureCallback<HttpResponse> callback) {
+
+		Assert.notNull(executor, "Missing executor!");
+		Assert.notNull(request, "Missing request!");
+
+		// span is started on calling thread, where trace is active
+		AsyncHttpCall call = new AsyncHttpCall(request, startSpan(request), callback);
+		try {
+			executor.execute(call);
+		}
+		catch (RuntimeException e) {
+			// rejected ... caller is notified instead of request being silently lost
+			call.failed(e);
+		}
+
+		return call.future;
+	}
+
+	/**
+	 * Step 2. execute request asynchronously
+	 *
+	 * @param request to be executed
+	 * @return response future, cancelling the future aborts request in flight
 	 */
-	public static void executeAsync(Executor executor, HttpRequestBase request, FutureCallback<HttpResponse> callback) {
+	public static CompletableFuture<HttpResponse> executeAsync(HttpRequestBase request) {
+		return executeAsync(Runnable::run, request, null);
+	}
+
+	/**
+	 * @return number of asynchronous requests submitted but not yet completed
+	 */
+	public static int getAsyncInFlight() {
+		return asyncInFlight.get();
+	}
+
+	/**
+	 * Step 2. execute request streaming response body
+	 * <p>
+	 * Returned future completes once response status and headers are received,
+	 * body chunks are read from connection only as requested by body subscriber (backpressure).
+	 *
+	 * @param request to be executed
+	 * @return response with body publisher
+	 */
+	public static CompletableFuture<StreamingResponse> executeStreaming(HttpRequestBase request) {
+
+		Assert.notNull(request, "Missing request!");
+		Span span = startSpan(request);
+		return executeStreaming(HttpAsyncMethods.create(request), span);
+	}
 
+	/**
+	 * Step 2. execute request streaming request and response body
+	 * <p>
+	 * Request body chunks are requested from publisher as they are written to connection,
+	 * for instance body of another {@link StreamingResponse} can be piped through with bounded memory.
+	 *
+	 * @param request       POST, PUT or PATCH request to be executed
+	 * @param body          request body publisher
+	 * @param contentLength length of body in bytes or -1 if unknown (body is sent chunked)
+	 * @param contentType   content type of body or null
+	 * @return response with body publisher
+	 */
+	public static CompletableFuture<StreamingResponse> executeStreaming(HttpEntityEnclosingRequestBase request,
+	                                                                    Flow.Publisher<? extends ByteBuffer> body,
+	                                                                    long contentLength,
+	                                                                    String contentType) {
+
+		Assert.notNull(request, "Missing request!");
+		Assert.notNull(body, "Missing request body!");
+		Span span = startSpan(request);
+		return executeStreaming(new SubscribingRequestProducer(request, body, contentLength, contentType), span);
+	}
+
+	private static CompletableFuture<StreamingResponse> executeStreaming(HttpAsyncRequestProducer producer, Span span) {
+
+		PublishingResponseConsumer consumer = new PublishingResponseConsumer().setSpan(span);
 		try {
-			executor.execute(new AsyncHttpCall(request, callback));
+			getSharedAsyncClient().execute(producer, consumer, null);
 		}
-		catch (Exception e) {
-			log.error("Failed to execute asynchronously: " + request.getMethod() + " " + request.getURI().toString());
+		catch (IOException | RuntimeException e) {
+			consumer.failed(e);
 		}
+
+		return consumer.getResponse();
 	}
 
-	private static class AsyncHttpCall implements Runnable {
+	/**
+	 * Completes future exactly once and notifies callback, each call has an id to correlate log entries
+	 */
+	private static class AsyncHttpCall implements Runnable, FutureCallback<HttpResponse> {
+
+		private final String id = Long.toHexString(asyncCallIds.incrementAndGet());
 
 		private final HttpRequestBase request;
 
-		private final FutureCallback<HttpResponse> callback;
+		private final Span span;
 
-		AsyncHttpCall(HttpRequestBase req, FutureCallback<HttpResponse> back) {
+		private final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+
+		private volatile Future<HttpResponse> inFlight;
+
+		AsyncHttpCall(HttpRequestBase req, Span callSpan, FutureCallback<HttpResponse> callback) {
 
 			request = req;
-			callback = back;
+			span = callSpan;
+			asyncInFlight.incrementAndGet();
+
+			future.whenComplete((response, error) -> {
+
+				asyncInFlight.decrementAndGet();
+
+				if (error != null && span != null) {
+					span.setError(error).end();
+				}
+
+				if (future.isCancelled()) {
+					abort();
+				}
+
+				if (callback != null) {
+					notify(callback, response, error);
+				}
+			});
 		}
 
 		@Override
 		public void run() {
 
-			try (CloseableHttpAsyncClient client = HttpAsyncClients.createDefault()) {
-				client.start();
+			if (future.isDone()) { // cancelled while waiting for execution
+				return;
+			}
 
-				Future<HttpResponse> future = client.execute(request, callback);
+			try {
+				inFlight = getSharedAsyncClient().execute(request, this);
+
+				if (future.isCancelled()) {
+					abort();
+				}
+			}
+			catch (IOException | RuntimeException e) {
+				failed(e);
+			}
+		}
+
+		@Override
+		public void completed(HttpResponse response) {
+
+			// response is received as a whole ... time to first byte covers the complete exchange
+			if (span != null && !future.isDone()) {
+				Tracing.trace(response, span.mark(Span.Phase.TTFB));
+			}
+
+			if (future.complete(response)) {
+				log.debug("Request [{}]: {} {} -> {}", id, request.getMethod(), request.getURI(), response.getStatusLine().getStatusCode());
+			}
+		}
+
+		@Override
+		public void failed(Exception e) {
+
+			if (future.completeExceptionally(e)) {
+				log.error("Request [{}] failed: {} {}", id, request.getMethod(), request.getURI(), e);
+			}
+		}
 
-				HttpResponse response = future.get();
-				log.info("Request: " + request.getURI().toString() + " -> " + response.getStatusLine().getStatusCode());
+		@Override
+		public void cancelled() {
+			future.cancel(false);
+		}
+
+		private void abort() {
+
+			request.abort();
+
+			Future<HttpResponse> current = inFlight;
+			if (current != null) {
+				current.cancel(true);
 			}
-			catch (IOException | InterruptedException | ExecutionException e) {
-				log.error("Failed to execute request: " + request);
+
+			log.debug("Request [{}] cancelled: {} {}", id, request.getMethod(), request.getURI());
+		}
+
+		private void notify(FutureCallback<HttpResponse> callback, HttpResponse response, Throwable error) {
+
+			try {
+				if (future.isCancelled()) {
+					callback.cancelled();
+				}
+				else if (error != null) {
+					callback.failed(error instanceof Exception ? (Exception) error : new ExecutionException(error));
+				}
+				else {
+					callback.completed(response);
+				}
+			}
+			catch (RuntimeException e) {
+				log.error("Request [{}] callback failed: {} {}", id, request.getMethod(), request.getURI(), e);
 			}
 		}
 	}
@@ -347,24 +805,26 @@ public final class HttpUtils {
 	/**
 	 * Step 3. get content
 	 * <p>
-	 * extracts response content in case response was 200 (OK)
+	 * extracts response content in case response was successful (2xx), entity is always consumed so connection is released
 	 *
 	 * @param response to get content from
-	 * @return response string or null if unable to get content
+	 * @return response string or null if not successful or unable to get content
 	 */
 	public static String getContentAsString(HttpResponse response) {
 
+		HttpEntity entity = response != null ? response.getEntity() : null;
 		try {
-			if (response != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-
-				HttpEntity entity = response.getEntity();
-				Header contentEncoding = entity.getContentEncoding();
-				String encoding = contentEncoding != null ? contentEncoding.getValue() : UTF_8;
-				return ResourceUtils.getString(entity.getContent(), encoding);
+			if (entity != null && isSuccess(response)) {
+				try (BufferOutputStream content = read(entity)) {
+					return content.toString(getCharset(entity));
+				}
 			}
 		}
-		catch (IOException e) {
-			log.error("Failed to read response: ", e.getMessage());
+		catch (IOException | IllegalArgumentException e) {
+			log.error("Failed to read response: {}", e.getMessage());
+		}
+		finally {
+			EntityUtils.consumeQuietly(entity);
 		}
 
 		return null;
@@ -373,25 +833,64 @@ public final class HttpUtils {
 	/**
 	 * Step 3. get content
 	 * <p>
-	 * extracts response content in case response was 200 (OK)
+	 * extracts response content in case response was successful (2xx), entity is always consumed so connection is released
 	 *
 	 * @param response to get content from
-	 * @return response as byte array
+	 * @return response as byte array or null if not successful or unable to get content
 	 */
 	public static byte[] getContent(HttpResponse response) {
 
+		HttpEntity entity = response != null ? response.getEntity() : null;
 		try {
-			if (response != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
-				return ResourceUtils.getBytes(response.getEntity().getContent());
+			if (entity != null && isSuccess(response)) {
+				try (BufferOutputStream content = read(entity)) {
+					return content.toByteArray();
+				}
 			}
 		}
 		catch (IOException e) {
-			log.error("Failed to read response: ", e.getMessage());
+			log.error("Failed to read response: {}", e.getMessage());
+		}
+		finally {
+			EntityUtils.consumeQuietly(entity);
 		}
 
 		return null;
 	}
 
+	static boolean isSuccess(HttpResponse response) {
+
+		int status = response.getStatusLine().getStatusCode();
+		return status >= HttpStatus.SC_OK && status < HttpStatus.SC_MULTIPLE_CHOICES;
+	}
+
+	/**
+	 * @return charset given in content type or UTF-8 if none
+	 */
+	static Charset getCharset(HttpEntity entity) {
+
+		ContentType type = ContentType.get(entity);
+		return type != null && type.getCharset() != null ? type.getCharset() : StandardCharsets.UTF_8;
+	}
+
+	/**
+	 * Reads entity into pooled buffer, sized by content length if known (up to largest pooled buffer, then grown as read)
+	 */
+	static BufferOutputStream read(HttpEntity entity) throws IOException {
+
+		long length = entity.getContentLength();
+		BufferOutputStream content = new BufferOutputStream(BufferPool.getDefault(), BufferOutputStream.initialSize(length, READ_CHUNK_SIZE));
+
+		try (InputStream in = entity.getContent()) {
+			content.readFrom(in);
+			return content;
+		}
+		catch (IOException | RuntimeException e) {
+			content.close();
+			throw e;
+		}
+	}
+
 	private static void addHeaders(HttpRequest request, Map<String, String> headers) {
 
 		if (headers != null && headers.size() > 0) {
@@ -420,12 +919,161 @@ public final class HttpUtils {
 		}
 	}
 
-	private static RequestConfig getConfig(Integer timeOutInSeconds) {
+	private static synchronized HttpClient getClient() {
+
+		if (connectionManager != null) {
+			if (pooledClient == null) {
+				pooledClient = HttpClientBuilder.create()
+				                                .setRedirectStrategy(new DefaultRedirectStrategy())
+				                                .setRequestExecutor(new TracingRequestExecutor())
+				                                .setConnectionManager(connectionManager)
+				                                .setConnectionManagerShared(true)
+				                                .disableCookieManagement()
+				                                .build();
+			}
+
+			return pooledClient;
+		}
+
+		HttpClientBuilder builder = HttpClientBuilder.create()
+		                                             .setRedirectStrategy(new DefaultRedirectStrategy())
+		                                             .setRequestExecutor(new TracingRequestExecutor());
+
+		DnsResolver resolver = dnsResolver;
+		if (resolver != null || socketOptions != null) {
+			builder.setConnectionManager(new PoolingHttpClientConnectionManager(getSocketFactoryRegistry(), resolver));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Shared client kept running for asynchronous and streaming requests, (runs on daemon threads)
+	 */
+	private static synchronized CloseableHttpAsyncClient getSharedAsyncClient() throws IOReactorException {
+
+		if (asyncClient == null) {
+
+			ThreadFactory threads = runnable -> {
+				Thread thread = new Thread(runnable, "http-async");
+				thread.setDaemon(true);
+				return thread;
+			};
+
+			DnsResolver resolver = dnsResolver;
+			PoolingNHttpClientConnectionManager manager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(getReactorConfig(), threads),
+			                                                                                      ManagedNHttpClientConnectionFactory.INSTANCE,
+			                                                                                      resolver != null ? resolver : SystemDefaultDnsResolver.INSTANCE);
+			manager.setMaxTotal(asyncMaxTotal);
+			manager.setDefaultMaxPerRoute(asyncMaxPerRoute);
+
+			asyncConnectionManager = manager;
+			// shared by unrelated callers ... cookies of one call must not be sent with another
+			asyncClient = HttpAsyncClients.custom()
+			                                  .setConnectionManager(manager)
+			                                  .setThreadFactory(threads)
+			                                  .disableCookieManagement()
+			                                  .build();
+			asyncClient.start();
+		}
+
+		return asyncClient;
+	}
+
+	/**
+	 * Plain and SSL socket factories, tuned with socket options and racing resolved addresses if set
+	 */
+	private static Registry<ConnectionSocketFactory> getSocketFactoryRegistry() {
+
+		ConnectionSocketFactory plain = PlainConnectionSocketFactory.getSocketFactory();
+		ConnectionSocketFactory secure = SSLConnectionSocketFactory.getSocketFactory();
+
+		SocketTuning options = socketOptions;
+		if (options != null) {
+			plain = TunedSocketFactory.wrap(plain, options);
+			secure = TunedSocketFactory.wrap(secure, options);
+		}
+
+		DnsResolver resolver = dnsResolver;
+		if (resolver != null) {
+			plain = new HappyEyeballsSocketFactory(resolver, plain);
+			secure = new HappyEyeballsSocketFactory(resolver, secure);
+		}
+
+		return RegistryBuilder.<ConnectionSocketFactory>create()
+		                      .register("http", plain)
+		                      .register("https", secure)
+		                      .build();
+	}
+
+	private static IOReactorConfig getReactorConfig() {
+
+		SocketTuning options = socketOptions;
+		if (options == null) {
+			return IOReactorConfig.DEFAULT;
+		}
+
+		IOReactorConfig.Builder builder = IOReactorConfig.custom();
+		if (options.getTcpNoDelay() != null) {
+			builder.setTcpNoDelay(options.getTcpNoDelay());
+		}
+		if (options.getKeepAlive() != null) {
+			builder.setSoKeepAlive(options.getKeepAlive());
+		}
+		if (options.getSendBufferSize() != null) {
+			builder.setSndBufSize(options.getSendBufferSize());
+		}
+		if (options.getReceiveBufferSize() != null) {
+			builder.setRcvBufSize(options.getReceiveBufferSize());
+		}
+		if (options.getLinger() != null) {
+			builder.setSoLinger(options.getLinger());
+		}
+
+		return builder.build();
+	}
+
+	private static synchronized void closeSharedAsyncClient() {
+
+		if (asyncClient != null) {
+			try {
+				asyncClient.close();
+			}
+			catch (IOException e) {
+				log.warn("Failed to close async client: {}", e.getMessage());
+			}
+
+			asyncClient = null;
+			asyncConnectionManager = null;
+		}
+	}
+
+	private static RequestConfig getConfig(RequestConfig config, Deadline deadline) {
 
-		if (timeOutInSeconds == null) {
-			timeOutInSeconds = TIME_OUT_IN_SECONDS;
+		RequestConfig.Builder builder = config != null ? RequestConfig.copy(config) : RequestConfig.custom();
+		config = config != null ? config : RequestConfig.DEFAULT;
+
+		return builder.setSocketTimeout(deadline.limit(config.getSocketTimeout()))
+		              .setConnectTimeout(deadline.limit(config.getConnectTimeout()))
+		              .setConnectionRequestTimeout(deadline.limit(config.getConnectionRequestTimeout()))
+		              .build();
+	}
+
+	/**
+	 * @param timeOutInSeconds time out in seconds or null for default time out
+	 * @return request config, config with default time out is shared
+	 */
+	static RequestConfig getConfig(Integer timeOutInSeconds) {
+
+		if (timeOutInSeconds == null || timeOutInSeconds == TIME_OUT_IN_SECONDS) {
+			return DEFAULT_CONFIG;
 		}
 
+		return createConfig(timeOutInSeconds);
+	}
+
+	private static RequestConfig createConfig(int timeOutInSeconds) {
+
 		int timeOut = timeOutInSeconds * 1000;
 		return RequestConfig.custom()
 		                    .setSocketTimeout(timeOut)
@@ -0,0 +1,94 @@
+package com.zandero.http;
+
+import com.zandero.http.buffer.*;
+import org.apache.http.*;
+import org.apache.http.util.*;
+
+import java.io.*;
+
+/**
+ * Response to be used with try-with-resources, once closed remaining content is consumed and connection released
+ * <p>
+ * Content is available regardless of status, so error bodies can be inspected. Content can be read only once.
+ */
+public class ManagedResponse implements Closeable {
+
+    private final HttpResponse response;
+
+    ManagedResponse(HttpResponse httpResponse) {
+        response = httpResponse;
+    }
+
+    /**
+     * @return wrapped response
+     */
+    public HttpResponse getResponse() {
+        return response;
+    }
+
+    public int getStatusCode() {
+        return response.getStatusLine().getStatusCode();
+    }
+
+    /**
+     * @return true if status is 2xx
+     */
+    public boolean isSuccess() {
+        return HttpUtils.isSuccess(response);
+    }
+
+    /**
+     * @param name header name
+     * @return first header value or null if not present
+     */
+    public String getHeader(String name) {
+
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * @return content decoded with charset of content type (UTF-8 by default) or null if response has no content
+     * @throws IOException in case content could not be read
+     */
+    public String getContentAsString() throws IOException {
+
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return null;
+        }
+
+        try (BufferOutputStream content = HttpUtils.read(entity)) {
+            return content.toString(HttpUtils.getCharset(entity));
+        }
+    }
+
+    /**
+     * @return content or null if response has no content
+     * @throws IOException in case content could not be read
+     */
+    public byte[] getContent() throws IOException {
+
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return null;
+        }
+
+        try (BufferOutputStream content = HttpUtils.read(entity)) {
+            return content.toByteArray();
+        }
+    }
+
+    /**
+     * Consumes remaining content so connection can be reused and closes response
+     */
+    @Override
+    public void close() throws IOException {
+
+        EntityUtils.consumeQuietly(response.getEntity());
+
+        if (response instanceof Closeable) {
+            ((Closeable) response).close();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.zandero.http;
+
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.client.config.*;
+import org.apache.http.client.methods.*;
+import org.apache.http.client.utils.*;
+import org.apache.http.entity.*;
+import org.apache.http.message.*;
+
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Immutable prototype of requests with the same shape (method, url, headers, time out and static parameters)
+ * <p>
+ * Headers, request config, url and static parameters are prepared once, creating a request only adds the variable parts.
+ * Parameters are form encoded into the body of POST, PUT and PATCH requests and into the query of other requests.
+ * Templates are thread safe.
+ *
+ * <pre>
+ * RequestTemplate template = new RequestTemplate("POST", "http://api.example.com/items", headers, staticParameters, 10);
+ * HttpResponse res = HttpUtils.execute(template.create(Collections.singletonMap("id", id)));
+ * </pre>
+ */
+public final class RequestTemplate {
+
+    private static final ContentType FORM = ContentType.create(URLEncodedUtils.CONTENT_TYPE, StandardCharsets.UTF_8);
+
+    private final String method;
+
+    private final String url;
+
+    private final URI uri;
+
+    private final Header[] headers;
+
+    private final RequestConfig config;
+
+    /**
+     * form encoded static parameters or empty string if none
+     */
+    private final String parameters;
+
+    private final boolean enclosing;
+
+    /**
+     * Request template
+     *
+     * @param method           GET, POST, PUT, PATCH, DELETE, HEAD or OPTIONS
+     * @param url              target url
+     * @param headers          request headers or null
+     * @param parameters       static parameters or null
+     * @param timeOutInSeconds time out in seconds or null for default time out
+     */
+    public RequestTemplate(String method,
+                           String url,
+                           Map<String, String> headers,
+                           Map<String, String> parameters,
+                           Integer timeOutInSeconds) {
+
+        Assert.notNullOrEmptyTrimmed(method, "Missing method!");
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+
+        this.method = method.trim().toUpperCase();
+        Assert.isTrue(Arrays.asList(HttpGet.METHOD_NAME, HttpPost.METHOD_NAME, HttpPut.METHOD_NAME, HttpPatch.METHOD_NAME,
+                                    HttpDelete.METHOD_NAME, HttpHead.METHOD_NAME, HttpOptions.METHOD_NAME).contains(this.method),
+                      "Unsupported method: " + method);
+
+        enclosing = HttpPost.METHOD_NAME.equals(this.method) ||
+                    HttpPut.METHOD_NAME.equals(this.method) ||
+                    HttpPatch.METHOD_NAME.equals(this.method);
+
+        this.url = url;
+        this.parameters = encode(new StringBuilder(), parameters).toString();
+        this.uri = enclosing ? URI.create(url) : toUri(url, this.parameters);
+
+        List<Header> list = new ArrayList<>();
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                list.add(new BasicHeader(header.getKey(), header.getValue()));
+            }
+        }
+
+        this.headers = list.toArray(new Header[0]);
+        config = HttpUtils.getConfig(timeOutInSeconds);
+    }
+
+    /**
+     * @return new request with static parts only
+     */
+    public HttpRequestBase create() {
+        return create(null, null, null);
+    }
+
+    /**
+     * @param variableParameters parameters added to static parameters
+     * @return new request
+     */
+    public HttpRequestBase create(Map<String, String> variableParameters) {
+        return create(null, variableParameters, null);
+    }
+
+    /**
+     * @param entity request body (replaces static parameters in body)
+     * @return new request
+     */
+    public HttpRequestBase create(HttpEntity entity) {
+        return create(null, null, entity);
+    }
+
+    /**
+     * Creates new request
+     *
+     * @param path               to append to template url or null
+     * @param variableParameters parameters added to static parameters or null
+     * @param entity             request body or null, when given static and variable parameters are not sent
+     * @return new request
+     */
+    public HttpRequestBase create(String path, Map<String, String> variableParameters, HttpEntity entity) {
+
+        boolean hasPath = path != null && path.length() > 0;
+        boolean hasParameters = variableParameters != null && variableParameters.size() > 0;
+
+        HttpRequestBase request = newRequest();
+
+        String target = hasPath ? url + path : url;
+        if (enclosing) {
+            request.setURI(hasPath ? URI.create(target) : uri);
+        } else if (hasPath || hasParameters) {
+            request.setURI(toUri(target, hasParameters ? join(variableParameters) : parameters));
+        } else {
+            request.setURI(uri);
+        }
+
+        request.setHeaders(headers);
+        request.setConfig(config);
+
+        if (enclosing) {
+            if (entity != null) {
+                ((HttpEntityEnclosingRequestBase) request).setEntity(entity);
+            } else {
+                String body = hasParameters ? join(variableParameters) : parameters;
+                if (body.length() > 0) {
+                    ((HttpEntityEnclosingRequestBase) request).setEntity(new StringEntity(body, FORM));
+                }
+            }
+        }
+
+        return request;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public RequestConfig getConfig() {
+        return config;
+    }
+
+    private HttpRequestBase newRequest() {
+
+        switch (method) {
+            case HttpPost.METHOD_NAME:
+                return new HttpPost();
+            case HttpPut.METHOD_NAME:
+                return new HttpPut();
+            case HttpPatch.METHOD_NAME:
+                return new HttpPatch();
+            case HttpDelete.METHOD_NAME:
+                return new HttpDelete();
+            case HttpHead.METHOD_NAME:
+                return new HttpHead();
+            case HttpOptions.METHOD_NAME:
+                return new HttpOptions();
+            default:
+                return new HttpGet();
+        }
+    }
+
+    private String join(Map<String, String> variableParameters) {
+
+        StringBuilder buffer = new StringBuilder(parameters.length() + 16 * variableParameters.size());
+        buffer.append(parameters);
+        return encode(buffer, variableParameters).toString();
+    }
+
+    private static URI toUri(String url, String query) {
+
+        if (query.length() == 0) {
+            return URI.create(url);
+        }
+
+        return URI.create(url + (url.indexOf('?') >= 0 ? '&' : '?') + query);
+    }
+
+    /**
+     * Form encodes parameters as {@link org.apache.http.client.entity.UrlEncodedFormEntity} does
+     */
+    private static StringBuilder encode(StringBuilder buffer, Map<String, String> parameters) {
+
+        if (parameters != null) {
+            for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+
+                if (buffer.length() > 0) {
+                    buffer.append('&');
+                }
+
+                UrlTemplate.encode(buffer, parameter.getKey());
+                if (parameter.getValue() != null) {
+                    buffer.append('=');
+                    UrlTemplate.encode(buffer, parameter.getValue());
+                }
+            }
+        }
+
+        return buffer;
+    }
+}
@@ -1,7 +1,9 @@
 package com.zandero.http;
 
+import com.zandero.http.agent.*;
+import com.zandero.http.domain.*;
+import com.zandero.http.tracing.*;
 import com.zandero.utils.*;
-import com.zandero.utils.extra.*;
 import org.apache.commons.net.util.*;
 
 import javax.servlet.http.*;
@@ -13,10 +15,19 @@ import java.util.Base64;
  */
 public final class RequestUtils {
 
+    private static volatile DomainResolver domainResolver = DomainResolver.getDefault();
+
     private RequestUtils() {
         // hide constructor
     }
 
+    /**
+     * @param resolver used to resolve domain of requests or null to use default resolver
+     */
+    public static void setDomainResolver(DomainResolver resolver) {
+        domainResolver = resolver != null ? resolver : DomainResolver.getDefault();
+    }
+
     /**
      * Read User-Agent header from request
      *
@@ -25,29 +36,57 @@ public final class RequestUtils {
      */
     public static String getUserAgent(HttpServletRequest request) {
 
-        return getHeader(request, "User-Agent");
+        if (request == null) {
+            return null;
+        }
+
+        return RequestView.of(request).getUserAgent();
     }
 
     /**
-     * Reads cookie from cookie collection
+     * Classifies User-Agent of request (bot, mobile, tablet, desktop, browser and operating system)
      *
-     * @param cookies collection
+     * @param request to read header from
+     * @return classified agent, {@link UserAgent#UNKNOWN} if not given
+     */
+    public static UserAgent getUserAgentInfo(HttpServletRequest request) {
+
+        return UserAgentClassifier.getDefault().classify(getUserAgent(request));
+    }
+
+    /**
+     * @param request to read User-Agent header from
+     * @return true if request is made by a known crawler, bot or HTTP library
+     */
+    public static boolean isBot(HttpServletRequest request) {
+
+        return getUserAgentInfo(request).isBot();
+    }
+
+    /**
+     * Returns view of request, cookies and commonly read headers are read from request only once
+     *
+     * @param request servlet request
+     * @return view shared by all readers of given request
+     */
+    public static RequestView getView(HttpServletRequest request) {
+        return RequestView.of(request);
+    }
+
+    /**
+     * Reads cookie sent with request
+     *
+     * @param request to read cookie from
      * @param name    of cookie
      * @return found cookie value or null if none found
      */
-    private static String getCookie(Cookie[] cookies, String name) {
+    public static String getCookie(HttpServletRequest request, String name) {
 
-        if (cookies == null || cookies.length == 0 || StringUtils.isNullOrEmptyTrimmed(name)) {
+        if (request == null || name == null || name.isEmpty()) {
             return null;
         }
 
-        for (Cookie cookie : cookies) {
-            if (StringUtils.equals(cookie.getName(), name)) {
-                return cookie.getValue();
-            }
-        }
-
-        return null;
+        return RequestView.of(request).getCookie(name);
     }
 
     /**
@@ -60,15 +99,15 @@ public final class RequestUtils {
     public static String getHeader(HttpServletRequest request, String header) {
 
         // noting to search in or nothing to be found
-        if (request == null || StringUtils.isNullOrEmptyTrimmed(header)) {
+        if (request == null || header == null || header.isEmpty()) {
             return null;
         }
 
-        return request.getHeader(header);
+        return RequestView.of(request).getHeader(header);
     }
 
     /**
-     * Resolves domain name from given URL
+     * Resolves registrable domain name (public suffix plus one label) of requested host
      *
      * @param request to get domain name from
      * @return domain name or null if not resolved
@@ -79,7 +118,17 @@ public final class RequestUtils {
             return null;
         }
 
-        return UrlUtils.resolveDomain(request.getServerName());
+        return getDomain(request.getServerName());
+    }
+
+    /**
+     * Resolves registrable domain name (public suffix plus one label) of given host
+     *
+     * @param host name
+     * @return domain name or null if no host given
+     */
+    public static String getDomain(String host) {
+        return domainResolver.resolve(host);
     }
 
     /**
@@ -91,7 +140,7 @@ public final class RequestUtils {
      */
     public static String getScheme(HttpServletRequest request) {
 
-        String scheme = request.getHeader("X-Forwarded-Proto");
+        String scheme = RequestView.of(request).getHeader("X-Forwarded-Proto");
         if (StringUtils.isNullOrEmptyTrimmed(scheme)) {
             scheme = request.getScheme();
         }
@@ -107,22 +156,23 @@ public final class RequestUtils {
      */
     public static String getClientIpAddress(HttpServletRequest request) {
 
-        String ip = request.getHeader("X-Forwarded-For");
+        RequestView view = RequestView.of(request);
+        String ip = view.getHeader("X-Forwarded-For");
 
         if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("Proxy-Client-IP");
+            ip = view.getHeader("Proxy-Client-IP");
         }
 
         if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("WL-Proxy-Client-IP");
+            ip = view.getHeader("WL-Proxy-Client-IP");
         }
 
         if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_CLIENT_IP");
+            ip = view.getHeader("HTTP_CLIENT_IP");
         }
 
         if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
-            ip = request.getHeader("HTTP_X_FORWARDED_FOR");
+            ip = view.getHeader("HTTP_X_FORWARDED_FOR");
         }
 
         if (ip == null || ip.length() == 0 || "unknown".equalsIgnoreCase(ip)) {
@@ -165,6 +215,16 @@ public final class RequestUtils {
         return false;
     }
 
+    /**
+     * Reads W3C trace context (traceparent and tracestate headers)
+     *
+     * @param request to read headers from
+     * @return trace context or null if not given or invalid
+     */
+    public static TraceContext getTraceContext(HttpServletRequest request) {
+        return Tracing.extract(request);
+    }
+
     /**
      * Checks if request is made by cron job
      *
@@ -175,7 +235,7 @@ public final class RequestUtils {
      */
     public static boolean checkBasicAuth(HttpServletRequest servletRequest, String username, String password) {
 
-        String basicAuth = servletRequest.getHeader("Authorization");
+        String basicAuth = RequestView.of(servletRequest).getHeader("Authorization");
         if (StringUtils.isNullOrEmptyTrimmed(basicAuth) || !basicAuth.startsWith("Basic ")) {
             return false;
         }
@@ -0,0 +1,319 @@
+package com.zandero.http;
+
+import com.zandero.utils.*;
+
+import javax.servlet.http.*;
+import java.util.*;
+
+/**
+ * Per request view of cookies and commonly read headers
+ * <ul>
+ *     <li>cookies are parsed once (on first access) from Cookie header(s) into an open addressing map</li>
+ *     <li>User-Agent, X-Forwarded-*, Authorization and Proxy client headers are read from request once</li>
+ *     <li>view is stored as request attribute, so filters and servlets processing the same request share it</li>
+ * </ul>
+ * View is intended to be used by thread processing request, racing threads might read same header twice.
+ */
+public final class RequestView {
+
+    /**
+     * Request attribute holding view
+     */
+    public static final String ATTRIBUTE = RequestView.class.getName();
+
+    private static final String COOKIE = "Cookie";
+
+    private static final String[] MEMOIZED = {"User-Agent",
+                                              "X-Forwarded-For",
+                                              "X-Forwarded-Proto",
+                                              "X-Forwarded-Host",
+                                              "Authorization",
+                                              "Proxy-Client-IP",
+                                              "WL-Proxy-Client-IP",
+                                              "HTTP_CLIENT_IP",
+                                              "HTTP_X_FORWARDED_FOR"};
+
+    /**
+     * marks header not read from request yet
+     */
+    private static final String UNREAD = new String();
+
+    private final HttpServletRequest request;
+
+    private final String[] headers = new String[MEMOIZED.length];
+
+    private CookieMap cookies;
+
+    private RequestView(HttpServletRequest servletRequest) {
+
+        request = servletRequest;
+        Arrays.fill(headers, UNREAD);
+    }
+
+    /**
+     * @param request servlet request
+     * @return view stored with request or new view if none
+     */
+    public static RequestView of(HttpServletRequest request) {
+
+        Assert.notNull(request, "Missing request!");
+
+        Object attribute = request.getAttribute(ATTRIBUTE);
+        if (attribute instanceof RequestView && ((RequestView) attribute).request == request) {
+            return (RequestView) attribute;
+        }
+
+        RequestView view = new RequestView(request);
+        request.setAttribute(ATTRIBUTE, view);
+        return view;
+    }
+
+    public HttpServletRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @param name of header
+     * @return header value or null if not present
+     */
+    public String getHeader(String name) {
+
+        if (name == null) {
+            return null;
+        }
+
+        int index = indexOf(name);
+        if (index < 0) {
+            return request.getHeader(name);
+        }
+
+        String value = headers[index];
+        if (value == UNREAD) {
+            value = request.getHeader(MEMOIZED[index]);
+            headers[index] = value;
+        }
+
+        return value;
+    }
+
+    /**
+     * @return User-Agent header
+     */
+    public String getUserAgent() {
+        return getHeader(MEMOIZED[0]);
+    }
+
+    /**
+     * @param name of cookie
+     * @return value of first cookie with given name or null if not present
+     */
+    public String getCookie(String name) {
+
+        if (name == null) {
+            return null;
+        }
+
+        if (cookies == null) {
+            cookies = readCookies();
+        }
+
+        return cookies.get(name);
+    }
+
+    /**
+     * @return number of distinct cookies sent with request
+     */
+    public int getCookieCount() {
+
+        if (cookies == null) {
+            cookies = readCookies();
+        }
+
+        return cookies.size();
+    }
+
+    private static int indexOf(String name) {
+
+        // callers mostly pass same constants, identity check first
+        for (int i = 0; i < MEMOIZED.length; i++) {
+            if (MEMOIZED[i] == name) {
+                return i;
+            }
+        }
+
+        for (int i = 0; i < MEMOIZED.length; i++) {
+            if (MEMOIZED[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private CookieMap readCookies() {
+
+        CookieMap map = new CookieMap();
+
+        Enumeration<String> values = request.getHeaders(COOKIE);
+        if (values == null) {
+            // container doesn't expose headers, fall back to parsed cookies
+            Cookie[] parsed = request.getCookies();
+            if (parsed != null) {
+                for (Cookie cookie : parsed) {
+                    map.putIfAbsent(cookie.getName(), cookie.getValue());
+                }
+            }
+
+            return map;
+        }
+
+        while (values.hasMoreElements()) {
+            parse(values.nextElement(), map);
+        }
+
+        return map;
+    }
+
+    /**
+     * Parses Cookie header: name1=value1; name2="value2"
+     */
+    static void parse(String header, CookieMap map) {
+
+        if (header == null) {
+            return;
+        }
+
+        int length = header.length();
+        int position = 0;
+
+        while (position < length) {
+
+            int end = header.indexOf(';', position);
+            if (end < 0) {
+                end = length;
+            }
+
+            int separator = header.indexOf('=', position);
+            if (separator > position && separator < end) {
+
+                int nameStart = skipWhitespace(header, position, separator);
+                int nameEnd = trimWhitespace(header, nameStart, separator);
+
+                int valueStart = skipWhitespace(header, separator + 1, end);
+                int valueEnd = trimWhitespace(header, valueStart, end);
+
+                if (valueEnd - valueStart >= 2 && header.charAt(valueStart) == '"' && header.charAt(valueEnd - 1) == '"') {
+                    valueStart++;
+                    valueEnd--;
+                }
+
+                if (nameEnd > nameStart) {
+                    map.putIfAbsent(header.substring(nameStart, nameEnd), header.substring(valueStart, valueEnd));
+                }
+            }
+
+            position = end + 1;
+        }
+    }
+
+    private static int skipWhitespace(String value, int start, int end) {
+
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+
+        return start;
+    }
+
+    private static int trimWhitespace(String value, int start, int end) {
+
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+
+        return end;
+    }
+
+    /**
+     * Open addressing (linear probing) map of cookie names to values, first put value wins
+     */
+    static final class CookieMap {
+
+        private static final int INITIAL_CAPACITY = 8;
+
+        private String[] keys = new String[INITIAL_CAPACITY];
+
+        private String[] values = new String[INITIAL_CAPACITY];
+
+        private int size;
+
+        String get(String name) {
+
+            int mask = keys.length - 1;
+            for (int index = hash(name) & mask; keys[index] != null; index = (index + 1) & mask) {
+                if (keys[index].equals(name)) {
+                    return values[index];
+                }
+            }
+
+            return null;
+        }
+
+        void putIfAbsent(String name, String value) {
+
+            if (name == null) {
+                return;
+            }
+
+            int mask = keys.length - 1;
+            int index = hash(name) & mask;
+            while (keys[index] != null) {
+                if (keys[index].equals(name)) {
+                    return;
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = name;
+            values[index] = value;
+
+            // keep load factor below 3/4
+            if (++size * 4 >= keys.length * 3) {
+                resize();
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void resize() {
+
+            String[] oldKeys = keys;
+            String[] oldValues = values;
+
+            keys = new String[oldKeys.length * 2];
+            values = new String[oldValues.length * 2];
+
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int index = hash(oldKeys[i]) & mask;
+                    while (keys[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(String name) {
+
+            int hash = name.hashCode();
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
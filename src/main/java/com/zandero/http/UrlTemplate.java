@@ -0,0 +1,253 @@
+package com.zandero.http;
+
+import com.zandero.utils.*;
+
+import java.net.*;
+import java.util.*;
+
+/**
+ * Url parsed once and reused for many requests to the same endpoint
+ * <p>
+ * Scheme, host, port and path are parsed when template is created, query parameters are encoded into a reused
+ * per thread buffer. Query is composed the same way as with {@code UrlUtils.composeUrl(url, query)}:
+ * parameters with empty names or values are skipped, names and values are form encoded (UTF-8).
+ *
+ * <pre>
+ * UrlTemplate items = new UrlTemplate("https://api.example.com/items");
+ * Http.Response res = Http.execute("GET", items, null, query, headers, Http.DEFAULT_CONNECT_TIMEOUT, Http.DEFAULT_READ_TIMEOUT);
+ * </pre>
+ */
+public final class UrlTemplate {
+
+    private static final String HTTPS = "https://";
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * buffers bigger than this are not kept for reuse
+     */
+    private static final int MAX_BUFFER_SIZE = 8 * 1024;
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final String base;
+
+    /**
+     * base url without trailing '?' or '&', query is appended to it
+     */
+    private final String prefix;
+
+    private final char separator;
+
+    private final URL url;
+
+    private final boolean https;
+
+    /**
+     * Parses given url
+     *
+     * @param url base url of endpoint (can already contain query)
+     * @throws IllegalArgumentException in case url is not valid
+     */
+    public UrlTemplate(String url) {
+
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+
+        base = url;
+        prefix = trimQuery(url);
+        separator = prefix.indexOf('?') >= 0 ? '&' : '?';
+
+        try {
+            this.url = new URL(base);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid url: " + url, e);
+        }
+
+        https = "https".equalsIgnoreCase(this.url.getProtocol());
+    }
+
+    /**
+     * @param url to check
+     * @return true if url starts with https:// (case insensitive)
+     */
+    public static boolean isHttps(String url) {
+        return url != null && url.regionMatches(true, 0, HTTPS, 0, HTTPS.length());
+    }
+
+    /**
+     * Appends query to url, same result as {@code UrlUtils.composeUrl(url, query)}
+     *
+     * @param url   to append query to
+     * @param query parameters or null
+     * @return url with query
+     */
+    public static String compose(String url, Map<String, String> query) {
+
+        String trimmed = trim(url);
+        return compose(trimmed, trimmed, trimmed.indexOf('?') >= 0 ? '&' : '?', query);
+    }
+
+    /**
+     * @return true if scheme is https
+     */
+    public boolean isHttps() {
+        return https;
+    }
+
+    public String getScheme() {
+        return url.getProtocol();
+    }
+
+    public String getHost() {
+        return url.getHost();
+    }
+
+    /**
+     * @return port given in url or default port of scheme
+     */
+    public int getPort() {
+        return url.getPort() != -1 ? url.getPort() : url.getDefaultPort();
+    }
+
+    public String getPath() {
+        return url.getPath();
+    }
+
+    /**
+     * @param query parameters or null
+     * @return url with query, url as given if no parameter is added
+     */
+    public String toString(Map<String, String> query) {
+        return compose(base, prefix, separator, query);
+    }
+
+    /**
+     * @param query parameters or null
+     * @return url with query
+     * @throws MalformedURLException in case composed url is not valid
+     */
+    public URL toUrl(Map<String, String> query) throws MalformedURLException {
+
+        if (query == null || query.isEmpty()) {
+            return url;
+        }
+
+        if (url.getUserInfo() != null) {
+            return new URL(toString(query));
+        }
+
+        // authority is already parsed ... only file part is new
+        String file = compose(null, trimQuery(url.getFile()), separator, query);
+        return file == null ? url : new URL(url.getProtocol(), url.getHost(), url.getPort(), file);
+    }
+
+    @Override
+    public String toString() {
+        return base;
+    }
+
+    /**
+     * Removes trailing '/', '?' or '&' as {@code UrlUtils.composeUrl} does
+     */
+    private static String trim(String url) {
+
+        int length = url.length();
+        if (length > 0) {
+            char last = url.charAt(length - 1);
+            if (last == '/' || last == '?' || last == '&') {
+                return url.substring(0, length - 1);
+            }
+        }
+
+        return url;
+    }
+
+    private static String trimQuery(String url) {
+
+        int length = url.length();
+        if (length > 0) {
+            char last = url.charAt(length - 1);
+            if (last == '?' || last == '&') {
+                return url.substring(0, length - 1);
+            }
+        }
+
+        return url;
+    }
+
+    /**
+     * @param url    returned if no parameter is added
+     * @param prefix to append parameters to
+     */
+    private static String compose(String url, String prefix, char separator, Map<String, String> query) {
+
+        if (query == null || query.isEmpty()) {
+            return url;
+        }
+
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append(prefix);
+
+        int start = buffer.length();
+        for (Map.Entry<String, String> param : query.entrySet()) {
+
+            if (StringUtils.isNullOrEmptyTrimmed(param.getKey()) || StringUtils.isNullOrEmptyTrimmed(param.getValue())) {
+                continue;
+            }
+
+            buffer.append(buffer.length() == start ? separator : '&');
+            encode(buffer, param.getKey());
+            buffer.append('=');
+            encode(buffer, param.getValue());
+        }
+
+        String out = buffer.length() == start ? url : buffer.toString();
+        if (buffer.capacity() > MAX_BUFFER_SIZE) {
+            BUFFER.remove();
+        }
+
+        return out;
+    }
+
+    /**
+     * Form encodes value into buffer, equivalent to {@code URLEncoder.encode(value, "UTF-8")}
+     */
+    static void encode(StringBuilder buffer, String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') ||
+                c == '.' || c == '-' || c == '*' || c == '_') {
+                buffer.append(c);
+            } else if (c == ' ') {
+                buffer.append('+');
+            } else if (c < 0x80) {
+                hex(buffer, c);
+            } else if (c < 0x800) {
+                hex(buffer, 0xC0 | (c >> 6));
+                hex(buffer, 0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                hex(buffer, 0xF0 | (codePoint >> 18));
+                hex(buffer, 0x80 | ((codePoint >> 12) & 0x3F));
+                hex(buffer, 0x80 | ((codePoint >> 6) & 0x3F));
+                hex(buffer, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                hex(buffer, '?'); // malformed input is replaced as by the encoder
+            } else {
+                hex(buffer, 0xE0 | (c >> 12));
+                hex(buffer, 0x80 | ((c >> 6) & 0x3F));
+                hex(buffer, 0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private static void hex(StringBuilder buffer, int value) {
+
+        buffer.append('%')
+              .append(HEX[(value >> 4) & 0xF])
+              .append(HEX[value & 0xF]);
+    }
+}
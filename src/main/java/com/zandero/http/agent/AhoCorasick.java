@@ -0,0 +1,191 @@
+package com.zandero.http.agent;
+
+import com.zandero.utils.*;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton matching set of lower case ASCII patterns in a single pass, ignoring ASCII case of text
+ * <p>
+ * Automaton is compiled into a dense transition table over the alphabet of pattern characters,
+ * each text character costs a single table lookup.
+ */
+final class AhoCorasick {
+
+    private static final int ASCII = 128;
+
+    private static final int[] NONE = new int[0];
+
+    private final int patternCount;
+
+    /**
+     * maps ASCII char to symbol, 0 stands for any char not used in patterns
+     */
+    private final int[] symbols = new int[ASCII];
+
+    private final int alphabet;
+
+    /**
+     * transitions: state * alphabet + symbol
+     */
+    private final int[] next;
+
+    /**
+     * patterns ending in state (including suffix states)
+     */
+    private final int[][] outputs;
+
+    AhoCorasick(List<String> patterns) {
+
+        Assert.notNullOrEmpty(patterns, "Missing patterns!");
+        patternCount = patterns.size();
+
+        int symbolCount = 1;
+        for (String pattern : patterns) {
+            Assert.notNullOrEmptyTrimmed(pattern, "Missing pattern!");
+
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                Assert.isTrue(c < ASCII && (c < 'A' || c > 'Z'), "Expected lower case ASCII pattern: " + pattern);
+
+                if (symbols[c] == 0) {
+                    symbols[c] = symbolCount++;
+                }
+            }
+        }
+
+        alphabet = symbolCount;
+
+        // trie
+        List<int[]> children = new ArrayList<>();
+        List<int[]> own = new ArrayList<>();
+        children.add(newState());
+        own.add(NONE);
+
+        for (int index = 0; index < patterns.size(); index++) {
+
+            String pattern = patterns.get(index);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+
+                int symbol = symbols[pattern.charAt(i)];
+                if (children.get(state)[symbol] < 0) {
+                    children.get(state)[symbol] = children.size();
+                    children.add(newState());
+                    own.add(NONE);
+                }
+
+                state = children.get(state)[symbol];
+            }
+
+            own.set(state, append(own.get(state), index));
+        }
+
+        // breadth first: failure links turned into full transition table
+        int states = children.size();
+        int[] fail = new int[states];
+        next = new int[states * alphabet];
+        outputs = new int[states][];
+        outputs[0] = own.get(0);
+
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+
+        for (int symbol = 0; symbol < alphabet; symbol++) {
+            int child = children.get(0)[symbol];
+            if (child < 0) {
+                next[symbol] = 0;
+            } else {
+                next[symbol] = child;
+                fail[child] = 0;
+                outputs[child] = own.get(child);
+                queue[tail++] = child;
+            }
+        }
+
+        while (head < tail) {
+
+            int state = queue[head++];
+            for (int symbol = 0; symbol < alphabet; symbol++) {
+
+                int child = children.get(state)[symbol];
+                if (child < 0) {
+                    next[state * alphabet + symbol] = next[fail[state] * alphabet + symbol];
+                    continue;
+                }
+
+                next[state * alphabet + symbol] = child;
+                fail[child] = next[fail[state] * alphabet + symbol];
+                outputs[child] = merge(own.get(child), outputs[fail[child]]);
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * @return number of patterns
+     */
+    int size() {
+        return patternCount;
+    }
+
+    /**
+     * @param text to search
+     * @return per pattern index: end (exclusive) of first occurrence in text or -1 if pattern was not found
+     */
+    int[] match(String text) {
+
+        int[] ends = new int[patternCount];
+        Arrays.fill(ends, -1);
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            }
+
+            int symbol = c < ASCII ? symbols[c] : 0;
+            state = next[state * alphabet + symbol];
+
+            for (int pattern : outputs[state]) {
+                if (ends[pattern] < 0) {
+                    ends[pattern] = i + 1;
+                }
+            }
+        }
+
+        return ends;
+    }
+
+    private int[] newState() {
+
+        int[] state = new int[alphabet];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] append(int[] array, int value) {
+
+        int[] out = Arrays.copyOf(array, array.length + 1);
+        out[array.length] = value;
+        return out;
+    }
+
+    private static int[] merge(int[] first, int[] second) {
+
+        if (second.length == 0) {
+            return first;
+        }
+
+        if (first.length == 0) {
+            return second;
+        }
+
+        int[] out = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, out, first.length, second.length);
+        return out;
+    }
+}
@@ -0,0 +1,120 @@
+package com.zandero.http.agent;
+
+import java.util.*;
+
+/**
+ * Classified User-Agent header
+ */
+public final class UserAgent {
+
+    public enum Type {
+        BOT,
+        MOBILE,
+        TABLET,
+        DESKTOP,
+        UNKNOWN
+    }
+
+    /**
+     * Agent of requests without (or with empty) User-Agent header
+     */
+    public static final UserAgent UNKNOWN = new UserAgent(Type.UNKNOWN, null, null, null);
+
+    private final Type type;
+
+    private final String browser;
+
+    private final String version;
+
+    private final String os;
+
+    UserAgent(Type agentType, String browserName, String browserVersion, String operatingSystem) {
+
+        type = agentType;
+        browser = browserName;
+        version = browserVersion;
+        os = operatingSystem;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return browser name or null if not recognized
+     */
+    public String getBrowser() {
+        return browser;
+    }
+
+    /**
+     * @return browser version or null if not recognized
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    /**
+     * @return major browser version or -1 if not recognized
+     */
+    public int getMajorVersion() {
+
+        if (version == null) {
+            return -1;
+        }
+
+        int end = version.indexOf('.');
+        try {
+            return Integer.parseInt(end < 0 ? version : version.substring(0, end));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return operating system name or null if not recognized
+     */
+    public String getOs() {
+        return os;
+    }
+
+    public boolean isBot() {
+        return type == Type.BOT;
+    }
+
+    public boolean isMobile() {
+        return type == Type.MOBILE;
+    }
+
+    public boolean isTablet() {
+        return type == Type.TABLET;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        UserAgent other = (UserAgent) o;
+        return type == other.type &&
+               Objects.equals(browser, other.browser) &&
+               Objects.equals(version, other.version) &&
+               Objects.equals(os, other.os);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, browser, version, os);
+    }
+
+    @Override
+    public String toString() {
+        return type + (browser != null ? " " + browser : "") + (version != null ? " " + version : "") + (os != null ? " (" + os + ")" : "");
+    }
+}
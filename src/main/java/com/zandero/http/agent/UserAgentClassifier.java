@@ -0,0 +1,236 @@
+package com.zandero.http.agent;
+
+import com.zandero.http.cache.*;
+import com.zandero.utils.*;
+
+import java.util.*;
+
+/**
+ * Classifies User-Agent headers into bots, mobile, tablet and desktop agents and recognizes common browsers and operating systems
+ * <ul>
+ *     <li>all tokens are matched in a single pass with a precompiled Aho-Corasick automaton (no regular expressions)</li>
+ *     <li>results are cached per User-Agent, repeated agents are classified with a single map lookup</li>
+ * </ul>
+ */
+public class UserAgentClassifier {
+
+    private static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /**
+     * longer agents are classified but not cached
+     */
+    private static final int MAX_CACHED_LENGTH = 512;
+
+    private static final int MAX_VERSION_LENGTH = 20;
+
+    private static final String[] BOTS = {"bot", "crawler", "spider", "slurp", "archiver", "facebookexternalhit", "bingpreview",
+                                          "mediapartners-google", "headlesschrome", "phantomjs", "lighthouse", "pingdom", "uptimerobot",
+                                          "curl/", "wget/", "python-requests", "python-urllib", "aiohttp", "go-http-client", "okhttp",
+                                          "java/", "apache-httpclient", "libwww-perl", "httpie", "postmanruntime", "scrapy"};
+
+    private static final String[] TABLETS = {"ipad", "tablet", "kindle", "silk/", "playbook"};
+
+    private static final String[] MOBILES = {"mobile", "iphone", "ipod", "windows phone", "blackberry", "opera mini", "iemobile"};
+
+    private static final String ANDROID = "android";
+
+    /**
+     * browser name, token followed by version, token holding version (if different) ... in order of precedence
+     */
+    private static final String[][] BROWSERS = {{"Edge", "edg/"},
+                                                {"Edge", "edge/"},
+                                                {"Edge", "edga/"},
+                                                {"Edge", "edgios/"},
+                                                {"Opera", "opr/"},
+                                                {"Opera", "opera/", "version/"},
+                                                {"Samsung Internet", "samsungbrowser/"},
+                                                {"Firefox", "firefox/"},
+                                                {"Firefox", "fxios/"},
+                                                {"Chrome", "crios/"},
+                                                {"Chrome", "chrome/"},
+                                                {"Safari", "safari/", "version/"},
+                                                {"Internet Explorer", "msie "},
+                                                {"Internet Explorer", "trident/", "rv:"}};
+
+    /**
+     * operating system name, token ... in order of precedence
+     */
+    private static final String[][] SYSTEMS = {{"Windows Phone", "windows phone"},
+                                               {"Windows", "windows nt"},
+                                               {"iOS", "iphone os"},
+                                               {"iOS", "cpu os"},
+                                               {"Android", ANDROID},
+                                               {"Chrome OS", "cros "},
+                                               {"macOS", "mac os x"},
+                                               {"Linux", "linux"}};
+
+    private static final UserAgentClassifier DEFAULT = new UserAgentClassifier(DEFAULT_CACHE_SIZE);
+
+    private final AhoCorasick matcher;
+
+    private final int[] bots;
+
+    private final int[] tablets;
+
+    private final int[] mobiles;
+
+    private final int android;
+
+    private final int[] browsers;
+
+    private final int[] browserVersions;
+
+    private final int[] systems;
+
+    private final BoundedCache<String, UserAgent> cache;
+
+    /**
+     * @param cacheSize max number of cached agents
+     */
+    public UserAgentClassifier(int cacheSize) {
+
+        Map<String, Integer> tokens = new LinkedHashMap<>();
+
+        bots = indexOf(tokens, BOTS);
+        tablets = indexOf(tokens, TABLETS);
+        mobiles = indexOf(tokens, MOBILES);
+        android = indexOf(tokens, ANDROID);
+
+        browsers = new int[BROWSERS.length];
+        browserVersions = new int[BROWSERS.length];
+        for (int i = 0; i < BROWSERS.length; i++) {
+            browsers[i] = indexOf(tokens, BROWSERS[i][1]);
+            browserVersions[i] = indexOf(tokens, BROWSERS[i][BROWSERS[i].length - 1]);
+        }
+
+        systems = new int[SYSTEMS.length];
+        for (int i = 0; i < SYSTEMS.length; i++) {
+            systems[i] = indexOf(tokens, SYSTEMS[i][1]);
+        }
+
+        matcher = new AhoCorasick(new ArrayList<>(tokens.keySet()));
+        cache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * @return shared classifier
+     */
+    public static UserAgentClassifier getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param userAgent User-Agent header
+     * @return classified agent, {@link UserAgent#UNKNOWN} if no agent given
+     */
+    public UserAgent classify(String userAgent) {
+
+        if (userAgent == null) {
+            return UserAgent.UNKNOWN;
+        }
+
+        UserAgent agent = cache.get(userAgent);
+        if (agent != null) {
+            return agent;
+        }
+
+        if (StringUtils.isNullOrEmptyTrimmed(userAgent)) {
+            return UserAgent.UNKNOWN;
+        }
+
+        agent = compute(userAgent);
+        if (userAgent.length() <= MAX_CACHED_LENGTH) {
+            cache.put(userAgent, agent);
+        }
+
+        return agent;
+    }
+
+    /**
+     * @param userAgent User-Agent header
+     * @return true if agent is a known crawler, bot or HTTP library
+     */
+    public boolean isBot(String userAgent) {
+        return classify(userAgent).isBot();
+    }
+
+    private UserAgent compute(String userAgent) {
+
+        int[] ends = matcher.match(userAgent);
+
+        String browser = null;
+        String version = null;
+        for (int i = 0; i < browsers.length; i++) {
+            if (ends[browsers[i]] >= 0) {
+                browser = BROWSERS[i][0];
+                version = readVersion(userAgent, ends[browserVersions[i]]);
+                break;
+            }
+        }
+
+        String os = null;
+        for (int i = 0; i < systems.length; i++) {
+            if (ends[systems[i]] >= 0) {
+                os = SYSTEMS[i][0];
+                break;
+            }
+        }
+
+        UserAgent.Type type;
+        if (any(ends, bots)) {
+            type = UserAgent.Type.BOT;
+        } else if (any(ends, tablets)) {
+            type = UserAgent.Type.TABLET;
+        } else if (any(ends, mobiles)) {
+            type = UserAgent.Type.MOBILE;
+        } else if (ends[android] >= 0) {
+            type = UserAgent.Type.TABLET; // Android without Mobile token
+        } else if (browser != null || os != null) {
+            type = UserAgent.Type.DESKTOP;
+        } else {
+            type = UserAgent.Type.UNKNOWN;
+        }
+
+        return new UserAgent(type, browser, version, os);
+    }
+
+    private static boolean any(int[] ends, int[] tokens) {
+
+        for (int token : tokens) {
+            if (ends[token] >= 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String readVersion(String userAgent, int start) {
+
+        if (start < 0) {
+            return null;
+        }
+
+        int end = start;
+        int max = Math.min(userAgent.length(), start + MAX_VERSION_LENGTH);
+        while (end < max && (Character.isDigit(userAgent.charAt(end)) || userAgent.charAt(end) == '.')) {
+            end++;
+        }
+
+        return end > start ? userAgent.substring(start, end) : null;
+    }
+
+    private static int[] indexOf(Map<String, Integer> tokens, String[] values) {
+
+        int[] out = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            out[i] = indexOf(tokens, values[i]);
+        }
+
+        return out;
+    }
+
+    private static int indexOf(Map<String, Integer> tokens, String value) {
+        return tokens.computeIfAbsent(value, token -> tokens.size());
+    }
+}
@@ -0,0 +1,152 @@
+package com.zandero.http.balancing;
+
+import com.zandero.utils.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Single endpoint (base url) of a {@link LoadBalancedService} with its load and health statistics
+ */
+public final class Endpoint {
+
+    /**
+     * smoothing factor of latency moving average
+     */
+    private static final double LATENCY_DECAY = 0.2;
+
+    /**
+     * smoothing factor of success rate moving average
+     */
+    private static final double SUCCESS_DECAY = 0.1;
+
+    /**
+     * endpoint is never weighted below this value so it can recover
+     */
+    private static final double MIN_WEIGHT = 0.05;
+
+    private final String url;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private int consecutiveFailures;
+
+    private volatile double latency; // ms
+
+    private volatile double successRate = 1.0;
+
+    private volatile long ejectedUntil;
+
+    private volatile boolean ejected;
+
+    private int ejections;
+
+    Endpoint(String baseUrl) {
+
+        Assert.notNullOrEmptyTrimmed(baseUrl, "Missing endpoint url!");
+        url = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+    }
+
+    /**
+     * @return base url of endpoint (without trailing slash)
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * @return exponentially weighted moving average of latency in ms
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return exponentially weighted moving average of successful calls (0 - 1)
+     */
+    public double getSuccessRate() {
+        return successRate;
+    }
+
+    /**
+     * @return health based weight (0.05 - 1)
+     */
+    public double getWeight() {
+        return Math.max(MIN_WEIGHT, successRate);
+    }
+
+    /**
+     * @return true if endpoint is temporarily ejected from selection
+     */
+    public boolean isEjected() {
+
+        if (ejected && System.nanoTime() - ejectedUntil >= 0) {
+            ejected = false;
+        }
+
+        return ejected;
+    }
+
+    /**
+     * Expected cost of sending next request to endpoint, lower is better
+     *
+     * @return latency multiplied by requests in flight divided by health weight
+     */
+    double cost() {
+        return (latency + 1) * (outstanding.get() + 1) / getWeight();
+    }
+
+    void start() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Records finished call
+     *
+     * @param durationNanos      call duration
+     * @param success            true if call succeeded
+     * @param ejectAfterFailures number of consecutive failures to trigger ejection
+     * @return true if endpoint reached ejection threshold
+     */
+    synchronized boolean finish(long durationNanos, boolean success, int ejectAfterFailures) {
+
+        outstanding.decrementAndGet();
+
+        double millis = TimeUnit.NANOSECONDS.toMicros(durationNanos) / 1000d;
+        latency = latency == 0 ? millis : latency + LATENCY_DECAY * (millis - latency);
+        successRate = successRate + SUCCESS_DECAY * ((success ? 1 : 0) - successRate);
+
+        if (success) {
+            consecutiveFailures = 0;
+            ejections = 0;
+            return false;
+        }
+
+        return ++consecutiveFailures >= ejectAfterFailures;
+    }
+
+    /**
+     * Ejects endpoint, each consecutive ejection lasts longer
+     *
+     * @param baseNanos base ejection time
+     */
+    synchronized void eject(long baseNanos) {
+
+        ejections = Math.min(ejections + 1, 10);
+        ejectedUntil = System.nanoTime() + baseNanos * ejections;
+        ejected = true;
+        consecutiveFailures = 0;
+    }
+
+    @Override
+    public String toString() {
+        return url + " (outstanding: " + outstanding.get() + ", latency: " + Math.round(latency) + "ms, success: " + Math.round(successRate * 100) + "%" + (ejected ? ", ejected)" : ")");
+    }
+}
@@ -0,0 +1,269 @@
+package com.zandero.http.balancing;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+import org.slf4j.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Logical service spread across multiple endpoints (replicas)
+ * <p>
+ * Each call is routed to one endpoint selected by given {@link Strategy}.
+ * Endpoints failing consecutively are temporarily ejected (never more than half of endpoints at once),
+ * endpoints are weighted by their success rate.
+ *
+ * <pre>
+ * LoadBalancedService users = new LoadBalancedService("users", Strategy.EWMA_LATENCY, "http://10.0.0.1:8080", "http://10.0.0.2:8080");
+ * Http.Response res = users.get("/users/1");
+ * </pre>
+ */
+public class LoadBalancedService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadBalancedService.class);
+
+    private static final int DEFAULT_EJECT_AFTER_FAILURES = 5;
+    private static final long DEFAULT_EJECTION_TIME_IN_SECONDS = 30;
+    private static final double MAX_EJECTED = 0.5;
+
+    private final String name;
+
+    private final Strategy strategy;
+
+    private final List<Endpoint> endpoints;
+
+    private int ejectAfterFailures = DEFAULT_EJECT_AFTER_FAILURES;
+
+    private long ejectionTime = TimeUnit.SECONDS.toNanos(DEFAULT_EJECTION_TIME_IN_SECONDS);
+
+    private int connectTimeOut = Http.DEFAULT_CONNECT_TIMEOUT;
+
+    private int readTimeOut = Http.DEFAULT_READ_TIMEOUT;
+
+    /**
+     * Call to be executed against selected endpoint
+     *
+     * @param <T> call result
+     */
+    @FunctionalInterface
+    public interface EndpointCall<T> {
+
+        /**
+         * @param baseUrl of selected endpoint
+         * @return call result
+         * @throws Exception in case call failed
+         */
+        T call(String baseUrl) throws Exception;
+    }
+
+    /**
+     * Logical service
+     *
+     * @param serviceName  name of service (for logging)
+     * @param selection    endpoint selection strategy
+     * @param endpointUrls base urls of endpoints
+     */
+    public LoadBalancedService(String serviceName, Strategy selection, String... endpointUrls) {
+
+        Assert.notNullOrEmptyTrimmed(serviceName, "Missing service name!");
+        Assert.notNull(selection, "Missing selection strategy!");
+        Assert.notNullOrEmpty(endpointUrls, "Missing service endpoints!");
+
+        name = serviceName;
+        strategy = selection;
+
+        List<Endpoint> list = new ArrayList<>();
+        for (String url : endpointUrls) {
+            list.add(new Endpoint(url));
+        }
+
+        endpoints = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Sets outlier ejection
+     *
+     * @param consecutiveFailures number of consecutive failures after endpoint is ejected
+     * @param time                base ejection time (multiplied by number of consecutive ejections)
+     * @param unit                time unit
+     * @return this service
+     */
+    public LoadBalancedService setEjection(int consecutiveFailures, long time, TimeUnit unit) {
+
+        Assert.isTrue(consecutiveFailures > 0, "Expected consecutive failures > 0!");
+        Assert.notNull(unit, "Missing time unit!");
+
+        ejectAfterFailures = consecutiveFailures;
+        ejectionTime = unit.toNanos(time);
+        return this;
+    }
+
+    /**
+     * Sets time outs used by get, post, put and delete
+     *
+     * @param connectTimeOutInMs connect time out in ms
+     * @param readTimeOutInMs    read time out in ms
+     * @return this service
+     */
+    public LoadBalancedService setTimeOuts(int connectTimeOutInMs, int readTimeOutInMs) {
+
+        connectTimeOut = connectTimeOutInMs;
+        readTimeOut = readTimeOutInMs;
+        return this;
+    }
+
+    /**
+     * @return service name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return endpoints with their statistics
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Makes GET request to selected endpoint
+     *
+     * @param path  path to append to endpoint url
+     * @return Response object with HTTP response code and response as String
+     * @throws Http.HttpException in case of invalid input parameters or network failure
+     */
+    public Http.Response get(String path) throws Http.HttpException {
+        return execute("GET", path, null, null, null);
+    }
+
+    /**
+     * Makes POST request to selected endpoint
+     *
+     * @param path path to append to endpoint url
+     * @param body request body to post or null to skip
+     * @return Response object with HTTP response code and response as String
+     * @throws Http.HttpException in case of invalid input parameters or network failure
+     */
+    public Http.Response post(String path, String body) throws Http.HttpException {
+        return execute("POST", path, body, null, null);
+    }
+
+    /**
+     * Makes PUT request to selected endpoint
+     *
+     * @param path path to append to endpoint url
+     * @param body request body to put or null to skip
+     * @return Response object with HTTP response code and response as String
+     * @throws Http.HttpException in case of invalid input parameters or network failure
+     */
+    public Http.Response put(String path, String body) throws Http.HttpException {
+        return execute("PUT", path, body, null, null);
+    }
+
+    /**
+     * Makes DELETE request to selected endpoint
+     *
+     * @param path path to append to endpoint url
+     * @return Response object with HTTP response code and response as String
+     * @throws Http.HttpException in case of invalid input parameters or network failure
+     */
+    public Http.Response delete(String path) throws Http.HttpException {
+        return execute("DELETE", path, null, null, null);
+    }
+
+    /**
+     * Executes request against selected endpoint, server errors (5xx) are counted as endpoint failures
+     *
+     * @param method  to execute
+     * @param path    path to append to endpoint url
+     * @param body    to post/put or null
+     * @param query   to add to url or null
+     * @param headers to add to request or null
+     * @return Response object with HTTP response code and response as String
+     * @throws Http.HttpException in case of invalid input parameters or network failure
+     */
+    public Http.Response execute(String method,
+                                 String path,
+                                 String body,
+                                 Map<String, String> query,
+                                 Map<String, String> headers) throws Http.HttpException {
+
+        Endpoint endpoint = select();
+        long start = System.nanoTime();
+        endpoint.start();
+
+        boolean success = false;
+        try {
+            Http.Response response = Http.execute(method, endpoint.getUrl() + path, body, query, headers, connectTimeOut, readTimeOut);
+            success = response.getCode() < 500;
+            return response;
+        } finally {
+            finish(endpoint, start, success);
+        }
+    }
+
+    /**
+     * Executes any call against selected endpoint (for instance with {@link HttpUtils}), exceptions are counted as endpoint failures
+     *
+     * @param call to execute with selected endpoint base url
+     * @param <T>  call result type
+     * @return call result
+     * @throws Exception thrown by call
+     */
+    public <T> T call(EndpointCall<T> call) throws Exception {
+
+        Assert.notNull(call, "Missing call!");
+
+        Endpoint endpoint = select();
+        long start = System.nanoTime();
+        endpoint.start();
+
+        boolean success = false;
+        try {
+            T result = call.call(endpoint.getUrl());
+            success = true;
+            return result;
+        } finally {
+            finish(endpoint, start, success);
+        }
+    }
+
+    /**
+     * Selects endpoint among endpoints not ejected
+     *
+     * @return selected endpoint
+     */
+    Endpoint select() {
+
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected()) {
+                available.add(endpoint);
+            }
+        }
+
+        return strategy.select(available.isEmpty() ? endpoints : available);
+    }
+
+    private void finish(Endpoint endpoint, long start, boolean success) {
+
+        if (endpoint.finish(System.nanoTime() - start, success, ejectAfterFailures) && canEject()) {
+            endpoint.eject(ejectionTime);
+            log.warn("{}: ejected endpoint {}", name, endpoint);
+        }
+    }
+
+    private boolean canEject() {
+
+        int ejected = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isEjected()) {
+                ejected++;
+            }
+        }
+
+        return ejected + 1 <= endpoints.size() * MAX_EJECTED;
+    }
+}
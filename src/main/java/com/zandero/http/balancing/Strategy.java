@@ -0,0 +1,80 @@
+package com.zandero.http.balancing;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Endpoint selection strategy
+ */
+public enum Strategy {
+
+    /**
+     * Picks two random endpoints and takes the one with fewer requests in flight
+     */
+    POWER_OF_TWO_CHOICES {
+        @Override
+        Endpoint select(List<Endpoint> endpoints) {
+            return twoChoices(endpoints, (a, b) -> Double.compare(a.getOutstanding() / a.getWeight(), b.getOutstanding() / b.getWeight()));
+        }
+    },
+
+    /**
+     * Takes endpoint with fewest requests in flight (weighted by health)
+     */
+    LEAST_OUTSTANDING {
+        @Override
+        Endpoint select(List<Endpoint> endpoints) {
+
+            // random start so ties are spread evenly
+            int start = ThreadLocalRandom.current().nextInt(endpoints.size());
+            Endpoint best = null;
+            double bestLoad = Double.MAX_VALUE;
+
+            for (int i = 0; i < endpoints.size(); i++) {
+                Endpoint endpoint = endpoints.get((start + i) % endpoints.size());
+                double load = endpoint.getOutstanding() / endpoint.getWeight();
+                if (load < bestLoad) {
+                    best = endpoint;
+                    bestLoad = load;
+                }
+            }
+
+            return best;
+        }
+    },
+
+    /**
+     * Picks two random endpoints and takes the one with lower expected latency
+     * (moving average latency × requests in flight, weighted by health)
+     */
+    EWMA_LATENCY {
+        @Override
+        Endpoint select(List<Endpoint> endpoints) {
+            return twoChoices(endpoints, Comparator.comparingDouble(Endpoint::cost));
+        }
+    };
+
+    /**
+     * @param endpoints non empty list of available endpoints
+     * @return selected endpoint
+     */
+    abstract Endpoint select(List<Endpoint> endpoints);
+
+    private static Endpoint twoChoices(List<Endpoint> endpoints, Comparator<Endpoint> comparator) {
+
+        if (endpoints.size() == 1) {
+            return endpoints.get(0);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(endpoints.size());
+        int second = random.nextInt(endpoints.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        Endpoint a = endpoints.get(first);
+        Endpoint b = endpoints.get(second);
+        return comparator.compare(b, a) < 0 ? b : a;
+    }
+}
@@ -0,0 +1,136 @@
+package com.zandero.http.batch;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Executes many requests concurrently with a bounded window of in flight requests
+ * <p>
+ * Requests are executed with {@link Http}, connections to the same host are reused from the JVM keep-alive cache
+ * (size per host is set with the {@code http.maxConnections} system property, 5 by default).
+ * Failure of a single request does not fail the batch, it is reported in the {@link BatchResult} of that request.
+ * {@link Deadline} attached to the calling thread bounds all requests of the batch.
+ *
+ * <pre>
+ * List&lt;BatchRequest&gt; requests = ids.stream().map(id -&gt; BatchRequest.get("http://api/items/" + id)).collect(toList());
+ * List&lt;BatchResult&gt; results = new Batch(16).execute(requests);
+ * </pre>
+ */
+public class Batch {
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-batch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int window;
+
+    private final ExecutorService executor;
+
+    /**
+     * Batch executed on shared daemon thread pool
+     *
+     * @param maxInFlight max number of concurrently executed requests
+     */
+    public Batch(int maxInFlight) {
+        this(maxInFlight, EXECUTOR);
+    }
+
+    /**
+     * Batch executed on given executor
+     *
+     * @param maxInFlight     max number of concurrently executed requests
+     * @param executorService executing requests
+     */
+    public Batch(int maxInFlight, ExecutorService executorService) {
+
+        Assert.isTrue(maxInFlight > 0, "Expected max in flight > 0!");
+        Assert.notNull(executorService, "Missing executor service!");
+
+        window = maxInFlight;
+        executor = executorService;
+    }
+
+    /**
+     * Executes all requests and waits for them to complete
+     *
+     * @param requests to execute
+     * @return results in order of requests
+     * @throws InterruptedException in case interrupted while waiting, requests in flight are cancelled
+     */
+    public List<BatchResult> execute(List<BatchRequest> requests) throws InterruptedException {
+
+        BatchResult[] results = new BatchResult[requests == null ? 0 : requests.size()];
+        execute(requests, result -> results[result.getIndex()] = result);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Executes all requests, results are passed to consumer as requests complete
+     *
+     * @param requests to execute
+     * @param consumer of results, invoked on calling thread one result at a time
+     * @throws InterruptedException in case interrupted while waiting, requests in flight are cancelled
+     */
+    public void execute(List<BatchRequest> requests, Consumer<BatchResult> consumer) throws InterruptedException {
+
+        Assert.notNull(consumer, "Missing result consumer!");
+        if (requests == null || requests.isEmpty()) {
+            return;
+        }
+
+        Deadline deadline = Deadline.current();
+        BlockingQueue<BatchResult> completed = new LinkedBlockingQueue<>();
+        List<Future<?>> running = new ArrayList<>(requests.size());
+
+        int total = requests.size();
+        int submitted = 0;
+        int done = 0;
+
+        try {
+            while (done < total) {
+
+                while (submitted < total && submitted - done < window) {
+                    running.add(submit(submitted, requests.get(submitted), deadline, completed));
+                    submitted++;
+                }
+
+                consumer.accept(completed.take());
+                done++;
+            }
+        } finally {
+            if (done < total) {
+                for (Future<?> future : running) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private Future<?> submit(int index, BatchRequest request, Deadline deadline, BlockingQueue<BatchResult> completed) {
+
+        Assert.notNull(request, "Missing request at: " + index);
+
+        Runnable task = () -> {
+            try {
+                completed.add(new BatchResult(index, request, request.execute(), null));
+            } catch (Http.HttpException e) {
+                completed.add(new BatchResult(index, request, null, e));
+            } catch (RuntimeException e) {
+                completed.add(new BatchResult(index, request, null, new Http.HttpException(500, e.getMessage(), e)));
+            }
+        };
+
+        try {
+            return executor.submit(deadline != null ? deadline.wrap(task) : task);
+        } catch (RejectedExecutionException e) {
+            completed.add(new BatchResult(index, request, null, new Http.HttpException(500, "Request rejected: " + e.getMessage(), e)));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.zandero.http.batch;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+
+import java.util.*;
+
+/**
+ * Single request of a {@link Batch}
+ */
+public class BatchRequest {
+
+    private final String method;
+
+    private final String url;
+
+    private final String body;
+
+    private final Map<String, String> query;
+
+    private final Map<String, String> headers;
+
+    private int connectTimeOut = Http.DEFAULT_CONNECT_TIMEOUT;
+
+    private int readTimeOut = Http.DEFAULT_READ_TIMEOUT;
+
+    /**
+     * Request to be executed with {@link Http#execute(String, String, String, Map, Map, int, int)}
+     *
+     * @param method  to execute
+     * @param url     url to call
+     * @param body    to post/put or null
+     * @param query   to add to url or null
+     * @param headers to add to request or null
+     */
+    public BatchRequest(String method, String url, String body, Map<String, String> query, Map<String, String> headers) {
+
+        Assert.notNullOrEmptyTrimmed(method, "Missing method!");
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+
+        this.method = method;
+        this.url = url;
+        this.body = body;
+        this.query = query;
+        this.headers = headers;
+    }
+
+    /**
+     * @param url url to call
+     * @return GET request
+     */
+    public static BatchRequest get(String url) {
+        return new BatchRequest("GET", url, null, null, null);
+    }
+
+    /**
+     * @param url     url to call
+     * @param query   to add to url or null
+     * @param headers to add to request or null
+     * @return GET request
+     */
+    public static BatchRequest get(String url, Map<String, String> query, Map<String, String> headers) {
+        return new BatchRequest("GET", url, null, query, headers);
+    }
+
+    /**
+     * @param url  url to call
+     * @param body to post or null
+     * @return POST request
+     */
+    public static BatchRequest post(String url, String body) {
+        return new BatchRequest("POST", url, body, null, null);
+    }
+
+    /**
+     * @param url  url to call
+     * @param body to put or null
+     * @return PUT request
+     */
+    public static BatchRequest put(String url, String body) {
+        return new BatchRequest("PUT", url, body, null, null);
+    }
+
+    /**
+     * @param url url to call
+     * @return DELETE request
+     */
+    public static BatchRequest delete(String url) {
+        return new BatchRequest("DELETE", url, null, null, null);
+    }
+
+    /**
+     * Sets request time outs
+     *
+     * @param connectTimeOutInMs connect time out in ms
+     * @param readTimeOutInMs    read time out in ms
+     * @return this request
+     */
+    public BatchRequest setTimeOuts(int connectTimeOutInMs, int readTimeOutInMs) {
+
+        connectTimeOut = connectTimeOutInMs;
+        readTimeOut = readTimeOutInMs;
+        return this;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    Http.Response execute() throws Http.HttpException {
+        return Http.execute(method, url, body, query, headers, connectTimeOut, readTimeOut);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + url;
+    }
+}
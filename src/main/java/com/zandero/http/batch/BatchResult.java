@@ -0,0 +1,62 @@
+package com.zandero.http.batch;
+
+import com.zandero.http.*;
+
+/**
+ * Outcome of single {@link BatchRequest}, either response or failure
+ */
+public class BatchResult {
+
+    private final int index;
+
+    private final BatchRequest request;
+
+    private final Http.Response response;
+
+    private final Http.HttpException error;
+
+    BatchResult(int index, BatchRequest request, Http.Response response, Http.HttpException error) {
+
+        this.index = index;
+        this.request = request;
+        this.response = response;
+        this.error = error;
+    }
+
+    /**
+     * @return position of request in batch
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public BatchRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * @return response or null in case request failed
+     */
+    public Http.Response getResponse() {
+        return response;
+    }
+
+    /**
+     * @return failure or null in case response was received
+     */
+    public Http.HttpException getError() {
+        return error;
+    }
+
+    /**
+     * @return true if response was received (regardless of status code)
+     */
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    @Override
+    public String toString() {
+        return request + " -> " + (error != null ? "failed: " + error.getMessage() : response.getCode());
+    }
+}
@@ -0,0 +1,194 @@
+package com.zandero.http.buffer;
+
+import com.zandero.utils.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Growing output stream backed by pooled buffers
+ * <p>
+ * Content is copied out only once with {@link #toByteArray()} or {@link #toString(Charset)},
+ * {@link #close()} returns buffer into pool.
+ */
+public class BufferOutputStream extends OutputStream {
+
+    private static final int DEFAULT_SIZE = 8 * 1024;
+
+    private final BufferPool pool;
+
+    private byte[] buffer;
+
+    private int count;
+
+    /**
+     * Stream using default pool
+     */
+    public BufferOutputStream() {
+        this(BufferPool.getDefault(), DEFAULT_SIZE);
+    }
+
+    /**
+     * @param bufferPool  to acquire buffers from
+     * @param initialSize expected size of content in bytes
+     */
+    public BufferOutputStream(BufferPool bufferPool, int initialSize) {
+
+        Assert.notNull(bufferPool, "Missing buffer pool!");
+        pool = bufferPool;
+        buffer = pool.acquire(Math.max(initialSize, BufferPool.MIN_SIZE));
+    }
+
+    /**
+     * Initial size for content of given length, capped to largest pooled buffer as announced length can not be trusted
+     *
+     * @param contentLength announced length or negative if unknown
+     * @param defaultSize   size to use when length is unknown
+     * @return initial size of buffer
+     */
+    public static int initialSize(long contentLength, int defaultSize) {
+        return contentLength > 0 ? (int) Math.min(contentLength, BufferPool.MAX_SIZE) : defaultSize;
+    }
+
+    @Override
+    public void write(int b) {
+
+        ensure(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+
+        ensure(length);
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+    }
+
+    /**
+     * Encodes value as UTF-8 into buffer, without allocating an intermediate byte array
+     *
+     * @param value to write
+     */
+    public void writeUtf8(CharSequence value) {
+
+        int length = value.length();
+        ensure(length);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+
+            if (c < 0x80) {
+                ensure(1);
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buffer[count++] = '?'; // malformed input is replaced as by String.getBytes
+            } else {
+                ensure(3);
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * @param out to write content to
+     * @throws IOException in case content could not be written
+     */
+    public void writeTo(OutputStream out) throws IOException {
+
+        if (buffer == null) {
+            throw new IllegalStateException("Stream is closed!");
+        }
+
+        out.write(buffer, 0, count);
+    }
+
+    /**
+     * Reads given stream into buffer until end of stream (stream is not closed)
+     *
+     * @param in to read from
+     * @return number of bytes read
+     * @throws IOException in case stream could not be read
+     */
+    public long readFrom(InputStream in) throws IOException {
+
+        long total = 0;
+        while (true) {
+
+            ensure(1);
+            int read = in.read(buffer, count, buffer.length - count);
+            if (read < 0) {
+                return total;
+            }
+
+            count += read;
+            total += read;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return copy of content
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * @param charset to decode content with
+     * @return decoded content
+     */
+    public String toString(Charset charset) {
+        return new String(buffer, 0, count, charset);
+    }
+
+    @Override
+    public void close() {
+
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void ensure(int length) {
+
+        if (buffer == null) {
+            throw new IllegalStateException("Stream is closed!");
+        }
+
+        int required = count + length;
+        if (required <= buffer.length) {
+            return;
+        }
+
+        if (required < 0) {
+            throw new OutOfMemoryError("Content too large!");
+        }
+
+        byte[] grown = pool.acquire((int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * buffer.length)));
+        System.arraycopy(buffer, 0, grown, 0, count);
+        pool.release(buffer);
+        buffer = grown;
+    }
+}
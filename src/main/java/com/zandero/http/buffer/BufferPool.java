@@ -0,0 +1,249 @@
+package com.zandero.http.buffer;
+
+import com.zandero.utils.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Pool of size classed heap and direct buffers
+ * <ul>
+ *     <li>buffers are rounded up to size classes (power of two from 512 bytes up to 64kB), larger buffers are not pooled</li>
+ *     <li>released buffers are first cached per thread, overflow is shared in a bounded global pool</li>
+ *     <li>optional leak detection records where each outstanding buffer was acquired (use in tests only)</li>
+ * </ul>
+ * Released buffer must not be used any more, content of acquired buffer is undefined.
+ */
+public final class BufferPool {
+
+    public static final int MIN_SIZE = 512;
+
+    public static final int MAX_SIZE = 64 * 1024;
+
+    private static final int CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+
+    private static final int DEFAULT_PER_THREAD = 4;
+    private static final int DEFAULT_GLOBAL = 64;
+
+    private static final BufferPool DEFAULT = new BufferPool(DEFAULT_PER_THREAD, DEFAULT_GLOBAL);
+
+    private final int perThread;
+
+    private final Classes<byte[]> heap;
+
+    private final Classes<ByteBuffer> direct;
+
+    private final LongAdder outstanding = new LongAdder();
+
+    private volatile Map<Object, Throwable> leaks;
+
+    /**
+     * @param maxPerThread max buffers cached per size class and thread
+     * @param maxGlobal    max buffers kept per size class in shared pool
+     */
+    public BufferPool(int maxPerThread, int maxGlobal) {
+
+        Assert.isTrue(maxPerThread >= 0, "Expected max per thread >= 0!");
+        Assert.isTrue(maxGlobal > 0, "Expected max global > 0!");
+
+        perThread = maxPerThread;
+        heap = new Classes<>(maxGlobal);
+        direct = new Classes<>(maxGlobal);
+    }
+
+    /**
+     * @return shared pool used by Http and HttpUtils
+     */
+    public static BufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param minSize minimal size of buffer in bytes
+     * @return heap buffer of at least given size
+     */
+    public byte[] acquire(int minSize) {
+
+        int index = index(minSize);
+        byte[] buffer = index < 0 ? null : heap.poll(index);
+        if (buffer == null) {
+            buffer = new byte[index < 0 ? minSize : size(index)];
+        }
+
+        return track(buffer);
+    }
+
+    /**
+     * Returns buffer into pool
+     *
+     * @param buffer acquired with {@link #acquire(int)}
+     */
+    public void release(byte[] buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        untrack(buffer);
+        int index = index(buffer.length);
+        if (index >= 0 && size(index) == buffer.length) {
+            heap.offer(index, buffer);
+        }
+    }
+
+    /**
+     * @param minSize minimal capacity of buffer in bytes
+     * @return cleared direct buffer of at least given capacity
+     */
+    public ByteBuffer acquireDirect(int minSize) {
+
+        int index = index(minSize);
+        ByteBuffer buffer = index < 0 ? null : direct.poll(index);
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(index < 0 ? minSize : size(index));
+        }
+
+        buffer.clear();
+        return track(buffer);
+    }
+
+    /**
+     * Returns direct buffer into pool
+     *
+     * @param buffer acquired with {@link #acquireDirect(int)}
+     */
+    public void release(ByteBuffer buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        untrack(buffer);
+        int index = index(buffer.capacity());
+        if (buffer.isDirect() && index >= 0 && size(index) == buffer.capacity()) {
+            direct.offer(index, buffer);
+        }
+    }
+
+    /**
+     * @return number of acquired buffers not yet released
+     */
+    public long getOutstanding() {
+        return outstanding.sum();
+    }
+
+    /**
+     * Enables leak detection, each acquired buffer is tracked with stack trace of acquisition (expensive)
+     *
+     * @param enabled true to track outstanding buffers, false to stop tracking
+     */
+    public void setLeakDetection(boolean enabled) {
+        leaks = enabled ? Collections.synchronizedMap(new IdentityHashMap<>()) : null;
+    }
+
+    /**
+     * @return stack traces of buffers acquired but not released since leak detection was enabled
+     */
+    public List<Throwable> getLeaks() {
+
+        Map<Object, Throwable> tracked = leaks;
+        if (tracked == null) {
+            return Collections.emptyList();
+        }
+
+        synchronized (tracked) {
+            return new ArrayList<>(tracked.values());
+        }
+    }
+
+    private <T> T track(T buffer) {
+
+        outstanding.increment();
+
+        Map<Object, Throwable> tracked = leaks;
+        if (tracked != null) {
+            tracked.put(buffer, new Throwable("Buffer of " + (buffer instanceof byte[] ? ((byte[]) buffer).length : ((ByteBuffer) buffer).capacity()) +
+                                              " bytes acquired by: " + Thread.currentThread().getName()));
+        }
+
+        return buffer;
+    }
+
+    private void untrack(Object buffer) {
+
+        Map<Object, Throwable> tracked = leaks;
+        if (tracked != null) {
+            tracked.remove(buffer);
+        }
+
+        outstanding.decrement();
+    }
+
+    private static int index(int size) {
+
+        if (size > MAX_SIZE) {
+            return -1;
+        }
+
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    private static int size(int index) {
+        return MIN_SIZE << index;
+    }
+
+    /**
+     * Thread local stacks per size class with global overflow
+     */
+    private class Classes<T> {
+
+        private final ThreadLocal<Cache> local = ThreadLocal.withInitial(Cache::new);
+
+        private final List<BlockingQueue<T>> global = new ArrayList<>(CLASSES);
+
+        Classes(int maxGlobal) {
+
+            for (int i = 0; i < CLASSES; i++) {
+                global.add(new ArrayBlockingQueue<>(maxGlobal));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        T poll(int index) {
+
+            Cache cache = local.get();
+            if (cache.counts[index] > 0) {
+                Object[] stack = cache.stacks[index];
+                T buffer = (T) stack[--cache.counts[index]];
+                stack[cache.counts[index]] = null;
+                return buffer;
+            }
+
+            return global.get(index).poll();
+        }
+
+        void offer(int index, T buffer) {
+
+            Cache cache = local.get();
+            if (cache.counts[index] < perThread) {
+                cache.stacks[index][cache.counts[index]++] = buffer;
+                return;
+            }
+
+            global.get(index).offer(buffer); // dropped when full
+        }
+    }
+
+    private class Cache {
+
+        private final Object[][] stacks = new Object[CLASSES][perThread];
+
+        private final int[] counts = new int[CLASSES];
+    }
+}
@@ -0,0 +1,154 @@
+package com.zandero.http.cache;
+
+import com.zandero.utils.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Concurrent cache holding up to given number of entries
+ * <ul>
+ *     <li>lookups of cached keys are lock and allocation free</li>
+ *     <li>once full, least recently used entries are evicted (approximated with second chance / clock eviction)</li>
+ *     <li>null values are not cached</li>
+ * </ul>
+ * Values of concurrently loaded missing keys might be computed more than once, last one is kept.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * clock hand, guarded by eviction lock
+     */
+    private Iterator<Map.Entry<K, Entry<V>>> hand;
+
+    /**
+     * @param maximumSize max number of cached entries
+     */
+    public BoundedCache(int maximumSize) {
+
+        Assert.isTrue(maximumSize > 0, "Expected maximum size > 0!");
+
+        maxSize = maximumSize;
+        entries = new ConcurrentHashMap<>(Math.min(maximumSize, 1024));
+    }
+
+    /**
+     * @param key to look up
+     * @return cached value or null if not cached
+     */
+    public V get(K key) {
+
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * @param key    to look up
+     * @param loader computing value of missing key
+     * @return cached or computed value
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = loader.apply(key);
+        put(key, value);
+        return value;
+    }
+
+    /**
+     * @param key   of entry
+     * @param value of entry, null values are ignored
+     */
+    public void put(K key, V value) {
+
+        if (value == null) {
+            return;
+        }
+
+        if (entries.put(key, new Entry<>(value)) == null && entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * @return number of cached entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return max number of cached entries
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private void evict() {
+
+        // thread holding lock evicts until cache fits again
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            while (entries.size() > maxSize) {
+
+                if (hand == null || !hand.hasNext()) {
+                    hand = entries.entrySet().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+
+                Map.Entry<K, Entry<V>> candidate = hand.next();
+                Entry<V> entry = candidate.getValue();
+                if (entry.referenced) {
+                    entry.referenced = false; // second chance
+                } else {
+                    entries.remove(candidate.getKey(), entry);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final V value;
+
+        private volatile boolean referenced;
+
+        Entry(V entryValue) {
+            value = entryValue;
+        }
+    }
+}
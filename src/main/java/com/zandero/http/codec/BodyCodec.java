@@ -0,0 +1,34 @@
+package com.zandero.http.codec;
+
+import java.io.*;
+
+/**
+ * Serializes request bodies and deserializes response bodies directly from / to streams
+ */
+public interface BodyCodec {
+
+    /**
+     * @return content type of serialized bodies (sent as Content-Type and Accept header)
+     */
+    String getContentType();
+
+    /**
+     * Writes value to stream, stream must not be closed
+     *
+     * @param value to write
+     * @param out   stream to write to
+     * @throws IOException in case value could not be written
+     */
+    void write(Object value, OutputStream out) throws IOException;
+
+    /**
+     * Reads value from stream
+     *
+     * @param in   stream to read from
+     * @param type of value
+     * @param <T>  type of value
+     * @return read value
+     * @throws IOException in case value could not be read
+     */
+    <T> T read(InputStream in, Class<T> type) throws IOException;
+}
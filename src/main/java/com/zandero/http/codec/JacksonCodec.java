@@ -0,0 +1,58 @@
+package com.zandero.http.codec;
+
+import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.databind.*;
+import com.zandero.utils.*;
+import com.zandero.utils.extra.*;
+
+import java.io.*;
+
+/**
+ * JSON codec streaming with Jackson
+ */
+public class JacksonCodec implements BodyCodec {
+
+    /**
+     * JSON content type
+     */
+    public static final String APPLICATION_JSON = "application/json; charset=UTF-8";
+
+    private final ObjectWriter writer;
+
+    private final ObjectMapper mapper;
+
+    /**
+     * Codec using same object mapper as {@link JsonUtils}
+     */
+    public JacksonCodec() {
+        this(JsonUtils.getObjectMapper());
+    }
+
+    /**
+     * Codec using given object mapper
+     *
+     * @param objectMapper to use
+     */
+    public JacksonCodec(ObjectMapper objectMapper) {
+
+        Assert.notNull(objectMapper, "Missing object mapper!");
+
+        mapper = objectMapper;
+        writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @Override
+    public String getContentType() {
+        return APPLICATION_JSON;
+    }
+
+    @Override
+    public void write(Object value, OutputStream out) throws IOException {
+        writer.writeValue(out, value);
+    }
+
+    @Override
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        return mapper.readValue(in, type);
+    }
+}
@@ -0,0 +1,296 @@
+package com.zandero.http.dns;
+
+import com.zandero.utils.*;
+import org.apache.http.conn.*;
+import org.apache.http.impl.conn.*;
+import org.slf4j.*;
+
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * DNS resolver caching results of given delegate resolver
+ * <ul>
+ *     <li>resolved addresses are cached for given time to live</li>
+ *     <li>entries are refreshed in background once accessed shortly before expiry, so lookups never block on hot hosts</li>
+ *     <li>failed lookups are cached for negative time to live</li>
+ *     <li>concurrent lookups of the same host are merged into a single lookup</li>
+ * </ul>
+ * Use {@link InMemoryDnsResolver} as delegate to resolve from a static host map.
+ */
+public class CachingDnsResolver implements DnsResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+    private static final long DEFAULT_TTL_IN_SECONDS = 60;
+    private static final long DEFAULT_NEGATIVE_TTL_IN_SECONDS = 10;
+
+    /**
+     * entries are refreshed in background once this portion of ttl has passed (80%)
+     */
+    private static final double REFRESH_AT = 0.8;
+
+    private static final Executor DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-dns-resolver");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DnsResolver delegate;
+
+    private final long ttl;
+
+    private final long negativeTtl;
+
+    private final Executor executor;
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * Caching system resolver with default time to live settings
+     */
+    public CachingDnsResolver() {
+        this(SystemDefaultDnsResolver.INSTANCE);
+    }
+
+    /**
+     * Caching resolver with default time to live settings
+     *
+     * @param resolver delegate resolver
+     */
+    public CachingDnsResolver(DnsResolver resolver) {
+        this(resolver, DEFAULT_TTL_IN_SECONDS, DEFAULT_NEGATIVE_TTL_IN_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Caching resolver
+     *
+     * @param resolver         delegate resolver
+     * @param timeToLive       time resolved addresses are cached
+     * @param negativeTimeToLive time failed lookups are cached
+     * @param unit             time unit
+     */
+    public CachingDnsResolver(DnsResolver resolver, long timeToLive, long negativeTimeToLive, TimeUnit unit) {
+        this(resolver, timeToLive, negativeTimeToLive, unit, DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Caching resolver
+     *
+     * @param resolver           delegate resolver
+     * @param timeToLive         time resolved addresses are cached
+     * @param negativeTimeToLive time failed lookups are cached
+     * @param unit               time unit
+     * @param lookupExecutor     executor used for asynchronous lookups and background refresh
+     */
+    public CachingDnsResolver(DnsResolver resolver, long timeToLive, long negativeTimeToLive, TimeUnit unit, Executor lookupExecutor) {
+
+        Assert.notNull(resolver, "Missing delegate resolver!");
+        Assert.notNull(unit, "Missing time unit!");
+        Assert.notNull(lookupExecutor, "Missing executor!");
+        Assert.isTrue(timeToLive > 0, "Expected time to live > 0!");
+        Assert.isTrue(negativeTimeToLive >= 0, "Expected negative time to live >= 0!");
+
+        delegate = resolver;
+        ttl = unit.toNanos(timeToLive);
+        negativeTtl = unit.toNanos(negativeTimeToLive);
+        executor = lookupExecutor;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+
+        Assert.notNullOrEmptyTrimmed(host, "Missing host!");
+
+        Entry entry = cache.get(host);
+        if (entry == null || entry.isExpired()) {
+            try {
+                entry = lookup(host, false, false).join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        } else {
+            refreshIfNeeded(host, entry);
+        }
+
+        return entry.get();
+    }
+
+    /**
+     * Resolves host without blocking calling thread
+     *
+     * @param host to resolve
+     * @return future completed with addresses or failed with {@link UnknownHostException} (or exception thrown by delegate resolver)
+     */
+    public CompletableFuture<InetAddress[]> resolveAsync(String host) {
+
+        Assert.notNullOrEmptyTrimmed(host, "Missing host!");
+
+        Entry entry = cache.get(host);
+        if (entry != null && !entry.isExpired()) {
+            refreshIfNeeded(host, entry);
+            return toFuture(entry);
+        }
+
+        return lookup(host, false, true).thenCompose(CachingDnsResolver::toFuture);
+    }
+
+    /**
+     * Removes host from cache
+     *
+     * @param host to remove
+     */
+    public void invalidate(String host) {
+        cache.remove(host);
+    }
+
+    /**
+     * Removes all cached entries
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * @return number of cached entries (positive and negative)
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    private void refreshIfNeeded(String host, Entry entry) {
+
+        if (entry.needsRefresh() && entry.refreshing.compareAndSet(false, true)) {
+            lookup(host, true, true);
+        }
+    }
+
+    /**
+     * Single lookup per host at a time
+     *
+     * @param host    to look up
+     * @param refresh true if cached entry is refreshed in background
+     * @param async   true to look up on executor, false to look up on calling thread
+     * @return entry future
+     */
+    private CompletableFuture<Entry> lookup(String host, boolean refresh, boolean async) {
+
+        CompletableFuture<Entry> future = new CompletableFuture<>();
+        CompletableFuture<Entry> running = lookups.putIfAbsent(host, future);
+        if (running != null) {
+            return running;
+        }
+
+        Runnable task = () -> {
+            Entry entry;
+            try {
+                entry = query(host);
+            } catch (RuntimeException e) {
+                // failing delegate is not cached ... next call looks up again
+                log.warn("Failed to look up: {}", host, e);
+
+                Entry previous = cache.get(host);
+                if (refresh && previous != null) {
+                    previous.refreshing.set(false);
+                }
+
+                lookups.remove(host, future);
+                future.completeExceptionally(e);
+                return;
+            }
+
+            // failed background refresh ... keep serving last known addresses till they expire
+            Entry previous = cache.get(host);
+            if (refresh && entry.failure != null && previous != null && !previous.isExpired()) {
+                log.warn("Failed to refresh: {}, serving cached addresses till expiry", host);
+                entry = previous;
+            } else {
+                cache.put(host, entry);
+            }
+
+            lookups.remove(host, future);
+            future.complete(entry);
+        };
+
+        if (async) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                lookups.remove(host, future);
+                future.completeExceptionally(e);
+            }
+        } else {
+            task.run();
+        }
+
+        return future;
+    }
+
+    private Entry query(String host) {
+
+        try {
+            InetAddress[] addresses = delegate.resolve(host);
+            if (addresses == null || addresses.length == 0) {
+                throw new UnknownHostException(host);
+            }
+
+            return new Entry(addresses, null, ttl);
+        } catch (UnknownHostException e) {
+            return new Entry(null, e, negativeTtl);
+        }
+    }
+
+    private static CompletableFuture<InetAddress[]> toFuture(Entry entry) {
+
+        CompletableFuture<InetAddress[]> future = new CompletableFuture<>();
+        if (entry.failure != null) {
+            future.completeExceptionally(entry.failure);
+        } else {
+            future.complete(entry.addresses.clone());
+        }
+        return future;
+    }
+
+    private static class Entry {
+
+        private final InetAddress[] addresses;
+
+        private final UnknownHostException failure;
+
+        private final long expiresAt;
+
+        private final long refreshAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(InetAddress[] resolved, UnknownHostException exception, long timeToLive) {
+
+            addresses = resolved;
+            failure = exception;
+
+            long now = System.nanoTime();
+            expiresAt = now + timeToLive;
+            refreshAt = now + (long) (timeToLive * REFRESH_AT);
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+
+        boolean needsRefresh() {
+            return failure == null && System.nanoTime() - refreshAt >= 0;
+        }
+
+        InetAddress[] get() throws UnknownHostException {
+
+            if (failure != null) {
+                throw new UnknownHostException(failure.getMessage());
+            }
+
+            return addresses.clone();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.zandero.http.dns;
+
+import com.zandero.utils.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Races connection attempts to multiple addresses of one host (RFC 8305 "happy eyeballs")
+ * <p>
+ * Addresses are interleaved by family (IPv6 first), each next attempt is started after a short delay
+ * or as soon as the previous attempt fails. First established connection wins, all others are closed.
+ */
+public final class HappyEyeballs {
+
+    /**
+     * RFC 8305 recommended connection attempt delay
+     */
+    public static final long DEFAULT_ATTEMPT_DELAY_MS = 250;
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-happy-eyeballs");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private HappyEyeballs() {
+        // hide constructor
+    }
+
+    /**
+     * Orders addresses alternating between IPv6 and IPv4, starting with IPv6
+     *
+     * @param addresses to order
+     * @return ordered addresses
+     */
+    public static List<InetAddress> interleave(InetAddress[] addresses) {
+
+        Assert.notNullOrEmpty(addresses, "Missing addresses!");
+
+        Deque<InetAddress> ipv6 = new ArrayDeque<>();
+        Deque<InetAddress> ipv4 = new ArrayDeque<>();
+        for (InetAddress address : addresses) {
+            (address instanceof Inet6Address ? ipv6 : ipv4).add(address);
+        }
+
+        List<InetAddress> ordered = new ArrayList<>(addresses.length);
+        while (!ipv6.isEmpty() || !ipv4.isEmpty()) {
+            if (!ipv6.isEmpty()) {
+                ordered.add(ipv6.poll());
+            }
+            if (!ipv4.isEmpty()) {
+                ordered.add(ipv4.poll());
+            }
+        }
+
+        return ordered;
+    }
+
+    /**
+     * Connects to the fastest responding address
+     *
+     * @param addresses      of host
+     * @param port           to connect to
+     * @param connectTimeOut connect time out in ms (0 for infinite)
+     * @return connected socket
+     * @throws IOException in case no address could be connected
+     */
+    public static Socket connect(InetAddress[] addresses, int port, int connectTimeOut) throws IOException {
+        return connect(addresses, port, connectTimeOut, DEFAULT_ATTEMPT_DELAY_MS, null);
+    }
+
+    /**
+     * Connects to the fastest responding address
+     *
+     * @param addresses      of host
+     * @param port           to connect to
+     * @param connectTimeOut connect time out in ms (0 for infinite)
+     * @param attemptDelayMs delay before next attempt is started in ms
+     * @param template       socket to copy socket options from or null
+     * @return connected socket
+     * @throws IOException in case no address could be connected
+     */
+    public static Socket connect(InetAddress[] addresses,
+                                 int port,
+                                 int connectTimeOut,
+                                 long attemptDelayMs,
+                                 Socket template) throws IOException {
+
+        return race(addresses, port, connectTimeOut, attemptDelayMs, () -> {
+            Socket socket = new Socket();
+            if (template != null) {
+                copyOptions(template, socket);
+            }
+            return socket;
+        });
+    }
+
+    /**
+     * Connects to the fastest responding address with sockets created by given factory
+     */
+    static Socket race(InetAddress[] addresses,
+                       int port,
+                       int connectTimeOut,
+                       long attemptDelayMs,
+                       SocketSupplier factory) throws IOException {
+
+        List<InetAddress> ordered = interleave(addresses);
+
+        long timeOut = connectTimeOut > 0 ? TimeUnit.MILLISECONDS.toNanos(connectTimeOut) : Long.MAX_VALUE;
+        long start = System.nanoTime();
+
+        CompletionService<Socket> attempts = new ExecutorCompletionService<>(EXECUTOR);
+        List<Socket> sockets = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean settled = new AtomicBoolean();
+        Socket winner = null;
+
+        IOException failure = null;
+        int started = 0;
+        int finished = 0;
+
+        try {
+            while (finished < ordered.size()) {
+
+                if (started < ordered.size()) {
+                    InetSocketAddress address = new InetSocketAddress(ordered.get(started++), port);
+                    attempts.submit(() -> attempt(address, connectTimeOut, factory, sockets, settled));
+                }
+
+                long remaining = timeOut - (System.nanoTime() - start);
+                if (remaining <= 0) {
+                    break;
+                }
+
+                long wait = started < ordered.size() ? Math.min(TimeUnit.MILLISECONDS.toNanos(attemptDelayMs), remaining) : remaining;
+                Future<Socket> done = attempts.poll(wait, TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    continue; // start next attempt or time out
+                }
+
+                finished++;
+                try {
+                    winner = done.get();
+                    return winner;
+                } catch (ExecutionException e) {
+                    failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while connecting to: " + ordered);
+        } finally {
+            // abort all pending or losing attempts
+            settled.set(true);
+            synchronized (sockets) {
+                for (Socket socket : sockets) {
+                    if (socket != winner) {
+                        closeQuietly(socket);
+                    }
+                }
+            }
+        }
+
+        if (failure != null && finished == ordered.size()) {
+            throw failure;
+        }
+
+        throw new SocketTimeoutException("Connect timed out: " + ordered + ":" + port);
+    }
+
+    private static Socket attempt(InetSocketAddress address,
+                                  int connectTimeOut,
+                                  SocketSupplier factory,
+                                  List<Socket> sockets,
+                                  AtomicBoolean settled) throws IOException {
+
+        Socket socket = factory.create();
+        sockets.add(socket);
+
+        socket.connect(address, connectTimeOut);
+
+        // race already decided
+        if (settled.get()) {
+            closeQuietly(socket);
+            throw new SocketException("Connection attempt abandoned: " + address);
+        }
+
+        return socket;
+    }
+
+    static void copyOptions(Socket from, Socket to) throws SocketException {
+
+        to.setSoTimeout(from.getSoTimeout());
+        to.setTcpNoDelay(from.getTcpNoDelay());
+        to.setKeepAlive(from.getKeepAlive());
+        to.setReuseAddress(from.getReuseAddress());
+
+        int linger = from.getSoLinger();
+        if (linger >= 0) {
+            to.setSoLinger(true, linger);
+        }
+    }
+
+    /**
+     * Creates unconnected sockets for connection attempts
+     */
+    @FunctionalInterface
+    interface SocketSupplier {
+
+        Socket create() throws IOException;
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.zandero.http.dns;
+
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.config.*;
+import org.apache.http.conn.*;
+import org.apache.http.conn.socket.*;
+import org.apache.http.conn.ssl.*;
+import org.apache.http.protocol.*;
+
+import java.io.*;
+import java.net.*;
+
+/**
+ * Connection socket factory racing all resolved addresses of a host, see {@link HappyEyeballs}
+ * <p>
+ * Secure connections are layered on top of the winning connection with given SSL factory.
+ */
+public class HappyEyeballsSocketFactory implements ConnectionSocketFactory {
+
+    private static final String RACED = "com.zandero.http.dns.raced";
+
+    private final DnsResolver resolver;
+
+    private final ConnectionSocketFactory delegate;
+
+    private final long attemptDelayMs;
+
+    /**
+     * @param dnsResolver resolver to get all addresses of a host (should be caching)
+     * @param factory     plain or layered (SSL) socket factory
+     */
+    public HappyEyeballsSocketFactory(DnsResolver dnsResolver, ConnectionSocketFactory factory) {
+        this(dnsResolver, factory, HappyEyeballs.DEFAULT_ATTEMPT_DELAY_MS);
+    }
+
+    /**
+     * @param dnsResolver resolver to get all addresses of a host (should be caching)
+     * @param factory     plain or layered (SSL) socket factory
+     * @param delayMs     delay before next connection attempt is started in ms
+     */
+    public HappyEyeballsSocketFactory(DnsResolver dnsResolver, ConnectionSocketFactory factory, long delayMs) {
+
+        Assert.notNull(dnsResolver, "Missing DNS resolver!");
+        Assert.notNull(factory, "Missing socket factory!");
+        Assert.isTrue(delayMs >= 0, "Expected delay >= 0!");
+
+        resolver = dnsResolver;
+        delegate = factory;
+        attemptDelayMs = delayMs;
+    }
+
+    /**
+     * Socket factory registry for http and https racing all resolved addresses
+     *
+     * @param dnsResolver resolver to get all addresses of a host
+     * @return registry to create connection manager with
+     */
+    public static Registry<ConnectionSocketFactory> registry(DnsResolver dnsResolver) {
+
+        return RegistryBuilder.<ConnectionSocketFactory>create()
+                   .register("http", new HappyEyeballsSocketFactory(dnsResolver, PlainConnectionSocketFactory.getSocketFactory()))
+                   .register("https", new HappyEyeballsSocketFactory(dnsResolver, SSLConnectionSocketFactory.getSocketFactory()))
+                   .build();
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout,
+                                Socket socket,
+                                HttpHost host,
+                                InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress,
+                                HttpContext context) throws IOException {
+
+        // race only once per connect ... in case of failure remaining addresses are tried one by one
+        boolean raced = context != null && context.getAttribute(RACED) != null;
+
+        InetAddress[] addresses = raced || host.getAddress() != null ? null : resolver.resolve(host.getHostName());
+        if (addresses == null || addresses.length < 2 || localAddress != null) {
+            return delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        }
+
+        Socket connected;
+        try {
+            // attempts use sockets of delegate, so options it applies (or counters it keeps) are preserved
+            connected = HappyEyeballs.race(addresses, remoteAddress.getPort(), connectTimeout, attemptDelayMs, () -> {
+                Socket attempt = delegate.createSocket(context);
+                if (socket != null) {
+                    HappyEyeballs.copyOptions(socket, attempt);
+                }
+                return attempt;
+            });
+        } catch (IOException e) {
+            if (context != null) {
+                context.setAttribute(RACED, Boolean.TRUE);
+            }
+            throw e;
+        }
+
+        if (socket != null) {
+            socket.close(); // options were copied to connected socket
+        }
+
+        if (delegate instanceof LayeredConnectionSocketFactory) {
+            try {
+                return ((LayeredConnectionSocketFactory) delegate).createLayeredSocket(connected, host.getHostName(), remoteAddress.getPort(), context);
+            } catch (IOException e) {
+                connected.close();
+                throw e;
+            }
+        }
+
+        return connected;
+    }
+}
@@ -0,0 +1,99 @@
+package com.zandero.http.domain;
+
+import com.zandero.http.cache.*;
+import com.zandero.utils.*;
+
+import java.util.*;
+
+/**
+ * Resolves registrable domain (public suffix plus one label) of host names, example: www.example.co.uk - example.co.uk
+ * <ul>
+ *     <li>results are cached per host as given, repeated lookups are lock and allocation free</li>
+ *     <li>IP addresses, single label hosts and public suffixes resolve to host itself</li>
+ * </ul>
+ */
+public class DomainResolver {
+
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private static final DomainResolver DEFAULT = new DomainResolver(PublicSuffixTrie.getDefault(), DEFAULT_CACHE_SIZE);
+
+    private final PublicSuffixTrie suffixes;
+
+    private final BoundedCache<String, String> cache;
+
+    /**
+     * @param publicSuffixes rules to resolve domains with
+     * @param cacheSize      max number of cached hosts
+     */
+    public DomainResolver(PublicSuffixTrie publicSuffixes, int cacheSize) {
+
+        Assert.notNull(publicSuffixes, "Missing public suffixes!");
+
+        suffixes = publicSuffixes;
+        cache = new BoundedCache<>(cacheSize);
+    }
+
+    /**
+     * @return resolver using bundled public suffix list
+     */
+    public static DomainResolver getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param host name
+     * @return registrable domain of host, host if none or null if no host given
+     */
+    public String resolve(String host) {
+
+        if (host == null) {
+            return null;
+        }
+
+        String domain = cache.get(host);
+        if (domain != null) {
+            return domain;
+        }
+
+        if (StringUtils.isNullOrEmptyTrimmed(host)) {
+            return null;
+        }
+
+        domain = compute(host);
+        cache.put(host, domain);
+        return domain;
+    }
+
+    private String compute(String host) {
+
+        String name = host.trim().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".")) {
+            name = name.substring(0, name.length() - 1);
+        }
+
+        if (name.isEmpty() || isIpAddress(name)) {
+            return name;
+        }
+
+        String domain = suffixes.getRegistrableDomain(name);
+        return domain != null ? domain : name;
+    }
+
+    private static boolean isIpAddress(String name) {
+
+        // IPv6 literal or IPv4 dotted digits
+        if (name.indexOf(':') >= 0 || name.startsWith("[")) {
+            return true;
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '.' && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,199 @@
+package com.zandero.http.domain;
+
+import com.zandero.utils.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Public suffix rules (see: https://publicsuffix.org/list/) compiled into a trie of reversed host labels
+ * <ul>
+ *     <li>plain rules: <code>co.uk</code></li>
+ *     <li>wildcard rules: <code>*.ck</code></li>
+ *     <li>exception rules: <code>!www.ck</code></li>
+ * </ul>
+ * Hosts not matching any rule have a public suffix of one label (top level domain).
+ * Rules and hosts are matched as given, use lower case ASCII (punycode) labels.
+ */
+public final class PublicSuffixTrie {
+
+    private static final String RESOURCE = "public_suffix_list.dat";
+
+    private static final String WILDCARD = "*";
+
+    private static final String EXCEPTION = "!";
+
+    private final Node root;
+
+    private PublicSuffixTrie(Node trieRoot) {
+        root = trieRoot;
+    }
+
+    /**
+     * @return trie compiled from list bundled with library
+     */
+    public static PublicSuffixTrie getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * @param rules list of rules
+     * @return compiled trie
+     */
+    public static PublicSuffixTrie of(String... rules) {
+
+        Assert.notNull(rules, "Missing rules!");
+
+        Node trieRoot = new Node();
+        for (String rule : rules) {
+            add(trieRoot, rule);
+        }
+
+        return new PublicSuffixTrie(trieRoot);
+    }
+
+    /**
+     * Compiles rules given in public suffix list format, one rule per line, comments start with //
+     *
+     * @param input list to read, not closed
+     * @return compiled trie
+     * @throws IOException in case list could not be read
+     */
+    public static PublicSuffixTrie load(InputStream input) throws IOException {
+
+        Assert.notNull(input, "Missing input!");
+
+        Node trieRoot = new Node();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            add(trieRoot, line);
+        }
+
+        return new PublicSuffixTrie(trieRoot);
+    }
+
+    /**
+     * @param host lower case host name
+     * @return number of labels of public suffix of given host
+     */
+    public int getSuffixLabels(String host) {
+
+        Assert.notNullOrEmptyTrimmed(host, "Missing host!");
+
+        int suffix = 1; // implicit * rule
+        int labels = 0;
+        int end = host.length();
+        Node node = root;
+
+        while (end > 0) {
+
+            int start = host.lastIndexOf('.', end - 1) + 1;
+            labels++;
+
+            Node exact = node.children.get(host.substring(start, end));
+            if (exact != null && exact.exception) {
+                return labels - 1;
+            }
+
+            Node wildcard = node.children.get(WILDCARD);
+            if ((exact != null && exact.rule) || wildcard != null) {
+                suffix = labels;
+            }
+
+            node = exact != null ? exact : wildcard;
+            if (node == null || start == 0) {
+                break;
+            }
+
+            end = start - 1;
+        }
+
+        return suffix;
+    }
+
+    /**
+     * @param host lower case host name
+     * @return public suffix of host plus one label or null if host is a public suffix itself
+     */
+    public String getRegistrableDomain(String host) {
+
+        int labels = getSuffixLabels(host) + 1;
+
+        int start = host.length();
+        for (int i = 0; i < labels; i++) {
+
+            if (start <= 0) {
+                return null;
+            }
+
+            start = host.lastIndexOf('.', start - 1);
+        }
+
+        return host.substring(start + 1);
+    }
+
+    private static void add(Node trieRoot, String line) {
+
+        String rule = line.trim();
+        if (rule.isEmpty() || rule.startsWith("//")) {
+            return;
+        }
+
+        // rule ends with first white space
+        for (int i = 0; i < rule.length(); i++) {
+            if (Character.isWhitespace(rule.charAt(i))) {
+                rule = rule.substring(0, i);
+                break;
+            }
+        }
+
+        boolean exception = rule.startsWith(EXCEPTION);
+        if (exception) {
+            rule = rule.substring(EXCEPTION.length());
+        }
+
+        String[] labels = rule.toLowerCase(Locale.ROOT).split("\\.");
+
+        Node node = trieRoot;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            node = node.children.computeIfAbsent(labels[i], label -> new Node());
+        }
+
+        if (exception) {
+            node.exception = true;
+        } else {
+            node.rule = true;
+        }
+    }
+
+    private static final class Node {
+
+        private final Map<String, Node> children = new HashMap<>();
+
+        private boolean rule;
+
+        private boolean exception;
+    }
+
+    private static final class DefaultHolder {
+
+        private static final PublicSuffixTrie INSTANCE = loadDefault();
+
+        private static PublicSuffixTrie loadDefault() {
+
+            try (InputStream input = PublicSuffixTrie.class.getResourceAsStream(RESOURCE)) {
+
+                if (input == null) {
+                    throw new IllegalStateException("Missing public suffix list: " + RESOURCE);
+                }
+
+                return load(input);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read public suffix list: " + RESOURCE, e);
+            }
+        }
+    }
+}
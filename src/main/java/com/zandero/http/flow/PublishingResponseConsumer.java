@@ -0,0 +1,301 @@
+package com.zandero.http.flow;
+
+import com.zandero.http.tracing.*;
+import org.apache.http.*;
+import org.apache.http.nio.*;
+import org.apache.http.nio.protocol.*;
+import org.apache.http.protocol.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Async response consumer publishing response body as {@link ByteBuffer} chunks
+ * <p>
+ * Input is suspended while subscriber has no outstanding demand, so unread data stays in socket buffers (backpressure).
+ * Response future is completed as soon as status and headers are received.
+ * Span of call if set ends once body is completed, fails or is cancelled.
+ */
+public class PublishingResponseConsumer implements HttpAsyncResponseConsumer<Void>, Flow.Publisher<ByteBuffer> {
+
+    private static final int DEFAULT_CHUNK_SIZE = 8 * 1024;
+
+    private final CompletableFuture<StreamingResponse> response = new CompletableFuture<>();
+
+    private final int chunkSize;
+
+    private final AtomicLong demand = new AtomicLong();
+
+    private final Flow.Subscription subscription = new BodySubscription();
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    private volatile Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    private volatile IOControl control;
+
+    private volatile boolean suspended;
+
+    private volatile boolean cancelled;
+
+    private volatile boolean done;
+
+    private volatile Exception exception;
+
+    private volatile Span span;
+
+    /**
+     * Consumer publishing 8kB chunks
+     */
+    public PublishingResponseConsumer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param maxChunkSize max size of published chunks in bytes
+     */
+    public PublishingResponseConsumer(int maxChunkSize) {
+
+        if (maxChunkSize <= 0) {
+            throw new IllegalArgumentException("Expected chunk size > 0!");
+        }
+
+        chunkSize = maxChunkSize;
+
+        // cancelling response aborts call
+        response.whenComplete((result, error) -> {
+            if (error instanceof CancellationException) {
+                cancel();
+            }
+        });
+    }
+
+    /**
+     * @param callSpan span of call or null, marked once headers are received and ended with body
+     * @return consumer
+     */
+    public PublishingResponseConsumer setSpan(Span callSpan) {
+        span = callSpan;
+        return this;
+    }
+
+    /**
+     * @return completed once response status and headers are received, cancel to abort call
+     */
+    public CompletableFuture<StreamingResponse> getResponse() {
+        return response;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> bodySubscriber) {
+
+        if (bodySubscriber == null) {
+            throw new NullPointerException("Missing subscriber!");
+        }
+
+        if (!subscribed.compareAndSet(false, true)) {
+            bodySubscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            bodySubscriber.onError(new IllegalStateException("Response body can only be subscribed once!"));
+            return;
+        }
+
+        bodySubscriber.onSubscribe(subscription);
+
+        // chunks are delivered only once onSubscribe returned
+        subscriber = bodySubscriber;
+
+        if (exception != null) {
+            signalError(exception);
+        } else {
+            resume();
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+
+        if (cancelled) {
+            return false;
+        }
+
+        cancelled = true;
+        terminated.set(true);
+
+        IOControl current = control;
+        if (current != null && !done) {
+            try {
+                current.shutdown();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+
+        response.cancel(false);
+        endSpan(new CancellationException("Cancelled"));
+        return true;
+    }
+
+    @Override
+    public void responseReceived(HttpResponse httpResponse) {
+
+        Span current = span;
+        if (current != null) {
+            current.setStatusCode(httpResponse.getStatusLine().getStatusCode()).mark(Span.Phase.TTFB);
+        }
+
+        response.complete(new StreamingResponse(httpResponse, this));
+    }
+
+    @Override
+    public void consumeContent(ContentDecoder decoder, IOControl ioControl) throws IOException {
+
+        control = ioControl;
+
+        while (!cancelled && !decoder.isCompleted()) {
+
+            if (subscriber == null || demand.get() == 0) {
+                suspended = true;
+                ioControl.suspendInput();
+
+                // demand might have been signalled meanwhile
+                if (subscriber != null && demand.get() > 0 && !cancelled) {
+                    suspended = false;
+                    ioControl.requestInput();
+                    continue;
+                }
+
+                return;
+            }
+
+            ByteBuffer chunk = ByteBuffer.allocate(chunkSize);
+            int read = decoder.read(chunk);
+            if (read <= 0) {
+                return; // wait for more data
+            }
+
+            chunk.flip();
+            demand.decrementAndGet();
+            subscriber.onNext(chunk);
+        }
+    }
+
+    @Override
+    public void responseCompleted(HttpContext context) {
+
+        done = true;
+        endSpan(null);
+
+        Flow.Subscriber<? super ByteBuffer> current = subscriber;
+        if (current != null && terminated.compareAndSet(false, true)) {
+            current.onComplete();
+        }
+    }
+
+    @Override
+    public void failed(Exception ex) {
+
+        exception = ex;
+        endSpan(ex);
+        response.completeExceptionally(ex);
+        signalError(ex);
+    }
+
+    @Override
+    public Exception getException() {
+        return exception;
+    }
+
+    @Override
+    public Void getResult() {
+        return null;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done || exception != null || cancelled;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release ... chunks are owned by subscriber
+    }
+
+    private class BodySubscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+
+            if (n <= 0) {
+                Flow.Subscriber<? super ByteBuffer> current = subscriber;
+                if (current != null && terminated.compareAndSet(false, true)) {
+                    current.onError(new IllegalArgumentException("Expected request > 0, but was: " + n));
+                }
+
+                PublishingResponseConsumer.this.cancel();
+                return;
+            }
+
+            demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            resume();
+        }
+
+        @Override
+        public void cancel() {
+            PublishingResponseConsumer.this.cancel();
+        }
+    }
+
+    private void resume() {
+
+        Flow.Subscriber<? super ByteBuffer> current = subscriber;
+        if (done) {
+            // body completed before subscription
+            if (current != null && terminated.compareAndSet(false, true)) {
+                current.onComplete();
+            }
+            return;
+        }
+
+        IOControl io = control;
+        if (suspended && current != null && io != null && !cancelled) {
+            suspended = false;
+            io.requestInput();
+        }
+    }
+
+    private void endSpan(Throwable error) {
+
+        Span current = span;
+        if (current == null || current.isEnded()) {
+            return;
+        }
+
+        if (error != null) {
+            current.setError(error);
+        } else {
+            current.mark(Span.Phase.DOWNLOAD);
+        }
+
+        current.end();
+    }
+
+    private void signalError(Throwable error) {
+
+        Flow.Subscriber<? super ByteBuffer> current = subscriber;
+        if (current != null && terminated.compareAndSet(false, true)) {
+            current.onError(error);
+        }
+    }
+}
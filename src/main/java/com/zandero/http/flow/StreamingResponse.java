@@ -0,0 +1,53 @@
+package com.zandero.http.flow;
+
+import org.apache.http.*;
+
+import java.nio.*;
+import java.util.concurrent.*;
+
+/**
+ * Response available once status and headers are received, body is published as it arrives
+ */
+public class StreamingResponse {
+
+    private final HttpResponse response;
+
+    private final Flow.Publisher<ByteBuffer> body;
+
+    StreamingResponse(HttpResponse httpResponse, Flow.Publisher<ByteBuffer> publisher) {
+
+        response = httpResponse;
+        body = publisher;
+    }
+
+    /**
+     * @return response with status line and headers (entity content is not available, use {@link #getBody()})
+     */
+    public HttpResponse getResponse() {
+        return response;
+    }
+
+    public int getStatusCode() {
+        return response.getStatusLine().getStatusCode();
+    }
+
+    /**
+     * @param name header name
+     * @return first header value or null if not present
+     */
+    public String getHeader(String name) {
+
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    /**
+     * Body can be subscribed once, chunks are read from connection only as requested by subscriber.
+     * Subscriber is invoked on I/O thread and must not block.
+     *
+     * @return body publisher
+     */
+    public Flow.Publisher<ByteBuffer> getBody() {
+        return body;
+    }
+}
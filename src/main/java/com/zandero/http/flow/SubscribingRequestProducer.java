@@ -0,0 +1,214 @@
+package com.zandero.http.flow;
+
+import org.apache.http.*;
+import org.apache.http.client.methods.*;
+import org.apache.http.client.utils.*;
+import org.apache.http.entity.*;
+import org.apache.http.nio.*;
+import org.apache.http.nio.protocol.*;
+import org.apache.http.protocol.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Async request producer writing request body from {@link Flow.Publisher} of {@link ByteBuffer} chunks
+ * <p>
+ * Only a few chunks are requested ahead, more are requested once written to connection.
+ * Output is suspended while no chunk is available, so a fast publisher is slowed down to the pace of the connection.
+ */
+public class SubscribingRequestProducer implements HttpAsyncRequestProducer, Flow.Subscriber<ByteBuffer> {
+
+    private static final int PREFETCH = 4;
+
+    private final HttpEntityEnclosingRequestBase request;
+
+    private final Flow.Publisher<? extends ByteBuffer> body;
+
+    private final long contentLength;
+
+    private final Queue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+
+    private volatile Flow.Subscription subscription;
+
+    private volatile IOControl control;
+
+    private volatile boolean completed;
+
+    private volatile Throwable error;
+
+    private boolean subscribed;
+
+    /**
+     * Request producer
+     *
+     * @param entityRequest  POST, PUT or PATCH request (entity of request is replaced)
+     * @param bodyPublisher  of request body
+     * @param bodyLength     length of body in bytes or -1 if unknown (body is sent chunked)
+     * @param contentType    content type of body or null if not given
+     */
+    public SubscribingRequestProducer(HttpEntityEnclosingRequestBase entityRequest,
+                                      Flow.Publisher<? extends ByteBuffer> bodyPublisher,
+                                      long bodyLength,
+                                      String contentType) {
+
+        if (entityRequest == null || bodyPublisher == null) {
+            throw new IllegalArgumentException("Missing request or body publisher!");
+        }
+
+        request = entityRequest;
+        body = bodyPublisher;
+        contentLength = bodyLength;
+
+        // entity only describes body (length, type), content is produced from publisher
+        BasicHttpEntity entity = new BasicHttpEntity();
+        entity.setContentLength(bodyLength);
+        entity.setChunked(bodyLength < 0);
+        if (contentType != null) {
+            entity.setContentType(contentType);
+        }
+
+        request.setEntity(entity);
+    }
+
+    @Override
+    public HttpHost getTarget() {
+        return URIUtils.extractHost(request.getURI());
+    }
+
+    @Override
+    public HttpRequest generateRequest() {
+
+        if (!subscribed) {
+            subscribed = true;
+            body.subscribe(this);
+        }
+
+        return request;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl ioControl) throws IOException {
+
+        control = ioControl;
+
+        while (true) {
+
+            if (error != null) {
+                throw new IOException("Request body failed: " + error.getMessage(), error);
+            }
+
+            ByteBuffer chunk = chunks.peek();
+            if (chunk == null) {
+
+                if (completed && chunks.isEmpty()) {
+                    encoder.complete();
+                    return;
+                }
+
+                ioControl.suspendOutput();
+
+                // chunk might have arrived meanwhile
+                if (!chunks.isEmpty() || completed || error != null) {
+                    ioControl.requestOutput();
+                    continue;
+                }
+
+                return;
+            }
+
+            encoder.write(chunk);
+            if (chunk.hasRemaining()) {
+                return; // channel is full ... continue once writable
+            }
+
+            chunks.poll();
+
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.request(1);
+            }
+        }
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription bodySubscription) {
+
+        subscription = bodySubscription;
+        bodySubscription.request(PREFETCH);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+
+        chunks.add(item);
+        wakeUp();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+
+        error = throwable;
+        wakeUp();
+    }
+
+    @Override
+    public void onComplete() {
+
+        completed = true;
+        wakeUp();
+    }
+
+    @Override
+    public void requestCompleted(HttpContext context) {
+        // nothing to do
+    }
+
+    @Override
+    public void failed(Exception ex) {
+        cancelSubscription();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public void resetRequest() {
+        // body can be published only once
+    }
+
+    @Override
+    public void close() {
+
+        if (!completed && error == null) {
+            cancelSubscription();
+        }
+    }
+
+    /**
+     * @return length of body in bytes or -1 if unknown
+     */
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    private void wakeUp() {
+
+        IOControl current = control;
+        if (current != null) {
+            current.requestOutput();
+        }
+    }
+
+    private void cancelSubscription() {
+
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.zandero.http.limit;
+
+import com.zandero.utils.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Limits number of requests in flight, limit is adjusted by given {@link LimitAlgorithm}
+ * <p>
+ * Requests over limit wait in a bounded queue for given time, once queue is full or wait times out
+ * {@link LimitExceededException} is thrown.
+ *
+ * <pre>
+ * AdaptiveLimiter.Permit permit = limiter.acquire();
+ * try {
+ *     ... make call
+ *     permit.success();
+ * } catch (SocketTimeoutException e) {
+ *     permit.dropped();
+ * } finally {
+ *     permit.ignore(); // no effect if already released
+ * }
+ * </pre>
+ */
+public class AdaptiveLimiter {
+
+    private final LimitAlgorithm algorithm;
+
+    private final int maxQueue;
+
+    private final long maxWait;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private volatile int limit;
+
+    private volatile int inFlight;
+
+    private volatile int waiting;
+
+    /**
+     * Limiter rejecting requests over limit immediately
+     *
+     * @param limitAlgorithm algorithm adjusting limit
+     */
+    public AdaptiveLimiter(LimitAlgorithm limitAlgorithm) {
+        this(limitAlgorithm, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Limiter queueing requests over limit
+     *
+     * @param limitAlgorithm algorithm adjusting limit
+     * @param queueSize      max number of requests waiting for a permit
+     * @param maxWaitTime    max time request waits for a permit
+     * @param unit           time unit
+     */
+    public AdaptiveLimiter(LimitAlgorithm limitAlgorithm, int queueSize, long maxWaitTime, TimeUnit unit) {
+
+        Assert.notNull(limitAlgorithm, "Missing limit algorithm!");
+        Assert.isTrue(queueSize >= 0, "Expected queue size >= 0!");
+        Assert.notNull(unit, "Missing time unit!");
+
+        algorithm = limitAlgorithm;
+        maxQueue = queueSize;
+        maxWait = unit.toNanos(maxWaitTime);
+        limit = Math.max(1, limitAlgorithm.getInitialLimit());
+    }
+
+    /**
+     * @return current limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return number of requests in flight
+     */
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return number of requests waiting for a permit
+     */
+    public int getWaiting() {
+        return waiting;
+    }
+
+    /**
+     * Acquires permit without waiting
+     *
+     * @return permit or null if limit is reached
+     */
+    public Permit tryAcquire() {
+
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return new Permit();
+            }
+
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires permit, waits in queue if limit is reached
+     *
+     * @return permit to be released once call is done
+     * @throws LimitExceededException in case queue is full or wait timed out
+     * @throws InterruptedException   in case interrupted while waiting
+     */
+    public Permit acquire() throws LimitExceededException, InterruptedException {
+
+        lock.lock();
+        try {
+            if (inFlight < limit) {
+                inFlight++;
+                return new Permit();
+            }
+
+            if (waiting >= maxQueue) {
+                throw new LimitExceededException("Concurrency limit reached: " + limit + " in flight, " + waiting + " waiting");
+            }
+
+            waiting++;
+            try {
+                long wait = maxWait;
+                while (inFlight >= limit) {
+                    if (wait <= 0) {
+                        throw new LimitExceededException("Timed out waiting for concurrency limit: " + limit + " in flight");
+                    }
+                    wait = released.awaitNanos(wait);
+                }
+
+                inFlight++;
+                return new Permit();
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long rttNanos, boolean dropped, boolean ignored) {
+
+        lock.lock();
+        try {
+            if (!ignored) {
+                limit = Math.max(1, algorithm.update(limit, rttNanos, inFlight, dropped));
+            }
+
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "limit: " + limit + ", in flight: " + inFlight + ", waiting: " + waiting;
+    }
+
+    /**
+     * Permit to make a single call, must be released exactly once (any further release is ignored)
+     */
+    public final class Permit {
+
+        private final long start = System.nanoTime();
+
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        /**
+         * Call succeeded, RTT is taken into account
+         */
+        public void success() {
+            if (done.compareAndSet(false, true)) {
+                release(System.nanoTime() - start, false, false);
+            }
+        }
+
+        /**
+         * Call timed out or was rejected due to overload
+         */
+        public void dropped() {
+            if (done.compareAndSet(false, true)) {
+                release(System.nanoTime() - start, true, false);
+            }
+        }
+
+        /**
+         * Call failed for reasons unrelated to load, limit is left unchanged
+         */
+        public void ignore() {
+            if (done.compareAndSet(false, true)) {
+                release(0, false, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.zandero.http.limit;
+
+import com.zandero.utils.*;
+
+/**
+ * Additive increase / multiplicative decrease limit
+ * <p>
+ * Limit grows by one with each successful request made while limit was utilized,
+ * and is multiplied by backoff ratio on each drop.
+ */
+public class AimdLimit implements LimitAlgorithm {
+
+    private final int initialLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    /**
+     * @param initial initial limit
+     * @param max     maximal limit
+     * @param backoff ratio limit is multiplied with on drop (0.5 - 1)
+     */
+    public AimdLimit(int initial, int max, double backoff) {
+
+        Assert.isTrue(initial > 0 && initial <= max, "Expected 0 < initial limit <= max limit!");
+        Assert.isTrue(backoff >= 0.5 && backoff < 1, "Expected backoff ratio in range [0.5, 1)!");
+
+        initialLimit = initial;
+        maxLimit = max;
+        backoffRatio = backoff;
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+
+        if (dropped) {
+            return Math.max(1, (int) (limit * backoffRatio));
+        }
+
+        // grow only when limit is actually used
+        if (inFlight * 2 >= limit) {
+            return Math.min(maxLimit, limit + 1);
+        }
+
+        return limit;
+    }
+}
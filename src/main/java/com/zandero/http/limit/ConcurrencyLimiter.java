@@ -0,0 +1,120 @@
+package com.zandero.http.limit;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.client.methods.*;
+import org.apache.http.conn.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Adaptive concurrency limit per host in front of {@link HttpUtils#execute(HttpRequestBase)}
+ * <p>
+ * Time outs and 429 / 503 responses are treated as drops, other network failures leave limit unchanged.
+ * Round trip time is measured until response headers are received.
+ *
+ * <pre>
+ * ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimitAlgorithm::gradient, 50, 1, TimeUnit.SECONDS);
+ * HttpResponse res = limiter.execute(HttpUtils.get("http://httpbin.org/get"));
+ * </pre>
+ */
+public class ConcurrencyLimiter {
+
+    private final Supplier<LimitAlgorithm> algorithm;
+
+    private final int queueSize;
+
+    private final long maxWait;
+
+    private final ConcurrentHashMap<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Gradient limit per host rejecting requests over limit immediately
+     */
+    public ConcurrencyLimiter() {
+        this(LimitAlgorithm::gradient, 0, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Limit per host
+     *
+     * @param limitAlgorithm factory creating algorithm for each host
+     * @param queueSize      max number of requests waiting for a permit per host
+     * @param maxWaitTime    max time request waits for a permit
+     * @param unit           time unit
+     */
+    public ConcurrencyLimiter(Supplier<LimitAlgorithm> limitAlgorithm, int queueSize, long maxWaitTime, TimeUnit unit) {
+
+        Assert.notNull(limitAlgorithm, "Missing limit algorithm!");
+        Assert.isTrue(queueSize >= 0, "Expected queue size >= 0!");
+        Assert.notNull(unit, "Missing time unit!");
+
+        algorithm = limitAlgorithm;
+        this.queueSize = queueSize;
+        maxWait = unit.toNanos(maxWaitTime);
+    }
+
+    /**
+     * @param host host name (with port if not default)
+     * @return limiter for given host
+     */
+    public AdaptiveLimiter forHost(String host) {
+
+        Assert.notNullOrEmptyTrimmed(host, "Missing host!");
+        return limiters.computeIfAbsent(host.toLowerCase(), h -> new AdaptiveLimiter(algorithm.get(), queueSize, maxWait, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * @return limiters of all hosts called so far
+     */
+    public Map<String, AdaptiveLimiter> getLimiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    /**
+     * Executes request within concurrency limit of request host
+     *
+     * @param request to be executed
+     * @return response
+     * @throws LimitExceededException in case limit is reached and request could not be queued
+     * @throws IOException            in case of network failure
+     */
+    public HttpResponse execute(HttpRequestBase request) throws IOException {
+
+        Assert.notNull(request, "Missing request!");
+        Assert.notNull(request.getURI(), "Missing request URI!");
+
+        AdaptiveLimiter limiter = forHost(request.getURI().getAuthority());
+
+        AdaptiveLimiter.Permit permit;
+        try {
+            permit = limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for concurrency limit");
+        }
+
+        try {
+            HttpResponse response = HttpUtils.execute(request);
+
+            int status = response.getStatusLine().getStatusCode();
+            if (status == 429 || status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+                permit.dropped();
+            } else {
+                permit.success();
+            }
+
+            return response;
+        } catch (SocketTimeoutException | ConnectTimeoutException | DeadlineExceededException e) {
+            permit.dropped();
+            throw e;
+        } finally {
+            permit.ignore();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.zandero.http.limit;
+
+import com.zandero.utils.*;
+
+/**
+ * Limit following gradient between long term average RTT and current RTT
+ * <p>
+ * While current RTT is at or below long term average the limit grows by a small queue allowance,
+ * once RTT rises the limit shrinks proportionally (never below half per update). Limit is smoothed.
+ */
+public class GradientLimit implements LimitAlgorithm {
+
+    /**
+     * long term RTT moving average smoothing factor
+     */
+    private static final double LONG_RTT_DECAY = 1 / 600d;
+
+    /**
+     * limit smoothing factor
+     */
+    private static final double SMOOTHING = 0.2;
+
+    private static final double BACKOFF_ON_DROP = 0.9;
+
+    private final int initialLimit;
+
+    private final int maxLimit;
+
+    private double longRtt;
+
+    private double estimatedLimit;
+
+    /**
+     * @param initial initial limit
+     * @param max     maximal limit
+     */
+    public GradientLimit(int initial, int max) {
+
+        Assert.isTrue(initial > 0 && initial <= max, "Expected 0 < initial limit <= max limit!");
+
+        initialLimit = initial;
+        maxLimit = max;
+        estimatedLimit = initial;
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+
+        if (dropped) {
+            estimatedLimit = Math.max(1, estimatedLimit * BACKOFF_ON_DROP);
+            return (int) estimatedLimit;
+        }
+
+        if (rttNanos <= 0) {
+            return limit;
+        }
+
+        longRtt = longRtt == 0 ? rttNanos : longRtt + LONG_RTT_DECAY * (rttNanos - longRtt);
+
+        // request is not utilizing limit ... no information about capacity
+        if (inFlight * 2 < estimatedLimit) {
+            return (int) estimatedLimit;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, longRtt / rttNanos));
+        double queue = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queue;
+
+        estimatedLimit = Math.max(1, Math.min(maxLimit, estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        return (int) estimatedLimit;
+    }
+}
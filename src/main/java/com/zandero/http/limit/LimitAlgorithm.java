@@ -0,0 +1,52 @@
+package com.zandero.http.limit;
+
+/**
+ * Algorithm adjusting concurrency limit from observed round trip times and drops
+ * <p>
+ * Instances keep state (for instance minimal observed RTT) and are used by a single {@link AdaptiveLimiter}.
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * @return limit to start with
+     */
+    int getInitialLimit();
+
+    /**
+     * Calculates new limit once request completes
+     *
+     * @param limit    current limit
+     * @param rttNanos round trip time of completed request in nanoseconds
+     * @param inFlight number of requests in flight when request completed (including completed request)
+     * @param dropped  true if request was dropped (timed out or rejected by server)
+     * @return new limit (at least 1)
+     */
+    int update(int limit, long rttNanos, int inFlight, boolean dropped);
+
+    /**
+     * Additive increase / multiplicative decrease
+     *
+     * @return new AIMD algorithm instance
+     */
+    static LimitAlgorithm aimd() {
+        return new AimdLimit(10, 200, 0.9);
+    }
+
+    /**
+     * Delay based algorithm estimating queue size from minimal observed RTT (TCP Vegas)
+     *
+     * @return new Vegas algorithm instance
+     */
+    static LimitAlgorithm vegas() {
+        return new VegasLimit(10, 200);
+    }
+
+    /**
+     * Limit follows gradient between long term and current RTT
+     *
+     * @return new gradient algorithm instance
+     */
+    static LimitAlgorithm gradient() {
+        return new GradientLimit(10, 200);
+    }
+}
@@ -0,0 +1,18 @@
+package com.zandero.http.limit;
+
+import java.io.*;
+
+/**
+ * Thrown when call is rejected by client side limiter before being sent
+ */
+public class LimitExceededException extends IOException {
+
+    /**
+     * Limit exceeded
+     *
+     * @param message exception message
+     */
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
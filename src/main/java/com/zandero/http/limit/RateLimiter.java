@@ -0,0 +1,422 @@
+package com.zandero.http.limit;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.client.methods.*;
+import org.apache.http.client.utils.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Client side rate limiter per key (host, API key ...) based on generic cell rate algorithm (GCRA)
+ * <p>
+ * Permits are acquired lock free. Rate is adapted from {@code Retry-After} and {@code X-RateLimit-*} response headers:
+ * once server reports quota exhausted the key is paused till reset, remaining quota is spread evenly till reset.
+ *
+ * <pre>
+ * RateLimiter limiter = new RateLimiter(10, 5); // 10 requests per second, bursts of 5
+ * Http.Response res = limiter.execute("POST", "https://api.example.com/items", body, null, headers);
+ * </pre>
+ */
+public class RateLimiter {
+
+    private static final ScheduledThreadPoolExecutor SCHEDULER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "http-rate-limiter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * X-RateLimit-Reset values above this are taken as epoch seconds, below as seconds till reset
+     */
+    private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+
+    private final long interval;
+
+    private final long tolerance;
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Rate limiter
+     *
+     * @param permitsPerSecond allowed rate per key
+     * @param burst            number of permits that can be acquired at once (at least 1)
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+
+        Assert.isTrue(permitsPerSecond > 0, "Expected permits per second > 0!");
+        Assert.isTrue(burst >= 1, "Expected burst >= 1!");
+
+        interval = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        tolerance = interval * (burst - 1);
+    }
+
+    /**
+     * Key for given url
+     *
+     * @param url to get key for
+     * @return host with port (if given) in lower case
+     */
+    public static String hostKey(String url) {
+
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+        String authority = URI.create(url).getAuthority();
+        Assert.notNull(authority, "Missing host in url: " + url);
+        return authority.toLowerCase();
+    }
+
+    /**
+     * Acquires permit if available without waiting
+     *
+     * @param key to acquire permit for
+     * @return true if permit was acquired
+     */
+    public boolean tryAcquire(String key) {
+        return reserve(key, 0) == 0;
+    }
+
+    /**
+     * Acquires permit, waits up to given time for it
+     *
+     * @param key     to acquire permit for
+     * @param timeout max time to wait
+     * @param unit    time unit
+     * @return true if permit was acquired, false if it would not be available in time (nothing is reserved)
+     * @throws InterruptedException in case interrupted while waiting
+     */
+    public boolean tryAcquire(String key, long timeout, TimeUnit unit) throws InterruptedException {
+
+        long wait = reserve(key, unit.toNanos(timeout));
+        if (wait < 0) {
+            return false;
+        }
+
+        sleep(wait);
+        return true;
+    }
+
+    /**
+     * Acquires permit, blocks until available
+     *
+     * @param key to acquire permit for
+     * @throws InterruptedException in case interrupted while waiting
+     */
+    public void acquire(String key) throws InterruptedException {
+        sleep(reserve(key, Long.MAX_VALUE));
+    }
+
+    /**
+     * Acquires permit without blocking calling thread
+     *
+     * @param key to acquire permit for
+     * @return future completed once permit is available
+     */
+    public CompletableFuture<Void> acquireAsync(String key) {
+
+        long wait = reserve(key, Long.MAX_VALUE);
+        if (wait == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        SCHEDULER.schedule(() -> future.complete(null), wait, TimeUnit.NANOSECONDS);
+        return future;
+    }
+
+    /**
+     * Time till next permit is available
+     *
+     * @param key  to check
+     * @param unit time unit
+     * @return wait time, 0 if permit is available
+     */
+    public long getWaitTime(String key, TimeUnit unit) {
+
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        long allowedAt = bucket.tat.get() - tolerance;
+        return unit.convert(Math.max(0, allowedAt - now), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adapts rate of key from response headers
+     *
+     * @param key      to adapt
+     * @param response response to read headers from
+     */
+    public void update(String key, Http.Response response) {
+
+        if (response != null) {
+            update(key, response.getCode(), response::getHeader);
+        }
+    }
+
+    /**
+     * Adapts rate of key from response headers
+     *
+     * @param key      to adapt
+     * @param response response to read headers from
+     */
+    public void update(String key, HttpResponse response) {
+
+        if (response != null) {
+            update(key, response.getStatusLine().getStatusCode(), name -> {
+                Header header = response.getFirstHeader(name);
+                return header != null ? header.getValue() : null;
+            });
+        }
+    }
+
+    /**
+     * Adapts rate of key from response headers
+     *
+     * @param key     to adapt
+     * @param status  response status code
+     * @param headers header lookup by name
+     */
+    public void update(String key, int status, Function<String, String> headers) {
+
+        Assert.notNullOrEmptyTrimmed(key, "Missing key!");
+        Assert.notNull(headers, "Missing headers!");
+
+        long now = System.nanoTime();
+        Bucket bucket = bucket(key);
+
+        Long retryAfter = parseRetryAfter(headers.apply("Retry-After"));
+        Long reset = parseReset(headers.apply("X-RateLimit-Reset"));
+        Long remaining = parseLong(headers.apply("X-RateLimit-Remaining"));
+
+        if (retryAfter != null && (status == 429 || status == HttpStatus.SC_SERVICE_UNAVAILABLE || retryAfter > 0)) {
+            bucket.pauseUntil(now + retryAfter, tolerance);
+            return;
+        }
+
+        if (remaining == null) {
+            if (status == 429) { // no hint given ... back off for one second
+                bucket.pauseUntil(now + TimeUnit.SECONDS.toNanos(1), tolerance);
+            }
+            return;
+        }
+
+        if (remaining <= 0) {
+            bucket.pauseUntil(now + (reset != null ? reset : TimeUnit.SECONDS.toNanos(1)), tolerance);
+        } else if (reset != null && reset > 0) {
+            // spread remaining quota till reset
+            bucket.slowDown(Math.max(interval, reset / remaining), now + reset);
+        }
+    }
+
+    /**
+     * Removes state of given key
+     *
+     * @param key to remove
+     */
+    public void remove(String key) {
+        buckets.remove(key);
+    }
+
+    /**
+     * Executes request with {@link Http} within rate of request host
+     *
+     * @param method  to execute
+     * @param url     url to call
+     * @param body    to post/put or null
+     * @param query   to add to url or null
+     * @param headers to add to request or null
+     * @return Response object with HTTP response code and response as String
+     * @throws Http.HttpException in case of invalid input parameters or network failure
+     * @throws InterruptedException in case interrupted while waiting for a permit
+     */
+    public Http.Response execute(String method,
+                                 String url,
+                                 String body,
+                                 Map<String, String> query,
+                                 Map<String, String> headers) throws Http.HttpException, InterruptedException {
+
+        String key = hostKey(url);
+        acquire(key);
+
+        Http.Response response = Http.execute(method, url, body, query, headers, Http.DEFAULT_CONNECT_TIMEOUT, Http.DEFAULT_READ_TIMEOUT);
+        update(key, response);
+        return response;
+    }
+
+    /**
+     * Executes request with {@link HttpUtils} within rate of request host
+     *
+     * @param request to execute
+     * @return response
+     * @throws IOException in case of network failure or when interrupted while waiting for a permit
+     */
+    public HttpResponse execute(HttpRequestBase request) throws IOException {
+
+        Assert.notNull(request, "Missing request!");
+        String key = request.getURI().getAuthority().toLowerCase();
+
+        try {
+            acquire(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for rate limit");
+        }
+
+        HttpResponse response = HttpUtils.execute(request);
+        update(key, response);
+        return response;
+    }
+
+    /**
+     * Reserves permit
+     *
+     * @param key     to reserve permit for
+     * @param maxWait max acceptable wait in nanoseconds
+     * @return wait time in nanoseconds till permit can be used, or -1 if wait would exceed max wait (nothing reserved)
+     */
+    private long reserve(String key, long maxWait) {
+
+        Assert.notNullOrEmptyTrimmed(key, "Missing key!");
+        Bucket bucket = bucket(key);
+
+        while (true) {
+            long now = System.nanoTime();
+            long tat = bucket.tat.get();
+
+            // permit is allowed once now >= tat - tolerance
+            long wait = Math.max(0, tat - tolerance - now);
+            long newTat = Math.max(tat, now) + bucket.interval(now);
+
+            if (wait > maxWait) {
+                return -1;
+            }
+
+            if (bucket.tat.compareAndSet(tat, newTat)) {
+                return wait;
+            }
+        }
+    }
+
+    private Bucket bucket(String key) {
+
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket : buckets.computeIfAbsent(key, k -> new Bucket(interval));
+    }
+
+    private static void sleep(long nanos) throws InterruptedException {
+
+        long until = System.nanoTime() + nanos;
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = until - System.nanoTime();
+        }
+    }
+
+    private static Long parseLong(String value) {
+
+        if (StringUtils.isNullOrEmptyTrimmed(value)) {
+            return null;
+        }
+
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param value seconds or HTTP date
+     * @return nanoseconds to wait or null if not given
+     */
+    static Long parseRetryAfter(String value) {
+
+        Long seconds = parseLong(value);
+        if (seconds != null) {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+        }
+
+        if (StringUtils.isNullOrEmptyTrimmed(value)) {
+            return null;
+        }
+
+        Date date = DateUtils.parseDate(value.trim());
+        if (date == null) {
+            return null;
+        }
+
+        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, date.getTime() - System.currentTimeMillis()));
+    }
+
+    /**
+     * @param value seconds till reset or epoch seconds of reset
+     * @return nanoseconds till reset or null if not given
+     */
+    static Long parseReset(String value) {
+
+        Long seconds = parseLong(value);
+        if (seconds == null) {
+            return null;
+        }
+
+        if (seconds > EPOCH_SECONDS_THRESHOLD) {
+            seconds = seconds - System.currentTimeMillis() / 1000;
+        }
+
+        return TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+    }
+
+    /**
+     * GCRA state of single key
+     */
+    private static class Bucket {
+
+        /**
+         * theoretical arrival time of next request (System.nanoTime())
+         */
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE / 2);
+
+        private final long defaultInterval;
+
+        /**
+         * interval adapted from response headers
+         */
+        private volatile long adaptedInterval;
+
+        private volatile long adaptedUntil;
+
+        Bucket(long interval) {
+            defaultInterval = interval;
+        }
+
+        long interval(long now) {
+            return adaptedInterval > 0 && now - adaptedUntil < 0 ? adaptedInterval : defaultInterval;
+        }
+
+        void pauseUntil(long until, long tolerance) {
+
+            // first permit is available at given time, no burst right after pause
+            long pausedTat = until + tolerance;
+            tat.accumulateAndGet(pausedTat, Math::max);
+        }
+
+        void slowDown(long interval, long until) {
+            adaptedInterval = interval;
+            adaptedUntil = until;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.zandero.http.limit;
+
+import com.zandero.utils.*;
+
+/**
+ * Delay based limit (TCP Vegas)
+ * <p>
+ * Estimates number of queued requests as {@code limit × (1 - minRtt / rtt)},
+ * grows limit while queue is short, shrinks it once queue grows or request is dropped.
+ */
+public class VegasLimit implements LimitAlgorithm {
+
+    private final int initialLimit;
+
+    private final int maxLimit;
+
+    private long minRtt = Long.MAX_VALUE;
+
+    /**
+     * @param initial initial limit
+     * @param max     maximal limit
+     */
+    public VegasLimit(int initial, int max) {
+
+        Assert.isTrue(initial > 0 && initial <= max, "Expected 0 < initial limit <= max limit!");
+
+        initialLimit = initial;
+        maxLimit = max;
+    }
+
+    @Override
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    @Override
+    public int update(int limit, long rttNanos, int inFlight, boolean dropped) {
+
+        double log = Math.max(1, Math.log10(limit));
+
+        if (dropped) {
+            return Math.max(1, (int) (limit - log));
+        }
+
+        if (rttNanos <= 0) {
+            return limit;
+        }
+
+        minRtt = Math.min(minRtt, rttNanos);
+
+        // do not grow unless limit is used
+        if (inFlight * 2 < limit) {
+            return limit;
+        }
+
+        double queue = Math.ceil(limit * (1 - (double) minRtt / rttNanos));
+
+        if (queue <= 3 * log) { // alpha
+            return Math.min(maxLimit, (int) (limit + log));
+        }
+
+        if (queue >= 6 * log) { // beta
+            return Math.max(1, (int) (limit - log));
+        }
+
+        return limit;
+    }
+}
@@ -14,6 +14,7 @@ import java.util.UUID;
  * Fill up request parameter for Log4j logging
  *
  * TO BE REMOVED ...
+ * @deprecated use {@link RequestContext}, attributes are computed lazily and MDC is cleaned up once closed
  */
 @Deprecated
 public final class LoggingUtils {
@@ -39,7 +40,7 @@ public final class LoggingUtils {
 
 		MDC.put("host", request.getServerName());
 		MDC.put("scheme", RequestUtils.getScheme(request));
-		MDC.put("domain", UrlUtils.resolveDomain(request.getServerName()));
+		MDC.put("domain", RequestUtils.getDomain(request));
 		MDC.put("port", request.getServerPort() + "");
 		MDC.put("path", request.getContextPath() + request.getPathInfo());
 
@@ -0,0 +1,370 @@
+package com.zandero.http.logging;
+
+import com.zandero.http.*;
+import com.zandero.http.tracing.*;
+import com.zandero.utils.*;
+import org.slf4j.*;
+
+import javax.servlet.http.*;
+import java.net.*;
+import java.security.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Context of request being processed by current thread, replaces {@link LoggingUtils}
+ * <p>
+ * Only request id is put into MDC upfront, other attributes are computed lazily once read:
+ * with {@link #get(String)}, as log argument with {@link #lazy(String)} or copied into MDC with {@link #mdc(String...)}.
+ * Trace context of caller (W3C traceparent) is activated for outbound calls, or a new trace is started.
+ * Close context when request ends (try-with-resources), MDC entries and previous context are restored.
+ * <pre>
+ * try (RequestContext context = RequestContext.start(request)) {
+ *     log.info("Request from: {}", context.lazy(RequestContext.IP));
+ * }
+ * </pre>
+ * Context must be closed by the thread that started it.
+ */
+public final class RequestContext implements AutoCloseable {
+
+    public static final String REQUEST_ID = "request_id";
+    public static final String TRACE_ID = "trace_id";
+    public static final String TIMESTAMP = "timestamp";
+    public static final String REQUEST = "request";
+    public static final String IP = "ip";
+    public static final String USER_AGENT = "user_agent";
+    public static final String METHOD = "method";
+    public static final String HOST = "host";
+    public static final String SCHEME = "scheme";
+    public static final String DOMAIN = "domain";
+    public static final String PORT = "port";
+    public static final String PATH = "path";
+    public static final String USER = "user";
+    public static final String QUERY = "query";
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final String id = RequestId.next();
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final RequestContext previous;
+
+    private final Map<String, Attribute> attributes = new LinkedHashMap<>();
+
+    /**
+     * MDC values replaced by this context, restored once closed (null if key was not present)
+     */
+    private final Map<String, String> replaced = new HashMap<>();
+
+    private Tracing.Scope trace;
+
+    private String traceId;
+
+    private volatile boolean closed;
+
+    private RequestContext() {
+
+        previous = CURRENT.get();
+        CURRENT.set(this);
+
+        set(TIMESTAMP, () -> Long.toString(startTime));
+        putMdc(REQUEST_ID, id);
+    }
+
+    /**
+     * Starts context holding only request id
+     *
+     * @return context to be closed when request ends
+     */
+    public static RequestContext start() {
+        return new RequestContext();
+    }
+
+    /**
+     * Starts context of servlet request
+     *
+     * @param request servlet request
+     * @return context to be closed when request ends
+     */
+    public static RequestContext start(HttpServletRequest request) {
+
+        Assert.notNull(request, "Missing request!");
+
+        RequestContext context = new RequestContext();
+
+        // continue trace of caller or start new one, propagated to outbound calls
+        TraceContext traceContext = RequestUtils.getTraceContext(request);
+        traceContext = traceContext != null ? traceContext : TraceContext.root();
+        context.trace = Tracing.activate(traceContext);
+        context.traceId = traceContext.getTraceId();
+        context.putMdc(TRACE_ID, context.traceId);
+
+        context.set(REQUEST, request::getRequestURI)
+               .set(IP, () -> RequestUtils.getClientIpAddress(request))
+               .set(USER_AGENT, () -> RequestUtils.getUserAgent(request))
+               .set(METHOD, request::getMethod)
+               .set(HOST, request::getServerName)
+               .set(SCHEME, () -> RequestUtils.getScheme(request))
+               .set(DOMAIN, () -> RequestUtils.getDomain(request))
+               .set(PORT, () -> Integer.toString(request.getServerPort()))
+               .set(PATH, () -> request.getContextPath() + request.getPathInfo())
+               .set(USER, () -> {
+                   Principal principal = request.getUserPrincipal();
+                   return principal != null ? principal.getName() : null;
+               })
+               .set(QUERY, () -> emptyToNull(request.getQueryString()));
+
+        return context;
+    }
+
+    /**
+     * Starts context of request to given url
+     *
+     * @param path  request url
+     * @param query optional query of request
+     * @return context to be closed when request ends
+     */
+    public static RequestContext start(String path, String query) {
+
+        Supplier<URI> uri = once(() -> toUri(path));
+
+        RequestContext context = new RequestContext();
+        context.set(PATH, () -> uri.get() != null ? uri.get().getPath() : path)
+               .set(HOST, () -> uri.get() != null ? uri.get().getHost() : null)
+               .set(SCHEME, () -> uri.get() != null ? uri.get().getScheme() : null)
+               .set(DOMAIN, () -> uri.get() != null ? RequestUtils.getDomain(uri.get().getHost()) : null)
+               .set(PORT, () -> uri.get() != null ? Integer.toString(uri.get().getPort()) : null)
+               .set(QUERY, () -> emptyToNull(query));
+
+        return context;
+    }
+
+    /**
+     * @return context of current thread or null if none
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return id of request
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return milliseconds since epoch when context was started
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Sets attribute value
+     *
+     * @param name  of attribute
+     * @param value of attribute or null to remove
+     * @return context
+     */
+    public RequestContext set(String name, String value) {
+        return set(name, value == null ? null : () -> value);
+    }
+
+    /**
+     * Sets attribute computed once first read
+     *
+     * @param name  of attribute
+     * @param value supplier of value or null to remove
+     * @return context
+     */
+    public RequestContext set(String name, Supplier<String> value) {
+
+        Assert.notNullOrEmptyTrimmed(name, "Missing attribute name!");
+
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, new Attribute(value));
+        }
+
+        return this;
+    }
+
+    /**
+     * @param name of attribute
+     * @return value of attribute, computed if not yet known, or null if not present or context is closed
+     */
+    public String get(String name) {
+
+        if (REQUEST_ID.equals(name)) {
+            return id;
+        }
+
+        if (TRACE_ID.equals(name)) {
+            return traceId;
+        }
+
+        Attribute attribute = attributes.get(name);
+        return attribute != null ? attribute.get() : null;
+    }
+
+    /**
+     * @return names of attributes (including request id)
+     */
+    public Set<String> getNames() {
+
+        Set<String> names = new LinkedHashSet<>();
+        names.add(REQUEST_ID);
+        if (traceId != null) {
+            names.add(TRACE_ID);
+        }
+
+        names.addAll(attributes.keySet());
+        return names;
+    }
+
+    /**
+     * Argument to be used with parameterized logging, attribute is computed only once log line is written
+     *
+     * @param name of attribute
+     * @return object resolving attribute when converted to string
+     */
+    public Object lazy(String name) {
+
+        return new Object() {
+            @Override
+            public String toString() {
+                return String.valueOf(get(name));
+            }
+        };
+    }
+
+    /**
+     * Copies attributes into MDC, for instance before logging an error with full request info
+     *
+     * @param names of attributes or none to copy all attributes
+     * @return context
+     */
+    public RequestContext mdc(String... names) {
+
+        Collection<String> keys = names == null || names.length == 0 ? new ArrayList<>(attributes.keySet()) : Arrays.asList(names);
+        for (String name : keys) {
+
+            String value = get(name);
+            if (value != null) {
+                putMdc(name, value);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * Ends context: MDC entries put by context are restored, previous context of thread is restored
+     * and attributes not yet computed are not computed any more (request might already be recycled)
+     */
+    @Override
+    public void close() {
+
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        for (Map.Entry<String, String> entry : replaced.entrySet()) {
+            if (entry.getValue() == null) {
+                MDC.remove(entry.getKey());
+            } else {
+                MDC.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        replaced.clear();
+
+        if (trace != null) {
+            trace.close();
+        }
+
+        if (CURRENT.get() == this) {
+            if (previous != null && !previous.closed) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    private void putMdc(String key, String value) {
+
+        if (!replaced.containsKey(key)) {
+            replaced.put(key, MDC.get(key));
+        }
+
+        MDC.put(key, value);
+    }
+
+    private static String emptyToNull(String value) {
+        return StringUtils.isNullOrEmptyTrimmed(value) ? null : value;
+    }
+
+    private static <T> Supplier<T> once(Supplier<T> supplier) {
+
+        return new Supplier<T>() {
+
+            private boolean done;
+
+            private T value;
+
+            @Override
+            public synchronized T get() {
+
+                if (!done) {
+                    value = supplier.get();
+                    done = true;
+                }
+
+                return value;
+            }
+        };
+    }
+
+    private static URI toUri(String path) {
+
+        try {
+            return new URI(path);
+        } catch (URISyntaxException | NullPointerException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Value computed once first read (benign race if read concurrently)
+     */
+    private final class Attribute {
+
+        private Supplier<String> supplier;
+
+        private volatile String value;
+
+        Attribute(Supplier<String> valueSupplier) {
+            supplier = valueSupplier;
+        }
+
+        String get() {
+
+            String current = value;
+            Supplier<String> compute = supplier;
+            if (current != null || compute == null || closed) {
+                return current;
+            }
+
+            current = compute.get();
+            value = current;
+            supplier = null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.zandero.http.logging;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Lock free generator of unique, time ordered request ids (ULID like, 26 characters in Crockford base 32)
+ * <ul>
+ *     <li>48 bits of milliseconds since epoch</li>
+ *     <li>16 bits identifying generating thread</li>
+ *     <li>64 bits of per thread sequence starting at a random value</li>
+ * </ul>
+ * Ids generated by the same thread are strictly increasing, even if clock moves backwards.
+ */
+public final class RequestId {
+
+    public static final int LENGTH = 26;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private static final AtomicInteger SLOTS = new AtomicInteger();
+
+    private static final ThreadLocal<Sequence> SEQUENCE = ThreadLocal.withInitial(Sequence::new);
+
+    private RequestId() {
+        // hide constructor
+    }
+
+    /**
+     * @return next id
+     */
+    public static String next() {
+
+        Sequence sequence = SEQUENCE.get();
+
+        long now = System.currentTimeMillis();
+        if (now > sequence.time) {
+            sequence.time = now;
+        }
+
+        long counter = ++sequence.counter;
+        if (counter == 0) {
+            // sequence wrapped (practically never) ... borrow next millisecond to stay ordered
+            sequence.time++;
+        }
+
+        return encode((sequence.time << 16) | sequence.slot, counter);
+    }
+
+    /**
+     * @param id request id
+     * @return milliseconds since epoch when id was generated
+     */
+    public static long getTime(String id) {
+
+        if (id == null || id.length() != LENGTH) {
+            throw new IllegalArgumentException("Invalid request id: " + id);
+        }
+
+        // first 10 characters hold top 50 bits: 2 zero bits + 48 bits of time
+        long time = 0;
+        for (int i = 0; i < 10; i++) {
+            int value = decode(id.charAt(i));
+            time = (time << 5) | value;
+        }
+
+        return time;
+    }
+
+    private static String encode(long high, long low) {
+
+        char[] chars = new char[LENGTH];
+
+        // 128 bits are encoded from least significant 5 bits up, top character holds remaining 3 bits
+        for (int i = LENGTH - 1; i >= 0; i--) {
+
+            chars[i] = ALPHABET[(int) (low & 31)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+
+        return new String(chars);
+    }
+
+    private static int decode(char c) {
+
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid request id character: " + c);
+    }
+
+    private static final class Sequence {
+
+        private final long slot = SLOTS.getAndIncrement() & 0xFFFF;
+
+        private long counter = ThreadLocalRandom.current().nextLong() >>> 1;
+
+        private long time;
+    }
+}
@@ -0,0 +1,403 @@
+package com.zandero.http.multipart;
+
+import com.zandero.http.buffer.*;
+import com.zandero.utils.*;
+import org.apache.http.entity.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Streaming multipart/form-data body mixing text fields with file and stream parts
+ * <p>
+ * Parts are written straight to the connection when sent (or read through {@link #getContent()}), files and streams are never buffered as a whole.
+ * Content length is known upfront when size of every part is known, otherwise body is sent chunked.
+ * Use as entity with {@link com.zandero.http.HttpUtils} or as body with {@link com.zandero.http.Http#post(String, Object)}.
+ */
+public class Multipart extends AbstractHttpEntity {
+
+    private static final String MULTIPART_FORM_DATA = "multipart/form-data";
+
+    private static final String APPLICATION_OCTET_STREAM = "application/octet-stream";
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private static final byte[] DASHES = {'-', '-'};
+
+    private static final char[] BOUNDARY_CHARS = "-_1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final String boundary;
+
+    private final List<Part> parts = new ArrayList<>();
+
+    /**
+     * Multipart body with random boundary
+     */
+    public Multipart() {
+        this(randomBoundary());
+    }
+
+    /**
+     * @param partBoundary boundary separating parts (must not be contained in any part)
+     */
+    public Multipart(String partBoundary) {
+
+        Assert.notNullOrEmptyTrimmed(partBoundary, "Missing boundary!");
+        Assert.isTrue(partBoundary.length() <= 70, "Boundary must not be longer than 70 characters!");
+
+        boundary = partBoundary;
+        setContentType(MULTIPART_FORM_DATA + "; boundary=" + boundary);
+    }
+
+    /**
+     * Adds text field
+     *
+     * @param name  of field
+     * @param value of field
+     * @return multipart
+     */
+    public Multipart field(String name, String value) {
+        return field(name, value, null);
+    }
+
+    /**
+     * Adds text field
+     *
+     * @param name        of field
+     * @param value       of field
+     * @param contentType content type of field or null if plain text
+     * @return multipart
+     */
+    public Multipart field(String name, String value, String contentType) {
+
+        Assert.notNull(value, "Missing value!");
+
+        byte[] content = value.getBytes(StandardCharsets.UTF_8);
+        return add(name, null, contentType, content.length, () -> new ByteArrayInputStream(content));
+    }
+
+    /**
+     * Adds file part, content type is guessed from file name
+     *
+     * @param name of field
+     * @param file to upload
+     * @return multipart
+     */
+    public Multipart file(String name, File file) {
+
+        Assert.notNull(file, "Missing file!");
+        return file(name, file.toPath(), null);
+    }
+
+    /**
+     * Adds file part, content type is guessed from file name
+     *
+     * @param name of field
+     * @param path of file to upload
+     * @return multipart
+     */
+    public Multipart file(String name, Path path) {
+        return file(name, path, null);
+    }
+
+    /**
+     * Adds file part
+     *
+     * @param name        of field
+     * @param path        of file to upload
+     * @param contentType of file or null to guess from file name
+     * @return multipart
+     */
+    public Multipart file(String name, Path path, String contentType) {
+
+        Assert.notNull(path, "Missing file!");
+        Assert.isTrue(Files.isRegularFile(path), "File not found: " + path);
+
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Failed to read size of: " + path, e);
+        }
+
+        String fileName = path.getFileName().toString();
+        if (contentType == null) {
+            contentType = URLConnection.guessContentTypeFromName(fileName);
+        }
+
+        return add(name, fileName, contentType == null ? APPLICATION_OCTET_STREAM : contentType, size, () -> Files.newInputStream(path));
+    }
+
+    /**
+     * Adds stream part, stream is read once when sent and closed afterwards (multipart is not repeatable)
+     *
+     * @param name        of field
+     * @param fileName    file name or null
+     * @param stream      to read content from
+     * @param length      length of content in bytes or -1 if unknown
+     * @param contentType of content or null for application/octet-stream
+     * @return multipart
+     */
+    public Multipart stream(String name, String fileName, InputStream stream, long length, String contentType) {
+
+        Assert.notNull(stream, "Missing stream!");
+
+        Part part = newPart(name, fileName, contentType == null ? APPLICATION_OCTET_STREAM : contentType, length, () -> stream);
+
+        part.repeatable = false;
+        parts.add(part);
+        return this;
+    }
+
+    public String getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * @return length of body in bytes or -1 when size of some part is unknown
+     */
+    @Override
+    public long getContentLength() {
+
+        long length = 0;
+        for (Part part : parts) {
+            if (part.length < 0) {
+                return -1;
+            }
+
+            length += DASHES.length + boundary.length() + CRLF.length + part.headers.length + part.length + CRLF.length;
+        }
+
+        return length + DASHES.length + boundary.length() + DASHES.length + CRLF.length;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return getContentLength() < 0;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+
+        for (Part part : parts) {
+            if (!part.repeatable) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !isRepeatable();
+    }
+
+    /**
+     * Body as stream (as read by async clients), each part is opened once previous part is fully read
+     *
+     * @return encoded body
+     */
+    @Override
+    public InputStream getContent() {
+
+        byte[] separator = boundary.getBytes(StandardCharsets.US_ASCII);
+
+        List<Content> sources = new ArrayList<>(parts.size() * 3 + 1);
+        for (Part part : parts) {
+
+            ByteArrayOutputStream head = new ByteArrayOutputStream(DASHES.length + separator.length + CRLF.length + part.headers.length);
+            head.writeBytes(DASHES);
+            head.writeBytes(separator);
+            head.writeBytes(CRLF);
+            head.writeBytes(part.headers);
+
+            sources.add(() -> new ByteArrayInputStream(head.toByteArray()));
+            sources.add(part.content);
+            sources.add(() -> new ByteArrayInputStream(CRLF));
+        }
+
+        ByteArrayOutputStream end = new ByteArrayOutputStream();
+        end.writeBytes(DASHES);
+        end.writeBytes(separator);
+        end.writeBytes(DASHES);
+        end.writeBytes(CRLF);
+        sources.add(() -> new ByteArrayInputStream(end.toByteArray()));
+
+        return new BodyInputStream(sources);
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+
+        Assert.notNull(out, "Missing output stream!");
+
+        byte[] separator = boundary.getBytes(StandardCharsets.US_ASCII);
+        for (Part part : parts) {
+
+            out.write(DASHES);
+            out.write(separator);
+            out.write(CRLF);
+            out.write(part.headers);
+            try (InputStream in = part.content.open()) {
+                copy(in, out);
+            }
+            out.write(CRLF);
+        }
+
+        out.write(DASHES);
+        out.write(separator);
+        out.write(DASHES);
+        out.write(CRLF);
+        out.flush();
+    }
+
+    private Multipart add(String name, String fileName, String contentType, long length, Content content) {
+
+        parts.add(newPart(name, fileName, contentType, length, content));
+        return this;
+    }
+
+    private static Part newPart(String name, String fileName, String contentType, long length, Content content) {
+
+        Assert.notNullOrEmptyTrimmed(name, "Missing part name!");
+
+        StringBuilder headers = new StringBuilder("Content-Disposition: form-data; name=\"").append(escape(name)).append('"');
+        if (fileName != null) {
+            headers.append("; filename=\"").append(escape(fileName)).append('"');
+        }
+
+        headers.append("\r\n");
+        if (contentType != null) {
+            headers.append("Content-Type: ").append(escape(contentType)).append("\r\n");
+        }
+
+        headers.append("\r\n");
+        return new Part(headers.toString().getBytes(StandardCharsets.UTF_8), length, content);
+    }
+
+    /**
+     * Escapes quotes and line breaks in header values (as browsers do)
+     */
+    private static String escape(String value) {
+
+        return value.replace("\"", "%22")
+                    .replace("\r", "%0D")
+                    .replace("\n", "%0A");
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+
+        BufferPool pool = BufferPool.getDefault();
+        byte[] buffer = pool.acquire(COPY_BUFFER_SIZE);
+
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            pool.release(buffer);
+        }
+    }
+
+    private static String randomBoundary() {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[32];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = BOUNDARY_CHARS[random.nextInt(BOUNDARY_CHARS.length)];
+        }
+
+        return new String(chars);
+    }
+
+    @FunctionalInterface
+    private interface Content {
+
+        InputStream open() throws IOException;
+    }
+
+    /**
+     * Reads given sources in sequence, each source is opened once previous one is fully read
+     */
+    private static class BodyInputStream extends InputStream {
+
+        private final Iterator<Content> sources;
+
+        private InputStream current;
+
+        BodyInputStream(List<Content> bodySources) {
+            sources = bodySources.iterator();
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            Objects.checkFromIndexSize(offset, length, buffer.length);
+            if (length == 0) {
+                return 0;
+            }
+
+            while (true) {
+
+                if (current == null) {
+                    if (!sources.hasNext()) {
+                        return -1;
+                    }
+
+                    current = sources.next().open();
+                }
+
+                int read = current.read(buffer, offset, length);
+                if (read >= 0) {
+                    return read;
+                }
+
+                current.close();
+                current = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    private static class Part {
+
+        private final byte[] headers;
+
+        private final long length;
+
+        private final Content content;
+
+        private boolean repeatable = true;
+
+        Part(byte[] headerBytes, long contentLength, Content partContent) {
+
+            headers = headerBytes;
+            length = contentLength;
+            content = partContent;
+        }
+    }
+}
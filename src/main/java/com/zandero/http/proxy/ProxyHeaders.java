@@ -0,0 +1,168 @@
+package com.zandero.http.proxy;
+
+import com.zandero.http.*;
+import org.apache.http.*;
+
+import javax.servlet.http.*;
+import java.util.*;
+
+/**
+ * Copies headers between proxied requests and responses, dropping hop-by-hop headers (RFC 7230 section 6.1)
+ */
+public final class ProxyHeaders {
+
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    public static final String X_FORWARDED_PROTO = "X-Forwarded-Proto";
+
+    public static final String X_FORWARDED_HOST = "X-Forwarded-Host";
+
+    private static final Set<String> HOP_BY_HOP = new HashSet<>(Arrays.asList("connection",
+                                                                                "keep-alive",
+                                                                                "proxy-authenticate",
+                                                                                "proxy-authorization",
+                                                                                "proxy-connection",
+                                                                                "te",
+                                                                                "trailer",
+                                                                                "transfer-encoding",
+                                                                                "upgrade"));
+
+    /**
+     * set by client from target and body
+     */
+    private static final Set<String> REQUEST_SKIPPED = new HashSet<>(Arrays.asList("host", "content-length", "expect"));
+
+    /**
+     * client address headers set by some proxies, not forwarded as any client can set them
+     */
+    private static final Set<String> CLIENT_IP = new HashSet<>(Arrays.asList("proxy-client-ip",
+                                                                               "wl-proxy-client-ip",
+                                                                               "http_client_ip",
+                                                                               "http_x_forwarded_for"));
+
+    private ProxyHeaders() {
+        // hide constructor
+    }
+
+    /**
+     * @param name header name
+     * @return true if header applies to a single connection only and must not be forwarded
+     */
+    public static boolean isHopByHop(String name) {
+        return name != null && HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Copies end-to-end headers of inbound request and sets X-Forwarded-For, X-Forwarded-Proto and X-Forwarded-Host
+     * <p>
+     * Address of client is always taken from connection, client IP headers other than X-Forwarded-For are dropped.
+     *
+     * @param from     inbound request
+     * @param upstream request to backend
+     */
+    public static void copyRequestHeaders(HttpServletRequest from, HttpRequest upstream) {
+
+        Set<String> connection = getConnectionTokens(from.getHeaders(HttpHeaders.CONNECTION));
+
+        Enumeration<String> names = from.getHeaderNames();
+        while (names != null && names.hasMoreElements()) {
+
+            String name = names.nextElement();
+            String lowerCase = name.toLowerCase(Locale.ROOT);
+
+            if (HOP_BY_HOP.contains(lowerCase) || REQUEST_SKIPPED.contains(lowerCase) || CLIENT_IP.contains(lowerCase) || connection.contains(lowerCase) ||
+                X_FORWARDED_FOR.equalsIgnoreCase(name) || X_FORWARDED_PROTO.equalsIgnoreCase(name) || X_FORWARDED_HOST.equalsIgnoreCase(name)) {
+                continue;
+            }
+
+            Enumeration<String> values = from.getHeaders(name);
+            while (values.hasMoreElements()) {
+                upstream.addHeader(name, values.nextElement());
+            }
+        }
+
+        // append address of our client to chain of forwarding proxies
+        String forwardedFor = RequestUtils.getHeader(from, X_FORWARDED_FOR);
+        String client = forwardedFor != null ? forwardedFor + ", " + from.getRemoteAddr() : from.getRemoteAddr();
+        if (client != null) {
+            upstream.setHeader(X_FORWARDED_FOR, client);
+        }
+
+        String scheme = RequestUtils.getScheme(from);
+        if (scheme != null) {
+            upstream.setHeader(X_FORWARDED_PROTO, scheme);
+        }
+
+        String host = RequestUtils.getHeader(from, X_FORWARDED_HOST);
+        if (host == null) {
+            host = from.getHeader(HttpHeaders.HOST);
+        }
+
+        if (host != null) {
+            upstream.setHeader(X_FORWARDED_HOST, host);
+        }
+    }
+
+    /**
+     * Copies end-to-end headers of upstream response
+     *
+     * @param upstream response of backend
+     * @param to       response to client
+     */
+    public static void copyResponseHeaders(HttpResponse upstream, HttpServletResponse to) {
+
+        Set<String> connection = getConnectionTokens(upstream.getHeaders(HttpHeaders.CONNECTION));
+
+        for (Header header : upstream.getAllHeaders()) {
+
+            String lowerCase = header.getName().toLowerCase(Locale.ROOT);
+            if (HOP_BY_HOP.contains(lowerCase) || connection.contains(lowerCase)) {
+                continue;
+            }
+
+            to.addHeader(header.getName(), header.getValue());
+        }
+    }
+
+    private static Set<String> getConnectionTokens(Enumeration<String> values) {
+
+        if (values == null || !values.hasMoreElements()) {
+            return Collections.emptySet();
+        }
+
+        Set<String> tokens = new HashSet<>();
+        while (values.hasMoreElements()) {
+            addTokens(values.nextElement(), tokens);
+        }
+
+        return tokens;
+    }
+
+    private static Set<String> getConnectionTokens(Header[] headers) {
+
+        if (headers == null || headers.length == 0) {
+            return Collections.emptySet();
+        }
+
+        Set<String> tokens = new HashSet<>();
+        for (Header header : headers) {
+            addTokens(header.getValue(), tokens);
+        }
+
+        return tokens;
+    }
+
+    private static void addTokens(String value, Set<String> tokens) {
+
+        if (value == null) {
+            return;
+        }
+
+        for (String token : value.split(",")) {
+            String trimmed = token.trim().toLowerCase(Locale.ROOT);
+            if (!trimmed.isEmpty()) {
+                tokens.add(trimmed);
+            }
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.zandero.http.proxy;
+
+import com.zandero.http.HttpUtils;
+import com.zandero.http.flow.*;
+import com.zandero.utils.*;
+import org.apache.http.client.config.*;
+import org.apache.http.client.methods.*;
+import org.slf4j.*;
+
+import javax.servlet.*;
+import javax.servlet.http.*;
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+/**
+ * Reverse proxy streaming requests to target server and responses back to client
+ * <ul>
+ *     <li>request and response bodies are streamed in bounded chunks with Servlet 3.1 non blocking I/O, no thread is held while waiting on either side</li>
+ *     <li>hop-by-hop headers are dropped, X-Forwarded-For, X-Forwarded-Proto and X-Forwarded-Host are set (see {@link ProxyHeaders})</li>
+ *     <li>upstream calls are made with shared asynchronous client of {@link HttpUtils}, sized with {@link HttpUtils#setAsyncConnectionLimits(int, int)}</li>
+ *     <li>redirects and cookies of target are passed to client as they are, never followed or stored</li>
+ *     <li>responds with 502 if target is not reachable and with 504 if call times out</li>
+ * </ul>
+ * Servlet must be registered with async support enabled, target is given in constructor or as <code>target</code> init parameter.
+ */
+public class ProxyServlet extends HttpServlet {
+
+    private static final Logger log = LoggerFactory.getLogger(ProxyServlet.class);
+
+    public static final String TARGET_PARAM = "target";
+
+    public static final String TIMEOUT_PARAM = "timeout";
+
+    private static final long DEFAULT_TIMEOUT = 30_000;
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * shared client must not follow redirects or replay cookies of one client on requests of another
+     */
+    private static final RequestConfig UPSTREAM_CONFIG = RequestConfig.custom()
+                                                                      .setRedirectsEnabled(false)
+                                                                      .setCookieSpec(CookieSpecs.IGNORE_COOKIES)
+                                                                      .build();
+
+    private String target;
+
+    private long timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * Proxy with target given as init parameter
+     */
+    public ProxyServlet() {
+    }
+
+    /**
+     * @param targetUrl base url of target server, request path info and query are appended
+     */
+    public ProxyServlet(String targetUrl) {
+        setTarget(targetUrl);
+    }
+
+    @Override
+    public void init() throws ServletException {
+
+        if (target == null) {
+            String param = getInitParameter(TARGET_PARAM);
+            if (StringUtils.isNullOrEmptyTrimmed(param)) {
+                throw new ServletException("Missing '" + TARGET_PARAM + "' init parameter!");
+            }
+
+            setTarget(param);
+        }
+
+        String timeoutParam = getInitParameter(TIMEOUT_PARAM);
+        if (!StringUtils.isNullOrEmptyTrimmed(timeoutParam)) {
+            setTimeout(Long.parseLong(timeoutParam.trim()));
+        }
+    }
+
+    /**
+     * @param millis time to complete proxied call (including body transfer) before responding with 504 or 0 for no limit
+     */
+    public void setTimeout(long millis) {
+
+        Assert.isTrue(millis >= 0, "Expected timeout >= 0!");
+        timeout = millis;
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException {
+
+        if (!request.isAsyncSupported()) {
+            throw new ServletException("Proxy requires async support, register servlet with async support enabled!");
+        }
+
+        String url = getTargetUrl(request);
+
+        AsyncContext context = request.startAsync();
+        context.setTimeout(timeout);
+
+        try {
+            ServletBodySubscriber responseBody = new ServletBodySubscriber(context, response.getOutputStream());
+            CompletableFuture<StreamingResponse> call = execute(request, url);
+
+            context.addListener(new Listener(response, responseBody, call));
+
+            call.whenComplete((upstream, error) -> {
+
+                if (responseBody.isFinished()) {
+                    if (upstream != null) {
+                        upstream.getBody().subscribe(new Cancelling());
+                    }
+                    return;
+                }
+
+                if (error != null) {
+                    log.warn("Failed to proxy request to: {}, {}", url, error.getMessage());
+                    respond(response, HttpServletResponse.SC_BAD_GATEWAY);
+                    responseBody.finish();
+                    return;
+                }
+
+                response.setStatus(upstream.getStatusCode());
+                ProxyHeaders.copyResponseHeaders(upstream.getResponse(), response);
+                upstream.getBody().subscribe(responseBody);
+            });
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to proxy request to: {}, {}", url, e.getMessage());
+            respond(response, HttpServletResponse.SC_BAD_GATEWAY);
+            context.complete();
+        }
+    }
+
+    /**
+     * @param request inbound request
+     * @return url of upstream request: target followed by path info and query of request
+     */
+    protected String getTargetUrl(HttpServletRequest request) {
+
+        String path = request.getPathInfo();
+        String query = request.getQueryString();
+        return target + (path != null ? path : "") + (query != null ? "?" + query : "");
+    }
+
+    private CompletableFuture<StreamingResponse> execute(HttpServletRequest request, String url) throws IOException {
+
+        URI uri = URI.create(url);
+        long contentLength = request.getContentLengthLong();
+        boolean hasBody = contentLength >= 0 || request.getHeader("Transfer-Encoding") != null;
+
+        if (!hasBody) {
+            HttpRequestBase upstream = new UpstreamRequest(request.getMethod(), uri);
+            ProxyHeaders.copyRequestHeaders(request, upstream);
+            return HttpUtils.executeStreaming(upstream);
+        }
+
+        UpstreamEntityRequest upstream = new UpstreamEntityRequest(request.getMethod(), uri);
+        ProxyHeaders.copyRequestHeaders(request, upstream);
+
+        ServletBodyPublisher body = new ServletBodyPublisher(request.getInputStream(), CHUNK_SIZE);
+        return HttpUtils.executeStreaming(upstream, body, contentLength, request.getContentType());
+    }
+
+    private void setTarget(String targetUrl) {
+
+        Assert.notNullOrEmptyTrimmed(targetUrl, "Missing target url!");
+
+        String url = targetUrl.trim();
+        target = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static void respond(HttpServletResponse response, int status) {
+
+        if (!response.isCommitted()) {
+            response.reset();
+            response.setStatus(status);
+        }
+    }
+
+    /**
+     * Cancels upstream call once client request times out or fails
+     */
+    private static class Listener implements AsyncListener {
+
+        private final HttpServletResponse response;
+
+        private final ServletBodySubscriber body;
+
+        private final CompletableFuture<StreamingResponse> call;
+
+        Listener(HttpServletResponse servletResponse, ServletBodySubscriber responseBody, CompletableFuture<StreamingResponse> upstreamCall) {
+
+            response = servletResponse;
+            body = responseBody;
+            call = upstreamCall;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            // nothing to do
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+
+            respond(response, HttpServletResponse.SC_GATEWAY_TIMEOUT);
+            call.cancel(false);
+            body.finish();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+
+            call.cancel(false);
+            body.finish();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Cancels body of response no longer needed
+     */
+    private static class Cancelling implements Flow.Subscriber<ByteBuffer> {
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            // cancelled
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            // cancelled
+        }
+
+        @Override
+        public void onComplete() {
+            // cancelled
+        }
+    }
+
+    private static class UpstreamRequest extends HttpRequestBase {
+
+        private final String method;
+
+        UpstreamRequest(String requestMethod, URI uri) {
+
+            method = requestMethod;
+            setURI(uri);
+            setConfig(UPSTREAM_CONFIG);
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    private static class UpstreamEntityRequest extends HttpEntityEnclosingRequestBase {
+
+        private final String method;
+
+        UpstreamEntityRequest(String requestMethod, URI uri) {
+
+            method = requestMethod;
+            setURI(uri);
+            setConfig(UPSTREAM_CONFIG);
+        }
+
+        @Override
+        public String getMethod() {
+            return method;
+        }
+    }
+}
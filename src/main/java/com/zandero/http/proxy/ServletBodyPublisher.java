@@ -0,0 +1,143 @@
+package com.zandero.http.proxy;
+
+import javax.servlet.*;
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Publishes body of servlet request read with non blocking I/O (Servlet 3.1 {@link ReadListener})
+ * <p>
+ * Chunks are read only while subscriber has outstanding demand, so no more than demanded chunks are buffered.
+ * Reading is serialized between container (read listener) and subscriber (request) threads.
+ */
+class ServletBodyPublisher implements Flow.Publisher<ByteBuffer>, ReadListener {
+
+    private final ServletInputStream input;
+
+    private final int chunkSize;
+
+    private final AtomicLong demand = new AtomicLong();
+
+    private final AtomicInteger work = new AtomicInteger();
+
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private final AtomicBoolean terminated = new AtomicBoolean();
+
+    private volatile Flow.Subscriber<? super ByteBuffer> subscriber;
+
+    private volatile Throwable error;
+
+    /**
+     * Registers read listener, must be called by container thread once request is in async mode
+     *
+     * @param servletInput input of request
+     * @param maxChunkSize max size of published chunks
+     */
+    ServletBodyPublisher(ServletInputStream servletInput, int maxChunkSize) {
+
+        input = servletInput;
+        chunkSize = maxChunkSize;
+        input.setReadListener(this);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> bodySubscriber) {
+
+        if (!subscribed.compareAndSet(false, true)) {
+            throw new IllegalStateException("Request body can only be subscribed once!");
+        }
+
+        bodySubscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+
+                demand.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                terminated.set(true);
+            }
+        });
+
+        subscriber = bodySubscriber;
+        drain();
+    }
+
+    @Override
+    public void onDataAvailable() {
+        drain();
+    }
+
+    @Override
+    public void onAllDataRead() {
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+
+        error = throwable;
+        drain();
+    }
+
+    private void drain() {
+
+        if (work.getAndIncrement() != 0) {
+            return; // other thread is reading, it will loop once more
+        }
+
+        do {
+            Flow.Subscriber<? super ByteBuffer> current = subscriber;
+            if (current != null && !terminated.get()) {
+                read(current);
+            }
+        }
+        while (work.decrementAndGet() != 0);
+    }
+
+    private void read(Flow.Subscriber<? super ByteBuffer> current) {
+
+        try {
+            while (!terminated.get()) {
+
+                if (error != null) {
+                    terminated.set(true);
+                    current.onError(error);
+                    return;
+                }
+
+                if (input.isFinished()) {
+                    terminated.set(true);
+                    current.onComplete();
+                    return;
+                }
+
+                // container calls onDataAvailable once input is ready again
+                if (demand.get() == 0 || !input.isReady()) {
+                    return;
+                }
+
+                byte[] chunk = new byte[chunkSize];
+                int read = input.read(chunk);
+                if (read < 0) {
+                    terminated.set(true);
+                    current.onComplete();
+                    return;
+                }
+
+                if (read > 0) {
+                    demand.decrementAndGet();
+                    current.onNext(ByteBuffer.wrap(chunk, 0, read));
+                }
+            }
+        } catch (IOException e) {
+            terminated.set(true);
+            current.onError(e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.zandero.http.proxy;
+
+import org.slf4j.*;
+
+import javax.servlet.*;
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Writes published chunks to servlet response with non blocking I/O (Servlet 3.1 {@link WriteListener}), completing async context once done
+ * <p>
+ * Only a few chunks are requested ahead, more are requested once written, so a fast upstream is slowed down to the pace of the client.
+ */
+class ServletBodySubscriber implements Flow.Subscriber<ByteBuffer>, WriteListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ServletBodySubscriber.class);
+
+    private static final int PREFETCH = 2;
+
+    private final AsyncContext context;
+
+    private final ServletOutputStream output;
+
+    private final Queue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger work = new AtomicInteger();
+
+    private final AtomicBoolean finished = new AtomicBoolean();
+
+    private volatile Flow.Subscription subscription;
+
+    private volatile boolean completed;
+
+    /**
+     * Registers write listener, must be called by container thread once request is in async mode
+     *
+     * @param asyncContext  of proxied request
+     * @param servletOutput output of response
+     */
+    ServletBodySubscriber(AsyncContext asyncContext, ServletOutputStream servletOutput) {
+
+        context = asyncContext;
+        output = servletOutput;
+        output.setWriteListener(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription bodySubscription) {
+
+        subscription = bodySubscription;
+        bodySubscription.request(PREFETCH);
+    }
+
+    @Override
+    public void onNext(ByteBuffer item) {
+
+        chunks.add(item);
+        drain();
+    }
+
+    /**
+     * Upstream body (subscriber) or client connection (write listener) failed
+     */
+    @Override
+    public void onError(Throwable throwable) {
+
+        // response is already committed ... client will see a truncated body
+        log.warn("Proxied response body failed: {}", throwable.getMessage());
+        finish();
+    }
+
+    @Override
+    public void onComplete() {
+
+        completed = true;
+        drain();
+    }
+
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    /**
+     * Stops writing, cancels upstream body and completes async context
+     */
+    void finish() {
+
+        if (!finished.compareAndSet(false, true)) {
+            return;
+        }
+
+        Flow.Subscription current = subscription;
+        if (current != null && !completed) {
+            current.cancel();
+        }
+
+        context.complete();
+    }
+
+    boolean isFinished() {
+        return finished.get();
+    }
+
+    private void drain() {
+
+        if (work.getAndIncrement() != 0) {
+            return; // other thread is writing, it will loop once more
+        }
+
+        do {
+            write();
+        }
+        while (work.decrementAndGet() != 0);
+    }
+
+    private void write() {
+
+        try {
+            while (!finished.get()) {
+
+                ByteBuffer chunk = chunks.peek();
+                if (chunk == null) {
+                    if (completed) {
+                        finish();
+                    }
+
+                    return;
+                }
+
+                // container calls onWritePossible once output is ready again
+                if (!output.isReady()) {
+                    return;
+                }
+
+                if (chunk.hasArray()) {
+                    output.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+                } else {
+                    byte[] copy = new byte[chunk.remaining()];
+                    chunk.get(copy);
+                    output.write(copy);
+                }
+
+                chunks.poll();
+                subscription.request(1);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write proxied response: {}", e.getMessage());
+            finish();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.zandero.http.socket;
+
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Counters of a single socket, times are in nanoseconds
+ */
+public final class SocketMetrics {
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private volatile SocketAddress remoteAddress;
+
+    private volatile SocketAddress localAddress;
+
+    private volatile long connectTime = -1;
+
+    private volatile long connectedAt;
+
+    private volatile long closedAt;
+
+    SocketMetrics() {
+    }
+
+    void connected(Socket socket, long started) {
+
+        long now = System.nanoTime();
+        connectTime = now - started;
+        connectedAt = now;
+        remoteAddress = socket.getRemoteSocketAddress();
+        localAddress = socket.getLocalSocketAddress();
+    }
+
+    void closed() {
+        closedAt = System.nanoTime();
+    }
+
+    void read(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    void written(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public SocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    /**
+     * @return time to establish TCP connection or -1 if not connected
+     */
+    public long getConnectTime() {
+        return connectTime;
+    }
+
+    /**
+     * @return time since connected until closed (or until now if still open), 0 if not connected
+     */
+    public long getOpenTime() {
+
+        if (connectTime < 0) {
+            return 0;
+        }
+
+        return (closedAt != 0 ? closedAt : System.nanoTime()) - connectedAt;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    /**
+     * @return bytes read per second while socket was open
+     */
+    public long getReadThroughput() {
+        return perSecond(bytesRead.get());
+    }
+
+    /**
+     * @return bytes written per second while socket was open
+     */
+    public long getWriteThroughput() {
+        return perSecond(bytesWritten.get());
+    }
+
+    private long perSecond(long bytes) {
+
+        long open = getOpenTime();
+        return open > 0 ? (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / open) : 0;
+    }
+
+    @Override
+    public String toString() {
+        return localAddress + " -> " + remoteAddress + " connect: " + TimeUnit.NANOSECONDS.toMicros(connectTime) + "us, " +
+               "read: " + bytesRead + "B, written: " + bytesWritten + "B, open: " + TimeUnit.NANOSECONDS.toMillis(getOpenTime()) + "ms";
+    }
+}
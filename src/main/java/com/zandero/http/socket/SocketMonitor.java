@@ -0,0 +1,15 @@
+package com.zandero.http.socket;
+
+/**
+ * Receives counters of closed sockets, for instance to record connect time and throughput
+ * <p>
+ * Invoked on thread closing the socket, implementation should not block.
+ */
+@FunctionalInterface
+public interface SocketMonitor {
+
+    /**
+     * @param metrics of closed socket
+     */
+    void closed(SocketMetrics metrics);
+}
@@ -0,0 +1,164 @@
+package com.zandero.http.socket;
+
+import com.zandero.utils.*;
+
+import java.net.*;
+
+/**
+ * Socket options applied to client connections, options not set are left at JVM/OS defaults
+ * <ul>
+ *     <li>disable Nagle's algorithm ({@code TCP_NODELAY}) for small request/response calls</li>
+ *     <li>increase send and receive buffers for high bandwidth transfers (set before connect so TCP window scaling is negotiated)</li>
+ * </ul>
+ * Use with {@link com.zandero.http.HttpUtils#setSocketOptions(SocketTuning)} or {@link com.zandero.http.Http#setSocketOptions(SocketTuning)}.
+ *
+ * <pre>
+ * HttpUtils.setSocketOptions(new SocketTuning().setTcpNoDelay(true)
+ *                                              .setReceiveBufferSize(1024 * 1024)
+ *                                              .setMonitor(metrics -&gt; log.debug("{}", metrics)));
+ * </pre>
+ */
+public class SocketTuning {
+
+    private Boolean tcpNoDelay;
+
+    private Boolean keepAlive;
+
+    private Integer sendBufferSize;
+
+    private Integer receiveBufferSize;
+
+    private Integer linger;
+
+    private InetAddress localAddress;
+
+    private SocketMonitor monitor;
+
+    /**
+     * @param noDelay true to disable Nagle's algorithm ({@code TCP_NODELAY})
+     * @return options
+     */
+    public SocketTuning setTcpNoDelay(boolean noDelay) {
+        tcpNoDelay = noDelay;
+        return this;
+    }
+
+    /**
+     * @param enabled true to enable TCP keep-alive probes ({@code SO_KEEPALIVE})
+     * @return options
+     */
+    public SocketTuning setKeepAlive(boolean enabled) {
+        keepAlive = enabled;
+        return this;
+    }
+
+    /**
+     * @param bytes size of send buffer ({@code SO_SNDBUF})
+     * @return options
+     */
+    public SocketTuning setSendBufferSize(int bytes) {
+
+        Assert.isTrue(bytes > 0, "Expected send buffer size > 0!");
+        sendBufferSize = bytes;
+        return this;
+    }
+
+    /**
+     * @param bytes size of receive buffer ({@code SO_RCVBUF})
+     * @return options
+     */
+    public SocketTuning setReceiveBufferSize(int bytes) {
+
+        Assert.isTrue(bytes > 0, "Expected receive buffer size > 0!");
+        receiveBufferSize = bytes;
+        return this;
+    }
+
+    /**
+     * @param seconds to block on close while unsent data is transmitted ({@code SO_LINGER}), 0 to reset connection on close, -1 to disable
+     * @return options
+     */
+    public SocketTuning setLinger(int seconds) {
+
+        Assert.isTrue(seconds >= -1, "Expected linger >= -1!");
+        linger = seconds;
+        return this;
+    }
+
+    /**
+     * @param address local address to bind sockets to (for instance to pick network interface) or null for any
+     * @return options
+     */
+    public SocketTuning setLocalAddress(InetAddress address) {
+        localAddress = address;
+        return this;
+    }
+
+    /**
+     * @param socketMonitor receiving counters of each closed socket or null for none
+     * @return options
+     */
+    public SocketTuning setMonitor(SocketMonitor socketMonitor) {
+        monitor = socketMonitor;
+        return this;
+    }
+
+    public Boolean getTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public Boolean getKeepAlive() {
+        return keepAlive;
+    }
+
+    public Integer getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public Integer getLinger() {
+        return linger;
+    }
+
+    public InetAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    public SocketMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Applies options set to given socket
+     *
+     * @param socket to apply options to
+     * @throws SocketException in case option could not be set
+     */
+    public void apply(Socket socket) throws SocketException {
+
+        Assert.notNull(socket, "Missing socket!");
+
+        if (tcpNoDelay != null) {
+            socket.setTcpNoDelay(tcpNoDelay);
+        }
+
+        if (keepAlive != null) {
+            socket.setKeepAlive(keepAlive);
+        }
+
+        if (sendBufferSize != null) {
+            socket.setSendBufferSize(sendBufferSize);
+        }
+
+        if (receiveBufferSize != null) {
+            socket.setReceiveBufferSize(receiveBufferSize);
+        }
+
+        if (linger != null) {
+            socket.setSoLinger(linger >= 0, Math.max(linger, 0));
+        }
+    }
+}
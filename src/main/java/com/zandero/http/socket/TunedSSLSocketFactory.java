@@ -0,0 +1,91 @@
+package com.zandero.http.socket;
+
+import com.zandero.utils.*;
+
+import javax.net.ssl.*;
+import java.io.*;
+import java.net.*;
+
+/**
+ * SSL socket factory layering given factory on top of {@link TunedSocket}s, to tune {@link javax.net.ssl.HttpsURLConnection}s
+ * <p>
+ * {@code HttpsURLConnection} connects the unconnected socket returned by {@link #createSocket()} and layers SSL on top of it,
+ * options are applied again once layered as the JVM always turns on {@code TCP_NODELAY}.
+ */
+public class TunedSSLSocketFactory extends SSLSocketFactory {
+
+    private final SSLSocketFactory delegate;
+
+    private final SocketTuning options;
+
+    /**
+     * @param factory       SSL socket factory to layer with
+     * @param socketOptions to apply
+     */
+    public TunedSSLSocketFactory(SSLSocketFactory factory, SocketTuning socketOptions) {
+
+        Assert.notNull(factory, "Missing SSL socket factory!");
+        Assert.notNull(socketOptions, "Missing socket options!");
+
+        delegate = factory;
+        options = socketOptions;
+    }
+
+    @Override
+    public String[] getDefaultCipherSuites() {
+        return delegate.getDefaultCipherSuites();
+    }
+
+    @Override
+    public String[] getSupportedCipherSuites() {
+        return delegate.getSupportedCipherSuites();
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return new TunedSocket(options);
+    }
+
+    @Override
+    public Socket createSocket(Socket socket, String host, int port, boolean autoClose) throws IOException {
+
+        options.apply(socket);
+        return delegate.createSocket(socket, host, port, autoClose);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port) throws IOException {
+        return layer(new InetSocketAddress(host, port), host, null, 0);
+    }
+
+    @Override
+    public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+        return layer(new InetSocketAddress(host, port), host, localHost, localPort);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress host, int port) throws IOException {
+        return layer(new InetSocketAddress(host, port), host.getHostName(), null, 0);
+    }
+
+    @Override
+    public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+        return layer(new InetSocketAddress(address, port), address.getHostName(), localAddress, localPort);
+    }
+
+    private Socket layer(InetSocketAddress remote, String host, InetAddress localAddress, int localPort) throws IOException {
+
+        TunedSocket socket = new TunedSocket(options);
+        try {
+            if (localAddress != null || localPort > 0) {
+                socket.bind(new InetSocketAddress(localAddress, localPort));
+            }
+
+            socket.connect(remote);
+            return delegate.createSocket(socket, host, remote.getPort(), true);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+}
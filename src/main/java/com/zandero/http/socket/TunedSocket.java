@@ -0,0 +1,149 @@
+package com.zandero.http.socket;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Plain socket with options applied before connect, counting connect time and bytes transferred
+ * <p>
+ * Secure connections are layered on top of it, so encrypted bytes are counted.
+ */
+public class TunedSocket extends Socket {
+
+    private final SocketTuning options;
+
+    private final SocketMetrics metrics = new SocketMetrics();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private InputStream input;
+
+    private OutputStream output;
+
+    /**
+     * Creates unconnected socket
+     *
+     * @param socketOptions to apply
+     * @throws SocketException in case options could not be applied
+     */
+    public TunedSocket(SocketTuning socketOptions) throws SocketException {
+
+        options = socketOptions != null ? socketOptions : new SocketTuning();
+        options.apply(this);
+    }
+
+    /**
+     * @return counters of this socket
+     */
+    public SocketMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void connect(SocketAddress endpoint, int timeout) throws IOException {
+
+        if (!isBound() && options.getLocalAddress() != null) {
+            bind(new InetSocketAddress(options.getLocalAddress(), 0));
+        }
+
+        long start = System.nanoTime();
+        super.connect(endpoint, timeout);
+        metrics.connected(this, start);
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+
+        if (input == null) {
+            input = new CountingInputStream(super.getInputStream());
+        }
+
+        return input;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+
+        if (output == null) {
+            output = new CountingOutputStream(super.getOutputStream());
+        }
+
+        return output;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        try {
+            super.close();
+        } finally {
+            // sockets never connected (for instance losing connection attempts) are not reported
+            if (closed.compareAndSet(false, true) && metrics.getConnectTime() >= 0) {
+                metrics.closed();
+                SocketMonitor monitor = options.getMonitor();
+                if (monitor != null) {
+                    monitor.closed(metrics);
+                }
+            }
+        }
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            int value = in.read();
+            if (value >= 0) {
+                metrics.read(1);
+            }
+
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                metrics.read(read);
+            }
+
+            return read;
+        }
+
+        @Override
+        public long skip(long bytes) throws IOException {
+
+            long skipped = in.skip(bytes);
+            metrics.read(skipped);
+            return skipped;
+        }
+    }
+
+    private class CountingOutputStream extends FilterOutputStream {
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+
+            out.write(value);
+            metrics.written(1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+
+            out.write(buffer, offset, length);
+            metrics.written(length);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.zandero.http.socket;
+
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.conn.socket.*;
+import org.apache.http.protocol.*;
+
+import java.io.*;
+import java.net.*;
+
+/**
+ * Connection socket factory creating {@link TunedSocket}s, connecting and layering them with given (plain or SSL) factory
+ */
+public class TunedSocketFactory implements ConnectionSocketFactory {
+
+    private final ConnectionSocketFactory delegate;
+
+    private final SocketTuning options;
+
+    private TunedSocketFactory(ConnectionSocketFactory factory, SocketTuning socketOptions) {
+
+        Assert.notNull(factory, "Missing socket factory!");
+        Assert.notNull(socketOptions, "Missing socket options!");
+
+        delegate = factory;
+        options = socketOptions;
+    }
+
+    /**
+     * @param factory       plain or layered (SSL) socket factory
+     * @param socketOptions to apply
+     * @return tuned factory, layered if given factory is layered
+     */
+    public static ConnectionSocketFactory wrap(ConnectionSocketFactory factory, SocketTuning socketOptions) {
+
+        if (factory instanceof LayeredConnectionSocketFactory) {
+            return new Layered((LayeredConnectionSocketFactory) factory, socketOptions);
+        }
+
+        return new TunedSocketFactory(factory, socketOptions);
+    }
+
+    @Override
+    public Socket createSocket(HttpContext context) throws IOException {
+        return new TunedSocket(options);
+    }
+
+    @Override
+    public Socket connectSocket(int connectTimeout,
+                                Socket socket,
+                                HttpHost host,
+                                InetSocketAddress remoteAddress,
+                                InetSocketAddress localAddress,
+                                HttpContext context) throws IOException {
+
+        if (localAddress == null && options.getLocalAddress() != null) {
+            localAddress = new InetSocketAddress(options.getLocalAddress(), 0);
+        }
+
+        if (socket == null) {
+            socket = createSocket(context);
+        } else {
+            // connection operator overwrites options with its socket config once socket is created
+            options.apply(socket);
+        }
+
+        return delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+    }
+
+    private static class Layered extends TunedSocketFactory implements LayeredConnectionSocketFactory {
+
+        private final LayeredConnectionSocketFactory layered;
+
+        Layered(LayeredConnectionSocketFactory factory, SocketTuning socketOptions) {
+
+            super(factory, socketOptions);
+            layered = factory;
+        }
+
+        @Override
+        public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext context) throws IOException {
+            return layered.createLayeredSocket(socket, target, port, context);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.zandero.http.stream;
+
+import com.zandero.utils.extra.*;
+
+/**
+ * Single event of server-sent event stream or single line of newline delimited JSON stream
+ */
+public class Event {
+
+    /**
+     * Default type of server-sent events
+     */
+    public static final String MESSAGE = "message";
+
+    private final String id;
+
+    private final String type;
+
+    private final String data;
+
+    Event(String eventId, String eventType, String eventData) {
+
+        id = eventId;
+        type = eventType;
+        data = eventData;
+    }
+
+    /**
+     * @return last event id (null if none was given or in case of JSON stream)
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return event type ({@link #MESSAGE} if not given, null in case of JSON stream)
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return event data (multiple data lines joined with new line)
+     */
+    public String getData() {
+        return data;
+    }
+
+    /**
+     * @param type to deserialize data into
+     * @param <T>  type of data
+     * @return data deserialized from JSON
+     */
+    public <T> T getData(Class<T> type) {
+        return JsonUtils.fromJson(data, type);
+    }
+
+    @Override
+    public String toString() {
+        return (id != null ? id + " " : "") + (type != null ? type + ": " : "") + data;
+    }
+}
@@ -0,0 +1,202 @@
+package com.zandero.http.stream;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Reads events one by one from stream, lines and events are bounded in size
+ */
+final class EventReader {
+
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final InputStream in;
+
+    private final EventStream.Format format;
+
+    private final int maxSize;
+
+    private final byte[] buffer = new byte[8 * 1024];
+
+    private int position;
+
+    private int limit;
+
+    /**
+     * line ended with \r ... \n at start of next read belongs to same line end
+     */
+    private boolean skipLineFeed;
+
+    private boolean start = true;
+
+    private int bom;
+
+    private byte[] line = new byte[256];
+
+    private String lastEventId;
+
+    private long retry = -1;
+
+    EventReader(InputStream input, EventStream.Format streamFormat, int maxEventSize, String lastId) {
+
+        in = input;
+        format = streamFormat;
+        maxSize = maxEventSize;
+        lastEventId = lastId;
+    }
+
+    /**
+     * @return id of last received event
+     */
+    String getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * @return reconnection time in ms sent by server or -1 if none
+     */
+    long getRetry() {
+        return retry;
+    }
+
+    /**
+     * @return next event or null once stream ended
+     * @throws IOException in case stream could not be read or event is too big
+     */
+    Event next() throws IOException {
+
+        if (format == EventStream.Format.NDJSON) {
+            String value;
+            while ((value = readLine()) != null) {
+                if (!value.trim().isEmpty()) {
+                    return new Event(null, null, value);
+                }
+            }
+
+            return null;
+        }
+
+        StringBuilder data = null;
+        String type = null;
+
+        String value;
+        while ((value = readLine()) != null) {
+
+            if (value.isEmpty()) { // dispatch
+                if (data != null) {
+                    return new Event(lastEventId, type != null ? type : Event.MESSAGE, data.toString());
+                }
+
+                type = null;
+                continue;
+            }
+
+            if (value.charAt(0) == ':') { // comment
+                continue;
+            }
+
+            int colon = value.indexOf(':');
+            String field = colon < 0 ? value : value.substring(0, colon);
+            String fieldValue = "";
+            if (colon >= 0) {
+                int from = colon + 1 < value.length() && value.charAt(colon + 1) == ' ' ? colon + 2 : colon + 1;
+                fieldValue = value.substring(from);
+            }
+
+            switch (field) {
+                case "event":
+                    type = fieldValue;
+                    break;
+
+                case "data":
+                    if (data == null) {
+                        data = new StringBuilder(fieldValue);
+                    } else {
+                        data.append('\n').append(fieldValue);
+                    }
+
+                    if (data.length() > maxSize) {
+                        throw new IOException("Event exceeds max size of: " + maxSize);
+                    }
+                    break;
+
+                case "id":
+                    if (fieldValue.indexOf('\0') < 0) {
+                        lastEventId = fieldValue.isEmpty() ? null : fieldValue;
+                    }
+                    break;
+
+                case "retry":
+                    try {
+                        retry = Long.parseLong(fieldValue);
+                    } catch (NumberFormatException e) {
+                        // ignored as by specification
+                    }
+                    break;
+
+                default:
+                    // unknown fields are ignored
+            }
+        }
+
+        // incomplete event at end of stream is discarded
+        return null;
+    }
+
+    /**
+     * @return line without line end or null at end of stream
+     */
+    private String readLine() throws IOException {
+
+        int length = 0;
+        while (true) {
+
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+
+                if (limit <= 0) {
+                    limit = 0;
+                    return length > 0 ? new String(line, 0, length, StandardCharsets.UTF_8) : null;
+                }
+            }
+
+            byte b = buffer[position++];
+
+            if (start) { // skip UTF-8 byte order mark
+                if (bom < BOM.length && b == BOM[bom]) {
+                    bom++;
+                    continue;
+                }
+
+                start = false;
+                if (bom > 0 && bom < BOM.length) {
+                    throw new IOException("Invalid UTF-8 byte order mark");
+                }
+            }
+
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (b == '\n') {
+                    continue;
+                }
+            }
+
+            if (b == '\n' || b == '\r') {
+                skipLineFeed = b == '\r';
+                return new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+
+            if (length == maxSize) {
+                throw new IOException("Line exceeds max size of: " + maxSize);
+            }
+
+            if (length == line.length) {
+                line = Arrays.copyOf(line, Math.min(maxSize, line.length * 2));
+            }
+
+            line[length++] = b;
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.zandero.http.stream;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+import org.slf4j.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+
+/**
+ * Consumes server-sent events ({@code text/event-stream}) or newline delimited JSON as they arrive
+ * <p>
+ * Each subscriber gets its own connection. Events are read from the connection only as subscriber requests them,
+ * so a slow subscriber slows down the stream (backpressure) instead of buffering events in memory.
+ * Lost connections are re-established, server-sent event streams resume with {@code Last-Event-ID} header
+ * and reconnect even when server closes stream, JSON streams complete once server closes stream.
+ *
+ * <pre>
+ * Flow.Subscription subscription = new EventStream("https://api.example.com/events", EventStream.Format.SSE)
+ *     .listen(event -&gt; log.info(event.getData()));
+ * ...
+ * subscription.cancel();
+ * </pre>
+ */
+public class EventStream implements Flow.Publisher<Event> {
+
+    private static final Logger log = LoggerFactory.getLogger(EventStream.class);
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-event-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final long DEFAULT_RECONNECT_DELAY_MS = 3000;
+    private static final long DEFAULT_MAX_RECONNECT_DELAY_MS = 30_000;
+    private static final int DEFAULT_READ_TIMEOUT = 60_000;
+    private static final int DEFAULT_MAX_EVENT_SIZE = 1024 * 1024;
+
+    /**
+     * Stream format
+     */
+    public enum Format {
+
+        /**
+         * Server-sent events (text/event-stream)
+         */
+        SSE("text/event-stream"),
+
+        /**
+         * Newline delimited JSON (one event per line)
+         */
+        NDJSON("application/x-ndjson");
+
+        private final String contentType;
+
+        Format(String type) {
+            contentType = type;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private final String url;
+
+    private final Format format;
+
+    private final Map<String, String> headers;
+
+    private int connectTimeOut = Http.DEFAULT_CONNECT_TIMEOUT;
+
+    private int readTimeOut = DEFAULT_READ_TIMEOUT;
+
+    private long reconnectDelay = DEFAULT_RECONNECT_DELAY_MS;
+
+    private long maxReconnectDelay = DEFAULT_MAX_RECONNECT_DELAY_MS;
+
+    private int maxRetries = Integer.MAX_VALUE;
+
+    private int maxEventSize = DEFAULT_MAX_EVENT_SIZE;
+
+    private String lastEventId;
+
+    private Executor executor = EXECUTOR;
+
+    /**
+     * Event stream
+     *
+     * @param streamUrl    url of stream
+     * @param streamFormat format of stream
+     */
+    public EventStream(String streamUrl, Format streamFormat) {
+        this(streamUrl, streamFormat, null);
+    }
+
+    /**
+     * Event stream
+     *
+     * @param streamUrl      url of stream
+     * @param streamFormat   format of stream
+     * @param requestHeaders to add to request or null
+     */
+    public EventStream(String streamUrl, Format streamFormat, Map<String, String> requestHeaders) {
+
+        Assert.notNullOrEmptyTrimmed(streamUrl, "Missing url!");
+        Assert.notNull(streamFormat, "Missing format!");
+
+        url = streamUrl;
+        format = streamFormat;
+        headers = requestHeaders != null ? new HashMap<>(requestHeaders) : new HashMap<>();
+    }
+
+    /**
+     * Sets time outs, when nothing is received within read time out connection is re-established
+     *
+     * @param connectTimeOutInMs connect time out in ms
+     * @param readTimeOutInMs    read time out in ms (0 for none)
+     * @return this stream
+     */
+    public EventStream setTimeOuts(int connectTimeOutInMs, int readTimeOutInMs) {
+
+        connectTimeOut = connectTimeOutInMs;
+        readTimeOut = readTimeOutInMs;
+        return this;
+    }
+
+    /**
+     * Sets reconnect delay, doubled with each consecutive failure up to max delay.
+     * Reconnection time sent by server (retry field) takes precedence.
+     *
+     * @param delay    initial delay
+     * @param maxDelay max delay
+     * @param unit     time unit
+     * @return this stream
+     */
+    public EventStream setReconnectDelay(long delay, long maxDelay, TimeUnit unit) {
+
+        Assert.isTrue(delay >= 0, "Expected delay >= 0!");
+        Assert.isTrue(maxDelay >= delay, "Expected max delay >= delay!");
+        Assert.notNull(unit, "Missing time unit!");
+
+        reconnectDelay = unit.toMillis(delay);
+        maxReconnectDelay = unit.toMillis(maxDelay);
+        return this;
+    }
+
+    /**
+     * @param retries max number of consecutive failed (re)connects before subscriber is notified with error
+     * @return this stream
+     */
+    public EventStream setMaxRetries(int retries) {
+
+        Assert.isTrue(retries >= 0, "Expected max retries >= 0!");
+        maxRetries = retries;
+        return this;
+    }
+
+    /**
+     * @param bytes max size of single line / event, bigger events fail the connection
+     * @return this stream
+     */
+    public EventStream setMaxEventSize(int bytes) {
+
+        Assert.isTrue(bytes > 0, "Expected max event size > 0!");
+        maxEventSize = bytes;
+        return this;
+    }
+
+    /**
+     * @param id last event id to resume stream from (sent as Last-Event-ID)
+     * @return this stream
+     */
+    public EventStream setLastEventId(String id) {
+
+        lastEventId = id;
+        return this;
+    }
+
+    /**
+     * @param streamExecutor executor reading streams (one long running task per subscriber)
+     * @return this stream
+     */
+    public EventStream setExecutor(Executor streamExecutor) {
+
+        Assert.notNull(streamExecutor, "Missing executor!");
+        executor = streamExecutor;
+        return this;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Event> subscriber) {
+
+        Assert.notNull(subscriber, "Missing subscriber!");
+
+        StreamSubscription subscription = new StreamSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+
+        try {
+            executor.execute(subscription);
+        } catch (RejectedExecutionException e) {
+            subscription.fail(e);
+        }
+    }
+
+    /**
+     * Delivers events one by one to given consumer
+     *
+     * @param consumer of events
+     * @return subscription to cancel stream
+     */
+    public Flow.Subscription listen(Consumer<Event> consumer) {
+        return listen(consumer, error -> log.error("Event stream failed: {}", url, error));
+    }
+
+    /**
+     * Delivers events one by one to given consumer
+     *
+     * @param consumer of events
+     * @param onError  invoked in case stream failed (no more events are delivered)
+     * @return subscription to cancel stream
+     */
+    public Flow.Subscription listen(Consumer<Event> consumer, Consumer<Throwable> onError) {
+
+        Assert.notNull(consumer, "Missing consumer!");
+        Assert.notNull(onError, "Missing error consumer!");
+
+        ListeningSubscriber subscriber = new ListeningSubscriber(consumer, onError);
+        subscribe(subscriber);
+        return subscriber.subscription;
+    }
+
+    private long delay(int failures, long serverRetry) {
+
+        if (serverRetry >= 0) {
+            return serverRetry;
+        }
+
+        if (failures <= 1) {
+            return reconnectDelay;
+        }
+
+        long delay = reconnectDelay << Math.min(failures - 1, 20);
+        return Math.min(delay < 0 ? maxReconnectDelay : delay, maxReconnectDelay);
+    }
+
+    private static class ListeningSubscriber implements Flow.Subscriber<Event> {
+
+        private final Consumer<Event> consumer;
+
+        private final Consumer<Throwable> onError;
+
+        private Flow.Subscription subscription;
+
+        ListeningSubscriber(Consumer<Event> eventConsumer, Consumer<Throwable> errorConsumer) {
+            consumer = eventConsumer;
+            onError = errorConsumer;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription streamSubscription) {
+            subscription = streamSubscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(Event event) {
+            consumer.accept(event);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            onError.accept(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Reads stream of single subscriber
+     */
+    private class StreamSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super Event> subscriber;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition signal = lock.newCondition();
+
+        private long demand;
+
+        private volatile boolean cancelled;
+
+        private volatile HttpURLConnection connection;
+
+        /**
+         * failure to be signalled by reading thread (invalid request)
+         */
+        private Throwable failure;
+
+        StreamSubscription(Flow.Subscriber<? super Event> streamSubscriber) {
+            subscriber = streamSubscriber;
+        }
+
+        @Override
+        public void request(long n) {
+
+            lock.lock();
+            try {
+                if (n <= 0) {
+                    failure = new IllegalArgumentException("Expected request > 0, but was: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+
+                signal.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+
+            cancelled = true;
+
+            lock.lock();
+            try {
+                signal.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            HttpURLConnection current = connection;
+            if (current != null) {
+                current.disconnect(); // unblocks read
+            }
+        }
+
+        @Override
+        public void run() {
+
+            String lastId = lastEventId;
+            int failures = 0;
+
+            while (!cancelled) {
+
+                EventReader reader = null;
+                try {
+                    Map<String, String> requestHeaders = new HashMap<>(headers);
+                    requestHeaders.put("Accept", format.getContentType());
+                    if (format == Format.SSE) {
+                        requestHeaders.put("Cache-Control", "no-cache");
+                        if (lastId != null) {
+                            requestHeaders.put("Last-Event-ID", lastId);
+                        }
+                    }
+
+                    connection = Http.openConnection("GET", url, requestHeaders, connectTimeOut, readTimeOut);
+                    if (cancelled) {
+                        return;
+                    }
+
+                    int code = connection.getResponseCode();
+                    if (code == HttpURLConnection.HTTP_NO_CONTENT) { // server asks not to reconnect
+                        complete();
+                        return;
+                    }
+
+                    if (code != HttpURLConnection.HTTP_OK) {
+                        Http.HttpException error = new Http.HttpException(code, "Unexpected response status: " + code);
+                        if (code != 429 && code < HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                            fail(error);
+                            return;
+                        }
+
+                        throw new IOException(error.getMessage(), error);
+                    }
+
+                    reader = new EventReader(connection.getInputStream(), format, maxEventSize, lastId);
+
+                    Event event;
+                    while ((event = reader.next()) != null) {
+
+                        failures = 0;
+                        lastId = reader.getLastEventId();
+
+                        if (!awaitDemand()) {
+                            return;
+                        }
+
+                        try {
+                            subscriber.onNext(event);
+                        } catch (RuntimeException e) {
+                            // subscriber failed ... stop delivering
+                            log.error("Event stream subscriber failed: {}", url, e);
+                            cancelled = true;
+                            return;
+                        }
+                    }
+
+                    if (format == Format.NDJSON) {
+                        complete();
+                        return;
+                    }
+
+                    log.debug("Event stream closed by server: {}", url);
+                } catch (IOException e) {
+
+                    if (cancelled) {
+                        return;
+                    }
+
+                    failures++;
+                    if (failures > maxRetries) {
+                        fail(e);
+                        return;
+                    }
+
+                    log.warn("Event stream failed, reconnecting: {} - {}", url, e.toString());
+                } catch (RuntimeException e) {
+                    // not recoverable by reconnecting (for instance url of other than HTTP connection)
+                    log.error("Event stream failed: {}", url, e);
+                    fail(e);
+                    return;
+                } finally {
+                    if (reader != null) {
+                        lastId = reader.getLastEventId();
+                    }
+
+                    HttpURLConnection current = connection;
+                    connection = null;
+                    if (current != null) {
+                        current.disconnect();
+                    }
+                }
+
+                if (!sleep(delay(failures, reader != null ? reader.getRetry() : -1))) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @return true if event can be delivered, false if subscription was cancelled
+         */
+        private boolean awaitDemand() {
+
+            Throwable error;
+            lock.lock();
+            try {
+                while (demand == 0 && !cancelled && failure == null) {
+                    signal.awaitUninterruptibly();
+                }
+
+                error = failure;
+                if (error == null && !cancelled) {
+                    if (demand != Long.MAX_VALUE) {
+                        demand--;
+                    }
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (error != null) {
+                fail(error);
+            }
+
+            return false;
+        }
+
+        /**
+         * @return false if cancelled while sleeping
+         */
+        private boolean sleep(long millis) {
+
+            long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+
+            lock.lock();
+            try {
+                long remaining;
+                while (!cancelled && (remaining = until - System.nanoTime()) > 0) {
+                    signal.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            } finally {
+                lock.unlock();
+            }
+
+            return !cancelled;
+        }
+
+        private void complete() {
+
+            if (!cancelled) {
+                cancelled = true;
+                subscriber.onComplete();
+            }
+        }
+
+        private void fail(Throwable error) {
+
+            if (!cancelled) {
+                cancelled = true;
+                subscriber.onError(error);
+            }
+        }
+    }
+}
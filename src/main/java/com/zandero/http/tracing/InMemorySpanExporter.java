@@ -0,0 +1,28 @@
+package com.zandero.http.tracing;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Collects spans in memory, for testing purposes
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+    private final List<Span> spans = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void export(Span span) {
+        spans.add(span);
+    }
+
+    /**
+     * @return exported spans in order of export
+     */
+    public List<Span> getSpans() {
+        return new ArrayList<>(spans);
+    }
+
+    public void clear() {
+        spans.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package com.zandero.http.tracing;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Timed operation of a trace, for instance an outbound call
+ * <p>
+ * Duration of each phase is measured from previous mark (or span start), span is exported once ended.
+ */
+public final class Span {
+
+    /**
+     * Phases of outbound call
+     */
+    public enum Phase {
+        /**
+         * waiting for pooled connection (connection was reused)
+         */
+        POOL_WAIT,
+        /**
+         * establishing new connection, including TLS handshake
+         */
+        CONNECT,
+        /**
+         * sending request until first response byte (headers) received
+         */
+        TTFB,
+        /**
+         * reading response body
+         */
+        DOWNLOAD
+    }
+
+    private final String name;
+
+    private final TraceContext context;
+
+    private final String parentId;
+
+    private final SpanExporter exporter;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final long startNanos = System.nanoTime();
+
+    private final Map<Phase, Long> durations = Collections.synchronizedMap(new EnumMap<>(Phase.class));
+
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private volatile long lastMark = startNanos;
+
+    private volatile long duration = -1;
+
+    private volatile int statusCode;
+
+    private volatile Throwable error;
+
+    Span(String spanName, TraceContext parent, SpanExporter spanExporter) {
+
+        name = spanName;
+        context = parent != null ? parent.child() : TraceContext.root();
+        parentId = parent != null ? parent.getSpanId() : null;
+        exporter = spanExporter;
+    }
+
+    /**
+     * Records phase lasting from previous mark until now
+     *
+     * @param phase to record
+     * @return span
+     */
+    public Span mark(Phase phase) {
+
+        long now = System.nanoTime();
+        durations.put(phase, now - lastMark);
+        lastMark = now;
+        return this;
+    }
+
+    public Span setStatusCode(int code) {
+        statusCode = code;
+        return this;
+    }
+
+    public Span setError(Throwable failure) {
+        error = failure;
+        return this;
+    }
+
+    /**
+     * Ends span and exports it, further calls are ignored
+     */
+    public void end() {
+
+        if (ended.compareAndSet(false, true)) {
+            duration = System.nanoTime() - startNanos;
+            if (exporter != null) {
+                exporter.export(this);
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return context of this span (propagated to downstream service)
+     */
+    public TraceContext getContext() {
+        return context;
+    }
+
+    public String getTraceId() {
+        return context.getTraceId();
+    }
+
+    public String getSpanId() {
+        return context.getSpanId();
+    }
+
+    /**
+     * @return span id of parent or null if span is root
+     */
+    public String getParentId() {
+        return parentId;
+    }
+
+    /**
+     * @return milliseconds since epoch when span started
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @param phase of call
+     * @return duration in nanoseconds or -1 if phase was not recorded
+     */
+    public long getDuration(Phase phase) {
+
+        Long value = durations.get(phase);
+        return value != null ? value : -1;
+    }
+
+    /**
+     * @return recorded phases with duration in nanoseconds
+     */
+    public Map<Phase, Long> getDurations() {
+
+        synchronized (durations) {
+            return new EnumMap<>(durations);
+        }
+    }
+
+    /**
+     * @return duration from start to end in nanoseconds or -1 if not ended
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    public boolean isEnded() {
+        return ended.get();
+    }
+
+    /**
+     * @return response status code or 0 if none
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return failure or null
+     */
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + context.getTraceId() + "/" + context.getSpanId() + "] " + getDurations();
+    }
+}
@@ -0,0 +1,15 @@
+package com.zandero.http.tracing;
+
+/**
+ * Receives ended spans, for instance to forward them to a tracing backend
+ * <p>
+ * Invoked on thread ending the span, implementation should not block.
+ */
+@FunctionalInterface
+public interface SpanExporter {
+
+    /**
+     * @param span ended span
+     */
+    void export(Span span);
+}
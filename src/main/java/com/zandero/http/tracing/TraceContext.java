@@ -0,0 +1,208 @@
+package com.zandero.http.tracing;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * W3C trace context (traceparent and tracestate headers)
+ * <p>
+ * see: https://www.w3.org/TR/trace-context/
+ */
+public final class TraceContext {
+
+    public static final String TRACEPARENT = "traceparent";
+
+    public static final String TRACESTATE = "tracestate";
+
+    private static final byte SAMPLED = 0x01;
+
+    private static final int TRACEPARENT_LENGTH = 55;
+
+    private static final int MAX_TRACESTATE_LENGTH = 512;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final String traceId;
+
+    private final String spanId;
+
+    private final byte flags;
+
+    private final String traceState;
+
+    private TraceContext(String trace, String span, byte traceFlags, String state) {
+
+        traceId = trace;
+        spanId = span;
+        flags = traceFlags;
+        traceState = state;
+    }
+
+    /**
+     * @return new sampled trace
+     */
+    public static TraceContext root() {
+        return new TraceContext(randomId(2), randomId(1), SAMPLED, null);
+    }
+
+    /**
+     * Parses W3C headers
+     *
+     * @param traceparent header value
+     * @param tracestate  header value or null
+     * @return trace context or null if traceparent is missing or invalid
+     */
+    public static TraceContext parse(String traceparent, String tracestate) {
+
+        if (traceparent == null) {
+            return null;
+        }
+
+        String value = traceparent.trim();
+        if (value.length() < TRACEPARENT_LENGTH || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-') {
+            return null;
+        }
+
+        String version = value.substring(0, 2);
+        if (!isHex(version) || "ff".equals(version)) {
+            return null;
+        }
+
+        // future versions may append fields, version 00 must be exact
+        if (value.length() > TRACEPARENT_LENGTH && ("00".equals(version) || value.charAt(TRACEPARENT_LENGTH) != '-')) {
+            return null;
+        }
+
+        String trace = value.substring(3, 35);
+        String span = value.substring(36, 52);
+        String traceFlags = value.substring(53, 55);
+
+        if (!isHex(trace) || !isHex(span) || !isHex(traceFlags) || isZero(trace) || isZero(span)) {
+            return null;
+        }
+
+        String state = tracestate != null ? tracestate.trim() : null;
+        if (state != null && (state.isEmpty() || state.length() > MAX_TRACESTATE_LENGTH)) {
+            state = null;
+        }
+
+        return new TraceContext(trace, span, (byte) Integer.parseInt(traceFlags, 16), state);
+    }
+
+    /**
+     * @return context of child span: same trace with new span id
+     */
+    public TraceContext child() {
+        return new TraceContext(traceId, randomId(1), flags, traceState);
+    }
+
+    /**
+     * @return 32 hex characters
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return 16 hex characters
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public boolean isSampled() {
+        return (flags & SAMPLED) != 0;
+    }
+
+    /**
+     * @return vendor specific trace state or null
+     */
+    public String getTraceState() {
+        return traceState;
+    }
+
+    /**
+     * @return traceparent header value
+     */
+    public String toTraceparent() {
+
+        return "00-" + traceId + "-" + spanId + "-" + HEX[(flags >> 4) & 0xF] + HEX[flags & 0xF];
+    }
+
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof TraceContext)) {
+            return false;
+        }
+
+        TraceContext other = (TraceContext) o;
+        return flags == other.flags &&
+               traceId.equals(other.traceId) &&
+               spanId.equals(other.spanId) &&
+               Objects.equals(traceState, other.traceState);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(traceId, spanId, flags, traceState);
+    }
+
+    @Override
+    public String toString() {
+        return toTraceparent();
+    }
+
+    /**
+     * @param longs number of 64 bit parts
+     * @return random non zero hex id
+     */
+    private static String randomId(int longs) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] chars = new char[longs * 16];
+
+        long first;
+        do {
+            first = random.nextLong();
+        } while (first == 0);
+
+        for (int i = 0; i < longs; i++) {
+
+            long value = i == 0 ? first : random.nextLong();
+            for (int j = 15; j >= 0; j--) {
+                chars[i * 16 + j] = HEX[(int) (value & 0xF)];
+                value >>>= 4;
+            }
+        }
+
+        return new String(chars);
+    }
+
+    private static boolean isHex(String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isZero(String value) {
+
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != '0') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
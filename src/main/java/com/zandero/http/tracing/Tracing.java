@@ -0,0 +1,220 @@
+package com.zandero.http.tracing;
+
+import org.apache.http.*;
+import org.apache.http.conn.*;
+import org.apache.http.entity.*;
+
+import javax.servlet.http.*;
+import java.io.*;
+import java.util.function.*;
+
+/**
+ * Propagates W3C trace context from inbound to outbound calls and exports spans of outbound calls
+ * <ul>
+ *     <li>inbound: trace context is extracted from request headers and activated for current thread (see {@link com.zandero.http.logging.RequestContext})</li>
+ *     <li>outbound: {@link com.zandero.http.Http} and {@link com.zandero.http.HttpUtils} inject traceparent of a child span and export span timings</li>
+ * </ul>
+ * Calls are traced once a trace is active on current thread or an exporter is set (new trace is started per call).
+ */
+public final class Tracing {
+
+    /**
+     * Context attribute holding span of call executed with HttpClient
+     */
+    public static final String SPAN_ATTRIBUTE = "com.zandero.http.tracing.span";
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private static volatile SpanExporter exporter;
+
+    private Tracing() {
+        // hide constructor
+    }
+
+    /**
+     * @param spanExporter exporter of spans or null to stop exporting
+     */
+    public static void setExporter(SpanExporter spanExporter) {
+        exporter = spanExporter;
+    }
+
+    /**
+     * @return trace context active on current thread or null if none
+     */
+    public static TraceContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Activates trace context on current thread
+     *
+     * @param context to activate or null to deactivate
+     * @return scope to be closed by same thread, restoring previously active context
+     */
+    public static Scope activate(TraceContext context) {
+
+        TraceContext previous = CURRENT.get();
+        set(context);
+        return new Scope(previous);
+    }
+
+    /**
+     * @param request servlet request
+     * @return trace context from traceparent and tracestate headers or null if missing or invalid
+     */
+    public static TraceContext extract(HttpServletRequest request) {
+
+        if (request == null) {
+            return null;
+        }
+
+        return TraceContext.parse(request.getHeader(TraceContext.TRACEPARENT), request.getHeader(TraceContext.TRACESTATE));
+    }
+
+    /**
+     * Starts span as child of active trace
+     *
+     * @param name of span
+     * @return span or null if no trace is active and no exporter is set
+     */
+    public static Span startSpan(String name) {
+
+        TraceContext parent = CURRENT.get();
+        SpanExporter spanExporter = exporter;
+
+        if (parent == null && spanExporter == null) {
+            return null;
+        }
+
+        return new Span(name, parent, spanExporter);
+    }
+
+    /**
+     * Adds traceparent (and tracestate) of span to outbound request
+     *
+     * @param span    of call or null
+     * @param headers setting request header
+     */
+    public static void inject(Span span, BiConsumer<String, String> headers) {
+
+        if (span == null) {
+            return;
+        }
+
+        headers.accept(TraceContext.TRACEPARENT, span.getContext().toTraceparent());
+        if (span.getContext().getTraceState() != null) {
+            headers.accept(TraceContext.TRACESTATE, span.getContext().getTraceState());
+        }
+    }
+
+    /**
+     * Ends span once response body is consumed (or immediately if response has no body)
+     *
+     * @param response of call
+     * @param span     of call or null
+     * @return response
+     */
+    public static HttpResponse trace(HttpResponse response, Span span) {
+
+        if (span == null) {
+            return response;
+        }
+
+        span.setStatusCode(response.getStatusLine().getStatusCode());
+
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            span.end();
+        } else {
+            response.setEntity(new TracedEntity(entity, span));
+        }
+
+        return response;
+    }
+
+    private static void set(TraceContext context) {
+
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    /**
+     * Active trace context, previous context is restored once closed
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final TraceContext previous;
+
+        private Scope(TraceContext previousContext) {
+            previous = previousContext;
+        }
+
+        @Override
+        public void close() {
+            set(previous);
+        }
+    }
+
+    /**
+     * Records download phase and ends span once content is fully read or closed
+     */
+    private static final class TracedEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+        private final Span span;
+
+        TracedEntity(HttpEntity entity, Span callSpan) {
+
+            super(entity);
+            span = callSpan;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            return new EofSensorInputStream(wrappedEntity.getContent(), this);
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+
+            try {
+                wrappedEntity.writeTo(out);
+            } catch (IOException | RuntimeException e) {
+                span.setError(e);
+                throw e;
+            } finally {
+                end();
+            }
+        }
+
+        @Override
+        public boolean eofDetected(InputStream wrapped) {
+
+            end();
+            return true;
+        }
+
+        @Override
+        public boolean streamClosed(InputStream wrapped) {
+
+            end();
+            return true;
+        }
+
+        @Override
+        public boolean streamAbort(InputStream wrapped) {
+
+            end();
+            return true;
+        }
+
+        private void end() {
+
+            if (!span.isEnded()) {
+                span.mark(Span.Phase.DOWNLOAD).end();
+            }
+        }
+    }
+}
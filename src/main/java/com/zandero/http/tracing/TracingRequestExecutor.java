@@ -0,0 +1,32 @@
+package com.zandero.http.tracing;
+
+import org.apache.http.*;
+import org.apache.http.protocol.*;
+
+import java.io.*;
+
+/**
+ * Request executor recording connection and time to first byte phases of span held in context ({@link Tracing#SPAN_ATTRIBUTE})
+ * <p>
+ * Executor is invoked once connection is leased and connected, time until then is recorded as connect phase
+ * for new connections or as pool wait for reused ones.
+ */
+public class TracingRequestExecutor extends HttpRequestExecutor {
+
+    @Override
+    public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+
+        Object attribute = context != null ? context.getAttribute(Tracing.SPAN_ATTRIBUTE) : null;
+        if (!(attribute instanceof Span)) {
+            return super.execute(request, conn, context);
+        }
+
+        Span span = (Span) attribute;
+        boolean reused = conn.getMetrics() != null && conn.getMetrics().getRequestCount() > 0;
+        span.mark(reused ? Span.Phase.POOL_WAIT : Span.Phase.CONNECT);
+
+        HttpResponse response = super.execute(request, conn, context);
+        span.mark(Span.Phase.TTFB);
+        return response;
+    }
+}
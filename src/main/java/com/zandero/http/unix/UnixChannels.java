@@ -0,0 +1,97 @@
+package com.zandero.http.unix;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+
+/**
+ * Opens unix domain socket channels, looked up reflectively as they are available on Java 16 or newer only
+ */
+final class UnixChannels {
+
+    private static final Method ADDRESS_OF;
+
+    private static final Method OPEN;
+
+    private static final ProtocolFamily UNIX;
+
+    static {
+        Method addressOf = null;
+        Method open = null;
+        ProtocolFamily unix = null;
+
+        try {
+            addressOf = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class);
+            open = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            unix = StandardProtocolFamily.valueOf("UNIX");
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            // not supported by this JVM
+        }
+
+        ADDRESS_OF = addressOf;
+        OPEN = open;
+        UNIX = unix;
+    }
+
+    private UnixChannels() {
+        // hide constructor
+    }
+
+    static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /**
+     * @param socket path of socket file
+     * @return address of socket
+     * @throws IOException in case unix domain sockets are not supported
+     */
+    static SocketAddress address(Path socket) throws IOException {
+
+        check();
+        return (SocketAddress) invoke(ADDRESS_OF, socket);
+    }
+
+    /**
+     * @param socket path of socket file
+     * @return blocking channel connected to socket
+     * @throws IOException in case connection failed or unix domain sockets are not supported
+     */
+    static SocketChannel open(Path socket) throws IOException {
+
+        check();
+
+        SocketChannel channel = (SocketChannel) invoke(OPEN, UNIX);
+        try {
+            channel.connect(address(socket));
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void check() throws IOException {
+
+        if (!isSupported()) {
+            throw new IOException("Unix domain sockets require Java 16 or newer, running: " + System.getProperty("java.version"));
+        }
+    }
+
+    private static Object invoke(Method method, Object argument) throws IOException {
+
+        try {
+            return method.invoke(null, argument);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IOException(e);
+        }
+    }
+}
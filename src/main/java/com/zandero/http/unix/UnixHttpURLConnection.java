@@ -0,0 +1,821 @@
+package com.zandero.http.unix;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * HTTP/1.1 connection over a unix domain socket, used through the {@link HttpURLConnection} API
+ * <p>
+ * Request body is streamed when fixed length or chunked streaming mode is set, buffered otherwise.
+ * Once response body is fully read the socket is kept for reuse. Connect time out is ignored, as connecting to a local socket does not block.
+ */
+class UnixHttpURLConnection extends HttpURLConnection {
+
+    private static final int MAX_IDLE_PER_SOCKET = 8;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * longest status, header or chunk size line accepted from server
+     */
+    private static final int MAX_LINE_LENGTH = 8 * 1024;
+
+    private static final Map<Path, Deque<SocketChannel>> IDLE = new ConcurrentHashMap<>();
+
+    /**
+     * Single daemon thread closing sockets once read time out expires
+     */
+    private static final ScheduledThreadPoolExecutor TIMER = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "http-unix-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private final Path socket;
+
+    /**
+     * channel owned by this connection, until closed or returned to idle channels
+     */
+    private final AtomicReference<SocketChannel> owned = new AtomicReference<>();
+
+    private final Map<String, List<String>> headers = new LinkedHashMap<>();
+
+    private final Map<String, String> lastValues = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final List<String[]> headerList = new ArrayList<>();
+
+    private volatile boolean disconnected;
+
+    private volatile boolean timedOut;
+
+    private Map<String, List<String>> requestHeaders;
+
+    private boolean reused;
+
+    private InputStream in;
+
+    private OutputStream out;
+
+    private OutputStream requestBody;
+
+    private ByteArrayOutputStream buffered;
+
+    private boolean requestSent;
+
+    private boolean responseStarted;
+
+    private String statusLine;
+
+    private InputStream body;
+
+    UnixHttpURLConnection(URL url, Path socketPath) {
+        super(url);
+        socket = socketPath;
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+
+        if (connected) {
+            return;
+        }
+
+        checkTarget();
+
+        // request properties are not accessible once connected
+        requestHeaders = getRequestProperties();
+        open(true);
+        connected = true;
+    }
+
+    /**
+     * @throws IllegalArgumentException in case name or value would break out of header line
+     */
+    @Override
+    public void setRequestProperty(String key, String value) {
+
+        checkHeader(key, value);
+        super.setRequestProperty(key, value);
+    }
+
+    /**
+     * @throws IllegalArgumentException in case name or value would break out of header line
+     */
+    @Override
+    public void addRequestProperty(String key, String value) {
+
+        checkHeader(key, value);
+        super.addRequestProperty(key, value);
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+
+        if (!doOutput) {
+            throw new ProtocolException("Can't write request body, call setDoOutput(true) first");
+        }
+
+        if (requestBody != null) {
+            return requestBody;
+        }
+
+        if (statusLine != null) {
+            throw new ProtocolException("Can't write request body once response is read");
+        }
+
+        connect();
+
+        long length = fixedContentLengthLong != -1 ? fixedContentLengthLong : fixedContentLength;
+        if (length >= 0) {
+            writeHead("Content-Length: " + length);
+            requestBody = new FixedLengthOutputStream(length);
+        } else if (chunkLength != -1) {
+            writeHead("Transfer-Encoding: chunked");
+            requestBody = new BufferedOutputStream(new ChunkedOutputStream(), chunkLength > 0 ? chunkLength : BUFFER_SIZE);
+        } else {
+            buffered = new ByteArrayOutputStream();
+            requestBody = buffered;
+        }
+
+        return requestBody;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+
+        if (!doInput) {
+            throw new ProtocolException("Can't read response body, doInput is false");
+        }
+
+        getResponse();
+
+        if (responseCode == HTTP_NOT_FOUND || responseCode == HTTP_GONE) {
+            throw new FileNotFoundException(url.toString());
+        }
+
+        if (responseCode >= HTTP_BAD_REQUEST) {
+            throw new IOException("Server returned HTTP response code: " + responseCode + " for URL: " + url);
+        }
+
+        return body;
+    }
+
+    @Override
+    public synchronized InputStream getErrorStream() {
+        return statusLine != null && responseCode >= HTTP_BAD_REQUEST ? body : null;
+    }
+
+    @Override
+    public synchronized int getResponseCode() throws IOException {
+
+        getResponse();
+        return responseCode;
+    }
+
+    @Override
+    public synchronized String getResponseMessage() throws IOException {
+
+        getResponse();
+        return responseMessage;
+    }
+
+    @Override
+    public synchronized String getHeaderField(String name) {
+        return response() ? lastValues.get(name) : null;
+    }
+
+    @Override
+    public synchronized String getHeaderField(int n) {
+
+        if (!response()) {
+            return null;
+        }
+
+        if (n == 0) {
+            return statusLine;
+        }
+
+        return n > 0 && n <= headerList.size() ? headerList.get(n - 1)[1] : null;
+    }
+
+    @Override
+    public synchronized String getHeaderFieldKey(int n) {
+        return response() && n > 0 && n <= headerList.size() ? headerList.get(n - 1)[0] : null;
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getHeaderFields() {
+        return response() ? Collections.unmodifiableMap(headers) : Collections.emptyMap();
+    }
+
+    @Override
+    public void disconnect() {
+
+        disconnected = true;
+        closeChannel();
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return false;
+    }
+
+    private boolean response() {
+
+        try {
+            getResponse();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Sends request (if not already sent) and reads response status and headers,
+     * a request without streamed body is sent again on a new socket in case reused socket was closed by server
+     */
+    private void getResponse() throws IOException {
+
+        if (statusLine != null) {
+            return;
+        }
+
+        connect();
+
+        boolean repeatable = requestBody == null || buffered != null;
+        try {
+            sendRequest();
+            readHead();
+        } catch (IOException e) {
+
+            if (!reused || !repeatable || responseStarted || disconnected || timedOut) {
+                closeChannel();
+                throw e;
+            }
+
+            closeChannel();
+            open(false);
+            requestSent = false;
+
+            sendRequest();
+            readHead();
+        }
+    }
+
+    private void sendRequest() throws IOException {
+
+        if (requestSent) {
+            return;
+        }
+
+        if (requestBody == null) {
+            boolean withBody = "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method);
+            writeHead(withBody ? "Content-Length: 0" : null);
+        } else if (buffered != null) {
+            writeHead("Content-Length: " + buffered.size());
+            buffered.writeTo(out);
+        } else {
+            requestBody.close();
+        }
+
+        out.flush();
+        requestSent = true;
+    }
+
+    private static void checkHeader(String name, String value) {
+
+        if (name != null) {
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c <= ' ' || c == ':' || c >= 0x7f) {
+                    throw new IllegalArgumentException("Invalid character in header name: " + name);
+                }
+            }
+        }
+
+        if (value != null && (value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0)) {
+            throw new IllegalArgumentException("Invalid line break in value of header: " + name);
+        }
+    }
+
+    /**
+     * Rejects request target or host that would break out of request line or Host header (white space or control characters)
+     */
+    private void checkTarget() throws MalformedURLException {
+
+        String target = url.getHost() + url.getFile();
+        for (int i = 0; i < target.length(); i++) {
+            char c = target.charAt(i);
+            if (c <= ' ' || c == 0x7f) {
+                throw new MalformedURLException("White space or control character in request target at index: " + i);
+            }
+        }
+    }
+
+    private void writeHead(String bodyHeader) throws IOException {
+
+        StringBuilder head = new StringBuilder(256);
+
+        String file = url.getFile();
+        head.append(method).append(' ').append(file == null || file.isEmpty() ? "/" : file).append(" HTTP/1.1\r\n");
+
+        head.append("Host: ").append(url.getHost());
+        if (url.getPort() > 0) {
+            head.append(':').append(url.getPort());
+        }
+        head.append("\r\n");
+
+        for (Map.Entry<String, List<String>> header : requestHeaders.entrySet()) {
+
+            String name = header.getKey();
+            if (name == null || "Host".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name) ||
+                "Transfer-Encoding".equalsIgnoreCase(name)) {
+                continue;
+            }
+
+            for (String value : header.getValue()) {
+                head.append(name).append(": ").append(value).append("\r\n");
+            }
+        }
+
+        if (bodyHeader != null) {
+            head.append(bodyHeader).append("\r\n");
+        }
+
+        head.append("\r\n");
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    private void readHead() throws IOException {
+
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                throw new SocketException("Unexpected end of stream, no response from: " + socket);
+            }
+
+            responseStarted = true;
+
+            // skip interim (1xx) responses
+            if (line.startsWith("HTTP/1.1 1") || line.startsWith("HTTP/1.0 1")) {
+                String header;
+                while ((header = readLine()) != null && !header.isEmpty()) {
+                    // headers of interim response
+                }
+                line = null;
+            }
+        } while (line == null);
+
+        String[] status = line.split(" ", 3);
+        if (status.length < 2 || !status[0].startsWith("HTTP/")) {
+            throw new ProtocolException("Invalid status line: " + line);
+        }
+
+        try {
+            responseCode = Integer.parseInt(status[1]);
+        } catch (NumberFormatException e) {
+            throw new ProtocolException("Invalid status line: " + line);
+        }
+
+        responseMessage = status.length > 2 ? status[2] : "";
+        statusLine = line;
+        headers.put(null, Collections.singletonList(line));
+
+        String header;
+        while ((header = readLine()) != null && !header.isEmpty()) {
+
+            int colon = header.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+
+            String name = header.substring(0, colon).trim();
+            String value = header.substring(colon + 1).trim();
+
+            headerList.add(new String[]{name, value});
+            lastValues.put(name, value);
+
+            String key = headers.keySet().stream().filter(name::equalsIgnoreCase).findFirst().orElse(name);
+            headers.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
+        }
+
+        if (header == null) {
+            throw new SocketException("Unexpected end of stream while reading headers from: " + socket);
+        }
+
+        String connection = lastValues.get("Connection");
+        boolean keepAlive = status[0].equals("HTTP/1.1") ? !"close".equalsIgnoreCase(connection) : "keep-alive".equalsIgnoreCase(connection);
+
+        String transferEncoding = lastValues.get("Transfer-Encoding");
+        String contentLength = lastValues.get("Content-Length");
+
+        if ("HEAD".equals(method) || responseCode == HTTP_NO_CONTENT || responseCode == HTTP_NOT_MODIFIED) {
+            body = new BodyInputStream(0, keepAlive);
+        } else if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+            body = new BodyInputStream(-1, keepAlive);
+        } else if (contentLength != null) {
+            try {
+                body = new BodyInputStream(Long.parseLong(contentLength), keepAlive);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid Content-Length: " + contentLength);
+            }
+        } else {
+            // delimited by end of stream ... socket can't be reused
+            body = new BodyInputStream(Long.MAX_VALUE, false);
+        }
+    }
+
+    /**
+     * @return line without line break or null at end of stream
+     * @throws ProtocolException in case line is longer than {@link #MAX_LINE_LENGTH}
+     */
+    private String readLine() throws IOException {
+
+        StringBuilder line = new StringBuilder(64);
+
+        int value;
+        while ((value = in.read()) >= 0) {
+            if (value == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+
+                return line.toString();
+            }
+
+            if (line.length() > MAX_LINE_LENGTH) {
+                throw new ProtocolException("Line exceeds " + MAX_LINE_LENGTH + " characters in response from: " + socket);
+            }
+
+            line.append((char) value);
+        }
+
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    private void open(boolean reuse) throws IOException {
+
+        SocketChannel channel = reuse ? poll() : null;
+        reused = channel != null;
+        if (channel == null) {
+            channel = UnixChannels.open(socket);
+        }
+
+        owned.set(channel);
+        in = new BufferedInputStream(new TimedInputStream(Channels.newInputStream(channel)), BUFFER_SIZE);
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+
+        if (disconnected) {
+            closeChannel();
+        }
+    }
+
+    private SocketChannel poll() {
+
+        Deque<SocketChannel> idle = IDLE.get(socket);
+        SocketChannel channel;
+        while (idle != null && (channel = idle.pollFirst()) != null) {
+            if (channel.isOpen()) {
+                return channel;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns channel to idle channels (most recently used are reused first)
+     */
+    private void release() {
+
+        SocketChannel channel = owned.getAndSet(null);
+        if (channel == null) {
+            return;
+        }
+
+        Deque<SocketChannel> idle = IDLE.computeIfAbsent(socket, path -> new ConcurrentLinkedDeque<>());
+        if (idle.size() < MAX_IDLE_PER_SOCKET) {
+            idle.offerFirst(channel);
+        } else {
+            closeQuietly(channel);
+        }
+    }
+
+    private void closeChannel() {
+
+        SocketChannel channel = owned.getAndSet(null);
+        if (channel != null) {
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Blocking channel reads can't time out, channel is closed by timer instead once read time out expires
+     */
+    private class TimedInputStream extends InputStream {
+
+        private final InputStream input;
+
+        TimedInputStream(InputStream channelInput) {
+            input = channelInput;
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            int timeOut = getReadTimeout();
+            ScheduledFuture<?> timer = timeOut > 0 ? TIMER.schedule(() -> {
+                timedOut = true;
+                closeChannel();
+            }, timeOut, TimeUnit.MILLISECONDS) : null;
+
+            try {
+                return input.read(buffer, offset, length);
+            } catch (IOException e) {
+                if (timedOut) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                throw e;
+            } finally {
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Response body delimited by content length (-1 for chunked), socket is released for reuse once fully read
+     */
+    private class BodyInputStream extends InputStream {
+
+        private final boolean keepAlive;
+
+        private final boolean chunked;
+
+        private final boolean untilEnd;
+
+        private long remaining;
+
+        private boolean chunkStarted;
+
+        private boolean done;
+
+        /**
+         * @param length   content length, -1 for chunked, {@link Long#MAX_VALUE} for body delimited by end of stream
+         * @param reusable true if socket can be reused once body is read
+         */
+        BodyInputStream(long length, boolean reusable) {
+
+            keepAlive = reusable;
+            chunked = length < 0;
+            untilEnd = length == Long.MAX_VALUE;
+            remaining = chunked ? 0 : length;
+
+            if (length == 0) {
+                end();
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+
+            if (done) {
+                return -1;
+            }
+
+            if (length == 0) {
+                return 0;
+            }
+
+            if (chunked && remaining == 0 && !nextChunk()) {
+                return -1;
+            }
+
+            int read = in.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read < 0) {
+                if (!untilEnd) {
+                    closeChannel();
+                    throw new EOFException("Unexpected end of response body from: " + socket);
+                }
+
+                end();
+                return -1;
+            }
+
+            remaining -= read;
+            if (remaining == 0 && !chunked) {
+                end();
+            }
+
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return done ? 0 : (int) Math.min(in.available(), remaining);
+        }
+
+        @Override
+        public void close() {
+
+            // remaining body already received (for instance end of chunked body after JSON) is skipped, so socket can be reused
+            try {
+                byte[] skipped = new byte[256];
+                int budget = BUFFER_SIZE;
+                while (!done && budget > 0 && in.available() > 0) {
+                    int read = read(skipped, 0, skipped.length);
+                    budget -= Math.max(read, 0);
+                }
+            } catch (IOException e) {
+                // can't be reused
+            }
+
+            if (!done) {
+                // not fully read ... socket can't be reused
+                done = true;
+                closeChannel();
+            }
+        }
+
+        /**
+         * @return false once last chunk is read
+         */
+        private boolean nextChunk() throws IOException {
+
+            if (remaining == 0 && chunkStarted) {
+                readCrlf();
+            }
+
+            String line = readLine();
+            if (line == null) {
+                throw new EOFException("Unexpected end of chunked response body from: " + socket);
+            }
+
+            int extension = line.indexOf(';');
+            try {
+                remaining = Long.parseLong((extension >= 0 ? line.substring(0, extension) : line).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new ProtocolException("Invalid chunk size: " + line);
+            }
+
+            chunkStarted = true;
+            if (remaining > 0) {
+                return true;
+            }
+
+            // trailers
+            String trailer;
+            while ((trailer = readLine()) != null && !trailer.isEmpty()) {
+                // ignored
+            }
+
+            end();
+            return false;
+        }
+
+        private void readCrlf() throws IOException {
+
+            String line = readLine();
+            if (line == null || !line.isEmpty()) {
+                throw new ProtocolException("Expected line break after chunk");
+            }
+        }
+
+        private void end() {
+
+            done = true;
+            if (keepAlive && !disconnected) {
+                release();
+            } else {
+                closeChannel();
+            }
+        }
+    }
+
+    private class FixedLengthOutputStream extends OutputStream {
+
+        private final long length;
+
+        private long written;
+
+        private boolean closed;
+
+        FixedLengthOutputStream(long contentLength) {
+            length = contentLength;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int count) throws IOException {
+
+            if (written + count > length) {
+                throw new IOException("Body exceeds fixed length of: " + length + " bytes");
+            }
+
+            out.write(buffer, offset, count);
+            written += count;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            if (written != length) {
+                throw new IOException("Body of: " + written + " bytes does not match fixed length of: " + length + " bytes");
+            }
+
+            out.flush();
+        }
+    }
+
+    private class ChunkedOutputStream extends OutputStream {
+
+        private boolean closed;
+
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int count) throws IOException {
+
+            if (count == 0) {
+                return;
+            }
+
+            out.write((Integer.toHexString(count) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.write(buffer, offset, count);
+            out.write('\r');
+            out.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            out.write(new byte[]{'0', '\r', '\n', '\r', '\n'});
+            out.flush();
+        }
+    }
+}
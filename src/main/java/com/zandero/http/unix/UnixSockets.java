@@ -0,0 +1,139 @@
+package com.zandero.http.unix;
+
+import com.zandero.utils.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Routes plain HTTP requests over unix domain sockets (Java 16 or newer), for instance to a sidecar on the same host
+ * <ul>
+ *     <li>by host: {@code register("sidecar", Paths.get("/run/sidecar.sock"))} sends {@code http://sidecar/...} over the socket</li>
+ *     <li>by scheme: {@code http+unix://%2Frun%2Fsidecar.sock/...} holds the url encoded socket path as host</li>
+ * </ul>
+ * Only registered sockets are used, an url with unix scheme given by a caller can't reach any other local socket.
+ * Requests are sent as HTTP/1.1, idle connections are kept for reuse per socket.
+ */
+public final class UnixSockets {
+
+    public static final String SCHEME = "http+unix";
+
+    private static final String PREFIX = SCHEME + "://";
+
+    private static final String LOCALHOST = "localhost";
+
+    private static final Map<String, Path> HOSTS = new ConcurrentHashMap<>();
+
+    private static final Map<Path, URLStreamHandler> HANDLERS = new ConcurrentHashMap<>();
+
+    private UnixSockets() {
+        // hide constructor
+    }
+
+    /**
+     * @return true if JVM supports unix domain sockets
+     */
+    public static boolean isSupported() {
+        return UnixChannels.isSupported();
+    }
+
+    /**
+     * Sends requests to given host over unix domain socket
+     *
+     * @param host   host name as used in urls
+     * @param socket path of socket file or null to remove mapping
+     */
+    public static void register(String host, Path socket) {
+
+        Assert.notNullOrEmptyTrimmed(host, "Missing host!");
+
+        String name = host.trim().toLowerCase(Locale.ROOT);
+        if (socket == null) {
+            HOSTS.remove(name);
+        } else {
+            HOSTS.put(name, socket.toAbsolutePath().normalize());
+        }
+    }
+
+    /**
+     * @param host host name
+     * @return socket registered for host or null if none
+     */
+    public static Path getSocket(String host) {
+        return host == null || HOSTS.isEmpty() ? null : HOSTS.get(host.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param url plain url or {@code http+unix://} url
+     * @return url, connecting over unix domain socket if url has unix scheme or a host with registered socket
+     * @throws MalformedURLException in case url is invalid or socket of unix scheme url is not registered
+     */
+    public static URL toUrl(String url) throws MalformedURLException {
+
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+
+        if (!url.regionMatches(true, 0, PREFIX, 0, PREFIX.length())) {
+            return toUrl(new URL(url));
+        }
+
+        int end = PREFIX.length();
+        while (end < url.length() && url.charAt(end) != '/' && url.charAt(end) != '?') {
+            end++;
+        }
+
+        String socket = URLDecoder.decode(url.substring(PREFIX.length(), end).replace("+", "%2B"), StandardCharsets.UTF_8);
+        if (socket.isEmpty()) {
+            throw new MalformedURLException("Missing socket path in: " + url);
+        }
+
+        Path path = Paths.get(socket).toAbsolutePath().normalize();
+        if (!HOSTS.containsValue(path)) {
+            throw new MalformedURLException("Unix domain socket not registered: " + socket);
+        }
+
+        String file = url.substring(end);
+        return new URL("http", LOCALHOST, -1, file.startsWith("/") ? file : "/" + file, getHandler(path));
+    }
+
+    /**
+     * @param url to route
+     * @return url connecting over unix domain socket if a socket is registered for host, given url otherwise
+     * @throws MalformedURLException in case url could not be rebuilt
+     */
+    public static URL toUrl(URL url) throws MalformedURLException {
+
+        Path socket = "http".equals(url.getProtocol()) ? getSocket(url.getHost()) : null;
+        if (socket == null) {
+            return url;
+        }
+
+        return new URL(url.getProtocol(), url.getHost(), url.getPort(), url.getFile(), getHandler(socket));
+    }
+
+    private static URLStreamHandler getHandler(Path socket) {
+        return HANDLERS.computeIfAbsent(socket.toAbsolutePath().normalize(), Handler::new);
+    }
+
+    private static final class Handler extends URLStreamHandler {
+
+        private final Path socket;
+
+        Handler(Path socketPath) {
+            socket = socketPath;
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url) {
+            return new UnixHttpURLConnection(url, socket);
+        }
+
+        @Override
+        protected URLConnection openConnection(URL url, Proxy proxy) {
+            return openConnection(url);
+        }
+    }
+}
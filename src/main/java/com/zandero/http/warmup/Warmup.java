@@ -0,0 +1,320 @@
+package com.zandero.http.warmup;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.client.protocol.*;
+import org.apache.http.conn.*;
+import org.apache.http.conn.routing.*;
+import org.apache.http.impl.conn.*;
+import org.slf4j.*;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+
+/**
+ * Opens pooled connections to downstream hosts before traffic arrives, so first requests don't pay for DNS, TCP and TLS set up
+ * <ul>
+ *     <li>given number of connections is opened to each host (TLS handshake included) in parallel and returned to the pool</li>
+ *     <li>optional synthetic requests are then executed with {@link HttpUtils} and {@link Http} to warm up the whole request path</li>
+ *     <li>{@link #isReady()} tells once warm-up is done, failures are logged and listed in {@link WarmupReport}</li>
+ * </ul>
+ * Warmed connections are kept in the pool for the keep-alive time (60s by default) or until closed by the server.
+ *
+ * <pre>
+ * HttpUtils.setConnectionManager(HttpUtils.createConnectionManager(200, 20));
+ * new Warmup().addHost("https://api.example.com", 10)
+ *             .addRequest("https://api.example.com/health")
+ *             .setRounds(50)
+ *             .start();
+ * </pre>
+ */
+public class Warmup {
+
+    private static final Logger log = LoggerFactory.getLogger(Warmup.class);
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "http-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClientConnectionManager manager;
+
+    private final Map<HttpRoute, Integer> hosts = new LinkedHashMap<>();
+
+    private final List<String> urls = new ArrayList<>();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final CompletableFuture<WarmupReport> result = new CompletableFuture<>();
+
+    private int rounds = 1;
+
+    private int timeOutInMs = 5000;
+
+    private long keepAliveInMs = TimeUnit.SECONDS.toMillis(60);
+
+    /**
+     * Warms up connection pool of {@link HttpUtils}
+     *
+     * @throws IllegalArgumentException in case pooling is not enabled with {@link HttpUtils#setConnectionManager(HttpClientConnectionManager)}
+     */
+    public Warmup() {
+        this(HttpUtils.getConnectionManager());
+    }
+
+    /**
+     * @param connectionManager to open connections with
+     */
+    public Warmup(HttpClientConnectionManager connectionManager) {
+
+        Assert.notNull(connectionManager, "Missing connection manager, enable pooling with HttpUtils.setConnectionManager()!");
+        manager = connectionManager;
+    }
+
+    /**
+     * @param url         of host, only scheme, host and port are considered
+     * @param connections number of connections to open, limited by max connections per route of pool
+     * @return warm-up
+     */
+    public Warmup addHost(String url, int connections) {
+
+        Assert.isTrue(connections > 0, "Expected connections > 0!");
+        hosts.merge(toRoute(url), connections, Math::max);
+        return this;
+    }
+
+    /**
+     * @param url to GET once connections are open, a non 2xx response is reported as failure
+     * @return warm-up
+     */
+    public Warmup addRequest(String url) {
+
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+        urls.add(url.trim());
+        return this;
+    }
+
+    /**
+     * @param count number of times each synthetic request is executed (1 by default)
+     * @return warm-up
+     */
+    public Warmup setRounds(int count) {
+
+        Assert.isTrue(count > 0, "Expected rounds > 0!");
+        rounds = count;
+        return this;
+    }
+
+    /**
+     * @param timeOut time out in ms of each connection attempt and synthetic request (5s by default)
+     * @return warm-up
+     */
+    public Warmup setTimeout(int timeOut) {
+
+        Assert.isTrue(timeOut > 0, "Expected time out > 0!");
+        timeOutInMs = timeOut;
+        return this;
+    }
+
+    /**
+     * @param keepAlive time warmed connections are kept in pool when not used
+     * @param unit      time unit
+     * @return warm-up
+     */
+    public Warmup setKeepAlive(long keepAlive, TimeUnit unit) {
+
+        Assert.isTrue(keepAlive > 0, "Expected keep alive > 0!");
+        Assert.notNull(unit, "Missing time unit!");
+        keepAliveInMs = unit.toMillis(keepAlive);
+        return this;
+    }
+
+    /**
+     * Starts warm-up on daemon threads, subsequent calls return the same future
+     *
+     * @return report once warm-up is done
+     */
+    public CompletableFuture<WarmupReport> start() {
+
+        if (started.compareAndSet(false, true)) {
+            CompletableFuture.supplyAsync(this::warmUp, EXECUTOR)
+                             .whenComplete((report, error) -> {
+                                 if (error != null) {
+                                     result.completeExceptionally(error);
+                                 } else {
+                                     result.complete(report);
+                                 }
+                             });
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts warm-up (if not already started) and waits for it to finish
+     *
+     * @return report
+     * @throws InterruptedException in case interrupted while waiting
+     */
+    public WarmupReport run() throws InterruptedException {
+
+        try {
+            return start().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Warm-up failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * @return true once warm-up is done (also when some connections or requests failed), to be used in readiness checks
+     */
+    public boolean isReady() {
+        return result.isDone();
+    }
+
+    /**
+     * @return report or null if warm-up is not done yet
+     */
+    public WarmupReport getReport() {
+        return result.isDone() && !result.isCompletedExceptionally() ? result.join() : null;
+    }
+
+    private WarmupReport warmUp() {
+
+        long start = System.nanoTime();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        Map<HttpRoute, CompletableFuture<Integer>> opening = new LinkedHashMap<>();
+        hosts.forEach((route, count) -> opening.put(route, CompletableFuture.supplyAsync(() -> open(route, count, failures), EXECUTOR)));
+
+        Map<String, Integer> connections = new LinkedHashMap<>();
+        opening.forEach((route, opened) -> connections.put(getName(route), opened.join()));
+
+        // synthetic requests once connections are in pool
+        AtomicInteger requests = new AtomicInteger();
+        CompletableFuture.allOf(urls.stream()
+                                    .map(url -> CompletableFuture.runAsync(() -> request(url, failures, requests), EXECUTOR))
+                                    .toArray(CompletableFuture[]::new))
+                         .join();
+
+        WarmupReport report = new WarmupReport(connections, requests.get(), failures, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (report.isSuccess()) {
+            log.info("{}", report);
+        } else {
+            log.warn("{}: {}", report, report.getFailures());
+        }
+
+        return report;
+    }
+
+    /**
+     * Leases all connections at once (so none is reused), connects them in parallel and returns them to the pool
+     */
+    private int open(HttpRoute route, int count, List<String> failures) {
+
+        int connections = count;
+        if (manager instanceof PoolingHttpClientConnectionManager) {
+            connections = Math.min(connections, ((PoolingHttpClientConnectionManager) manager).getMaxPerRoute(route));
+        }
+
+        List<HttpClientConnection> leased = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                leased.add(manager.requestConnection(route, null).get(timeOutInMs, TimeUnit.MILLISECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failures.add(getName(route) + ": interrupted");
+        } catch (ExecutionException | ConnectionPoolTimeoutException e) {
+            failures.add(getName(route) + ": " + e.getMessage());
+        }
+
+        List<CompletableFuture<Boolean>> connecting = leased.stream()
+                                                            .map(connection -> CompletableFuture.supplyAsync(() -> connect(connection, route, failures), EXECUTOR))
+                                                            .collect(Collectors.toList());
+
+        int opened = 0;
+        for (int i = 0; i < leased.size(); i++) {
+
+            if (connecting.get(i).join()) {
+                opened++;
+            }
+
+            HttpClientConnection connection = leased.get(i);
+            manager.releaseConnection(connection, null, connection.isOpen() ? keepAliveInMs : 0, TimeUnit.MILLISECONDS);
+        }
+
+        return opened;
+    }
+
+    private boolean connect(HttpClientConnection connection, HttpRoute route, List<String> failures) {
+
+        try {
+            if (!connection.isOpen()) {
+                HttpClientContext context = HttpClientContext.create();
+                manager.connect(connection, route, timeOutInMs, context);
+                manager.routeComplete(connection, route, context);
+            }
+
+            return true;
+        } catch (IOException e) {
+            failures.add(getName(route) + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void request(String url, List<String> failures, AtomicInteger succeeded) {
+
+        int timeOutInSeconds = Math.max(1, (timeOutInMs + 999) / 1000);
+
+        for (int round = 0; round < rounds; round++) {
+
+            try (ManagedResponse response = HttpUtils.executeManaged(HttpUtils.get(url, null, timeOutInSeconds))) {
+                if (response.isSuccess()) {
+                    succeeded.incrementAndGet();
+                } else {
+                    failures.add(url + ": " + response.getStatusCode());
+                }
+            } catch (IOException | RuntimeException e) {
+                failures.add(url + ": " + e.getMessage());
+            }
+
+            try {
+                Http.Response response = Http.get(url, null, null, timeOutInMs, timeOutInMs);
+                if (response.getCode() >= 200 && response.getCode() < 300) {
+                    succeeded.incrementAndGet();
+                } else {
+                    failures.add(url + ": " + response.getCode());
+                }
+            } catch (Http.HttpException e) {
+                failures.add(url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static HttpRoute toRoute(String url) {
+
+        Assert.notNullOrEmptyTrimmed(url, "Missing url!");
+
+        URI uri = URI.create(url.trim());
+        String scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase(Locale.ROOT) : null;
+        Assert.isTrue("http".equals(scheme) || "https".equals(scheme), "Expected http(s) url: " + url);
+        Assert.notNull(uri.getHost(), "Missing host in url: " + url);
+
+        boolean secure = "https".equals(scheme);
+        int port = uri.getPort() > 0 ? uri.getPort() : secure ? 443 : 80;
+
+        // same route as planned by client for requests to this host, so warmed connections are leased for them
+        return new HttpRoute(new HttpHost(uri.getHost(), port, scheme), null, secure);
+    }
+
+    private static String getName(HttpRoute route) {
+        return route.getTargetHost().toURI();
+    }
+}
@@ -0,0 +1,62 @@
+package com.zandero.http.warmup;
+
+import java.util.*;
+
+/**
+ * Outcome of {@link Warmup}, suitable to be exposed by a health check
+ */
+public final class WarmupReport {
+
+    private final Map<String, Integer> connections;
+
+    private final int requests;
+
+    private final List<String> failures;
+
+    private final long durationInMs;
+
+    WarmupReport(Map<String, Integer> openedConnections, int executedRequests, List<String> failureMessages, long duration) {
+
+        connections = Collections.unmodifiableMap(new LinkedHashMap<>(openedConnections));
+        requests = executedRequests;
+        failures = Collections.unmodifiableList(new ArrayList<>(failureMessages));
+        durationInMs = duration;
+    }
+
+    /**
+     * @return number of pooled connections ready per host (scheme://host:port)
+     */
+    public Map<String, Integer> getConnections() {
+        return connections;
+    }
+
+    /**
+     * @return number of synthetic requests that succeeded
+     */
+    public int getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return failed connection attempts and synthetic requests
+     */
+    public List<String> getFailures() {
+        return failures;
+    }
+
+    public long getDurationInMs() {
+        return durationInMs;
+    }
+
+    /**
+     * @return true if all connections were opened and all synthetic requests succeeded
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Warm-up in " + durationInMs + "ms, connections: " + connections + ", requests: " + requests + ", failures: " + failures.size();
+    }
+}
@@ -0,0 +1,114 @@
+package com.zandero.http.webhook;
+
+import com.zandero.utils.*;
+import org.apache.http.entity.*;
+
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Webhook POSTed to destination url
+ */
+public final class Webhook {
+
+    public static final String JSON = "application/json";
+
+    private final String url;
+
+    private final String contentType;
+
+    private final byte[] body;
+
+    private final Map<String, String> headers;
+
+    private final String destination;
+
+    /**
+     * @param targetUrl   url to POST to
+     * @param type        content type of body or null
+     * @param content     body
+     * @param httpHeaders additional request headers or null
+     * @throws IllegalArgumentException in case url or content type is invalid
+     */
+    public Webhook(String targetUrl, String type, byte[] content, Map<String, String> httpHeaders) {
+
+        Assert.notNullOrEmptyTrimmed(targetUrl, "Missing url!");
+
+        URI uri = URI.create(targetUrl.trim());
+        Assert.isTrue("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()), "Expected http(s) url: " + targetUrl);
+        Assert.notNull(uri.getHost(), "Missing host in url: " + targetUrl);
+
+        if (type != null) {
+            try {
+                ContentType.parse(type);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid content type: " + type, e);
+            }
+        }
+
+        url = uri.toString();
+        contentType = type;
+        body = content != null ? content : new byte[0];
+        headers = httpHeaders == null || httpHeaders.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(new LinkedHashMap<>(httpHeaders));
+        destination = getDestination(uri);
+    }
+
+    /**
+     * @param url  to POST to
+     * @param json body
+     * @return JSON webhook
+     */
+    public static Webhook json(String url, String json) {
+        return new Webhook(url, JSON, json != null ? json.getBytes(StandardCharsets.UTF_8) : null, null);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * @return scheme, host and port of url, webhooks to same destination are delivered in order
+     */
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public String toString() {
+        return "POST " + url + " (" + body.length + " bytes)";
+    }
+
+    /**
+     * @param url of webhook
+     * @return scheme, host and port of url
+     */
+    static String getDestination(String url) {
+        return getDestination(URI.create(url));
+    }
+
+    private static String getDestination(URI uri) {
+        return uri.getScheme().toLowerCase(Locale.ROOT) + "://" + uri.getHost().toLowerCase(Locale.ROOT) + ":" + getPort(uri);
+    }
+
+    private static int getPort(URI uri) {
+
+        if (uri.getPort() > 0) {
+            return uri.getPort();
+        }
+
+        return "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+}
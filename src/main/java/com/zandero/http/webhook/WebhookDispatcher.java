@@ -0,0 +1,486 @@
+package com.zandero.http.webhook;
+
+import com.zandero.http.*;
+import com.zandero.utils.*;
+import org.apache.http.*;
+import org.apache.http.client.config.*;
+import org.apache.http.client.methods.*;
+import org.apache.http.entity.*;
+import org.apache.http.util.*;
+import org.slf4j.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Delivers webhooks at least once, surviving restarts of process
+ * <ul>
+ *     <li>webhooks are appended to a memory mapped log on disk before delivery, log is flushed to disk in batches</li>
+ *     <li>webhooks to same destination (scheme, host and port) are delivered in order of submission by the same worker,
+ *     with limited number of concurrent deliveries (one by default: next webhook is delivered once previous one succeeded or was given up)</li>
+ *     <li>failed deliveries (connection errors, 408, 429 and 5xx responses) are retried with exponential backoff, other responses are not retried</li>
+ *     <li>webhooks not delivered when process stops are delivered once dispatcher is started again</li>
+ *     <li>bodies of pending webhooks are kept in the log only and read when sent, each pending webhook holds its url and log position in memory</li>
+ * </ul>
+ * Webhooks are POSTed with the shared asynchronous client of {@link HttpUtils}, a 2xx response marks webhook as delivered.
+ *
+ * <pre>
+ * WebhookDispatcher dispatcher = new WebhookDispatcher(Paths.get("/var/lib/app/webhooks")).start();
+ * dispatcher.submit(Webhook.json("https://example.com/hook", "{\"event\":\"created\"}"));
+ * </pre>
+ */
+public class WebhookDispatcher implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private final Path directory;
+
+    private int workerCount = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private int maxInFlightPerDestination = 1;
+
+    private int maxAttempts = 10;
+
+    private long initialBackoff = 500;
+
+    private long maxBackoff = TimeUnit.MINUTES.toMillis(5);
+
+    private long flushInterval = 10;
+
+    private int timeout = 10_000;
+
+    private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final LongAdder delivered = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running;
+
+    private WebhookLog webhookLog;
+
+    private Worker[] workers;
+
+    private ScheduledExecutorService flusher;
+
+    /**
+     * @param logDirectory directory of webhook log, must not be shared with other dispatchers
+     */
+    public WebhookDispatcher(Path logDirectory) {
+
+        Assert.notNull(logDirectory, "Missing log directory!");
+        directory = logDirectory;
+    }
+
+    /**
+     * @param workers number of worker threads, destinations are spread among workers
+     * @return dispatcher
+     */
+    public WebhookDispatcher setWorkers(int workers) {
+
+        Assert.isTrue(workers > 0, "Expected workers > 0!");
+        checkNotStarted();
+        workerCount = workers;
+        return this;
+    }
+
+    /**
+     * @param maxInFlight max concurrent deliveries per destination, 1 to deliver strictly in order
+     * @return dispatcher
+     */
+    public WebhookDispatcher setMaxInFlightPerDestination(int maxInFlight) {
+
+        Assert.isTrue(maxInFlight > 0, "Expected max in flight > 0!");
+        checkNotStarted();
+        maxInFlightPerDestination = maxInFlight;
+        return this;
+    }
+
+    /**
+     * @param attempts max delivery attempts before webhook is given up
+     * @param initial  delay before first retry, doubled with each further attempt
+     * @param max      max delay between attempts
+     * @param unit     time unit of delays
+     * @return dispatcher
+     */
+    public WebhookDispatcher setRetry(int attempts, long initial, long max, TimeUnit unit) {
+
+        Assert.isTrue(attempts > 0, "Expected attempts > 0!");
+        Assert.isTrue(initial > 0 && max >= initial, "Expected 0 < initial delay <= max delay!");
+        Assert.notNull(unit, "Missing time unit!");
+        checkNotStarted();
+
+        maxAttempts = attempts;
+        initialBackoff = unit.toMillis(initial);
+        maxBackoff = unit.toMillis(max);
+        return this;
+    }
+
+    /**
+     * @param interval time between flushes of log to disk, submitted webhooks are durable once flushed
+     * @param unit     time unit
+     * @return dispatcher
+     */
+    public WebhookDispatcher setFlushInterval(long interval, TimeUnit unit) {
+
+        Assert.isTrue(interval > 0, "Expected flush interval > 0!");
+        checkNotStarted();
+        flushInterval = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * @param timeOutInMs connect and read time out of single delivery
+     * @return dispatcher
+     */
+    public WebhookDispatcher setTimeout(int timeOutInMs) {
+
+        Assert.isTrue(timeOutInMs > 0, "Expected time out > 0!");
+        checkNotStarted();
+        timeout = timeOutInMs;
+        return this;
+    }
+
+    /**
+     * @param bytes size of log segment files, limits size of single webhook
+     * @return dispatcher
+     */
+    public WebhookDispatcher setSegmentSize(int bytes) {
+
+        checkNotStarted();
+        segmentSize = bytes;
+        return this;
+    }
+
+    /**
+     * Opens log and starts delivering webhooks left pending by previous run
+     *
+     * @return started dispatcher
+     * @throws IOException in case log could not be opened
+     */
+    public synchronized WebhookDispatcher start() throws IOException {
+
+        checkNotStarted();
+
+        webhookLog = new WebhookLog(directory, segmentSize);
+
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Worker(i);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "webhook-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        running = true;
+
+        List<WebhookLog.Record> recovered = webhookLog.getRecovered();
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} pending webhooks from: {}", recovered.size(), directory);
+        }
+
+        for (WebhookLog.Record record : recovered) {
+            pending.incrementAndGet();
+            getWorker(record.destination).enqueue(new Delivery(record));
+        }
+
+        return this;
+    }
+
+    /**
+     * Appends webhook to log and schedules delivery
+     *
+     * @param webhook to deliver
+     * @return completed once webhook is flushed to disk
+     * @throws IOException in case webhook could not be appended to log
+     */
+    public CompletableFuture<Void> submit(Webhook webhook) throws IOException {
+
+        Assert.notNull(webhook, "Missing webhook!");
+        Assert.isTrue(running, "Dispatcher is not running!");
+
+        WebhookLog.Record record = webhookLog.append(webhook, 0, 0);
+        pending.incrementAndGet();
+        getWorker(record.destination).enqueue(new Delivery(record));
+
+        return webhookLog.whenDurable(record.sequence);
+    }
+
+    /**
+     * @return number of webhooks submitted (or recovered) but not yet delivered or given up
+     */
+    public long getPending() {
+        return pending.get();
+    }
+
+    /**
+     * @return number of delivered webhooks
+     */
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    /**
+     * @return number of given up webhooks
+     */
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops dispatcher, webhooks not yet delivered are delivered once started again
+     */
+    @Override
+    public synchronized void close() {
+
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        flusher.shutdownNow();
+
+        for (Worker worker : workers) {
+            worker.executor.shutdownNow();
+        }
+
+        webhookLog.close();
+    }
+
+    private void flush() {
+
+        try {
+            webhookLog.flush();
+        } catch (RuntimeException e) {
+            log.error("Failed to flush webhook log: {}", e.getMessage(), e);
+        }
+    }
+
+    private Worker getWorker(String destination) {
+        return workers[Math.floorMod(destination.hashCode(), workers.length)];
+    }
+
+    private long getBackoff(int attempts) {
+
+        long delay = initialBackoff << Math.min(attempts - 1, 30);
+        if (delay <= 0 || delay > maxBackoff) {
+            delay = maxBackoff;
+        }
+
+        // equal jitter ... spreads retries of many webhooks failing at once
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private static boolean isRetryable(int status) {
+        return status < 0 || status == HttpStatus.SC_REQUEST_TIMEOUT || status == 429 || status >= 500;
+    }
+
+    private void checkNotStarted() {
+        Assert.isFalse(running, "Dispatcher is already started!");
+    }
+
+    /**
+     * Owns queues of its destinations, all queue operations are made on worker thread
+     */
+    private class Worker {
+
+        private final ScheduledExecutorService executor;
+
+        private final Map<String, Destination> destinations = new HashMap<>();
+
+        Worker(int index) {
+
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "webhook-worker-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void enqueue(Delivery delivery) {
+
+            execute(() -> {
+                Destination destination = destinations.computeIfAbsent(delivery.record.destination, Destination::new);
+                destination.queue.add(delivery);
+                pump(destination);
+            });
+        }
+
+        private void pump(Destination destination) {
+
+            long now = System.currentTimeMillis();
+            while (running && destination.inFlight < maxInFlightPerDestination) {
+
+                Delivery next = destination.queue.peek();
+                if (next == null) {
+                    break;
+                }
+
+                if (next.notBefore > now) {
+                    wakeUp(destination, next.notBefore - now);
+                    break;
+                }
+
+                destination.queue.poll();
+                destination.inFlight++;
+                send(destination, next);
+            }
+
+            if (destination.queue.isEmpty() && destination.inFlight == 0) {
+                destinations.remove(destination.key);
+            }
+        }
+
+        private void wakeUp(Destination destination, long delay) {
+
+            if (destination.wakeUp != null && !destination.wakeUp.isDone()) {
+                return;
+            }
+
+            try {
+                destination.wakeUp = executor.schedule(() -> pump(destination), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // stopped ... webhook stays pending in log
+            }
+        }
+
+        private void send(Destination destination, Delivery delivery) {
+
+            Webhook webhook;
+            try {
+                webhook = webhookLog.read(delivery.record);
+            } catch (IOException | RuntimeException e) {
+                // not retried ... record is unreadable
+                log.error("Failed to read webhook: {} from log: {}", delivery.record.url, e.getMessage(), e);
+                execute(() -> completed(destination, delivery, 0, e));
+                return;
+            }
+
+            CompletableFuture<HttpResponse> call;
+            try {
+                HttpPost post = new HttpPost(webhook.getUrl());
+                webhook.getHeaders().forEach(post::setHeader);
+                post.setEntity(new ByteArrayEntity(webhook.getBody(), webhook.getContentType() != null ? ContentType.parse(webhook.getContentType()) : null));
+                post.setConfig(RequestConfig.custom()
+                                            .setConnectTimeout(timeout)
+                                            .setConnectionRequestTimeout(timeout)
+                                            .setSocketTimeout(timeout)
+                                            .build());
+
+                call = HttpUtils.executeAsync(post);
+            } catch (RuntimeException e) {
+                // not retried ... request can't be built, destination must not stay blocked by in flight count
+                log.error("Failed to send webhook: {}: {}", delivery.record.url, e.getMessage(), e);
+                execute(() -> completed(destination, delivery, 0, e));
+                return;
+            }
+
+            call.whenComplete((response, error) -> {
+
+                int status = response != null ? response.getStatusLine().getStatusCode() : -1;
+                if (response != null) {
+                    EntityUtils.consumeQuietly(response.getEntity());
+                }
+
+                execute(() -> completed(destination, delivery, status, error));
+            });
+        }
+
+        private void completed(Destination destination, Delivery delivery, int status, Throwable error) {
+
+            destination.inFlight--;
+            if (!running) {
+                return;
+            }
+
+            WebhookLog.Record record = delivery.record;
+            int attempts = ++delivery.attempts;
+
+            if (status >= 200 && status < 300) {
+                webhookLog.setStatus(record, WebhookLog.DELIVERED);
+                pending.decrementAndGet();
+                delivered.increment();
+            } else if (!isRetryable(status) || attempts >= maxAttempts) {
+                log.warn("Giving up webhook: POST {} after {} attempt(s), last status: {}, error: {}",
+                         record.url, attempts, status, error != null ? error.getMessage() : null);
+
+                webhookLog.setStatus(record, WebhookLog.DEAD);
+                pending.decrementAndGet();
+                failed.increment();
+            } else {
+                retry(destination, delivery, attempts);
+            }
+
+            pump(destination);
+        }
+
+        private void retry(Destination destination, Delivery delivery, int attempts) {
+
+            long notBefore = System.currentTimeMillis() + getBackoff(attempts);
+            try {
+                delivery.record = webhookLog.retry(delivery.record, attempts, notBefore);
+            } catch (IOException | RuntimeException e) {
+                // retried with previous record ... attempt is counted in memory only
+                log.error("Failed to append webhook retry: {}", e.getMessage(), e);
+            }
+
+            // head of queue ... keeps order of destination
+            delivery.notBefore = notBefore;
+            destination.queue.addFirst(delivery);
+        }
+
+        private void execute(Runnable task) {
+
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // stopped ... webhook stays pending in log
+            }
+        }
+    }
+
+    private static class Destination {
+
+        private final String key;
+
+        private final Deque<Delivery> queue = new ArrayDeque<>();
+
+        private int inFlight;
+
+        private ScheduledFuture<?> wakeUp;
+
+        Destination(String destinationKey) {
+            key = destinationKey;
+        }
+    }
+
+    private static class Delivery {
+
+        private WebhookLog.Record record;
+
+        /**
+         * failed attempts, also counted when retry could not be appended to log
+         */
+        private int attempts;
+
+        private long notBefore;
+
+        Delivery(WebhookLog.Record webhookRecord) {
+
+            record = webhookRecord;
+            attempts = webhookRecord.attempts;
+            notBefore = webhookRecord.notBefore;
+        }
+    }
+}
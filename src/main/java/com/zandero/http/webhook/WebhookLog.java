@@ -0,0 +1,531 @@
+package com.zandero.http.webhook;
+
+import com.zandero.utils.*;
+import org.slf4j.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
+import java.util.zip.*;
+
+/**
+ * Append only log of webhooks in memory mapped segment files
+ * <ul>
+ *     <li>record: length, status, crc, sequence, attempts, not before, url, content type, headers, body</li>
+ *     <li>status byte is flipped in place once webhook is delivered, given up or superseded by a retry record</li>
+ *     <li>appends are made durable in batches by {@link #flush()}, {@link #whenDurable(long)} completes once record is flushed</li>
+ *     <li>full segments are sealed and deleted once none of their records is pending (compaction)</li>
+ *     <li>on open pending records are recovered, torn (partially written) records at the end of a segment are ignored</li>
+ *     <li>records keep only url and position in memory, webhook is read from segment with {@link #read(Record)} when delivered</li>
+ * </ul>
+ */
+final class WebhookLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookLog.class);
+
+    static final byte PENDING = 1;
+    static final byte DELIVERED = 2;
+    static final byte DEAD = 3;
+    static final byte SUPERSEDED = 4;
+
+    private static final int STATUS_OFFSET = 4;
+    private static final int CRC_OFFSET = 5;
+    private static final int DATA_OFFSET = 9;
+
+    /**
+     * length (4), status (1), crc (4), sequence (8), attempts (4), not before (8)
+     */
+    private static final int HEADER = DATA_OFFSET + 8 + 4 + 8;
+
+    private static final String PREFIX = "webhooks-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    private final ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final Object flushLock = new Object();
+
+    private final List<Record> recovered = new ArrayList<>();
+
+    /**
+     * guarded by this
+     */
+    private Segment active;
+
+    /**
+     * guarded by this
+     */
+    private long sequence;
+
+    private volatile long appended;
+
+    private volatile long flushed;
+
+    /**
+     * Opens log recovering pending records of existing segments
+     *
+     * @param logDirectory directory of segment files
+     * @param maxSegmentSize size of segment files in bytes
+     * @throws IOException in case log could not be opened
+     */
+    WebhookLog(Path logDirectory, int maxSegmentSize) throws IOException {
+
+        Assert.notNull(logDirectory, "Missing directory!");
+        Assert.isTrue(maxSegmentSize > HEADER * 2, "Expected segment size > " + HEADER * 2 + "!");
+
+        directory = Files.createDirectories(logDirectory);
+        segmentSize = maxSegmentSize;
+
+        long lastId = 0;
+        for (Path path : list()) {
+
+            Segment segment = Segment.open(path, parseId(path));
+            lastId = Math.max(lastId, segment.id);
+            segment.sealed = true;
+
+            sequence = Math.max(sequence, recover(segment));
+            if (segment.pending.get() == 0) {
+                delete(segment);
+            } else {
+                segments.put(segment.id, segment);
+            }
+        }
+
+        appended = sequence;
+        flushed = sequence;
+        active = newSegment(lastId + 1);
+    }
+
+    /**
+     * @return pending records found when log was opened, in order of append
+     */
+    List<Record> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * @param webhook   to append
+     * @param attempts  number of failed delivery attempts
+     * @param notBefore time (epoch millis) of next delivery attempt
+     * @return appended record
+     * @throws IOException in case new segment could not be created
+     */
+    synchronized Record append(Webhook webhook, int attempts, long notBefore) throws IOException {
+
+        byte[] data = encode(webhook);
+        int length = HEADER + data.length;
+        Assert.isTrue(length <= segmentSize, "Webhook exceeds max segment size of " + segmentSize + " bytes: " + webhook);
+
+        if (active.buffer.remaining() < length) {
+            rotate();
+        }
+
+        long recordSequence = ++sequence;
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        record.putInt(length - 4)
+              .put(PENDING)
+              .putInt(0)
+              .putLong(recordSequence)
+              .putInt(attempts)
+              .putLong(notBefore)
+              .put(data);
+
+        record.putInt(CRC_OFFSET, crc(record.array(), DATA_OFFSET, length));
+        record.flip();
+
+        int position = active.buffer.position();
+        active.buffer.put(record);
+        active.pending.incrementAndGet();
+        active.dirty = true;
+
+        appended = recordSequence;
+        return new Record(active, position, recordSequence, attempts, notBefore, webhook.getUrl());
+    }
+
+    /**
+     * @param record pending record
+     * @return webhook of record, read from segment
+     * @throws IOException in case record could not be decoded
+     */
+    Webhook read(Record record) throws IOException {
+
+        // duplicate ... position of segment buffer is moved by appends
+        ByteBuffer buffer = record.segment.buffer.duplicate();
+        int length = buffer.getInt(record.position) + 4;
+
+        byte[] data = new byte[length - HEADER];
+        buffer.position(record.position + HEADER);
+        buffer.get(data);
+
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Appends record for next delivery attempt, given record is marked as superseded once appended record is flushed
+     * (so a crash in between never loses the webhook)
+     *
+     * @param record    failed record
+     * @param attempts  number of failed delivery attempts
+     * @param notBefore time (epoch millis) of next attempt
+     * @return appended record
+     * @throws IOException in case new segment could not be created
+     */
+    synchronized Record retry(Record record, int attempts, long notBefore) throws IOException {
+
+        Record next = append(read(record), attempts, notBefore);
+        whenDurable(next.sequence).thenRun(() -> setStatus(record, SUPERSEDED));
+        return next;
+    }
+
+    /**
+     * Flips status of pending record, segment is deleted once sealed and none of its records is pending
+     *
+     * @param record to update
+     * @param status new status
+     */
+    void setStatus(Record record, byte status) {
+
+        if (record.status != PENDING || status == PENDING) {
+            return;
+        }
+
+        record.status = status;
+
+        Segment segment = record.segment;
+        segment.buffer.put(record.position + STATUS_OFFSET, status);
+        segment.dirty = true;
+
+        if (segment.pending.decrementAndGet() == 0 && segment.sealed) {
+            delete(segment);
+        }
+    }
+
+    /**
+     * @param recordSequence sequence of appended record
+     * @return completed once record is flushed to disk
+     */
+    CompletableFuture<Void> whenDurable(long recordSequence) {
+
+        if (flushed >= recordSequence) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Waiter waiter = new Waiter(recordSequence);
+        waiters.add(waiter);
+
+        // flush might have happened meanwhile
+        if (flushed >= recordSequence) {
+            waiters.remove(waiter);
+            waiter.future.complete(null);
+        }
+
+        return waiter.future;
+    }
+
+    /**
+     * Forces all changed segments to disk and completes durability of appended records
+     */
+    void flush() {
+
+        synchronized (flushLock) {
+
+            long target = appended;
+
+            for (Segment segment : segments.values()) {
+                if (segment.dirty && !segment.deleted.get()) {
+                    segment.dirty = false;
+                    try {
+                        segment.buffer.force();
+                    } catch (RuntimeException e) {
+                        // segment deleted meanwhile ... nothing left to flush
+                        if (!segment.deleted.get()) {
+                            throw e;
+                        }
+                    }
+                }
+            }
+
+            flushed = target;
+
+            Iterator<Waiter> iterator = waiters.iterator();
+            while (iterator.hasNext()) {
+                Waiter waiter = iterator.next();
+                if (waiter.sequence <= target) {
+                    iterator.remove();
+                    waiter.future.complete(null);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of segment files
+     */
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+
+        flush();
+
+        for (Segment segment : segments.values()) {
+            segment.close();
+        }
+    }
+
+    private void rotate() throws IOException {
+
+        // active segment stays open for appends in case new segment can not be created
+        Segment sealed = active;
+        active = newSegment(sealed.id + 1);
+        sealed.sealed = true;
+
+        if (sealed.pending.get() == 0) {
+            delete(sealed);
+        }
+    }
+
+    private Segment newSegment(long id) throws IOException {
+
+        Segment segment = Segment.create(directory.resolve(String.format("%s%020d%s", PREFIX, id, SUFFIX)), id, segmentSize);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void delete(Segment segment) {
+
+        if (!segment.deleted.compareAndSet(false, true)) {
+            return;
+        }
+
+        segments.remove(segment.id);
+        segment.close();
+
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete webhook log segment: {}, {}", segment.path, e.getMessage());
+        }
+    }
+
+    /**
+     * @return last sequence found in segment
+     */
+    private long recover(Segment segment) throws IOException {
+
+        ByteBuffer buffer = segment.buffer;
+        long last = 0;
+        int position = 0;
+
+        while (position + HEADER <= buffer.limit()) {
+
+            int length = buffer.getInt(position) + 4;
+            if (length < HEADER || position + length > buffer.limit()) {
+                break; // end of segment
+            }
+
+            byte[] record = new byte[length];
+            buffer.position(position);
+            buffer.get(record);
+
+            ByteBuffer read = ByteBuffer.wrap(record);
+            if (read.getInt(CRC_OFFSET) != crc(record, DATA_OFFSET, length)) {
+                log.warn("Ignoring torn webhook record in: {} at: {}", segment.path, position);
+                break;
+            }
+
+            byte status = read.get(STATUS_OFFSET);
+            read.position(DATA_OFFSET);
+            long recordSequence = read.getLong();
+            int attempts = read.getInt();
+            long notBefore = read.getLong();
+            last = Math.max(last, recordSequence);
+
+            if (status == PENDING) {
+                String url = decodeUrl(record, read.position(), length - read.position());
+                recovered.add(new Record(segment, position, recordSequence, attempts, notBefore, url));
+                segment.pending.incrementAndGet();
+            }
+
+            position += length;
+        }
+
+        buffer.position(position);
+        return last;
+    }
+
+    private List<Path> list() throws IOException {
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(PREFIX) && path.getFileName().toString().endsWith(SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static long parseId(Path path) {
+
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static byte[] encode(Webhook webhook) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + webhook.getBody().length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+
+            out.writeUTF(webhook.getUrl());
+            out.writeUTF(webhook.getContentType() != null ? webhook.getContentType() : "");
+
+            out.writeShort(webhook.getHeaders().size());
+            for (Map.Entry<String, String> header : webhook.getHeaders().entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeUTF(header.getValue());
+            }
+
+            out.writeInt(webhook.getBody().length);
+            out.write(webhook.getBody());
+        }
+
+        return bytes.toByteArray();
+    }
+
+    private static Webhook decode(byte[] record, int offset, int length) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, offset, length))) {
+
+            String url = in.readUTF();
+            String contentType = in.readUTF();
+
+            int count = in.readUnsignedShort();
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                headers.put(in.readUTF(), in.readUTF());
+            }
+
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+
+            return new Webhook(url, contentType.isEmpty() ? null : contentType, body, headers);
+        }
+    }
+
+    private static String decodeUrl(byte[] record, int offset, int length) throws IOException {
+
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, offset, length))) {
+            return in.readUTF();
+        }
+    }
+
+    private static int crc(byte[] record, int offset, int end) {
+
+        CRC32 crc = new CRC32();
+        crc.update(record, offset, end - offset);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Appended webhook
+     */
+    static final class Record {
+
+        private final Segment segment;
+
+        final int position;
+
+        final long sequence;
+
+        final int attempts;
+
+        final long notBefore;
+
+        final String url;
+
+        final String destination;
+
+        private volatile byte status = PENDING;
+
+        Record(Segment recordSegment, int recordPosition, long recordSequence, int failedAttempts, long nextAttempt, String webhookUrl) {
+
+            segment = recordSegment;
+            position = recordPosition;
+            sequence = recordSequence;
+            attempts = failedAttempts;
+            notBefore = nextAttempt;
+            url = webhookUrl;
+            destination = Webhook.getDestination(webhookUrl);
+        }
+    }
+
+    private static final class Segment {
+
+        private final Path path;
+
+        private final long id;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicBoolean deleted = new AtomicBoolean();
+
+        private volatile boolean sealed;
+
+        private volatile boolean dirty;
+
+        private Segment(Path file, long segmentId, FileChannel fileChannel, MappedByteBuffer mapped) {
+
+            path = file;
+            id = segmentId;
+            channel = fileChannel;
+            buffer = mapped;
+        }
+
+        static Segment create(Path path, long id, int size) throws IOException {
+
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        static Segment open(Path path, long id) throws IOException {
+
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, id, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+
+        void close() {
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close webhook log segment: {}, {}", path, e.getMessage());
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final long sequence;
+
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Waiter(long recordSequence) {
+            sequence = recordSequence;
+        }
+    }
+}
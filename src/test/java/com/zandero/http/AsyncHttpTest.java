@@ -0,0 +1,214 @@
+package com.zandero.http;
+
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.apache.http.concurrent.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncHttpTest {
+
+    @Test
+    void completeWithResponse() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "done");
+
+            RecordingCallback callback = new RecordingCallback();
+            CompletableFuture<HttpResponse> future = HttpUtils.executeAsync(ForkJoinPool.commonPool(), HttpUtils.get(server.url("/ok")), callback);
+
+            HttpResponse response = future.get(5, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("done", HttpUtils.getContentAsString(response));
+
+            assertEquals("completed", callback.await());
+            assertEquals(Collections.singletonList("completed"), callback.events);
+            assertEquals(0, HttpUtils.getAsyncInFlight());
+        }
+    }
+
+    @Test
+    void concurrentRequestsToSameHost() throws Exception {
+
+        // not limited to 2 per route as by default of HttpClient
+        assertEquals(8, maxConcurrent(8));
+
+        try {
+            // applies to running client, for new connections
+            HttpUtils.setAsyncConnectionLimits(10, 3);
+            assertEquals(3, maxConcurrent(8));
+        } finally {
+            HttpUtils.setAsyncConnectionLimits(HttpUtils.DEFAULT_ASYNC_MAX_TOTAL, HttpUtils.DEFAULT_ASYNC_MAX_PER_ROUTE);
+        }
+    }
+
+    /**
+     * @return max number of requests served concurrently by a slow server
+     */
+    private static int maxConcurrent(int requests) throws Exception {
+
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/slow", exchange -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                active.decrementAndGet();
+                LocalServer.send(exchange, 200, "slow");
+            });
+
+            assertEquals(requests, runConcurrently(server, requests));
+        }
+
+        return maxActive.get();
+    }
+
+    private static int runConcurrently(LocalServer server, int count) throws Exception {
+
+        List<CompletableFuture<HttpResponse>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(HttpUtils.executeAsync(HttpUtils.get(server.url("/slow"))));
+        }
+
+        int ok = 0;
+        for (CompletableFuture<HttpResponse> future : futures) {
+            if ("slow".equals(HttpUtils.getContentAsString(future.get(10, TimeUnit.SECONDS)))) {
+                ok++;
+            }
+        }
+
+        return ok;
+    }
+
+    @Test
+    void cookiesAreNotSharedBetweenCalls() throws Exception {
+
+        AtomicReference<String> cookie = new AtomicReference<>("none");
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/login", exchange -> {
+                exchange.getResponseHeaders().add("Set-Cookie", "session=userA; Path=/");
+                LocalServer.send(exchange, 200, "userA");
+            });
+            server.handle("/me", exchange -> {
+                cookie.set(exchange.getRequestHeaders().getFirst("Cookie"));
+                LocalServer.send(exchange, 200, "me");
+            });
+
+            HttpUtils.executeAsync(HttpUtils.get(server.url("/login"))).get(5, TimeUnit.SECONDS);
+            HttpUtils.executeAsync(HttpUtils.get(server.url("/me"))).get(5, TimeUnit.SECONDS);
+            assertNull(cookie.get());
+
+            cookie.set("none");
+            HttpUtils.executeStreaming(HttpUtils.get(server.url("/login"))).get(5, TimeUnit.SECONDS);
+            HttpUtils.executeStreaming(HttpUtils.get(server.url("/me"))).get(5, TimeUnit.SECONDS);
+            assertNull(cookie.get());
+        }
+    }
+
+    @Test
+    void notifyRejectedSubmission() throws Exception {
+
+        RecordingCallback callback = new RecordingCallback();
+        Executor rejecting = command -> {
+            throw new RejectedExecutionException("Queue full");
+        };
+
+        CompletableFuture<HttpResponse> future = HttpUtils.executeAsync(rejecting, HttpUtils.get("http://localhost/ignored"), callback);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof RejectedExecutionException);
+        assertEquals("failed: Queue full", callback.await());
+        assertEquals(0, HttpUtils.getAsyncInFlight());
+    }
+
+    @Test
+    void cancelInFlight() throws Exception {
+
+        CountDownLatch received = new CountDownLatch(1);
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/slow", exchange -> {
+                received.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    // server stopped
+                }
+                LocalServer.send(exchange, 200, "late");
+            });
+
+            RecordingCallback callback = new RecordingCallback();
+            CompletableFuture<HttpResponse> future = HttpUtils.executeAsync(ForkJoinPool.commonPool(), HttpUtils.get(server.url("/slow")), callback);
+
+            assertTrue(received.await(5, TimeUnit.SECONDS));
+            assertEquals(1, HttpUtils.getAsyncInFlight());
+
+            assertTrue(future.cancel(true));
+            assertEquals("cancelled", callback.await());
+            assertEquals(0, HttpUtils.getAsyncInFlight());
+
+            // aborted request does not complete again
+            Thread.sleep(200);
+            assertEquals(Collections.singletonList("cancelled"), callback.events);
+        }
+    }
+
+    @Test
+    void failOnceOnConnectionError() throws Exception {
+
+        int port;
+        try (LocalServer server = new LocalServer()) {
+            port = server.getPort();
+        }
+
+        RecordingCallback callback = new RecordingCallback();
+        CompletableFuture<HttpResponse> future = HttpUtils.executeAsync(HttpUtils.get("http://127.0.0.1:" + port + "/closed"));
+        future.whenComplete((response, error) -> callback.failed((Exception) error));
+
+        assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(callback.await().startsWith("failed"));
+        assertEquals(1, callback.events.size());
+    }
+
+    private static class RecordingCallback implements FutureCallback<HttpResponse> {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        String await() throws InterruptedException {
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            return events.get(0);
+        }
+
+        @Override
+        public void completed(HttpResponse result) {
+            events.add("completed");
+            done.countDown();
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            events.add("failed: " + ex.getMessage());
+            done.countDown();
+        }
+
+        @Override
+        public void cancelled() {
+            events.add("cancelled");
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.zandero.http;
+
+import com.zandero.http.test.*;
+import org.apache.http.client.methods.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlineTest {
+
+    private static LocalServer server;
+
+    @BeforeAll
+    static void start() throws IOException {
+
+        server = new LocalServer();
+        server.respond("/fast", 200, "OK");
+        server.handle("/drip", exchange -> {
+            // slow drip body ... each chunk is within read time out
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < 30; i++) {
+                    out.write(("line " + i + "\n").getBytes());
+                    out.flush();
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException | IOException e) {
+                // client went away
+            }
+        });
+    }
+
+    @AfterAll
+    static void stop() {
+        server.close();
+    }
+
+    @Test
+    void attachDoesNotExtend() {
+
+        assertNull(Deadline.current());
+
+        Deadline outer = Deadline.after(1, TimeUnit.SECONDS);
+        try (Deadline.Scope ignored = outer.attach()) {
+            assertSame(outer, Deadline.current());
+
+            try (Deadline.Scope ignored2 = Deadline.after(10, TimeUnit.SECONDS).attach()) {
+                assertSame(outer, Deadline.current());
+            }
+
+            Deadline inner = Deadline.after(10, TimeUnit.MILLISECONDS);
+            try (Deadline.Scope ignored2 = inner.attach()) {
+                assertSame(inner, Deadline.current());
+            }
+
+            assertSame(outer, Deadline.current());
+        }
+
+        assertNull(Deadline.current());
+    }
+
+    @Test
+    void limit() {
+
+        Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+        assertEquals(100, deadline.limit(100));
+        assertTrue(deadline.limit(5000) <= 1000);
+        assertTrue(deadline.limit(0) <= 1000);
+        assertFalse(deadline.isExpired());
+
+        Deadline expired = Deadline.after(0, TimeUnit.MILLISECONDS);
+        assertTrue(expired.isExpired());
+        assertEquals(1, expired.limit(100));
+        assertThrows(DeadlineExceededException.class, expired::check);
+    }
+
+    @Test
+    void httpWithinDeadline() throws Exception {
+
+        try (Deadline.Scope ignored = Deadline.after(5, TimeUnit.SECONDS).attach()) {
+            Http.Response response = Http.get(server.url("/fast"));
+            assertEquals(200, response.getCode());
+            assertEquals("OK", response.getResponse());
+        }
+    }
+
+    @Test
+    void httpSlowDripCancelled() {
+
+        long start = System.nanoTime();
+        try (Deadline.Scope ignored = Deadline.after(500, TimeUnit.MILLISECONDS).attach()) {
+
+            Http.HttpException e = assertThrows(Http.HttpException.class, () -> Http.get(server.url("/drip")));
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    @Test
+    void httpUtilsSlowDripCancelled() {
+
+        long start = System.nanoTime();
+        HttpRequestBase request = HttpUtils.get(server.url("/drip"));
+        assertThrows(DeadlineExceededException.class, () -> HttpUtils.execute(request, Deadline.after(500, TimeUnit.MILLISECONDS)));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 2000);
+    }
+
+    @Test
+    void wrapCarriesDeadline() throws Exception {
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Deadline deadline = Deadline.after(1, TimeUnit.SECONDS);
+            assertSame(deadline, executor.submit(deadline.wrap(Deadline::current)).get());
+            assertNull(executor.submit((Callable<Deadline>) Deadline::current).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.zandero.http;
+
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.apache.http.impl.conn.*;
+import org.junit.jupiter.api.*;
+
+import java.nio.charset.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManagedResponseTest {
+
+    private PoolingHttpClientConnectionManager manager;
+
+    @BeforeEach
+    void enablePooling() {
+
+        // single connection ... any leaked connection blocks next request
+        manager = HttpUtils.createConnectionManager(1, 1);
+        HttpUtils.setConnectionManager(manager);
+    }
+
+    @AfterEach
+    void disablePooling() {
+
+        HttpUtils.setConnectionManager(null);
+        manager.close();
+    }
+
+    @Test
+    void releaseConnectionForAnyStatus() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "ok");
+            server.respond("/created", 201, "created");
+            server.respond("/empty", 204, null);
+            server.respond("/missing", 404, "not found");
+            server.respond("/error", 500, "failed");
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals("ok", HttpUtils.getContentAsString(execute(server, "/ok")));
+                assertEquals("created", new String(HttpUtils.getContent(execute(server, "/created")), StandardCharsets.UTF_8));
+                assertNull(HttpUtils.getContentAsString(execute(server, "/empty")));
+                assertNull(HttpUtils.getContentAsString(execute(server, "/missing")));
+                assertNull(HttpUtils.getContent(execute(server, "/error")));
+
+                assertEquals(0, manager.getTotalStats().getLeased());
+            }
+
+            // connection was reused
+            assertEquals(1, manager.getTotalStats().getAvailable());
+        }
+    }
+
+    @Test
+    void exposeErrorBody() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/error", exchange -> {
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=ISO-8859-1");
+                exchange.sendResponseHeaders(503, 4);
+                exchange.getResponseBody().write(new byte[]{'b', (byte) 0xFC, 's', 'y'});
+                exchange.close();
+            });
+
+            try (ManagedResponse response = HttpUtils.executeManaged(HttpUtils.get(server.url("/error")))) {
+                assertFalse(response.isSuccess());
+                assertEquals(503, response.getStatusCode());
+                assertEquals("b\u00FCsy", response.getContentAsString());
+            }
+
+            // closed without reading content
+            for (int i = 0; i < 3; i++) {
+                try (ManagedResponse response = HttpUtils.executeManaged(HttpUtils.get(server.url("/error")))) {
+                    assertEquals("text/plain; charset=ISO-8859-1", response.getHeader("Content-Type"));
+                }
+            }
+
+            assertEquals(0, manager.getTotalStats().getLeased());
+        }
+    }
+
+    @Test
+    void cookiesAreNotSharedBetweenCalls() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/login", exchange -> {
+                exchange.getResponseHeaders().add("Set-Cookie", "session=userA; Path=/");
+                LocalServer.send(exchange, 200, "userA");
+            });
+            server.handle("/me", exchange -> LocalServer.send(exchange, 200, "" + exchange.getRequestHeaders().getFirst("Cookie")));
+
+            assertEquals("userA", HttpUtils.getContentAsString(execute(server, "/login")));
+            assertEquals("null", HttpUtils.getContentAsString(execute(server, "/me")));
+        }
+    }
+
+    private static HttpResponse execute(LocalServer server, String path) throws Exception {
+        return HttpUtils.execute(HttpUtils.get(server.url(path), null, 2));
+    }
+}
@@ -0,0 +1,82 @@
+package com.zandero.http;
+
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.apache.http.client.entity.*;
+import org.apache.http.client.methods.*;
+import org.apache.http.entity.*;
+import org.apache.http.message.*;
+import org.apache.http.util.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestTemplateTest {
+
+    @Test
+    void postSameAsHttpUtils() throws Exception {
+
+        Map<String, String> headers = Collections.singletonMap("X-Client", "batch");
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("client", "batch job");
+        parameters.put("flag", null);
+
+        RequestTemplate template = new RequestTemplate("post", "http://localhost/items", headers, parameters, null);
+
+        Map<String, String> variable = Collections.singletonMap("name", "čžš & co");
+        HttpRequestBase request = template.create(variable);
+        assertEquals("POST", request.getMethod());
+        assertEquals("http://localhost/items", request.getURI().toString());
+        assertEquals("batch", request.getFirstHeader("X-Client").getValue());
+        assertSame(HttpUtils.getConfig(null), request.getConfig());
+
+        HttpEntity entity = ((HttpEntityEnclosingRequestBase) request).getEntity();
+        UrlEncodedFormEntity expected = new UrlEncodedFormEntity(Arrays.asList(new BasicNameValuePair("client", "batch job"),
+                                                                               new BasicNameValuePair("flag", null),
+                                                                               new BasicNameValuePair("name", "čžš & co")), HttpUtils.UTF_8);
+
+        assertEquals(EntityUtils.toString(expected), EntityUtils.toString(entity));
+        assertEquals(expected.getContentType().getValue(), entity.getContentType().getValue());
+
+        // headers and config are shared between requests
+        HttpRequestBase other = template.create();
+        assertSame(request.getFirstHeader("X-Client"), other.getFirstHeader("X-Client"));
+        assertSame(request.getConfig(), other.getConfig());
+        assertEquals("client=batch+job&flag", EntityUtils.toString(((HttpEntityEnclosingRequestBase) other).getEntity()));
+
+        HttpRequestBase withEntity = template.create("/1", null, new StringEntity("{}", ContentType.APPLICATION_JSON));
+        assertEquals("http://localhost/items/1", withEntity.getURI().toString());
+        assertEquals("{}", EntityUtils.toString(((HttpEntityEnclosingRequestBase) withEntity).getEntity()));
+    }
+
+    @Test
+    void getWithQuery() {
+
+        RequestTemplate template = new RequestTemplate("GET", "http://localhost/items", null,
+                                                       Collections.singletonMap("sort", "name asc"), 10);
+
+        HttpRequestBase request = template.create();
+        assertEquals("http://localhost/items?sort=name+asc", request.getURI().toString());
+        assertSame(request.getURI(), template.create().getURI());
+        assertEquals(10_000, request.getConfig().getSocketTimeout());
+
+        request = template.create("/search", Collections.singletonMap("q", "a/b"), null);
+        assertEquals("http://localhost/items/search?sort=name+asc&q=a%2Fb", request.getURI().toString());
+
+        assertThrows(IllegalArgumentException.class, () -> new RequestTemplate("TRACE", "http://localhost", null, null, null));
+    }
+
+    @Test
+    void execute() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> LocalServer.send(exchange, 200, LocalServer.read(exchange)));
+
+            RequestTemplate template = new RequestTemplate("PUT", server.url("/echo"), null, Collections.singletonMap("a", "1"), 5);
+            HttpResponse response = HttpUtils.execute(template.create(Collections.singletonMap("b", "2")));
+            assertEquals("a=1&b=2", HttpUtils.getContentAsString(response));
+        }
+    }
+}
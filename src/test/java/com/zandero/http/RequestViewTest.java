@@ -0,0 +1,95 @@
+package com.zandero.http;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.mockito.quality.*;
+
+import javax.servlet.http.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RequestViewTest {
+
+    @Mock
+    HttpServletRequest request;
+
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    @BeforeEach
+    void storeAttributes() {
+
+        Mockito.when(request.getAttribute(Mockito.anyString())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+        Mockito.doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+               .when(request).setAttribute(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    void cookiesAreParsedOnce() {
+
+        Mockito.when(request.getHeaders("Cookie"))
+               .thenAnswer(invocation -> Collections.enumeration(Arrays.asList("session=abc; theme=\"dark\" ; empty=; =ignored; broken",
+                                                                               "session=other; lang=sl")));
+
+        assertSame(RequestUtils.getView(request), RequestUtils.getView(request));
+
+        assertEquals("abc", RequestUtils.getCookie(request, "session"));
+        assertEquals("dark", RequestUtils.getCookie(request, "theme"));
+        assertEquals("", RequestUtils.getCookie(request, "empty"));
+        assertEquals("sl", RequestUtils.getCookie(request, "lang"));
+        assertNull(RequestUtils.getCookie(request, "broken"));
+        assertNull(RequestUtils.getCookie(request, "Session"));
+        assertNull(RequestUtils.getCookie(request, null));
+        assertNull(RequestUtils.getCookie(null, "session"));
+        assertEquals(4, RequestUtils.getView(request).getCookieCount());
+
+        Mockito.verify(request, Mockito.times(1)).getHeaders("Cookie");
+        Mockito.verify(request, Mockito.never()).getCookies();
+    }
+
+    @Test
+    void cookiesFallBackToContainer() {
+
+        Cookie[] cookies = new Cookie[20];
+        for (int i = 0; i < cookies.length; i++) {
+            cookies[i] = new Cookie("cookie" + i, "value" + i);
+        }
+
+        Mockito.when(request.getCookies()).thenReturn(cookies);
+
+        RequestView view = RequestView.of(request);
+        for (int i = 0; i < cookies.length; i++) {
+            assertEquals("value" + i, view.getCookie("cookie" + i));
+        }
+
+        assertEquals(20, view.getCookieCount());
+        Mockito.verify(request, Mockito.times(1)).getCookies();
+    }
+
+    @Test
+    void headersAreMemoized() {
+
+        Mockito.when(request.getHeader("User-Agent")).thenReturn("Agent");
+        Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn("10.0.0.1");
+        Mockito.when(request.getHeader("X-Session")).thenReturn("Session");
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Agent", RequestUtils.getUserAgent(request));
+            assertEquals("Agent", RequestUtils.getHeader(request, "user-agent"));
+            assertEquals("10.0.0.1", RequestUtils.getClientIpAddress(request));
+            assertNull(RequestUtils.getHeader(request, "Authorization"));
+            assertEquals("Session", RequestUtils.getHeader(request, "X-Session"));
+        }
+
+        Mockito.verify(request, Mockito.times(1)).getHeader("User-Agent");
+        Mockito.verify(request, Mockito.times(1)).getHeader("X-Forwarded-For");
+        Mockito.verify(request, Mockito.times(1)).getHeader("Authorization");
+
+        // other headers are not memoized
+        Mockito.verify(request, Mockito.times(3)).getHeader("X-Session");
+    }
+}
@@ -0,0 +1,136 @@
+package com.zandero.http;
+
+import com.zandero.http.codec.*;
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypedBodyTest {
+
+    public static class Item {
+
+        public String name;
+
+        public int count;
+    }
+
+    @Test
+    void getTyped() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/item", exchange -> {
+                exchange.getResponseHeaders().add("Content-Type", exchange.getRequestHeaders().getFirst("Accept"));
+                LocalServer.send(exchange, 200, "{\"name\":\"apple\",\"count\":3}");
+            });
+            server.respond("/empty", 204, null);
+            server.handle("/chunked", exchange -> {
+                exchange.sendResponseHeaders(200, 0); // chunked, without content
+                exchange.close();
+            });
+            server.respond("/missing", 404, "Not found");
+
+            Item item = Http.getAs(server.url("/item"), Item.class);
+            assertEquals("apple", item.name);
+            assertEquals(3, item.count);
+
+            assertNull(Http.getAs(server.url("/empty"), Item.class));
+            assertNull(Http.getAs(server.url("/chunked"), Item.class));
+
+            Http.HttpException e = assertThrows(Http.HttpException.class, () -> Http.getAs(server.url("/missing"), Item.class));
+            assertEquals(404, e.getCode());
+            assertEquals("Not found", e.getMessage());
+        }
+    }
+
+    @Test
+    void acceptHeaderIsKept() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/accept", exchange -> LocalServer.send(exchange, 200, "{\"name\":\"" + exchange.getRequestHeaders().get("Accept") + "\"}"));
+
+            // header name in any case ... default must not replace it
+            Item item = Http.getAs(server.url("/accept"), Collections.emptyMap(), Collections.singletonMap("AccepT", "application/x-item+json"), Item.class);
+            assertEquals("[application/x-item+json]", item.name);
+        }
+    }
+
+    @Test
+    void untypedCallsWithNullArguments() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> LocalServer.send(exchange, 200, exchange.getRequestMethod() + " " + LocalServer.read(exchange)));
+
+            // must compile as before typed variants were added
+            assertEquals("GET ", Http.get(server.url("/echo"), null).getResponse());
+            assertEquals("POST body", Http.post(server.url("/echo"), "body", null).getResponse());
+            assertEquals("PUT body", Http.put(server.url("/echo"), "body", null).getResponse());
+        }
+    }
+
+    @Test
+    void postTyped() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> {
+                exchange.getResponseHeaders().add("X-Content-Type", exchange.getRequestHeaders().getFirst("Content-Type"));
+                exchange.getResponseHeaders().add("X-Transfer-Encoding", "" + exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+                LocalServer.send(exchange, 200, LocalServer.read(exchange));
+            });
+
+            Item item = new Item();
+            item.name = "pear";
+            item.count = 5;
+
+            Item echo = Http.postAs(server.url("/echo"), item, Item.class);
+            assertEquals("pear", echo.name);
+            assertEquals(5, echo.count);
+
+            Http.Response response = Http.post(server.url("/echo"), (Object) Collections.singletonMap("a", 1));
+            assertEquals(200, response.getCode());
+            assertEquals("{\"a\":1}", response.getResponse());
+            assertEquals(JacksonCodec.APPLICATION_JSON, response.getHeader("X-Content-Type"));
+            assertEquals("chunked", response.getHeader("X-Transfer-Encoding"));
+
+            // plain string bodies are sent as before
+            response = Http.post(server.url("/echo"), "{\"b\":2}");
+            assertEquals("{\"b\":2}", response.getResponse());
+            assertEquals("null", response.getHeader("X-Transfer-Encoding"));
+        }
+    }
+
+    @Test
+    void customCodec() throws Exception {
+
+        BodyCodec upperCase = new BodyCodec() {
+            @Override
+            public String getContentType() {
+                return "text/plain";
+            }
+
+            @Override
+            public void write(Object value, OutputStream out) throws IOException {
+                out.write(value.toString().toUpperCase().getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T read(InputStream in, Class<T> type) throws IOException {
+                return (T) new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        };
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> LocalServer.send(exchange, 200, LocalServer.read(exchange)));
+
+            Http.setBodyCodec(upperCase);
+            assertEquals("HELLO", Http.putAs(server.url("/echo"), "hello", String.class));
+        } finally {
+            Http.setBodyCodec(new JacksonCodec());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.zandero.http;
+
+import com.zandero.http.test.*;
+import com.zandero.utils.extra.*;
+import org.junit.jupiter.api.*;
+
+import java.net.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UrlTemplateTest {
+
+    @Test
+    void isHttps() {
+
+        assertTrue(UrlTemplate.isHttps("https://localhost"));
+        assertTrue(UrlTemplate.isHttps("HTTPS://localhost"));
+        assertTrue(UrlTemplate.isHttps("hTtPs://localhost"));
+        assertFalse(UrlTemplate.isHttps("http://localhost"));
+        assertFalse(UrlTemplate.isHttps("https:"));
+        assertFalse(UrlTemplate.isHttps(null));
+    }
+
+    @Test
+    void composeAsUrlUtils() {
+
+        Map<String, String> query = new LinkedHashMap<>();
+        query.put("q", "a b&c=d/é€😀");
+        query.put("empty", "");
+        query.put("", "skipped");
+        query.put("id", "1");
+        query.put("weird", "~!*'()\ud800");
+
+        for (String url : Arrays.asList("http://localhost", "http://localhost/", "http://localhost/path?",
+                                        "http://localhost/path?x=1", "http://localhost/path?x=1&")) {
+            assertEquals(UrlUtils.composeUrl(url, query), UrlTemplate.compose(url, query), url);
+        }
+
+        for (String url : Arrays.asList("http://localhost", "http://localhost/path?", "http://localhost/path?x=1", "http://localhost/path?x=1&")) {
+            assertEquals(UrlUtils.composeUrl(url, query), new UrlTemplate(url).toString(query), url);
+        }
+
+        assertEquals("http://localhost/path", UrlTemplate.compose("http://localhost/path/", Collections.singletonMap("a", " ")));
+    }
+
+    @Test
+    void keepTrailingSlash() throws Exception {
+
+        UrlTemplate template = new UrlTemplate("http://localhost/items/");
+        assertEquals("/items/", template.toUrl(null).getPath());
+        assertEquals("http://localhost/items/", template.toString(Collections.singletonMap("a", " ")));
+        assertEquals("http://localhost/items/?a=1", template.toString(Collections.singletonMap("a", "1")));
+        assertEquals(new URL("http://localhost/items/?a=1"), template.toUrl(Collections.singletonMap("a", "1")));
+
+        template = new UrlTemplate("http://localhost/items?");
+        assertEquals("http://localhost/items?", template.toString(null));
+        assertEquals(new URL("http://localhost/items?a=1"), template.toUrl(Collections.singletonMap("a", "1")));
+    }
+
+    @Test
+    void parsedOnce() throws Exception {
+
+        UrlTemplate template = new UrlTemplate("HTTPS://user@example.com:8443/api/items?sort=asc&");
+        assertTrue(template.isHttps());
+        assertEquals("example.com", template.getHost());
+        assertEquals(8443, template.getPort());
+        assertEquals("/api/items", template.getPath());
+
+        URL url = template.toUrl(Collections.singletonMap("page", "2"));
+        assertEquals("https://user@example.com:8443/api/items?sort=asc&page=2", url.toString().replace("HTTPS", "https"));
+
+        template = new UrlTemplate("http://example.com/items");
+        assertFalse(template.isHttps());
+        assertEquals(80, template.getPort());
+        assertSame(template.toUrl(null), template.toUrl(Collections.emptyMap()));
+        assertEquals(new URL("http://example.com/items?a=1"), template.toUrl(Collections.singletonMap("a", "1")));
+
+        assertThrows(IllegalArgumentException.class, () -> new UrlTemplate("invalid"));
+    }
+
+    @Test
+    void executeTemplate() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/items", exchange -> LocalServer.send(exchange, 200, exchange.getRequestURI().getRawQuery()));
+
+            UrlTemplate template = new UrlTemplate(server.url("/items"));
+            for (int i = 0; i < 3; i++) {
+                Http.Response response = Http.execute("GET", template, null, Collections.singletonMap("id", "" + i), null,
+                                                      Http.DEFAULT_CONNECT_TIMEOUT, Http.DEFAULT_READ_TIMEOUT);
+                assertEquals(200, response.getCode());
+                assertEquals("id=" + i, response.getResponse());
+            }
+        }
+    }
+}
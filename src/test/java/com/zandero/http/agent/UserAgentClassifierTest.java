@@ -0,0 +1,105 @@
+package com.zandero.http.agent;
+
+import com.zandero.http.*;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserAgentClassifierTest {
+
+    private static final String CHROME = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.6099.109 Safari/537.36";
+
+    @Test
+    void matchAllPatterns() {
+
+        AhoCorasick matcher = new AhoCorasick(Arrays.asList("he", "she", "his", "hers"));
+        int[] ends = matcher.match("uSHErs");
+
+        assertEquals(4, ends[0]); // he
+        assertEquals(4, ends[1]); // she
+        assertEquals(-1, ends[2]);
+        assertEquals(6, ends[3]); // hers
+
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(Collections.singletonList("Upper")));
+    }
+
+    @Test
+    void classifyAgents() {
+
+        UserAgentClassifier classifier = new UserAgentClassifier(16);
+
+        UserAgent chrome = classifier.classify(CHROME);
+        assertEquals(UserAgent.Type.DESKTOP, chrome.getType());
+        assertEquals("Chrome", chrome.getBrowser());
+        assertEquals("120.0.6099.109", chrome.getVersion());
+        assertEquals(120, chrome.getMajorVersion());
+        assertEquals("Windows", chrome.getOs());
+
+        UserAgent edge = classifier.classify(CHROME + " Edg/120.0.2210.77");
+        assertEquals("Edge", edge.getBrowser());
+        assertEquals("120.0.2210.77", edge.getVersion());
+
+        UserAgent iphone = classifier.classify("Mozilla/5.0 (iPhone; CPU iPhone OS 17_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.1 Mobile/15E148 Safari/604.1");
+        assertEquals(UserAgent.Type.MOBILE, iphone.getType());
+        assertEquals("Safari", iphone.getBrowser());
+        assertEquals("17.1", iphone.getVersion());
+        assertEquals("iOS", iphone.getOs());
+
+        UserAgent ipad = classifier.classify("Mozilla/5.0 (iPad; CPU OS 16_6 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/16.6 Mobile/15E148 Safari/604.1");
+        assertTrue(ipad.isTablet());
+        assertEquals("iOS", ipad.getOs());
+
+        UserAgent androidTablet = classifier.classify("Mozilla/5.0 (Linux; Android 13; SM-X200) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/119.0.0.0 Safari/537.36");
+        assertTrue(androidTablet.isTablet());
+        assertEquals("Android", androidTablet.getOs());
+
+        UserAgent firefox = classifier.classify("Mozilla/5.0 (X11; Linux x86_64; rv:121.0) Gecko/20100101 Firefox/121.0");
+        assertEquals(UserAgent.Type.DESKTOP, firefox.getType());
+        assertEquals("Firefox", firefox.getBrowser());
+        assertEquals("Linux", firefox.getOs());
+
+        UserAgent ie = classifier.classify("Mozilla/5.0 (Windows NT 6.1; Trident/7.0; rv:11.0) like Gecko");
+        assertEquals("Internet Explorer", ie.getBrowser());
+        assertEquals(11, ie.getMajorVersion());
+
+        assertTrue(classifier.isBot("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)"));
+        assertTrue(classifier.isBot("curl/8.4.0"));
+        assertTrue(classifier.isBot("Apache-HttpClient/4.5.14 (Java/11.0.21)"));
+        assertFalse(classifier.isBot(CHROME));
+
+        assertSame(UserAgent.UNKNOWN, classifier.classify(null));
+        assertSame(UserAgent.UNKNOWN, classifier.classify(" "));
+        assertEquals(UserAgent.Type.UNKNOWN, classifier.classify("something else").getType());
+    }
+
+    @Test
+    void repeatedAgentsAreCached() {
+
+        UserAgentClassifier classifier = new UserAgentClassifier(2);
+        UserAgent agent = classifier.classify(CHROME);
+        assertSame(agent, classifier.classify(CHROME));
+
+        classifier.classify("agent 1");
+        classifier.classify("agent 2");
+        classifier.classify("agent 3");
+
+        // evicted ... classified again
+        UserAgent again = classifier.classify(CHROME);
+        assertEquals(agent, again);
+    }
+
+    @Test
+    void classifyRequest() {
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("User-Agent")).thenReturn("Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)");
+
+        assertTrue(RequestUtils.isBot(request));
+        assertEquals(UserAgent.Type.BOT, RequestUtils.getUserAgentInfo(request).getType());
+        assertSame(UserAgent.UNKNOWN, RequestUtils.getUserAgentInfo(null));
+    }
+}
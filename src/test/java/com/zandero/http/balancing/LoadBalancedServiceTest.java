@@ -0,0 +1,139 @@
+package com.zandero.http.balancing;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadBalancedServiceTest {
+
+    private static LocalServer first;
+    private static LocalServer second;
+    private static LocalServer failing;
+
+    private static final AtomicInteger firstCalls = new AtomicInteger();
+    private static final AtomicInteger secondCalls = new AtomicInteger();
+    private static final AtomicInteger failingCalls = new AtomicInteger();
+
+    @BeforeAll
+    static void start() throws Exception {
+
+        first = new LocalServer().handle("/", exchange -> {
+            firstCalls.incrementAndGet();
+            LocalServer.send(exchange, 200, "first");
+        });
+
+        second = new LocalServer().handle("/", exchange -> {
+            secondCalls.incrementAndGet();
+            LocalServer.send(exchange, 200, "second");
+        });
+
+        failing = new LocalServer().handle("/", exchange -> {
+            failingCalls.incrementAndGet();
+            LocalServer.send(exchange, 503, "unavailable");
+        });
+    }
+
+    @AfterAll
+    static void stop() {
+        first.close();
+        second.close();
+        failing.close();
+    }
+
+    @BeforeEach
+    void reset() {
+        firstCalls.set(0);
+        secondCalls.set(0);
+        failingCalls.set(0);
+    }
+
+    @Test
+    void spreadsLoad() throws Exception {
+
+        for (Strategy strategy : Strategy.values()) {
+
+            reset();
+            LoadBalancedService service = new LoadBalancedService("test", strategy, first.url(""), second.url("/"));
+
+            for (int i = 0; i < 40; i++) {
+                Http.Response response = service.get("/hello");
+                assertEquals(200, response.getCode());
+            }
+
+            assertEquals(40, firstCalls.get() + secondCalls.get());
+            assertTrue(firstCalls.get() > 0, strategy.name());
+            assertTrue(secondCalls.get() > 0, strategy.name());
+        }
+    }
+
+    @Test
+    void reusesConnectionOfEndpoint() throws Exception {
+
+        Set<Integer> ports = ConcurrentHashMap.newKeySet();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/", exchange -> {
+                ports.add(exchange.getRemoteAddress().getPort());
+                LocalServer.send(exchange, 200, "ok");
+            });
+
+            LoadBalancedService service = new LoadBalancedService("reuse", Strategy.POWER_OF_TWO_CHOICES, server.url(""));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(200, service.get("/").getCode());
+            }
+
+            // sequential calls share connection kept alive by HttpURLConnection
+            assertEquals(1, ports.size());
+        }
+    }
+
+    @Test
+    void ejectsFailingEndpoint() throws Exception {
+
+        LoadBalancedService service = new LoadBalancedService("test", Strategy.POWER_OF_TWO_CHOICES, first.url(""), failing.url(""))
+                                          .setEjection(3, 1, TimeUnit.MINUTES);
+
+        for (int i = 0; i < 30; i++) {
+            service.get("/");
+        }
+
+        assertTrue(failingCalls.get() <= 3, "Failing endpoint called: " + failingCalls.get());
+        assertTrue(service.getEndpoints().get(1).isEjected());
+        assertFalse(service.getEndpoints().get(0).isEjected());
+
+        // at most half of endpoints can be ejected ... failing endpoint is the only one left
+        LoadBalancedService single = new LoadBalancedService("single", Strategy.LEAST_OUTSTANDING, failing.url(""))
+                                         .setEjection(1, 1, TimeUnit.MINUTES);
+        single.get("/");
+        single.get("/");
+        assertFalse(single.getEndpoints().get(0).isEjected());
+    }
+
+    @Test
+    void leastOutstanding() {
+
+        LoadBalancedService service = new LoadBalancedService("test", Strategy.LEAST_OUTSTANDING, "http://a", "http://b", "http://c");
+        service.getEndpoints().get(0).start();
+        service.getEndpoints().get(2).start();
+
+        assertEquals("http://b", service.select().getUrl());
+    }
+
+    @Test
+    void call() throws Exception {
+
+        LoadBalancedService service = new LoadBalancedService("test", Strategy.EWMA_LATENCY, first.url(""));
+        assertEquals(200, (int) service.call(url -> HttpUtils.execute(HttpUtils.get(url + "/")).getStatusLine().getStatusCode()));
+
+        Endpoint endpoint = service.getEndpoints().get(0);
+        assertEquals(0, endpoint.getOutstanding());
+        assertTrue(endpoint.getLatency() > 0);
+        assertEquals(1.0, endpoint.getSuccessRate());
+    }
+}
@@ -0,0 +1,100 @@
+package com.zandero.http.batch;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+    @Test
+    void executeInOrderWithinWindow() throws Exception {
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/items/", exchange -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                LocalServer.send(exchange, 200, exchange.getRequestURI().getPath());
+            });
+
+            List<BatchRequest> requests = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                requests.add(BatchRequest.get(server.url("/items/" + i)));
+            }
+
+            long start = System.nanoTime();
+            List<BatchResult> results = new Batch(5).execute(requests);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(20, results.size());
+            for (int i = 0; i < 20; i++) {
+                assertTrue(results.get(i).isSuccess());
+                assertEquals("/items/" + i, results.get(i).getResponse().getResponse());
+            }
+
+            assertTrue(maxInFlight.get() <= 5, "Max in flight: " + maxInFlight.get());
+            assertTrue(elapsed < 1500, "Elapsed: " + elapsed); // sequential would take 2s
+        }
+    }
+
+    @Test
+    void failuresReportedPerItem() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "OK");
+            server.respond("/missing", 404, "Not found");
+
+            List<BatchRequest> requests = Arrays.asList(BatchRequest.get(server.url("/ok")),
+                                                        BatchRequest.get("http://127.0.0.1:1/refused").setTimeOuts(500, 500),
+                                                        BatchRequest.post(server.url("/missing"), "body"));
+
+            List<BatchResult> completed = new ArrayList<>();
+            new Batch(2).execute(requests, completed::add);
+
+            assertEquals(3, completed.size());
+            completed.sort(Comparator.comparingInt(BatchResult::getIndex));
+
+            assertEquals(200, completed.get(0).getResponse().getCode());
+            assertFalse(completed.get(1).isSuccess());
+            assertNotNull(completed.get(1).getError());
+            assertEquals(404, completed.get(2).getResponse().getCode());
+        }
+    }
+
+    @Test
+    void boundByDeadline() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/slow", exchange -> {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                LocalServer.send(exchange, 200, "late");
+            });
+
+            List<BatchRequest> requests = Arrays.asList(BatchRequest.get(server.url("/slow")), BatchRequest.get(server.url("/slow")));
+
+            try (Deadline.Scope ignored = Deadline.after(200, TimeUnit.MILLISECONDS).attach()) {
+                for (BatchResult result : new Batch(2).execute(requests)) {
+                    assertFalse(result.isSuccess());
+                    assertTrue(result.getError().getCause() instanceof DeadlineExceededException);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.zandero.http.buffer;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferPoolTest {
+
+    @Test
+    void sizeClasses() {
+
+        BufferPool pool = new BufferPool(2, 2);
+
+        assertEquals(512, pool.acquire(1).length);
+        assertEquals(1024, pool.acquire(513).length);
+        assertEquals(8 * 1024, pool.acquire(8 * 1024).length);
+        assertEquals(BufferPool.MAX_SIZE + 1, pool.acquire(BufferPool.MAX_SIZE + 1).length); // not pooled
+
+        ByteBuffer direct = pool.acquireDirect(1000);
+        assertTrue(direct.isDirect());
+        assertEquals(1024, direct.capacity());
+        assertEquals(5, pool.getOutstanding());
+    }
+
+    @Test
+    void reuseThreadLocalThenGlobal() throws Exception {
+
+        BufferPool pool = new BufferPool(1, 2);
+
+        byte[] first = pool.acquire(1024);
+        byte[] second = pool.acquire(1024);
+        pool.release(first);  // thread local
+        pool.release(second); // global
+
+        assertSame(first, pool.acquire(1024));
+
+        // other thread takes from global pool
+        byte[] other = CompletableFuture.supplyAsync(() -> pool.acquire(1024)).get(1, TimeUnit.SECONDS);
+        assertSame(second, other);
+
+        ByteBuffer direct = pool.acquireDirect(4096);
+        direct.put((byte) 1);
+        pool.release(direct);
+
+        ByteBuffer reused = pool.acquireDirect(4000);
+        assertSame(direct, reused);
+        assertEquals(0, reused.position());
+        assertEquals(3, pool.getOutstanding());
+    }
+
+    @Test
+    void leakDetection() {
+
+        BufferPool pool = new BufferPool(4, 4);
+        pool.setLeakDetection(true);
+
+        byte[] released = pool.acquire(100);
+        pool.acquire(2000);
+        pool.release(released);
+
+        List<Throwable> leaks = pool.getLeaks();
+        assertEquals(1, leaks.size());
+        assertTrue(leaks.get(0).getMessage().startsWith("Buffer of 2048 bytes"));
+        assertEquals(BufferPoolTest.class.getName(), leaks.get(0).getStackTrace()[2].getClassName());
+
+        pool.setLeakDetection(false);
+        assertTrue(pool.getLeaks().isEmpty());
+    }
+
+    @Test
+    void outputStreamGrows() throws IOException {
+
+        BufferPool pool = new BufferPool(4, 4);
+        byte[] data = new byte[20_000];
+        Arrays.fill(data, (byte) 'a');
+
+        try (BufferOutputStream out = new BufferOutputStream(pool, 10)) {
+            out.write('b');
+            assertEquals(20_000, out.readFrom(new ByteArrayInputStream(data)));
+            out.write(data, 0, 5);
+
+            assertEquals(20_006, out.size());
+            assertEquals('b', out.toByteArray()[0]);
+            assertTrue(out.toString(StandardCharsets.US_ASCII).endsWith("aaaaa"));
+        }
+
+        assertEquals(0, pool.getOutstanding());
+    }
+
+    @Test
+    void initialSizeIsCapped() {
+
+        assertEquals(100, BufferOutputStream.initialSize(100, 8192));
+        assertEquals(8192, BufferOutputStream.initialSize(-1, 8192));
+        assertEquals(BufferPool.MAX_SIZE, BufferOutputStream.initialSize(Integer.MAX_VALUE - 1, 8192));
+        assertEquals(BufferPool.MAX_SIZE, BufferOutputStream.initialSize(Long.MAX_VALUE, 8192));
+    }
+
+    @Test
+    void writeUtf8AsGetBytes() throws IOException {
+
+        String value = "plain é € 😀 \ud800 end";
+        try (BufferOutputStream out = new BufferOutputStream(new BufferPool(1, 1), 1)) {
+            out.writeUtf8(value);
+            assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            out.writeTo(copy);
+            assertArrayEquals(value.getBytes(StandardCharsets.UTF_8), copy.toByteArray());
+        }
+    }
+
+    @Test
+    void noLeaksInIoPath() throws Exception {
+
+        BufferPool pool = BufferPool.getDefault();
+        pool.setLeakDetection(true);
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "first\r\nsecond\n");
+            server.respond("/error", 500, "failed");
+
+            server.handle("/length", exchange -> LocalServer.send(exchange, 200, "" + exchange.getRequestBody().readAllBytes().length));
+
+            assertEquals("firstsecond", Http.get(server.url("/ok")).getResponse());
+            assertEquals("10", Http.post(server.url("/length"), "é€ body").getResponse()); // UTF-8 encoded
+            Http.HttpException error = assertThrows(Http.HttpException.class, () -> Http.getAs(server.url("/error"), Map.class));
+            assertEquals("failed", error.getMessage());
+
+            assertArrayEquals("first\r\nsecond\n".getBytes(StandardCharsets.UTF_8), HttpUtils.getContent(HttpUtils.execute(HttpUtils.get(server.url("/ok")))));
+            assertEquals("first\r\nsecond\n", HttpUtils.getContentAsString(HttpUtils.execute(HttpUtils.get(server.url("/ok")))));
+
+            assertEquals(Collections.emptyList(), pool.getLeaks());
+        } finally {
+            pool.setLeakDetection(false);
+        }
+    }
+}
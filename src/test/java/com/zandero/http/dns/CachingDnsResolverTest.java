@@ -0,0 +1,180 @@
+package com.zandero.http.dns;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.apache.http.conn.*;
+import org.apache.http.impl.conn.*;
+import org.junit.jupiter.api.*;
+
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDnsResolverTest {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    private DnsResolver hosts() throws UnknownHostException {
+
+        InMemoryDnsResolver map = new InMemoryDnsResolver();
+        map.add("my.service", InetAddress.getByName("127.0.0.1"));
+        map.add("dual.service", InetAddress.getByName("::1"), InetAddress.getByName("127.0.0.1"));
+
+        return host -> {
+            lookups.incrementAndGet();
+            return map.resolve(host);
+        };
+    }
+
+    @Test
+    void cached() throws Exception {
+
+        CachingDnsResolver resolver = new CachingDnsResolver(hosts());
+
+        assertEquals("127.0.0.1", resolver.resolve("my.service")[0].getHostAddress());
+        assertEquals("127.0.0.1", resolver.resolve("my.service")[0].getHostAddress());
+        assertEquals(2, resolver.resolve("dual.service").length);
+
+        assertEquals(2, lookups.get());
+        assertEquals(2, resolver.size());
+
+        resolver.invalidate("my.service");
+        resolver.resolve("my.service");
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    void negativeCached() throws Exception {
+
+        CachingDnsResolver resolver = new CachingDnsResolver(hosts());
+
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("unknown.service"));
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("unknown.service"));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void expiredAndRefreshedAhead() throws Exception {
+
+        CachingDnsResolver resolver = new CachingDnsResolver(hosts(), 500, 0, TimeUnit.MILLISECONDS);
+
+        resolver.resolve("my.service");
+        assertEquals(1, lookups.get());
+
+        // within refresh window ... served from cache, refreshed in background
+        Thread.sleep(420);
+        resolver.resolve("my.service");
+
+        long start = System.currentTimeMillis();
+        while (lookups.get() < 2 && System.currentTimeMillis() - start < 2000) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, lookups.get());
+
+        // refreshed entry is used
+        resolver.resolve("my.service");
+        assertEquals(2, lookups.get());
+
+        // zero negative ttl ... not cached
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("unknown.service"));
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("unknown.service"));
+        assertEquals(4, lookups.get());
+    }
+
+    @Test
+    void failingDelegateIsNotCached() throws Exception {
+
+        AtomicBoolean failing = new AtomicBoolean(true);
+        AtomicInteger failures = new AtomicInteger();
+        DnsResolver hosts = hosts();
+
+        DnsResolver delegate = host -> {
+            if (failing.get()) {
+                failures.incrementAndGet();
+                throw new IllegalStateException("Resolver failed");
+            }
+            return hosts.resolve(host);
+        };
+
+        // refresh runs on calling thread
+        CachingDnsResolver resolver = new CachingDnsResolver(delegate, 1000, 1000, TimeUnit.MILLISECONDS, Runnable::run);
+
+        assertThrows(IllegalStateException.class, () -> resolver.resolve("my.service"));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> resolver.resolveAsync("my.service").get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals(2, failures.get());
+        assertEquals(0, resolver.size());
+
+        // next lookup is not blocked by failed one
+        failing.set(false);
+        assertEquals("127.0.0.1", resolver.resolve("my.service")[0].getHostAddress());
+        assertEquals(1, lookups.get());
+
+        // failed refresh ... cached addresses are served, refresh is retried
+        Thread.sleep(850);
+        failing.set(true);
+        assertEquals("127.0.0.1", resolver.resolve("my.service")[0].getHostAddress());
+        assertEquals(3, failures.get());
+
+        failing.set(false);
+        assertEquals("127.0.0.1", resolver.resolve("my.service")[0].getHostAddress());
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void resolveAsync() throws Exception {
+
+        CachingDnsResolver resolver = new CachingDnsResolver(hosts());
+
+        assertEquals("127.0.0.1", resolver.resolveAsync("my.service").get(1, TimeUnit.SECONDS)[0].getHostAddress());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> resolver.resolveAsync("unknown.service").get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof UnknownHostException);
+    }
+
+    @Test
+    void interleave() throws Exception {
+
+        InetAddress[] addresses = {InetAddress.getByName("10.0.0.1"),
+                                   InetAddress.getByName("10.0.0.2"),
+                                   InetAddress.getByName("::1"),
+                                   InetAddress.getByName("::2")};
+
+        List<InetAddress> ordered = HappyEyeballs.interleave(addresses);
+        assertEquals(Arrays.asList(addresses[2], addresses[0], addresses[3], addresses[1]), ordered);
+    }
+
+    @Test
+    void raceToFastestAddress() throws Exception {
+
+        try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+
+            // 127.0.0.2 is refused (nobody listening) ... next address wins
+            InetAddress[] addresses = {InetAddress.getByName("127.0.0.2"), InetAddress.getByName("127.0.0.1")};
+            try (Socket socket = HappyEyeballs.connect(addresses, server.getLocalPort(), 2000)) {
+                assertTrue(socket.isConnected());
+                assertEquals("127.0.0.1", socket.getInetAddress().getHostAddress());
+            }
+        }
+    }
+
+    @Test
+    void httpUtilsWithStaticHosts() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "OK");
+
+            HttpUtils.setDnsResolver(new CachingDnsResolver(hosts()));
+
+            HttpResponse response = HttpUtils.execute(HttpUtils.get("http://my.service:" + server.getPort() + "/ok"));
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("OK", HttpUtils.getContentAsString(response));
+        } finally {
+            HttpUtils.setDnsResolver(null);
+        }
+    }
+}
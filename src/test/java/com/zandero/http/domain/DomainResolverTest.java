@@ -0,0 +1,109 @@
+package com.zandero.http.domain;
+
+import com.zandero.http.*;
+import com.zandero.http.cache.*;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.*;
+import java.nio.charset.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DomainResolverTest {
+
+    @Test
+    void resolveWithRules() throws IOException {
+
+        String list = "// comment\n" +
+                      "com\n" +
+                      "uk\n" +
+                      "co.uk\n" +
+                      "*.ck\n" +
+                      "!www.ck\n" +
+                      "github.io   trailing text is ignored\n";
+
+        PublicSuffixTrie trie = PublicSuffixTrie.load(new ByteArrayInputStream(list.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("example.com", trie.getRegistrableDomain("www.example.com"));
+        assertEquals("example.com", trie.getRegistrableDomain("example.com"));
+        assertNull(trie.getRegistrableDomain("com"));
+
+        assertEquals("example.co.uk", trie.getRegistrableDomain("a.b.example.co.uk"));
+        assertNull(trie.getRegistrableDomain("co.uk"));
+
+        // wildcard and exception
+        assertEquals("shop.example.ck", trie.getRegistrableDomain("a.shop.example.ck"));
+        assertNull(trie.getRegistrableDomain("example.ck"));
+        assertEquals("www.ck", trie.getRegistrableDomain("www.ck"));
+        assertEquals("www.ck", trie.getRegistrableDomain("a.www.ck"));
+
+        // private suffix
+        assertEquals("zandero.github.io", trie.getRegistrableDomain("zandero.github.io"));
+
+        // not listed ... implicit * rule
+        assertEquals("example.local", trie.getRegistrableDomain("my.example.local"));
+        assertEquals(1, trie.getSuffixLabels("localhost"));
+    }
+
+    @Test
+    void resolveWithDefaultList() {
+
+        DomainResolver resolver = DomainResolver.getDefault();
+
+        assertEquals("zandero.com", resolver.resolve("www.zandero.com"));
+        assertEquals("zandero.com", resolver.resolve("WWW.Zandero.com."));
+        assertEquals("bbc.co.uk", resolver.resolve("news.bbc.co.uk"));
+        assertEquals("city.kobe.jp", resolver.resolve("www.city.kobe.jp"));
+
+        // no registrable domain ... host is returned
+        assertEquals("localhost", resolver.resolve("localhost"));
+        assertEquals("co.uk", resolver.resolve("co.uk"));
+        assertEquals("127.0.0.1", resolver.resolve("127.0.0.1"));
+        assertEquals("::1", resolver.resolve("::1"));
+
+        assertNull(resolver.resolve(null));
+        assertNull(resolver.resolve(" "));
+    }
+
+    @Test
+    void requestDomainIsCached() {
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getServerName()).thenReturn("api.example.com");
+
+        DomainResolver resolver = new DomainResolver(PublicSuffixTrie.of("com"), 2);
+        RequestUtils.setDomainResolver(resolver);
+        try {
+            String domain = RequestUtils.getDomain(request);
+            assertEquals("example.com", domain);
+            assertSame(domain, RequestUtils.getDomain(request));
+            assertNull(RequestUtils.getDomain((HttpServletRequest) null));
+        } finally {
+            RequestUtils.setDomainResolver(null);
+        }
+    }
+
+    @Test
+    void cacheIsBounded() {
+
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a")); // a was recently used
+
+        cache.put("c", "3");
+        assertEquals(2, cache.size());
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        assertEquals("4", cache.get("d", key -> "4"));
+        assertEquals(2, cache.size());
+
+        cache.put("e", null);
+        assertNull(cache.get("e"));
+        assertEquals(2, cache.size());
+    }
+}
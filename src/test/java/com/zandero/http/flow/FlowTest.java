@@ -0,0 +1,183 @@
+package com.zandero.http.flow;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.apache.http.client.methods.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlowTest {
+
+    private static final int SIZE = 256 * 1024;
+
+    @Test
+    void streamResponseOnDemand() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/large", exchange -> {
+                exchange.sendResponseHeaders(200, SIZE);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(new byte[SIZE]);
+                }
+                exchange.close();
+            });
+
+            StreamingResponse response = HttpUtils.executeStreaming(new HttpGet(server.url("/large"))).get(5, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("" + SIZE, response.getHeader("Content-Length"));
+
+            Collector collector = new Collector(1);
+            response.getBody().subscribe(collector);
+
+            // only requested chunks are delivered
+            collector.awaitChunks(1);
+            Thread.sleep(200);
+            assertEquals(1, collector.chunks.get());
+
+            collector.subscription.request(Long.MAX_VALUE);
+            assertEquals(SIZE, collector.done.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void uploadFromPublisher() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> {
+                String body = LocalServer.read(exchange);
+                exchange.getResponseHeaders().add("X-Content-Type", exchange.getRequestHeaders().getFirst("Content-Type"));
+                LocalServer.send(exchange, 200, body);
+            });
+
+            SubmissionPublisher<ByteBuffer> publisher = new SubmissionPublisher<>();
+            CompletableFuture<StreamingResponse> future = HttpUtils.executeStreaming(new HttpPost(server.url("/echo")), publisher, -1, "text/plain");
+
+            // publisher is subscribed once request is sent
+            long until = System.currentTimeMillis() + 2000;
+            while (!publisher.hasSubscribers() && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+            }
+
+            for (String part : Arrays.asList("one ", "two ", "three")) {
+                publisher.submit(ByteBuffer.wrap(part.getBytes(StandardCharsets.UTF_8)));
+            }
+            publisher.close();
+
+            StreamingResponse response = future.get(5, TimeUnit.SECONDS);
+            assertEquals(200, response.getStatusCode());
+            assertEquals("text/plain", response.getHeader("X-Content-Type"));
+            assertEquals("one two three", Collector.readAll(response));
+        }
+    }
+
+    @Test
+    void pipeResponseIntoRequest() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/source", exchange -> {
+                exchange.sendResponseHeaders(200, SIZE);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    byte[] data = new byte[SIZE];
+                    Arrays.fill(data, (byte) 'x');
+                    out.write(data);
+                }
+                exchange.close();
+            });
+
+            server.handle("/sink", exchange -> LocalServer.send(exchange, 200, "" + LocalServer.read(exchange).length()));
+
+            StreamingResponse source = HttpUtils.executeStreaming(new HttpGet(server.url("/source"))).get(5, TimeUnit.SECONDS);
+            long length = Long.parseLong(source.getHeader("Content-Length"));
+
+            StreamingResponse sink = HttpUtils.executeStreaming(new HttpPut(server.url("/sink")), source.getBody(), length, null)
+                                              .get(5, TimeUnit.SECONDS);
+
+            assertEquals(200, sink.getStatusCode());
+            assertEquals("" + SIZE, Collector.readAll(sink));
+        }
+    }
+
+    @Test
+    void bodyCanBeSubscribedOnce() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/small", 200, "hello");
+
+            StreamingResponse response = HttpUtils.executeStreaming(new HttpGet(server.url("/small"))).get(5, TimeUnit.SECONDS);
+            assertEquals("hello", Collector.readAll(response));
+
+            Collector second = new Collector(1);
+            response.getBody().subscribe(second);
+            ExecutionException error = assertThrows(ExecutionException.class, () -> second.done.get(1, TimeUnit.SECONDS));
+            assertTrue(error.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static class Collector implements Flow.Subscriber<ByteBuffer> {
+
+        private final long initial;
+
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        private final AtomicInteger chunks = new AtomicInteger();
+
+        private final CompletableFuture<Integer> done = new CompletableFuture<>();
+
+        private volatile Flow.Subscription subscription;
+
+        Collector(long initialDemand) {
+            initial = initialDemand;
+        }
+
+        static String readAll(StreamingResponse response) throws Exception {
+
+            Collector collector = new Collector(Long.MAX_VALUE);
+            response.getBody().subscribe(collector);
+            collector.done.get(5, TimeUnit.SECONDS);
+            return new String(collector.data.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        void awaitChunks(int count) throws InterruptedException {
+
+            long until = System.currentTimeMillis() + 2000;
+            while (chunks.get() < count && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            subscription = s;
+            s.request(initial);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+
+            byte[] bytes = new byte[item.remaining()];
+            item.get(bytes);
+            synchronized (data) {
+                data.write(bytes, 0, bytes.length);
+            }
+            chunks.incrementAndGet();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(data.size());
+        }
+    }
+}
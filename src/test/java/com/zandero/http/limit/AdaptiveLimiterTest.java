@@ -0,0 +1,131 @@
+package com.zandero.http.limit;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTest {
+
+    @Test
+    void aimd() {
+
+        LimitAlgorithm aimd = new AimdLimit(10, 12, 0.5);
+        assertEquals(11, aimd.update(10, 1000, 10, false));
+        assertEquals(12, aimd.update(12, 1000, 12, false)); // max
+        assertEquals(10, aimd.update(10, 1000, 2, false)); // limit not utilized
+        assertEquals(5, aimd.update(10, 1000, 10, true));
+        assertEquals(1, aimd.update(1, 1000, 1, true));
+    }
+
+    @Test
+    void vegas() {
+
+        LimitAlgorithm vegas = LimitAlgorithm.vegas();
+
+        int limit = vegas.getInitialLimit();
+        limit = vegas.update(limit, 1_000_000, limit, false); // no queue ... grows
+        assertTrue(limit > 10);
+
+        int grown = limit;
+        limit = vegas.update(limit, 10_000_000, limit, false); // rtt 10x ... queue building up
+        assertTrue(limit < grown);
+
+        assertTrue(vegas.update(limit, 1_000_000, limit, true) < limit);
+    }
+
+    @Test
+    void gradient() {
+
+        LimitAlgorithm gradient = LimitAlgorithm.gradient();
+
+        int limit = gradient.getInitialLimit();
+        for (int i = 0; i < 20; i++) {
+            limit = gradient.update(limit, 1_000_000, limit, false);
+        }
+        assertTrue(limit > 10);
+
+        int grown = limit;
+        for (int i = 0; i < 20; i++) {
+            limit = gradient.update(limit, 50_000_000, limit, false);
+        }
+        assertTrue(limit < grown);
+    }
+
+    @Test
+    void rejectsOverLimit() throws Exception {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new AimdLimit(2, 10, 0.5));
+
+        AdaptiveLimiter.Permit first = limiter.acquire();
+        AdaptiveLimiter.Permit second = limiter.acquire();
+        assertEquals(2, limiter.getInFlight());
+
+        assertNull(limiter.tryAcquire());
+        assertThrows(LimitExceededException.class, limiter::acquire);
+
+        first.dropped();
+        first.success(); // ignored ... already released
+        assertEquals(1, limiter.getLimit());
+        assertEquals(1, limiter.getInFlight());
+
+        second.ignore();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, limiter.getLimit());
+    }
+
+    @Test
+    void queuesOverLimit() throws Exception {
+
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new AimdLimit(1, 10, 0.5), 1, 2, TimeUnit.SECONDS);
+        AdaptiveLimiter.Permit first = limiter.acquire();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<AdaptiveLimiter.Permit> queued = executor.submit(limiter::acquire);
+
+            while (limiter.getWaiting() == 0) {
+                Thread.sleep(5);
+            }
+
+            // queue is full
+            assertThrows(LimitExceededException.class, limiter::acquire);
+
+            first.success();
+            assertNotNull(queued.get(1, TimeUnit.SECONDS));
+            assertEquals(1, limiter.getInFlight());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        AdaptiveLimiter timingOut = new AdaptiveLimiter(new AimdLimit(1, 10, 0.5), 1, 50, TimeUnit.MILLISECONDS);
+        timingOut.acquire();
+        assertThrows(LimitExceededException.class, timingOut::acquire);
+    }
+
+    @Test
+    void limitPerHost() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "OK");
+            server.respond("/busy", 503, "Busy");
+
+            ConcurrencyLimiter limiter = new ConcurrencyLimiter(() -> new AimdLimit(10, 20, 0.5), 0, 0, TimeUnit.SECONDS);
+
+            HttpResponse response = limiter.execute(HttpUtils.get(server.url("/ok")));
+            assertEquals(200, response.getStatusLine().getStatusCode());
+
+            response = limiter.execute(HttpUtils.get(server.url("/busy")));
+            assertEquals(503, response.getStatusLine().getStatusCode());
+
+            AdaptiveLimiter host = limiter.forHost("127.0.0.1:" + server.getPort());
+            assertEquals(5, host.getLimit());
+            assertEquals(0, host.getInFlight());
+            assertEquals(1, limiter.getLimiters().size());
+        }
+    }
+}
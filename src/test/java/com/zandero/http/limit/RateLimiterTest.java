@@ -0,0 +1,143 @@
+package com.zandero.http.limit;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void burstThenRate() throws Exception {
+
+        RateLimiter limiter = new RateLimiter(20, 3); // one permit per 50ms
+
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertTrue(limiter.tryAcquire("a"));
+        assertFalse(limiter.tryAcquire("a"));
+
+        // other keys are independent
+        assertTrue(limiter.tryAcquire("b"));
+
+        assertTrue(limiter.getWaitTime("a", TimeUnit.MILLISECONDS) > 0);
+        assertFalse(limiter.tryAcquire("a", 1, TimeUnit.MILLISECONDS));
+
+        long start = System.nanoTime();
+        limiter.acquire("a");
+        limiter.acquire("a");
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 80, "Elapsed: " + elapsed);
+    }
+
+    @Test
+    void acquireAsync() throws Exception {
+
+        RateLimiter limiter = new RateLimiter(10, 1);
+
+        CompletableFuture<Void> first = limiter.acquireAsync("a");
+        assertTrue(first.isDone());
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> second = limiter.acquireAsync("a");
+        assertFalse(second.isDone());
+
+        second.get(1, TimeUnit.SECONDS);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 90);
+    }
+
+    @Test
+    void concurrentAcquireHonoursRate() throws Exception {
+
+        RateLimiter limiter = new RateLimiter(1, 5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> limiter.tryAcquire("key")));
+            }
+
+            int acquired = 0;
+            for (Future<Boolean> result : results) {
+                acquired += result.get() ? 1 : 0;
+            }
+
+            assertEquals(5, acquired);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void pausedByRetryAfter() {
+
+        RateLimiter limiter = new RateLimiter(100, 10);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Retry-After", "2");
+        limiter.update("a", 429, headers::get);
+
+        assertFalse(limiter.tryAcquire("a"));
+        long wait = limiter.getWaitTime("a", TimeUnit.MILLISECONDS);
+        assertTrue(wait > 1500 && wait <= 2000, "Wait: " + wait);
+    }
+
+    @Test
+    void quotaExhausted() {
+
+        RateLimiter limiter = new RateLimiter(100, 10);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("X-RateLimit-Remaining", "0");
+        headers.put("X-RateLimit-Reset", "3");
+        limiter.update("a", 200, headers::get);
+
+        assertFalse(limiter.tryAcquire("a"));
+        assertTrue(limiter.getWaitTime("a", TimeUnit.MILLISECONDS) > 2500);
+
+        // remaining quota is spread till reset ... 2 requests in 2 seconds
+        headers.put("X-RateLimit-Remaining", "2");
+        headers.put("X-RateLimit-Reset", "2");
+        limiter.update("b", 200, headers::get);
+
+        assertTrue(limiter.tryAcquire("b"));
+        limiter.remove("b");
+    }
+
+    @Test
+    void parseHeaders() {
+
+        assertEquals(TimeUnit.SECONDS.toNanos(5), (long) RateLimiter.parseRetryAfter("5"));
+        assertNull(RateLimiter.parseRetryAfter(null));
+        assertNull(RateLimiter.parseRetryAfter("bla"));
+        assertEquals(0L, (long) RateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+
+        long epoch = System.currentTimeMillis() / 1000 + 10;
+        long reset = RateLimiter.parseReset(Long.toString(epoch));
+        assertTrue(reset > TimeUnit.SECONDS.toNanos(8) && reset <= TimeUnit.SECONDS.toNanos(10));
+        assertEquals(TimeUnit.SECONDS.toNanos(30), (long) RateLimiter.parseReset("30"));
+    }
+
+    @Test
+    void executeAdaptsFromResponse() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/limited", exchange -> {
+                exchange.getResponseHeaders().add("Retry-After", "5");
+                LocalServer.send(exchange, 429, "Too many requests");
+            });
+
+            RateLimiter limiter = new RateLimiter(100, 10);
+            Http.Response response = limiter.execute("POST", server.url("/limited"), "body", null, null);
+            assertEquals(429, response.getCode());
+
+            assertEquals("127.0.0.1:" + server.getPort(), RateLimiter.hostKey(server.url("/limited")));
+            assertFalse(limiter.tryAcquire(RateLimiter.hostKey(server.url("/other"))));
+        }
+    }
+}
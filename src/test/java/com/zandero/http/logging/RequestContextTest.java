@@ -0,0 +1,130 @@
+package com.zandero.http.logging;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.extension.*;
+import org.mockito.*;
+import org.mockito.junit.jupiter.*;
+import org.mockito.quality.*;
+import org.slf4j.*;
+
+import javax.servlet.http.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RequestContextTest {
+
+    @Mock
+    HttpServletRequest request;
+
+    @Test
+    void idsAreOrderedAndUnique() throws Exception {
+
+        long before = System.currentTimeMillis();
+        String previous = RequestId.next();
+        for (int i = 0; i < 10_000; i++) {
+            String next = RequestId.next();
+            assertEquals(RequestId.LENGTH, next.length());
+            assertTrue(next.compareTo(previous) > 0, next + " > " + previous);
+            previous = next;
+        }
+
+        long time = RequestId.getTime(previous);
+        assertTrue(time >= before && time <= System.currentTimeMillis());
+
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(RequestId.next());
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(40_000, ids.size());
+    }
+
+    @Test
+    void attributesAreComputedLazily() {
+
+        Mockito.when(request.getServerName()).thenReturn("www.example.com");
+        Mockito.when(request.getHeader("X-Forwarded-For")).thenReturn("10.0.0.1");
+        Mockito.when(request.getQueryString()).thenReturn(" ");
+
+        try (RequestContext context = RequestContext.start(request)) {
+
+            assertSame(context, RequestContext.current());
+            assertEquals(context.getId(), MDC.get(RequestContext.REQUEST_ID));
+            assertNull(MDC.get(RequestContext.HOST));
+
+            // nothing but request id and trace context is computed upfront
+            Mockito.verify(request, Mockito.never()).getServerName();
+            Mockito.verify(request, Mockito.never()).getHeader("X-Forwarded-For");
+
+            Object host = context.lazy(RequestContext.HOST);
+            Mockito.verify(request, Mockito.never()).getServerName();
+
+            assertEquals("www.example.com", host.toString());
+            assertEquals("www.example.com", context.get(RequestContext.HOST));
+            Mockito.verify(request, Mockito.times(1)).getServerName();
+
+            assertNull(context.get(RequestContext.QUERY));
+
+            context.mdc(RequestContext.IP);
+            assertEquals("10.0.0.1", MDC.get(RequestContext.IP));
+        }
+
+        assertNull(RequestContext.current());
+        assertNull(MDC.get(RequestContext.REQUEST_ID));
+        assertNull(MDC.get(RequestContext.IP));
+    }
+
+    @Test
+    void nestedContextsRestorePrevious() {
+
+        MDC.put(RequestContext.REQUEST_ID, "outer-id");
+        try (RequestContext outer = RequestContext.start("http://localhost:8080/path", "a=1")) {
+
+            assertEquals("/path", outer.get(RequestContext.PATH));
+            assertEquals("8080", outer.get(RequestContext.PORT));
+            assertEquals("a=1", outer.get(RequestContext.QUERY));
+
+            try (RequestContext inner = RequestContext.start()) {
+                assertSame(inner, RequestContext.current());
+                assertEquals(inner.getId(), MDC.get(RequestContext.REQUEST_ID));
+            }
+
+            assertSame(outer, RequestContext.current());
+            assertEquals(outer.getId(), MDC.get(RequestContext.REQUEST_ID));
+        } finally {
+            assertEquals("outer-id", MDC.get(RequestContext.REQUEST_ID));
+            MDC.clear();
+        }
+
+        assertNull(RequestContext.current());
+    }
+
+    @Test
+    void closedContextDoesNotComputeAttributes() {
+
+        RequestContext context = RequestContext.start(request);
+        context.close();
+        context.close(); // closing twice is ignored
+
+        assertNull(context.get(RequestContext.HOST));
+        Mockito.verify(request, Mockito.never()).getServerName();
+    }
+}
@@ -0,0 +1,144 @@
+package com.zandero.http.multipart;
+
+import com.sun.net.httpserver.*;
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartTest {
+
+    @Test
+    void encodeParts() throws IOException {
+
+        Multipart form = new Multipart("boundary")
+                             .field("name", "value")
+                             .field("json", "{}", "application/json")
+                             .stream("data", "a\"b.bin", new ByteArrayInputStream(new byte[]{'x', 'y'}), 2, null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        form.writeTo(out);
+
+        String expected = "--boundary\r\n" +
+                          "Content-Disposition: form-data; name=\"name\"\r\n" +
+                          "\r\n" +
+                          "value\r\n" +
+                          "--boundary\r\n" +
+                          "Content-Disposition: form-data; name=\"json\"\r\n" +
+                          "Content-Type: application/json\r\n" +
+                          "\r\n" +
+                          "{}\r\n" +
+                          "--boundary\r\n" +
+                          "Content-Disposition: form-data; name=\"data\"; filename=\"a%22b.bin\"\r\n" +
+                          "Content-Type: application/octet-stream\r\n" +
+                          "\r\n" +
+                          "xy\r\n" +
+                          "--boundary--\r\n";
+
+        assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.length(), form.getContentLength());
+        assertEquals("multipart/form-data; boundary=boundary", form.getContentType().getValue());
+        assertFalse(form.isRepeatable());
+
+        Multipart unknown = new Multipart().stream("data", null, new ByteArrayInputStream(new byte[0]), -1, null);
+        assertEquals(-1, unknown.getContentLength());
+        assertTrue(unknown.isChunked());
+    }
+
+    @Test
+    void readContentAsWritten(@TempDir Path dir) throws IOException {
+
+        Path file = dir.resolve("data.txt");
+        Files.write(file, "file content".getBytes(StandardCharsets.UTF_8));
+
+        Multipart form = new Multipart("boundary").field("name", "value").file("file", file);
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        form.writeTo(written);
+
+        // read twice, file parts are repeatable
+        for (int i = 0; i < 2; i++) {
+            try (InputStream in = form.getContent()) {
+                assertArrayEquals(written.toByteArray(), in.readAllBytes());
+            }
+        }
+
+        try (InputStream in = new Multipart("empty").getContent()) {
+            assertEquals("--empty--\r\n", new String(in.readAllBytes(), StandardCharsets.US_ASCII));
+        }
+    }
+
+    @Test
+    void uploadFileWithHttp(@TempDir Path dir) throws Exception {
+
+        Path file = dir.resolve("upload.txt");
+        byte[] content = new byte[1024 * 1024];
+        Arrays.fill(content, (byte) 'a');
+        Files.write(file, content);
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/upload", MultipartTest::echo);
+
+            Multipart form = new Multipart().field("name", "test").file("file", file.toFile());
+            Http.Response response = Http.post(server.url("/upload"), form);
+
+            assertEquals(200, response.getCode());
+            assertEquals("" + form.getContentLength(), response.getHeaders("X-Content-Length").get(0));
+            assertEquals(form.getContentType().getValue(), response.getHeaders("X-Content-Type").get(0));
+            assertTrue(response.getResponse().contains("filename=\"upload.txt\"Content-Type: text/plain"));
+            assertEquals(form.getContentLength() - 10 * 2, response.getResponse().length()); // 10 line breaks are dropped from response
+        }
+    }
+
+    @Test
+    void uploadStreamWithHttpUtils() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/upload", MultipartTest::echo);
+
+            Multipart form = new Multipart().stream("data", "data.bin", new ByteArrayInputStream("streamed".getBytes(StandardCharsets.UTF_8)), -1, "text/plain");
+            HttpResponse response = HttpUtils.execute(HttpUtils.post(server.url("/upload"), form));
+
+            assertEquals("chunked", response.getFirstHeader("X-Transfer-Encoding").getValue());
+            String body = HttpUtils.getContentAsString(response);
+            assertTrue(body.startsWith("--" + form.getBoundary() + "\r\n"));
+            assertTrue(body.contains("\r\n\r\nstreamed\r\n--" + form.getBoundary() + "--\r\n"));
+        }
+    }
+
+    @Test
+    void uploadAsync() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/upload", MultipartTest::echo);
+
+            Multipart form = new Multipart().field("name", "async")
+                                            .stream("data", "data.bin", new ByteArrayInputStream("streamed".getBytes(StandardCharsets.UTF_8)), 8, "text/plain");
+
+            HttpResponse response = HttpUtils.executeAsync(HttpUtils.post(server.url("/upload"), form)).get(5, TimeUnit.SECONDS);
+
+            assertEquals("" + form.getContentLength(), response.getFirstHeader("X-Content-Length").getValue());
+            String body = HttpUtils.getContentAsString(response);
+            assertTrue(body.contains("\r\n\r\nasync\r\n"));
+            assertTrue(body.endsWith("\r\n\r\nstreamed\r\n--" + form.getBoundary() + "--\r\n"));
+        }
+    }
+
+    private static void echo(HttpExchange exchange) throws IOException {
+
+        Headers headers = exchange.getRequestHeaders();
+        exchange.getResponseHeaders().add("X-Content-Length", "" + headers.getFirst("Content-Length"));
+        exchange.getResponseHeaders().add("X-Transfer-Encoding", "" + headers.getFirst("Transfer-Encoding"));
+        exchange.getResponseHeaders().add("X-Content-Type", "" + headers.getFirst("Content-Type"));
+        LocalServer.send(exchange, 200, LocalServer.read(exchange));
+    }
+}
@@ -0,0 +1,341 @@
+package com.zandero.http.proxy;
+
+import com.zandero.http.test.*;
+import com.sun.net.httpserver.*;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProxyServletTest {
+
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+    private final Map<String, String> responseHeaders = Collections.synchronizedMap(new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+
+    @Test
+    void streamBodiesAndRewriteHeaders() throws Exception {
+
+        byte[] body = new byte[100_000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + i % 26);
+        }
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/backend/echo", exchange -> {
+
+                Headers headers = exchange.getRequestHeaders();
+                exchange.getResponseHeaders().add("X-Received", exchange.getRequestMethod() + " " + exchange.getRequestURI() + " " +
+                                                                 headers.getFirst("X-Forwarded-For") + " " +
+                                                                 headers.getFirst("X-Forwarded-Proto") + " " +
+                                                                 headers.getFirst("X-Forwarded-Host") + " " +
+                                                                 headers.getFirst("X-Custom") + " " +
+                                                                 headers.containsKey("Keep-Alive") + " " +
+                                                                 headers.containsKey("X-Secret"));
+
+                byte[] received = readAll(exchange.getRequestBody());
+                exchange.sendResponseHeaders(201, received.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(received);
+                }
+            });
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Host", "www.example.com");
+            headers.put("Connection", "keep-alive, X-Secret");
+            headers.put("Keep-Alive", "timeout=5");
+            headers.put("X-Secret", "hop");
+            headers.put("X-Custom", "custom");
+            headers.put("X-Forwarded-For", "1.1.1.1");
+
+            HttpServletResponse response = proxy(server.url("/backend/"), "POST", "/echo", "a=1", headers, body);
+
+            Mockito.verify(response).setStatus(201);
+            assertEquals("POST /backend/echo?a=1 1.1.1.1, 10.0.0.2 http www.example.com custom false false", responseHeaders.get("X-Received"));
+            assertEquals(String.valueOf(body.length), responseHeaders.get("Content-Length"));
+            assertArrayEquals(body, written.toByteArray());
+        }
+    }
+
+    @Test
+    void clientAddressIsTakenFromConnection() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/backend/ip", exchange -> {
+
+                Headers headers = exchange.getRequestHeaders();
+                exchange.getResponseHeaders().add("X-Received", headers.getFirst("X-Forwarded-For") + " " +
+                                                                 headers.containsKey("Proxy-Client-IP") + " " +
+                                                                 headers.containsKey("WL-Proxy-Client-IP") + " " +
+                                                                 headers.containsKey("HTTP_CLIENT_IP"));
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            });
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            headers.put("Proxy-Client-IP", "6.6.6.6");
+            headers.put("WL-Proxy-Client-IP", "6.6.6.6");
+            headers.put("HTTP_CLIENT_IP", "6.6.6.6");
+
+            proxy(server.url("/backend/"), "GET", "/ip", null, headers, null);
+            assertEquals("10.0.0.2 false false false", responseHeaders.get("X-Received"));
+        }
+    }
+
+    @Test
+    void concurrentCallsToSlowBackend() throws Exception {
+
+        int calls = 6;
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/backend/slow", exchange -> {
+
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                active.decrementAndGet();
+                exchange.sendResponseHeaders(200, 4);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write("slow".getBytes());
+                }
+            });
+
+            ProxyServlet servlet = new ProxyServlet(server.url("/backend/"));
+            CountDownLatch done = new CountDownLatch(calls);
+
+            for (int i = 0; i < calls; i++) {
+
+                HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+                HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+                AsyncContext context = Mockito.mock(AsyncContext.class);
+
+                Mockito.when(request.isAsyncSupported()).thenReturn(true);
+                Mockito.when(request.startAsync()).thenReturn(context);
+                Mockito.when(request.getMethod()).thenReturn("GET");
+                Mockito.when(request.getPathInfo()).thenReturn("/slow");
+                Mockito.when(request.getRemoteAddr()).thenReturn("10.0.0.2");
+                Mockito.when(request.getContentLengthLong()).thenReturn(-1L);
+                Mockito.when(request.getHeaderNames()).thenAnswer(invocation -> Collections.emptyEnumeration());
+                Mockito.when(request.getHeaders(Mockito.anyString())).thenAnswer(invocation -> Collections.emptyEnumeration());
+
+                Mockito.when(response.getOutputStream()).thenReturn(new Output());
+                Mockito.doAnswer(invocation -> {
+                    done.countDown();
+                    return null;
+                }).when(context).complete();
+
+                servlet.service(request, response);
+            }
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(calls, maxActive.get()); // all exchanges held open at once
+            assertEquals("slow".repeat(calls), written.toString());
+        }
+    }
+
+    @Test
+    void redirectIsPassedToClient() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/backend/moved", exchange -> {
+                exchange.getResponseHeaders().add("Location", "/backend/target");
+                LocalServer.send(exchange, 302, null);
+            });
+            server.respond("/backend/target", 200, "target");
+
+            HttpServletResponse response = proxy(server.url("/backend/"), "GET", "/moved", null, Collections.emptyMap(), null);
+
+            Mockito.verify(response).setStatus(302);
+            assertEquals("/backend/target", responseHeaders.get("Location"));
+            assertEquals(0, written.size());
+        }
+    }
+
+    @Test
+    void cookiesOfTargetAreNotKept() throws Exception {
+
+        AtomicReference<String> cookie = new AtomicReference<>("none");
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/backend/login", exchange -> {
+                exchange.getResponseHeaders().add("Set-Cookie", "session=userA; Path=/");
+                LocalServer.send(exchange, 200, "userA");
+            });
+            server.handle("/backend/me", exchange -> {
+                cookie.set(exchange.getRequestHeaders().getFirst("Cookie"));
+                LocalServer.send(exchange, 200, "me");
+            });
+
+            proxy(server.url("/backend/"), "GET", "/login", null, Collections.emptyMap(), null);
+            assertEquals("session=userA; Path=/", responseHeaders.get("Set-Cookie"));
+
+            // request of another client
+            proxy(server.url("/backend/"), "GET", "/me", null, Collections.emptyMap(), null);
+            assertNull(cookie.get());
+        }
+    }
+
+    @Test
+    void unreachableTargetIsBadGateway() throws Exception {
+
+        int port;
+        try (LocalServer server = new LocalServer()) {
+            port = server.getPort();
+        }
+
+        HttpServletResponse response = proxy("http://127.0.0.1:" + port, "GET", "/closed", null, Collections.emptyMap(), null);
+
+        Mockito.verify(response).setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+        assertEquals(0, written.size());
+    }
+
+    private HttpServletResponse proxy(String target, String method, String path, String query, Map<String, String> headers, byte[] body) throws Exception {
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        AsyncContext context = Mockito.mock(AsyncContext.class);
+        CountDownLatch completed = new CountDownLatch(1);
+
+        Mockito.when(request.isAsyncSupported()).thenReturn(true);
+        Mockito.when(request.startAsync()).thenReturn(context);
+        Mockito.when(request.getMethod()).thenReturn(method);
+        Mockito.when(request.getPathInfo()).thenReturn(path);
+        Mockito.when(request.getQueryString()).thenReturn(query);
+        Mockito.when(request.getScheme()).thenReturn("http");
+        Mockito.when(request.getRemoteAddr()).thenReturn("10.0.0.2");
+        Mockito.when(request.getContentLengthLong()).thenReturn(body != null ? body.length : -1L);
+        Mockito.when(request.getHeaderNames()).thenAnswer(invocation -> Collections.enumeration(headers.keySet()));
+        Mockito.when(request.getHeaders(Mockito.anyString()))
+               .thenAnswer(invocation -> {
+                   String value = headers.get(invocation.<String>getArgument(0));
+                   return Collections.enumeration(value != null ? Collections.singletonList(value) : Collections.emptyList());
+               });
+        Mockito.when(request.getHeader(Mockito.anyString())).thenAnswer(invocation -> headers.get(invocation.<String>getArgument(0)));
+        Mockito.when(request.getInputStream()).thenReturn(new Input(body != null ? body : new byte[0]));
+
+        Mockito.when(response.getOutputStream()).thenReturn(new Output());
+        Mockito.doAnswer(invocation -> responseHeaders.put(invocation.getArgument(0), invocation.getArgument(1)))
+               .when(response).addHeader(Mockito.anyString(), Mockito.anyString());
+        Mockito.doAnswer(invocation -> {
+            completed.countDown();
+            return null;
+        }).when(context).complete();
+
+        new ProxyServlet(target).service(request, response);
+
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        return response;
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Always ready input returning at most 1000 bytes per read
+     */
+    private static class Input extends ServletInputStream {
+
+        private final byte[] data;
+
+        private int position;
+
+        Input(byte[] content) {
+            data = content;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return position >= data.length;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+
+            try {
+                listener.onDataAvailable();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public int read() {
+            return position < data.length ? data[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+
+            if (position >= data.length) {
+                return -1;
+            }
+
+            int read = Math.min(Math.min(length, 1000), data.length - position);
+            System.arraycopy(data, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+    }
+
+    private class Output extends ServletOutputStream {
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+
+            try {
+                listener.onWritePossible();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) {
+
+            synchronized (written) {
+                written.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+
+            synchronized (written) {
+                written.write(buffer, offset, length);
+            }
+        }
+    }
+}
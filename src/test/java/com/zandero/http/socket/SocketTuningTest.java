@@ -0,0 +1,144 @@
+package com.zandero.http.socket;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.apache.http.conn.*;
+import org.apache.http.conn.routing.*;
+import org.apache.http.conn.socket.*;
+import org.apache.http.entity.*;
+import org.apache.http.impl.conn.*;
+import org.junit.jupiter.api.*;
+
+import javax.net.ssl.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SocketTuningTest {
+
+    private final List<SocketMetrics> closed = Collections.synchronizedList(new ArrayList<>());
+
+    private final SocketTuning options = new SocketTuning().setTcpNoDelay(false)
+                                                           .setKeepAlive(true)
+                                                           .setReceiveBufferSize(256 * 1024)
+                                                           .setSendBufferSize(128 * 1024)
+                                                           .setLinger(1)
+                                                           .setLocalAddress(InetAddress.getLoopbackAddress())
+                                                           .setMonitor(closed::add);
+
+    @AfterEach
+    void reset() {
+
+        HttpUtils.setSocketOptions(null);
+        HttpUtils.setConnectionManager(null);
+    }
+
+    @Test
+    void applyOptionsBeforeConnect() throws Exception {
+
+        try (Socket socket = TunedSocketFactory.wrap(PlainConnectionSocketFactory.getSocketFactory(), options).createSocket(null)) {
+
+            assertFalse(socket.isConnected());
+            assertFalse(socket.getTcpNoDelay());
+            assertTrue(socket.getKeepAlive());
+            assertTrue(socket.getReceiveBufferSize() >= 256 * 1024);
+            assertTrue(socket.getSendBufferSize() >= 128 * 1024);
+            assertEquals(1, socket.getSoLinger());
+        }
+
+        // never connected
+        assertTrue(closed.isEmpty());
+    }
+
+    @Test
+    void countBytesOfPooledConnection() throws Exception {
+
+        HttpUtils.setSocketOptions(options);
+        PoolingHttpClientConnectionManager manager = HttpUtils.createConnectionManager(1, 1);
+        HttpUtils.setConnectionManager(manager);
+
+        byte[] body = new byte[10_000];
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/upload", exchange -> LocalServer.send(exchange, 200, "" + LocalServer.read(exchange).length()));
+
+            for (int i = 0; i < 2; i++) {
+                try (ManagedResponse response = HttpUtils.executeManaged(HttpUtils.post(server.url("/upload"), new ByteArrayEntity(body)))) {
+                    assertEquals("10000", response.getContentAsString());
+                }
+            }
+
+            manager.close();
+
+            // single connection reused for both requests
+            assertEquals(1, closed.size());
+            SocketMetrics metrics = closed.get(0);
+
+            assertEquals(server.getPort(), ((InetSocketAddress) metrics.getRemoteAddress()).getPort());
+            assertEquals(InetAddress.getLoopbackAddress(), ((InetSocketAddress) metrics.getLocalAddress()).getAddress());
+            assertTrue(metrics.getConnectTime() >= 0);
+            assertTrue(metrics.getOpenTime() > 0);
+            assertTrue(metrics.getBytesWritten() > 20_000, "Written: " + metrics.getBytesWritten());
+            assertTrue(metrics.getBytesRead() > 0);
+            assertTrue(metrics.getWriteThroughput() > 0);
+        }
+    }
+
+    @Test
+    void keepOptionsOfPooledConnection() throws Exception {
+
+        HttpUtils.setSocketOptions(options);
+        PoolingHttpClientConnectionManager manager = HttpUtils.createConnectionManager(1, 1);
+        HttpUtils.setConnectionManager(manager);
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/", exchange -> LocalServer.send(exchange, 200, "OK"));
+
+            try (ManagedResponse response = HttpUtils.executeManaged(HttpUtils.get(server.url("/")))) {
+                assertEquals("OK", response.getContentAsString());
+            }
+
+            // lease the idle connection used for request
+            URI uri = URI.create(server.url("/"));
+            HttpRoute route = new HttpRoute(new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme()));
+            HttpClientConnection connection = manager.requestConnection(route, null).get(1, TimeUnit.SECONDS);
+
+            try {
+                Socket socket = ((ManagedHttpClientConnection) connection).getSocket();
+                assertTrue(socket instanceof TunedSocket);
+                assertFalse(socket.getTcpNoDelay());
+                assertTrue(socket.getKeepAlive());
+                assertEquals(1, socket.getSoLinger());
+            } finally {
+                manager.releaseConnection(connection, null, 0, TimeUnit.MILLISECONDS);
+                manager.close();
+            }
+        }
+    }
+
+    @Test
+    void layerSslOnTunedSocket() throws Exception {
+
+        TunedSSLSocketFactory factory = new TunedSSLSocketFactory((SSLSocketFactory) SSLSocketFactory.getDefault(), options);
+
+        try (LocalServer server = new LocalServer()) {
+
+            Socket socket = factory.createSocket();
+            assertTrue(socket instanceof TunedSocket);
+
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+            socket.setTcpNoDelay(true); // as set by HttpsURLConnection
+
+            Socket secure = factory.createSocket(socket, "localhost", server.getPort(), true);
+            assertTrue(secure instanceof SSLSocket);
+            assertFalse(socket.getTcpNoDelay());
+
+            secure.close();
+            assertEquals(1, closed.size());
+            assertTrue(((TunedSocket) socket).getMetrics().getConnectTime() >= 0);
+        }
+    }
+}
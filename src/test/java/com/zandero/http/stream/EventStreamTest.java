@@ -0,0 +1,206 @@
+package com.zandero.http.stream;
+
+import com.sun.net.httpserver.*;
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStreamTest {
+
+    @Test
+    void parseServerSentEvents() throws IOException {
+
+        String stream = "\uFEFF: comment\r\n" +
+                        "retry: 100\r\n" +
+                        "id: 1\n" +
+                        "event: update\n" +
+                        "data: first\n" +
+                        "data:second\n" +
+                        "\n" +
+                        "data: no id change\r" +
+                        "\r" +
+                        "id\n" +
+                        "data\n" +
+                        "\n" +
+                        "data: incomplete";
+
+        EventReader reader = new EventReader(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), EventStream.Format.SSE, 1024, null);
+
+        Event event = reader.next();
+        assertEquals("1", event.getId());
+        assertEquals("update", event.getType());
+        assertEquals("first\nsecond", event.getData());
+        assertEquals(100, reader.getRetry());
+
+        event = reader.next();
+        assertEquals("1", event.getId());
+        assertEquals(Event.MESSAGE, event.getType());
+        assertEquals("no id change", event.getData());
+
+        event = reader.next();
+        assertNull(event.getId());
+        assertEquals("", event.getData());
+
+        assertNull(reader.next());
+    }
+
+    @Test
+    void parseJsonLines() throws IOException {
+
+        String stream = "{\"a\":1}\n\n  \r\n{\"a\":2}";
+        EventReader reader = new EventReader(new ByteArrayInputStream(stream.getBytes(StandardCharsets.UTF_8)), EventStream.Format.NDJSON, 1024, null);
+
+        assertEquals(1, reader.next().getData(Map.class).get("a"));
+        assertEquals("{\"a\":2}", reader.next().getData());
+        assertNull(reader.next());
+
+        EventReader tooBig = new EventReader(new ByteArrayInputStream("0123456789\n".getBytes(StandardCharsets.UTF_8)), EventStream.Format.NDJSON, 5, null);
+        assertThrows(IOException.class, tooBig::next);
+    }
+
+    @Test
+    void reconnectWithLastEventId() throws Exception {
+
+        List<String> lastEventIds = new CopyOnWriteArrayList<>();
+        AtomicInteger connections = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/events", exchange -> {
+                lastEventIds.add("" + exchange.getRequestHeaders().getFirst("Last-Event-ID"));
+                int connection = connections.incrementAndGet();
+                stream(exchange, "retry: 10\nid: " + connection + "\ndata: event " + connection + "\n\n");
+            });
+
+            BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+            Flow.Subscription subscription = new EventStream(server.url("/events"), EventStream.Format.SSE).listen(events::add);
+
+            try {
+                assertEquals("event 1", events.poll(2, TimeUnit.SECONDS).getData());
+                assertEquals("event 2", events.poll(2, TimeUnit.SECONDS).getData());
+                assertEquals("event 3", events.poll(2, TimeUnit.SECONDS).getData());
+            } finally {
+                subscription.cancel();
+            }
+
+            assertEquals(Arrays.asList("null", "1", "2"), lastEventIds.subList(0, 3));
+        }
+    }
+
+    @Test
+    void backpressure() throws Exception {
+
+        CountDownLatch done = new CountDownLatch(1);
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/lines", exchange -> stream(exchange, "{\"id\":1}\n{\"id\":2}\n{\"id\":3}\n"));
+
+            List<Event> events = new CopyOnWriteArrayList<>();
+            AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+
+            new EventStream(server.url("/lines"), EventStream.Format.NDJSON).subscribe(new Flow.Subscriber<Event>() {
+                @Override
+                public void onSubscribe(Flow.Subscription s) {
+                    subscription.set(s);
+                    s.request(1);
+                }
+
+                @Override
+                public void onNext(Event item) {
+                    events.add(item);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    done.countDown();
+                }
+            });
+
+            long until = System.currentTimeMillis() + 2000;
+            while (events.isEmpty() && System.currentTimeMillis() < until) {
+                Thread.sleep(10);
+            }
+
+            // no more events are delivered until requested
+            Thread.sleep(200);
+            assertEquals(1, events.size());
+
+            subscription.get().request(5);
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertEquals(3, events.size());
+        }
+    }
+
+    @Test
+    void noReconnectOnClientError() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/missing", 404, "Not found");
+            server.respond("/done", 204, null);
+
+            CompletableFuture<Throwable> error = new CompletableFuture<>();
+            new EventStream(server.url("/missing"), EventStream.Format.SSE).listen(event -> fail("No events expected"), error::complete);
+
+            Throwable failure = error.get(2, TimeUnit.SECONDS);
+            assertTrue(failure instanceof Http.HttpException);
+            assertEquals(404, ((Http.HttpException) failure).getCode());
+
+            CountDownLatch completed = new CountDownLatch(1);
+            new EventStream(server.url("/done"), EventStream.Format.SSE).subscribe(new Flow.Subscriber<Event>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(Event item) {
+                    fail("No events expected");
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.countDown();
+                }
+            });
+
+            assertTrue(completed.await(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void failOnRuntimeError() throws Exception {
+
+        // not an HTTP connection
+        CompletableFuture<Throwable> error = new CompletableFuture<>();
+        new EventStream("file:///events", EventStream.Format.SSE).listen(event -> fail("No events expected"), error::complete);
+
+        assertTrue(error.get(2, TimeUnit.SECONDS) instanceof ClassCastException);
+    }
+
+    private static void stream(HttpExchange exchange, String body) throws IOException {
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+        exchange.close();
+    }
+}
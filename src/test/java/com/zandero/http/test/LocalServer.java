@@ -0,0 +1,72 @@
+package com.zandero.http.test;
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+/**
+ * Local HTTP server on a random port for testing purposes only
+ */
+public class LocalServer implements AutoCloseable {
+
+    private final HttpServer server;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    public LocalServer() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public LocalServer handle(String path, HttpHandler handler) {
+
+        server.createContext(path, handler);
+        return this;
+    }
+
+    /**
+     * Responds with given status and body
+     */
+    public LocalServer respond(String path, int status, String body) {
+
+        return handle(path, exchange -> send(exchange, status, body));
+    }
+
+    public String url(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void send(HttpExchange exchange, int status, String body) throws IOException {
+
+        byte[] bytes = body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    public static String read(HttpExchange exchange) throws IOException {
+
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,202 @@
+package com.zandero.http.tracing;
+
+import com.zandero.http.*;
+import com.zandero.http.flow.*;
+import com.zandero.http.logging.*;
+import com.zandero.http.test.*;
+import org.apache.http.*;
+import org.apache.http.impl.conn.*;
+import org.junit.jupiter.api.*;
+import org.mockito.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingTest {
+
+    private static final String TRACEPARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    private final InMemorySpanExporter exporter = new InMemorySpanExporter();
+
+    @BeforeEach
+    void setExporter() {
+        Tracing.setExporter(exporter);
+    }
+
+    @AfterEach
+    void removeExporter() {
+        Tracing.setExporter(null);
+    }
+
+    @Test
+    void parseTraceparent() {
+
+        TraceContext context = TraceContext.parse(TRACEPARENT, "congo=t61rcWkgMzE");
+        assertNotNull(context);
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.getTraceId());
+        assertEquals("00f067aa0ba902b7", context.getSpanId());
+        assertTrue(context.isSampled());
+        assertEquals("congo=t61rcWkgMzE", context.getTraceState());
+        assertEquals(TRACEPARENT, context.toTraceparent());
+
+        TraceContext child = context.child();
+        assertEquals(context.getTraceId(), child.getTraceId());
+        assertNotEquals(context.getSpanId(), child.getSpanId());
+        assertEquals("congo=t61rcWkgMzE", child.getTraceState());
+
+        // future version may add fields
+        assertNotNull(TraceContext.parse("01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00-extra", null));
+
+        assertNull(TraceContext.parse(null, null));
+        assertNull(TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01", null));
+        assertNull(TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01", null));
+        assertNull(TraceContext.parse(TRACEPARENT + "-extra", null));
+
+        TraceContext root = TraceContext.root();
+        assertEquals(55, root.toTraceparent().length());
+        assertEquals(root, TraceContext.parse(root.toTraceparent(), null));
+    }
+
+    @Test
+    void propagateInboundTraceToHttp() throws Exception {
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader(TraceContext.TRACEPARENT)).thenReturn(TRACEPARENT);
+        Mockito.when(request.getHeader(TraceContext.TRACESTATE)).thenReturn("congo=t61rcWkgMzE");
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> LocalServer.send(exchange, 200, exchange.getRequestHeaders().getFirst(TraceContext.TRACEPARENT) + " " +
+                                                                               exchange.getRequestHeaders().getFirst(TraceContext.TRACESTATE)));
+
+            String[] received;
+            try (RequestContext context = RequestContext.start(request)) {
+                assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.get(RequestContext.TRACE_ID));
+                received = Http.get(server.url("/echo")).getResponse().split(" ");
+            }
+
+            assertNull(Tracing.current());
+
+            TraceContext outbound = TraceContext.parse(received[0], received[1]);
+            assertNotNull(outbound);
+            assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", outbound.getTraceId());
+            assertEquals("congo=t61rcWkgMzE", outbound.getTraceState());
+
+            List<Span> spans = exporter.getSpans();
+            assertEquals(1, spans.size());
+
+            Span span = spans.get(0);
+            assertTrue(span.getName().startsWith("GET "));
+            assertEquals(outbound.getSpanId(), span.getSpanId());
+            assertEquals("00f067aa0ba902b7", span.getParentId());
+            assertEquals(200, span.getStatusCode());
+            assertEquals(EnumSet.of(Span.Phase.CONNECT, Span.Phase.TTFB, Span.Phase.DOWNLOAD), span.getDurations().keySet());
+            assertTrue(span.getDuration() >= span.getDuration(Span.Phase.TTFB));
+        }
+    }
+
+    @Test
+    void traceHttpUtilsCalls() throws Exception {
+
+        PoolingHttpClientConnectionManager manager = HttpUtils.createConnectionManager(1, 1);
+        HttpUtils.setConnectionManager(manager);
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> LocalServer.send(exchange, 200, exchange.getRequestHeaders().getFirst(TraceContext.TRACEPARENT)));
+
+            // no inbound trace ... each call starts a new trace
+            String first = HttpUtils.getContentAsString(HttpUtils.execute(HttpUtils.get(server.url("/echo"))));
+            String second = HttpUtils.getContentAsString(HttpUtils.execute(HttpUtils.get(server.url("/echo"))));
+
+            List<Span> spans = exporter.getSpans();
+            assertEquals(2, spans.size());
+
+            assertEquals(spans.get(0).getContext().toTraceparent(), first);
+            assertEquals(spans.get(1).getContext().toTraceparent(), second);
+            assertNull(spans.get(0).getParentId());
+
+            assertEquals(EnumSet.of(Span.Phase.CONNECT, Span.Phase.TTFB, Span.Phase.DOWNLOAD), spans.get(0).getDurations().keySet());
+            assertEquals(EnumSet.of(Span.Phase.POOL_WAIT, Span.Phase.TTFB, Span.Phase.DOWNLOAD), spans.get(1).getDurations().keySet());
+        } finally {
+            HttpUtils.setConnectionManager(null);
+            manager.close();
+        }
+    }
+
+    @Test
+    void traceAsyncAndStreamingCalls() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/echo", exchange -> LocalServer.send(exchange, 200, exchange.getRequestHeaders().getFirst(TraceContext.TRACEPARENT)));
+
+            String async;
+            CompletableFuture<StreamingResponse> streaming;
+            try (Tracing.Scope ignored = Tracing.activate(TraceContext.parse(TRACEPARENT, null))) {
+                CompletableFuture<HttpResponse> response = HttpUtils.executeAsync(ForkJoinPool.commonPool(), HttpUtils.get(server.url("/echo")), null);
+                async = HttpUtils.getContentAsString(response.get(5, TimeUnit.SECONDS));
+                streaming = HttpUtils.executeStreaming(HttpUtils.get(server.url("/echo")));
+            }
+
+            CompletableFuture<String> body = new CompletableFuture<>();
+            streaming.get(5, TimeUnit.SECONDS).getBody().subscribe(new Flow.Subscriber<>() {
+
+                private final StringBuilder content = new StringBuilder();
+
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(ByteBuffer item) {
+                    content.append(StandardCharsets.US_ASCII.decode(item));
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    body.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    body.complete(content.toString());
+                }
+            });
+
+            String streamed = body.get(5, TimeUnit.SECONDS);
+
+            List<Span> spans = exporter.getSpans();
+            assertEquals(2, spans.size());
+
+            assertEquals(spans.get(0).getContext().toTraceparent(), async);
+            assertEquals(spans.get(1).getContext().toTraceparent(), streamed);
+
+            for (Span span : spans) {
+                assertEquals("00f067aa0ba902b7", span.getParentId());
+                assertEquals(200, span.getStatusCode());
+                assertEquals(EnumSet.of(Span.Phase.TTFB, Span.Phase.DOWNLOAD), span.getDurations().keySet());
+            }
+        }
+    }
+
+    @Test
+    void failedCallIsExported() throws Exception {
+
+        int port;
+        try (LocalServer server = new LocalServer()) {
+            port = server.getPort();
+        }
+
+        assertThrows(Exception.class, () -> HttpUtils.execute(HttpUtils.get("http://127.0.0.1:" + port + "/closed")));
+
+        List<Span> spans = exporter.getSpans();
+        assertEquals(1, spans.size());
+        assertNotNull(spans.get(0).getError());
+        assertEquals(0, spans.get(0).getStatusCode());
+    }
+}
@@ -0,0 +1,277 @@
+package com.zandero.http.unix;
+
+import com.zandero.http.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnixSocketsTest {
+
+    @TempDir
+    Path directory;
+
+    private Server server;
+
+    @BeforeEach
+    void start() throws Exception {
+
+        Assumptions.assumeTrue(UnixSockets.isSupported(), "Unix domain sockets not supported by JVM");
+
+        server = new Server(directory.resolve("sidecar.sock"));
+        Http.setUnixSocket("sidecar", server.socket);
+    }
+
+    @AfterEach
+    void stop() {
+
+        Http.setUnixSocket("sidecar", null);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void requestsToRegisteredHost() throws Exception {
+
+        for (int i = 0; i < 5; i++) {
+            Http.Response response = Http.get("http://sidecar/echo", Collections.singletonMap("i", "" + i));
+            assertEquals(200, response.getCode());
+            assertEquals("GET /echo?i=" + i + " null ", response.getResponse());
+        }
+
+        // single connection kept alive
+        assertEquals(1, server.connections.get());
+
+        Http.Response response = Http.post("http://sidecar/echo", "body", null, Collections.singletonMap("X-Test", "test"));
+        assertEquals("POST /echo test body", response.getResponse());
+
+        // chunked request body
+        response = Http.post("http://sidecar/echo", (Object) Collections.singletonMap("a", 1));
+        assertEquals("POST /echo null {\"a\":1}", response.getResponse());
+
+        // chunked response body
+        Map<?, ?> json = Http.getAs("http://sidecar/json", Map.class);
+        assertEquals("unix", json.get("name"));
+
+        response = Http.get("http://sidecar/missing");
+        assertEquals(404, response.getCode());
+        assertEquals("not found", response.getResponse());
+        assertEquals(Collections.singletonList("text/plain"), response.getHeaders("content-type"));
+
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    void unixScheme() throws Exception {
+
+        String url = "http+unix://" + URLEncoder.encode(server.socket.toString(), StandardCharsets.UTF_8) + "/echo";
+        assertEquals("GET /echo null ", Http.get(url).getResponse());
+    }
+
+    @Test
+    void unixSchemeOnlyForRegisteredSocket() throws Exception {
+
+        Path other = directory.resolve("other.sock");
+        try (Server ignored = new Server(other)) {
+
+            String url = "http+unix://" + URLEncoder.encode(other.toString(), StandardCharsets.UTF_8) + "/echo";
+            Http.HttpException e = assertThrows(Http.HttpException.class, () -> Http.get(url));
+            assertTrue(e.getCause() instanceof MalformedURLException, "Cause: " + e.getCause());
+
+            Http.setUnixSocket("other", other);
+            try {
+                assertEquals("GET /echo null ", Http.get(url).getResponse());
+            } finally {
+                Http.setUnixSocket("other", null);
+            }
+        }
+    }
+
+    @Test
+    void reconnectOnceIdleConnectionIsClosed() throws Exception {
+
+        // server closes connection after response without telling
+        assertEquals("GET /drop null ", Http.get("http://sidecar/drop").getResponse());
+        Thread.sleep(50);
+
+        // request is repeated on a new connection
+        assertEquals("GET /echo null ", Http.get("http://sidecar/echo").getResponse());
+        assertEquals(2, server.connections.get());
+    }
+
+    @Test
+    void readTimeOut() throws Exception {
+
+        long start = System.nanoTime();
+        Http.HttpException e = assertThrows(Http.HttpException.class, () -> Http.get("http://sidecar/slow", null, null, 1000, 200));
+        assertTrue(e.getCause() instanceof SocketTimeoutException, "Cause: " + e.getCause());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+        assertEquals("GET /echo null ", Http.get("http://sidecar/echo").getResponse());
+    }
+
+    @Test
+    void rejectLineBreaksInRequest() throws Exception {
+
+        HttpURLConnection connection = (HttpURLConnection) UnixSockets.toUrl("http://sidecar/echo").openConnection();
+        assertThrows(IllegalArgumentException.class, () -> connection.setRequestProperty("X-Test", "test\r\nX-Injected: true"));
+        assertThrows(IllegalArgumentException.class, () -> connection.addRequestProperty("X-Test\r\nX-Injected", "true"));
+        assertThrows(IllegalArgumentException.class, () -> connection.setRequestProperty("X Test", "test"));
+
+        Http.HttpException e = assertThrows(Http.HttpException.class,
+                                            () -> Http.get("http://sidecar/echo", null, Collections.singletonMap("X-Test", "test\nX-Injected: true")));
+        assertTrue(e.getCause() instanceof IllegalArgumentException, "Cause: " + e.getCause());
+
+        HttpURLConnection target = (HttpURLConnection) UnixSockets.toUrl(new URL("http://sidecar/echo HTTP/1.1\r\nX-Injected: true\r\n")).openConnection();
+        assertThrows(MalformedURLException.class, target::getResponseCode);
+
+        // nothing was sent
+        assertEquals(0, server.connections.get());
+    }
+
+    @Test
+    void rejectTooLongResponseLine() throws Exception {
+
+        Http.HttpException e = assertThrows(Http.HttpException.class, () -> Http.get("http://sidecar/long"));
+        assertTrue(e.getCause() instanceof ProtocolException, "Cause: " + e.getCause());
+
+        // next request is sent on a new connection
+        assertEquals("GET /echo null ", Http.get("http://sidecar/echo").getResponse());
+        assertEquals(2, server.connections.get());
+    }
+
+    /**
+     * Minimal HTTP/1.1 server on a unix domain socket, echoes method, target, X-Test header and body
+     */
+    private static class Server implements Closeable {
+
+        private final Path socket;
+
+        private final ServerSocketChannel channel;
+
+        private final ExecutorService executor = Executors.newCachedThreadPool();
+
+        private final AtomicInteger connections = new AtomicInteger();
+
+        Server(Path socketPath) throws Exception {
+
+            socket = socketPath;
+            channel = (ServerSocketChannel) ServerSocketChannel.class.getMethod("open", ProtocolFamily.class)
+                                                                     .invoke(null, StandardProtocolFamily.valueOf("UNIX"));
+            channel.bind(UnixChannels.address(socket));
+
+            executor.submit(() -> {
+                while (channel.isOpen()) {
+                    SocketChannel client = channel.accept();
+                    connections.incrementAndGet();
+                    executor.submit(() -> serve(client));
+                }
+                return null;
+            });
+        }
+
+        private Void serve(SocketChannel client) throws Exception {
+
+            try (SocketChannel ignored = client) {
+                InputStream in = new BufferedInputStream(Channels.newInputStream(client));
+                OutputStream out = Channels.newOutputStream(client);
+
+                String request;
+                while ((request = readLine(in)) != null) {
+
+                    Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                    String line;
+                    while (!(line = readLine(in)).isEmpty()) {
+                        headers.put(line.substring(0, line.indexOf(':')), line.substring(line.indexOf(':') + 1).trim());
+                    }
+
+                    ByteArrayOutputStream body = new ByteArrayOutputStream();
+                    if ("chunked".equals(headers.get("Transfer-Encoding"))) {
+                        int size;
+                        while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+                            body.write(in.readNBytes(size));
+                            readLine(in);
+                        }
+                        readLine(in);
+                    } else if (headers.containsKey("Content-Length")) {
+                        body.write(in.readNBytes(Integer.parseInt(headers.get("Content-Length"))));
+                    }
+
+                    String[] parts = request.split(" ");
+                    String path = parts[1];
+
+                    if (path.startsWith("/json")) {
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nTransfer-Encoding: chunked\r\n\r\n" +
+                                   "6\r\n{\"name\r\n9\r\n\":\"unix\"}\r\n0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        continue;
+                    }
+
+                    if (path.startsWith("/long")) {
+                        out.write(("HTTP/1.1 200 OK\r\nX-Long: " + "x".repeat(100_000) + "\r\nContent-Length: 0\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                        continue;
+                    }
+
+                    if (path.startsWith("/missing")) {
+                        respond(out, 404, "not found");
+                        continue;
+                    }
+
+                    if (path.startsWith("/slow")) {
+                        Thread.sleep(1000);
+                    }
+
+                    respond(out, 200, parts[0] + " " + path + " " + headers.get("X-Test") + " " + body.toString(StandardCharsets.UTF_8));
+
+                    if (path.startsWith("/drop")) {
+                        return null;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        private static void respond(OutputStream out, int status, String body) throws IOException {
+
+            byte[] content = body.getBytes(StandardCharsets.UTF_8);
+            out.write(("HTTP/1.1 " + status + " Status\r\nContent-Type: text/plain\r\nContent-Length: " + content.length + "\r\n\r\n")
+                          .getBytes(StandardCharsets.ISO_8859_1));
+            out.write(content);
+        }
+
+        private static String readLine(InputStream in) throws IOException {
+
+            StringBuilder line = new StringBuilder();
+            int value;
+            while ((value = in.read()) >= 0 && value != '\n') {
+                if (value != '\r') {
+                    line.append((char) value);
+                }
+            }
+
+            return value < 0 && line.length() == 0 ? null : line.toString();
+        }
+
+        @Override
+        public void close() {
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // nothing to do
+            }
+
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.zandero.http.warmup;
+
+import com.zandero.http.*;
+import com.zandero.http.test.*;
+import org.apache.http.impl.conn.*;
+import org.junit.jupiter.api.*;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WarmupTest {
+
+    private PoolingHttpClientConnectionManager manager;
+
+    @BeforeEach
+    void enablePooling() {
+
+        manager = HttpUtils.createConnectionManager(10, 3);
+        HttpUtils.setConnectionManager(manager);
+    }
+
+    @AfterEach
+    void disablePooling() {
+
+        HttpUtils.setConnectionManager(null);
+        manager.close();
+    }
+
+    @Test
+    void openConnectionsUpfront() throws Exception {
+
+        try (LocalServer server = new LocalServer()) {
+            server.respond("/ok", 200, "ok");
+
+            // more connections than allowed per route are capped
+            Warmup warmup = new Warmup().addHost(server.url("/"), 5);
+            assertFalse(warmup.isReady());
+            assertNull(warmup.getReport());
+
+            WarmupReport report = warmup.run();
+
+            assertTrue(warmup.isReady());
+            assertSame(report, warmup.getReport());
+            assertTrue(report.isSuccess());
+            assertEquals(3, report.getConnections().get("http://" + server.url("/").split("/")[2]));
+            assertEquals(3, manager.getTotalStats().getAvailable());
+
+            // requests lease warmed connections instead of opening new ones
+            for (int i = 0; i < 5; i++) {
+                try (ManagedResponse response = HttpUtils.executeManaged(HttpUtils.get(server.url("/ok")))) {
+                    assertTrue(response.isSuccess());
+                }
+            }
+
+            assertEquals(3, manager.getTotalStats().getAvailable());
+        }
+    }
+
+    @Test
+    void executeSyntheticRequests() throws Exception {
+
+        AtomicInteger calls = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/health", exchange -> {
+                calls.incrementAndGet();
+                LocalServer.send(exchange, 200, "ok");
+            });
+            server.respond("/missing", 404, "missing");
+
+            WarmupReport report = new Warmup().addHost(server.url("/"), 2)
+                                              .addRequest(server.url("/health"))
+                                              .addRequest(server.url("/missing"))
+                                              .setRounds(5)
+                                              .start()
+                                              .get(10, TimeUnit.SECONDS);
+
+            // each round executes request with HttpUtils and Http
+            assertEquals(10, calls.get());
+            assertEquals(10, report.getRequests());
+            assertFalse(report.isSuccess());
+            assertEquals(10, report.getFailures().size());
+            assertTrue(report.getFailures().get(0).endsWith("/missing: 404"));
+        }
+    }
+
+    @Test
+    void unreachableHostIsReported() throws Exception {
+
+        int port;
+        try (LocalServer server = new LocalServer()) {
+            port = server.getPort();
+        }
+
+        Warmup warmup = new Warmup(manager).addHost("http://127.0.0.1:" + port, 2).setTimeout(500);
+        WarmupReport report = warmup.run();
+
+        // ready regardless of failures, not to block start up on an unavailable downstream
+        assertTrue(warmup.isReady());
+        assertFalse(report.isSuccess());
+        assertEquals(0, report.getConnections().get("http://127.0.0.1:" + port));
+        assertEquals(2, report.getFailures().size());
+        assertEquals(0, manager.getTotalStats().getAvailable());
+        assertEquals(0, manager.getTotalStats().getLeased());
+    }
+
+    @Test
+    void poolingMustBeEnabled() {
+
+        HttpUtils.setConnectionManager(null);
+        assertThrows(IllegalArgumentException.class, Warmup::new);
+        assertThrows(IllegalArgumentException.class, () -> new Warmup(manager).addHost("api.example.com", 1));
+    }
+}
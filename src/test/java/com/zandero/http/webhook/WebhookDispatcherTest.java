@@ -0,0 +1,216 @@
+package com.zandero.http.webhook;
+
+import com.zandero.http.test.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import java.util.stream.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebhookDispatcherTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void deliverInOrderAndCompactLog() throws Exception {
+
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/hook", exchange -> {
+                received.add(LocalServer.read(exchange));
+                LocalServer.send(exchange, 200, "OK");
+            });
+
+            try (WebhookDispatcher dispatcher = new WebhookDispatcher(directory).setSegmentSize(4096)
+                                                                               .setFlushInterval(5, TimeUnit.MILLISECONDS)
+                                                                               .start()) {
+
+                List<CompletableFuture<Void>> durable = new ArrayList<>();
+                for (int i = 0; i < 100; i++) {
+                    durable.add(dispatcher.submit(Webhook.json(server.url("/hook"), "{\"n\":" + i + "}")));
+                }
+
+                CompletableFuture.allOf(durable.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+                await(() -> dispatcher.getDelivered() == 100);
+                assertEquals(0, dispatcher.getPending());
+                assertEquals(0, dispatcher.getFailed());
+
+                for (int i = 0; i < 100; i++) {
+                    assertEquals("{\"n\":" + i + "}", received.get(i));
+                }
+
+                // all but active segment are deleted once delivered
+                await(() -> segments().size() == 1);
+            }
+        }
+    }
+
+    @Test
+    void retryWithBackoff() throws Exception {
+
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger badCalls = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/flaky", exchange -> {
+                LocalServer.read(exchange);
+                LocalServer.send(exchange, calls.incrementAndGet() <= 2 ? 503 : 200, "");
+            });
+
+            server.handle("/bad", exchange -> {
+                LocalServer.read(exchange);
+                badCalls.incrementAndGet();
+                LocalServer.send(exchange, 400, "");
+            });
+
+            try (WebhookDispatcher dispatcher = new WebhookDispatcher(directory).setRetry(5, 10, 50, TimeUnit.MILLISECONDS).start()) {
+
+                dispatcher.submit(Webhook.json(server.url("/flaky"), "{}"));
+                await(() -> dispatcher.getDelivered() == 1);
+                assertEquals(3, calls.get());
+
+                // client errors are not retried
+                dispatcher.submit(Webhook.json(server.url("/bad"), "{}"));
+                await(() -> dispatcher.getFailed() == 1);
+                assertEquals(1, badCalls.get());
+                assertEquals(0, dispatcher.getPending());
+            }
+        }
+    }
+
+    @Test
+    void giveUpWhenRetryCanNotBeLogged() throws Exception {
+
+        AtomicInteger calls = new AtomicInteger();
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/down", exchange -> {
+                LocalServer.read(exchange);
+                calls.incrementAndGet();
+                LocalServer.send(exchange, 503, "");
+            });
+
+            try (WebhookDispatcher dispatcher = new WebhookDispatcher(directory).setSegmentSize(4096)
+                                                                               .setRetry(3, 5, 10, TimeUnit.MILLISECONDS)
+                                                                               .start()) {
+
+                // next segment can not be created ... retry records can not be appended
+                Files.createFile(directory.resolve(String.format("webhooks-%020d.log", 2)));
+
+                dispatcher.submit(new Webhook(server.url("/down"), "text/plain", new byte[3000], null));
+                await(() -> dispatcher.getFailed() == 1);
+
+                assertEquals(3, calls.get());
+                assertEquals(0, dispatcher.getPending());
+            }
+        }
+    }
+
+    @Test
+    void pendingWebhooksAreRecoveredOnStart() throws Exception {
+
+        Set<String> received = ConcurrentHashMap.newKeySet();
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (LocalServer server = new LocalServer()) {
+            server.handle("/hook", exchange -> {
+                String body = LocalServer.read(exchange);
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                received.add(body);
+                LocalServer.send(exchange, 200, "OK");
+            });
+
+            // first webhook hangs ... dispatcher is stopped with all three pending
+            WebhookDispatcher first = new WebhookDispatcher(directory).start();
+            for (int i = 0; i < 3; i++) {
+                first.submit(new Webhook(server.url("/hook"), "text/plain", ("hook " + i).getBytes(), Collections.singletonMap("X-Id", "" + i)))
+                     .get(5, TimeUnit.SECONDS);
+            }
+
+            assertEquals(3, first.getPending());
+            first.close();
+            release.countDown();
+
+            try (WebhookDispatcher second = new WebhookDispatcher(directory).start()) {
+                assertEquals(3, second.getPending());
+
+                await(() -> second.getDelivered() == 3);
+                assertEquals(new HashSet<>(Arrays.asList("hook 0", "hook 1", "hook 2")), received);
+            }
+        }
+    }
+
+    @Test
+    void invalidContentTypeIsRejected() {
+
+        assertThrows(IllegalArgumentException.class, () -> new Webhook("http://localhost/hook", " ", new byte[0], null));
+        assertThrows(IllegalArgumentException.class, () -> new Webhook("http://localhost/hook", "text/plain; charset=unknown", new byte[0], null));
+
+        assertEquals("text/plain; charset=UTF-8", new Webhook("http://localhost/hook", "text/plain; charset=UTF-8", new byte[0], null).getContentType());
+        assertNull(new Webhook("http://localhost/hook", null, new byte[0], null).getContentType());
+    }
+
+    @Test
+    void tornRecordIsIgnored() throws Exception {
+
+        WebhookLog.Record last;
+        try (WebhookLog log = new WebhookLog(directory, 4096)) {
+            log.append(Webhook.json("http://localhost/1", "{}"), 0, 0);
+            log.append(Webhook.json("http://localhost/2", "{}"), 2, 1234);
+            last = log.append(Webhook.json("http://localhost/3", "{}"), 0, 0);
+        }
+
+        // corrupt body of last record
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(java.nio.ByteBuffer.wrap(new byte[]{0x7f}), last.position + 40);
+        }
+
+        try (WebhookLog log = new WebhookLog(directory, 4096)) {
+
+            List<WebhookLog.Record> recovered = log.getRecovered();
+            assertEquals(2, recovered.size());
+            assertEquals("http://localhost/2", recovered.get(1).url);
+            assertEquals(2, recovered.get(1).attempts);
+            assertEquals(1234, recovered.get(1).notBefore);
+            assertEquals("application/json", log.read(recovered.get(1)).getContentType());
+            assertEquals("{}", new String(log.read(recovered.get(1)).getBody()));
+
+            // new sequence continues after recovered records
+            assertTrue(log.append(Webhook.json("http://localhost/4", "{}"), 0, 0).sequence > recovered.get(1).sequence);
+        }
+    }
+
+    private List<Path> segments() {
+
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws Exception {
+
+        long end = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < end, "Timed out waiting for condition");
+            Thread.sleep(10);
+        }
+    }
+}